@@ -2,8 +2,10 @@ package com.example.todomoney;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "com.example")
+@EnableScheduling
 public class BackendApplication {
   public static void main(String[] args) {
     SpringApplication.run(BackendApplication.class, args);
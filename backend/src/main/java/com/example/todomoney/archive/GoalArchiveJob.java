@@ -0,0 +1,85 @@
+package com.example.todomoney.archive;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.todomoney.sharding.ConsistentHashRing;
+import com.example.todomoney.sharding.ShardContext;
+
+/**
+ * 達成から min-age 経ったゴールを GoalArchiver で1件ずつ（1ゴール＝1トランザクション）アーカイブする。
+ * ゴール行を skip locked で取るので、複数ノードで同時に動いても同じゴールを二重に処理しない。
+ * シャーディングモードでは物理シャードごとに同じことをする。
+ */
+@Component
+@ConditionalOnProperty(name = "app.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class GoalArchiveJob {
+
+  private static final Logger log = LoggerFactory.getLogger(GoalArchiveJob.class);
+
+  private final GoalArchiver archiver;
+  private final ObjectProvider<ConsistentHashRing> ring;
+  private final Duration minAge;
+  private final int batchSize;
+
+  public record RunResult(int archived, long payloadBytes) {}
+
+  public GoalArchiveJob(
+      GoalArchiver archiver,
+      ObjectProvider<ConsistentHashRing> ring,
+      @Value("${app.archive.min-age:P30D}") Duration minAge,
+      @Value("${app.archive.batch-size:100}") int batchSize
+  ) {
+    this.archiver = archiver;
+    this.ring = ring;
+    this.minAge = minAge;
+    this.batchSize = batchSize;
+  }
+
+  @Scheduled(cron = "${app.archive.cron:0 0 4 * * *}")
+  public void scheduled() {
+    RunResult r = runOnce();
+    if (r.archived() > 0) log.info("archive: {} goals archived ({} bytes of payload)", r.archived(), r.payloadBytes());
+  }
+
+  public RunResult runOnce() {
+    ConsistentHashRing shards = ring.getIfAvailable();
+    List<String> targets = new ArrayList<>();
+    if (shards == null) targets.add(null); else targets.addAll(shards.shards());
+
+    int archived = 0;
+    long bytes = 0;
+    for (String shard : targets) {
+      RunResult r = shard == null ? archiveShard() : ShardContext.callOn(shard, this::archiveShard);
+      archived += r.archived();
+      bytes += r.payloadBytes();
+    }
+    return new RunResult(archived, bytes);
+  }
+
+  private RunResult archiveShard() {
+    int archived = 0;
+    long bytes = 0;
+    for (Long goalId : archiver.candidates(minAge, batchSize)) {
+      try {
+        GoalArchiver.Archived a = archiver.archive(goalId, minAge);
+        if (a == null) continue;
+        archived++;
+        bytes += a.payloadBytes();
+      } catch (RuntimeException e) {
+        // そのゴールだけ巻き戻って次回に回る
+        log.warn("archive of goal {} failed: {}", goalId, e.toString());
+      }
+    }
+    return new RunResult(archived, bytes);
+  }
+}
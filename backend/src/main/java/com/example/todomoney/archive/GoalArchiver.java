@@ -0,0 +1,216 @@
+package com.example.todomoney.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.observability.jfr.BulkOperationEvent;
+import com.example.todomoney.service.OccurrenceStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 達成済みゴールの明細をホットな表から goal_archives / archived_completion_logs へ移す（と戻す）。
+ *
+ * - archive: goal_archives に集計列と payload（tasks / task_tags / task_schedules / currency_events の行を
+ *   json_agg して gzip したもの）を1行書き、完了ログは archived_completion_logs へ、元の行は消す
+ * - restore: payload を json_populate_recordset で元の id のまま戻す。task_occurrences は持たずに展開し直す
+ *
+ * どちらも呼び出し元のトランザクションに乗る（GoalController.reopen と同じトランザクションで戻せるように）。
+ * 未精算の完了ログ・outbox に残った CurrencyEvent・ゴールと違う通貨のイベントがあるゴールはまだ移さない。
+ */
+@Component
+public class GoalArchiver {
+
+  private final JdbcTemplate jdbc;
+  private final ObjectMapper mapper;
+  private final CacheInvalidationBus invalidation;
+  private final OccurrenceStore occurrences;
+
+  public record Archived(long goalId, long userId, int tasks, int payloadBytes) {}
+
+  record Candidate(long userId, String currency) {}
+
+  public GoalArchiver(DataSource dataSource, ObjectMapper mapper, CacheInvalidationBus invalidation,
+      OccurrenceStore occurrences) {
+    this.jdbc = new JdbcTemplate(dataSource);
+    this.mapper = mapper;
+    this.invalidation = invalidation;
+    this.occurrences = occurrences;
+  }
+
+  /**
+   * 達成から minAge 経ったゴールの候補（古い順）。archive で断られる未精算・outbox・他通貨のゴールはここで外す
+   * （残すと先頭に居座って、limit 件すべてがそれで埋まると後ろのゴールがいつまでも移らない）。
+   */
+  public List<Long> candidates(Duration minAge, int limit) {
+    return jdbc.queryForList("""
+        select g.id from goals g
+        where g.achieved and g.achieved_at < now() - make_interval(secs => ?)
+          and not exists (select 1 from goal_archives a where a.goal_id = g.id)
+          and not exists (select 1 from task_completion_logs l join tasks t on t.id = l.task_id
+                          where t.goal_id = g.id and l.settled_at is null)
+          and not exists (select 1 from currency_event_outbox o where o.goal_id = g.id)
+          and not exists (select 1 from currency_events e where e.goal_id = g.id and e.currency <> g.currency)
+        order by g.achieved_at
+        limit ?
+        """, Long.class, minAge.toSeconds(), limit);
+  }
+
+  /** @return 移せなかった（条件外・他で処理中・未精算あり）なら null */
+  @Transactional
+  public Archived archive(long goalId, Duration minAge) {
+    List<Candidate> goal = jdbc.query("""
+        select g.user_id, g.currency from goals g
+        where g.id = ? and g.achieved and g.achieved_at < now() - make_interval(secs => ?)
+          and not exists (select 1 from goal_archives a where a.goal_id = g.id)
+        for update of g skip locked
+        """, (rs, i) -> new Candidate(rs.getLong(1), rs.getString(2)), goalId, minAge.toSeconds());
+    if (goal.isEmpty()) return null;
+    Candidate c = goal.get(0);
+
+    // 完了・完了ログの追加（tasks への FK）をここで止める
+    jdbc.queryForList("select id from tasks where goal_id = ? for update", Long.class, goalId);
+    Boolean pending = jdbc.queryForObject("""
+        select exists (select 1 from task_completion_logs l join tasks t on t.id = l.task_id
+                       where t.goal_id = ? and l.settled_at is null)
+            or exists (select 1 from currency_event_outbox o where o.goal_id = ?)
+            or exists (select 1 from currency_events e where e.goal_id = ? and e.currency <> ?)
+        """, Boolean.class, goalId, goalId, goalId, c.currency());
+    if (Boolean.TRUE.equals(pending)) return null;
+
+    BulkOperationEvent ev = new BulkOperationEvent();
+    ev.begin();
+
+    String json = jdbc.queryForObject("""
+        select json_build_object(
+          'tasks', (select coalesce(json_agg(t order by t.id), '[]') from tasks t where t.goal_id = ?),
+          'task_tags', (select coalesce(json_agg(x), '[]') from task_tags x
+                        join tasks t on t.id = x.task_id where t.goal_id = ?),
+          'task_schedules', (select coalesce(json_agg(s order by s.id), '[]') from task_schedules s
+                             join tasks t on t.id = s.task_id where t.goal_id = ?),
+          'currency_events', (select coalesce(json_agg(e order by e.id), '[]') from currency_events e where e.goal_id = ?)
+        )::text
+        """, String.class, goalId, goalId, goalId, goalId);
+    byte[] payload = gzip(json);
+
+    jdbc.update("""
+        insert into goal_archives(goal_id, user_id, currency, task_count, completed_count, event_count, amount_total, payload)
+        select ?, ?, ?,
+               (select count(*) from tasks where goal_id = ?),
+               (select count(*) from tasks where goal_id = ? and completed),
+               (select count(*) from currency_events where goal_id = ?),
+               (select coalesce(sum(amount), 0) from currency_events where goal_id = ?),
+               ?
+        """, goalId, c.userId(), c.currency(), goalId, goalId, goalId, goalId, payload);
+    jdbc.update("""
+        insert into archived_completion_logs(id, user_id, goal_id, task_id, task_title, occurrence_date, completed_at,
+                                             settled_at)
+        select l.id, l.user_id, t.goal_id, l.task_id, t.title, l.occurrence_date, l.completed_at, l.settled_at
+        from task_completion_logs l join tasks t on t.id = l.task_id
+        where t.goal_id = ?
+        """, goalId);
+
+    // イベントを先に（completion_log_id の SET NULL を走らせない）。tasks の削除で task_tags / task_schedules /
+    // task_occurrences / task_completion_logs は FK の cascade で消える
+    jdbc.update("delete from currency_events where goal_id = ?", goalId);
+    int tasks = jdbc.update("delete from tasks where goal_id = ?", goalId);
+
+    publish(c.userId(), goalId);
+    if (ev.shouldCommit()) {
+      ev.operation = "archive.goal";
+      ev.userId = c.userId();
+      ev.rows = tasks;
+      ev.commit();
+    }
+    return new Archived(goalId, c.userId(), tasks, payload.length);
+  }
+
+  /** @return アーカイブされていなければ false */
+  @Transactional
+  public boolean restore(long userId, long goalId) {
+    // 同時に走るアーカイブ（skip locked）から外す
+    jdbc.queryForList("select id from goals where id = ? for update", Long.class, goalId);
+    List<byte[]> rows = jdbc.query("select payload from goal_archives where goal_id = ? and user_id = ? for update",
+        (rs, i) -> rs.getBytes(1), goalId, userId);
+    if (rows.isEmpty()) return false;
+
+    JsonNode payload;
+    try {
+      payload = mapper.readTree(gunzip(rows.get(0)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    // FK の順：tasks → task_tags / task_schedules / 完了ログ → currency_events（completion_log_id）
+    insertRows("tasks", payload);
+    // アーカイブ中に消されたタグは付け直さない
+    jdbc.update("""
+        insert into task_tags
+        select x.* from json_populate_recordset(null::task_tags, ?::json) x
+        where exists (select 1 from tag where tag.id = x.tag_id)
+        """, payload.path("task_tags").toString());
+    insertRows("task_schedules", payload);
+    jdbc.update("""
+        insert into task_completion_logs(id, user_id, task_id, occurrence_date, completed_at, settled_at)
+        select id, user_id, task_id, occurrence_date, completed_at, settled_at
+        from archived_completion_logs where goal_id = ?
+        """, goalId);
+    insertRows("currency_events", payload);
+    jdbc.update("delete from goal_archives where goal_id = ?", goalId); // archived_completion_logs は cascade
+
+    // アーカイブ中に進んだホライズンの分も含めて展開し直す
+    Set<Long> scheduled = new LinkedHashSet<>();
+    for (JsonNode s : payload.path("task_schedules")) scheduled.add(s.path("task_id").asLong());
+    occurrences.rebuildTasks(userId, scheduled);
+
+    publish(userId, goalId);
+    return true;
+  }
+
+  // 元の表の行型に json をそのまま当てはめる（列が増えても payload 側はそのまま使える）
+  private void insertRows(String table, JsonNode payload) {
+    jdbc.update("insert into " + table + " select * from json_populate_recordset(null::" + table + ", ?::json)",
+        payload.path(table).toString());
+  }
+
+  private void publish(long userId, long goalId) {
+    invalidation.publish(Invalidation.of(Scope.GOALS, userId, goalId));
+    invalidation.publish(Invalidation.of(Scope.TASKS, userId));
+    invalidation.publish(Invalidation.of(Scope.SCHEDULES, userId));
+    invalidation.publish(Invalidation.of(Scope.COMPLETIONS, userId));
+  }
+
+  private static byte[] gzip(String json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(json.length() / 4 + 64);
+    try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+      gz.write(json.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] gunzip(byte[] data) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      return in.readAllBytes();
+    }
+  }
+}
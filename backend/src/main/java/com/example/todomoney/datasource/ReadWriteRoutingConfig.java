@@ -0,0 +1,80 @@
+package com.example.todomoney.datasource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * app.datasource.routing.enabled=true のときだけ、spring.datasource をプライマリ、
+ * app.datasource.replica-urls（カンマ区切り）をレプリカとしてルーティング DataSource を組む。
+ * 無効時は Spring Boot の通常の DataSource のまま。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+public class ReadWriteRoutingConfig {
+
+  @Bean
+  public ReadYourWritesWindow readYourWritesWindow(
+      @Value("${app.datasource.read-your-writes-window:PT3S}") Duration window) {
+    return new ReadYourWritesWindow(window);
+  }
+
+  @Bean
+  public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+      DataSourceProperties props,
+      ReadYourWritesWindow readYourWrites,
+      MeterRegistry meterRegistry,
+      @Value("${app.datasource.replica-urls:}") String replicaUrls,
+      @Value("${app.datasource.health-check-interval:PT5S}") Duration healthCheckInterval,
+      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize
+  ) {
+    // Boot の自動バインドを使わないので、Hikari のメトリクスは自前で登録する
+    var metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+    HikariDataSource primary = props.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    primary.setPoolName("primary");
+    primary.setMaximumPoolSize(poolSize);
+    primary.setMetricsTrackerFactory(metrics);
+
+    List<HikariDataSource> replicas = new ArrayList<>();
+    List<String> urls = Arrays.stream(replicaUrls.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    for (int i = 0; i < urls.size(); i++) {
+      HikariDataSource r = new HikariDataSource();
+      r.setPoolName("replica-" + i);
+      r.setJdbcUrl(urls.get(i));
+      r.setUsername(props.determineUsername());
+      r.setPassword(props.determinePassword());
+      r.setDriverClassName(props.determineDriverClassName());
+      r.setReadOnly(true);
+      r.setMaximumPoolSize(poolSize);
+      // 起動時にレプリカが落ちていてもアプリは上げる（ヘルスチェックで外れる）
+      r.setInitializationFailTimeout(-1);
+      r.setMetricsTrackerFactory(metrics);
+      replicas.add(r);
+    }
+    return new ReadWriteRoutingDataSource(primary, replicas, readYourWrites, healthCheckInterval);
+  }
+
+  // readOnly フラグが立った後（最初の SQL 実行時）に実接続を選ぶため Lazy で包む
+  @Bean
+  @Primary
+  public DataSource dataSource(ReadWriteRoutingDataSource routing) {
+    return new LazyConnectionDataSourceProxy(routing);
+  }
+}
@@ -0,0 +1,147 @@
+package com.example.todomoney.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * readOnly トランザクションをレプリカへ、それ以外をプライマリへ振り分ける。
+ * 接続取得時点で readOnly が確定している必要があるので LazyConnectionDataSourceProxy の内側で使う。
+ *
+ * - 直前に書き込んだユーザーは ReadYourWritesWindow の間プライマリに固定
+ * - レプリカは定期的に isValid で確認し、落ちているものは使わない（全滅ならプライマリ）
+ * - レプリカからの接続取得に失敗したらその場でダウン扱いにしてプライマリへ
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+  static final class Replica {
+    final String name;
+    final HikariDataSource dataSource;
+    volatile boolean healthy = true;
+
+    Replica(String name, HikariDataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+  }
+
+  private final HikariDataSource primary;
+  private final List<Replica> replicas;
+  private final ReadYourWritesWindow readYourWrites;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ScheduledExecutorService healthChecker;
+
+  public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    ReadYourWritesWindow readYourWrites, Duration healthCheckInterval) {
+    this.primary = primary;
+    this.replicas = replicas.stream().map(ds -> new Replica(ds.getPoolName(), ds)).toList();
+    this.readYourWrites = readYourWrites;
+
+    this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "replica-health");
+      t.setDaemon(true);
+      return t;
+    });
+    long millis = healthCheckInterval.toMillis();
+    healthChecker.scheduleWithFixedDelay(this::checkReplicas, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /** 振り分け先のプールから接続を取る操作（認証情報の有無だけが違う）。 */
+  @FunctionalInterface
+  private interface Opener {
+    Connection open(HikariDataSource target) throws SQLException;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return route(HikariDataSource::getConnection);
+  }
+
+  // 振り分けは同じで、認証情報付きの取得は振り分け先のプールに任せる
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return route(target -> target.getConnection(username, password));
+  }
+
+  private Connection route(Opener opener) throws SQLException {
+    Long userId = ReadYourWritesWindow.currentUserId();
+
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      // 書き込み系：このユーザーのしばらくの読み込みはプライマリへ
+      if (userId != null) readYourWrites.markWrite(userId);
+      return opener.open(primary);
+    }
+    if (userId != null && readYourWrites.isSticky(userId)) {
+      return opener.open(primary);
+    }
+
+    Replica replica = pickReplica();
+    if (replica != null) {
+      try {
+        return opener.open(replica.dataSource);
+      } catch (SQLFeatureNotSupportedException e) {
+        // プールが認証情報付きの取得に対応していないだけ（レプリカは落ちていない）
+        throw e;
+      } catch (SQLException e) {
+        markDown(replica, e);
+      }
+    }
+    return opener.open(primary);
+  }
+
+  // 健全なレプリカをラウンドロビンで（無ければ null）
+  private Replica pickReplica() {
+    int n = replicas.size();
+    if (n == 0) return null;
+    int start = Math.floorMod(next.getAndIncrement(), n);
+    for (int i = 0; i < n; i++) {
+      Replica r = replicas.get((start + i) % n);
+      if (r.healthy) return r;
+    }
+    return null;
+  }
+
+  private void markDown(Replica replica, Exception cause) {
+    if (replica.healthy) {
+      replica.healthy = false;
+      log.warn("replica {} marked down: {}", replica.name, cause.toString());
+    }
+  }
+
+  void checkReplicas() {
+    for (Replica r : replicas) {
+      try (Connection c = r.dataSource.getConnection()) {
+        boolean ok = c.isValid(2);
+        if (ok && !r.healthy) log.info("replica {} is back", r.name);
+        if (!ok) markDown(r, new SQLException("isValid=false"));
+        else r.healthy = true;
+      } catch (Exception e) {
+        markDown(r, e);
+      }
+    }
+    readYourWrites.evictExpired();
+  }
+
+  @Override
+  public void destroy() {
+    healthChecker.shutdownNow();
+    replicas.forEach(r -> r.dataSource.close());
+    primary.close();
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.todomoney.datasource;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.todomoney.security.AppPrincipal;
+
+/**
+ * 書き込んだ直後のユーザーを一定時間プライマリに固定する（レプリカ遅延で自分の変更が消えて見えないように）。
+ * キーはユーザー id、値は固定を解除する System.nanoTime()。
+ */
+public class ReadYourWritesWindow {
+
+  private final long windowNanos;
+  private final ConcurrentHashMap<Long, Long> stickyUntil = new ConcurrentHashMap<>();
+
+  public ReadYourWritesWindow(Duration window) {
+    this.windowNanos = window.toNanos();
+  }
+
+  public void markWrite(long userId) {
+    stickyUntil.put(userId, System.nanoTime() + windowNanos);
+  }
+
+  public boolean isSticky(long userId) {
+    Long until = stickyUntil.get(userId);
+    if (until == null) return false;
+    if (until - System.nanoTime() > 0) return true;
+    stickyUntil.remove(userId, until);
+    return false;
+  }
+
+  /** 期限切れのエントリを掃除する（ヘルスチェックのついでに呼ぶ）。 */
+  public void evictExpired() {
+    long now = System.nanoTime();
+    stickyUntil.entrySet().removeIf(e -> e.getValue() - now <= 0);
+  }
+
+  /** 現在のリクエストのユーザー（認証前・バッチ等では null）。 */
+  static Long currentUserId() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth != null && auth.getPrincipal() instanceof AppPrincipal p) return p.userId();
+    return null;
+  }
+}
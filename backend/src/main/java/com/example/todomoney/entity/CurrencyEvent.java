@@ -3,6 +3,8 @@ package com.example.todomoney.entity;
 import jakarta.persistence.*;
 import java.time.OffsetDateTime;
 
+import com.example.todomoney.money.MoneyConverter;
+
 @Entity
 @Table(name = "currency_events")
 public class CurrencyEvent {
@@ -21,26 +23,40 @@ public class CurrencyEvent {
   @JoinColumn(name="task_id")
   private Task task;
 
+  // カレンダー完了の精算で作ったイベントの元ログ（TaskService 経由は null）
+  @Column(name="completion_log_id", unique = true)
+  private Long completionLogId;
+
   @Column(nullable = false)
   private String currency = "USD";
 
-  @Column(nullable = false)
-  private double amount;
+  // Money の最小単位（セント）
+  @Convert(converter = MoneyConverter.class)
+  @Column(nullable = false, precision = 12, scale = 2)
+  private long amount;
 
   @Column(name="created_at", nullable = false)
   private OffsetDateTime createdAt = OffsetDateTime.now();
 
-  public static CurrencyEvent usd(User user, Goal goal, Task task, double amount) {
+  public static CurrencyEvent usd(User user, Goal goal, Task task, long amount) {
+    return of(user, goal, task, "USD", amount);
+  }
+
+  public static CurrencyEvent of(User user, Goal goal, Task task, String currency, long amount) {
     CurrencyEvent e = new CurrencyEvent();
     e.user = user;
     e.goal = goal;
     e.task = task;
-    e.currency = "USD";
+    e.currency = currency;
     e.amount = amount;
     return e;
   }
 
   public Long getId() { return id; }
-  public double getAmount() { return amount; }
+  public User getUser() { return user; }
+  public Goal getGoal() { return goal; }
+  public Task getTask() { return task; }
+  public long getAmount() { return amount; }
   public String getCurrency() { return currency; }
+  public Long getCompletionLogId() { return completionLogId; }
 }
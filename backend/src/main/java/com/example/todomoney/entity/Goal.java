@@ -2,8 +2,13 @@ package com.example.todomoney.entity;
 
 import java.time.OffsetDateTime;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -13,8 +18,14 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
+import com.example.todomoney.money.Money;
+import com.example.todomoney.money.MoneyConverter;
+
 @Entity
 @Table(name = "goals")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "goal")
+@BatchSize(size = 32) // Task.goal の proxy を複数初期化するときはまとめて引く
 public class Goal {
   @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -26,8 +37,14 @@ public class Goal {
   @Column(nullable = false)
   private String title;
 
-  @Column(name="annual_income", nullable = false)
-  private double annualIncome;
+  // Money の最小単位（セント）
+  @Convert(converter = MoneyConverter.class)
+  @Column(name="annual_income", nullable = false, precision = 12, scale = 2)
+  private long annualIncome;
+
+  // 報酬の通貨（ISO 4217）。この通貨で CurrencyEvent を記録し、換算は読み取り時に行う
+  @Column(nullable = false, length = 3)
+  private String currency = "USD";
 
   @Column(name="days_per_year", nullable = false)
   private int daysPerYear = 365;
@@ -35,19 +52,38 @@ public class Goal {
   @Column(nullable = false)
   private boolean achieved = false;
 
+  // GoalArchiver はここから min-age 経ったゴールだけをアーカイブする
+  @Column(name="achieved_at")
+  private OffsetDateTime achievedAt;
+
   @Column(name="created_at", nullable = false)
   private OffsetDateTime createdAt = OffsetDateTime.now();
 
   public Long getId() { return id; }
   public User getUser() { return user; }
   public String getTitle() { return title; }
-  public double getAnnualIncome() { return annualIncome; }
+  public long getAnnualIncome() { return annualIncome; }
+  public String getCurrency() { return currency; }
   public int getDaysPerYear() { return daysPerYear; }
   public boolean isAchieved() { return achieved; }
+  public OffsetDateTime getAchievedAt() { return achievedAt; }
 
   public void setUser(User user) { this.user = user; }
   public void setTitle(String title) { this.title = title; }
-  public void setAnnualIncome(double annualIncome) { this.annualIncome = annualIncome; }
+  public void setAnnualIncome(long annualIncome) { this.annualIncome = annualIncome; }
+  public void setCurrency(String currency) { this.currency = currency; }
   public void setDaysPerYear(int daysPerYear) { this.daysPerYear = daysPerYear; }
-  public void setAchieved(boolean achieved) { this.achieved = achieved; }
+  public void setAchieved(boolean achieved) {
+    if (achieved != this.achieved) achievedAt = achieved ? OffsetDateTime.now() : null;
+    this.achieved = achieved;
+  }
+
+  public long perTaskReward(long taskCount) {
+    return perTaskReward(annualIncome, daysPerYear, taskCount);
+  }
+
+  // 1日の収入をゴール内のタスク数で割る（完了時・精算時・一覧表示で共通）。セント単位で1回だけ丸める
+  public static long perTaskReward(long annualIncome, int daysPerYear, long taskCount) {
+    return Money.perTaskReward(annualIncome, daysPerYear, taskCount);
+  }
 }
@@ -0,0 +1,58 @@
+package com.example.todomoney.entity;
+
+import java.time.OffsetDateTime;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import com.example.todomoney.money.MoneyConverter;
+
+/**
+ * アーカイブ済みゴールの集計行（書き込みは archive.GoalArchiver が SQL で行う）。
+ * 一覧・集計の JPQL から left join するためのもので、payload（明細）はマップしない。
+ */
+@Entity
+@Immutable
+@Table(name = "goal_archives")
+public class GoalArchive {
+  @Id
+  @Column(name="goal_id")
+  private Long goalId;
+
+  @Column(name="user_id", nullable = false)
+  private Long userId;
+
+  @Column(nullable = false)
+  private String currency;
+
+  @Column(name="task_count", nullable = false)
+  private int taskCount;
+
+  @Column(name="completed_count", nullable = false)
+  private int completedCount;
+
+  @Column(name="event_count", nullable = false)
+  private int eventCount;
+
+  // Money の最小単位（セント）
+  @Convert(converter = MoneyConverter.class)
+  @Column(name="amount_total", nullable = false, precision = 14, scale = 2)
+  private long amountTotal;
+
+  @Column(name="archived_at", nullable = false)
+  private OffsetDateTime archivedAt;
+
+  public Long getGoalId() { return goalId; }
+  public Long getUserId() { return userId; }
+  public String getCurrency() { return currency; }
+  public int getTaskCount() { return taskCount; }
+  public int getCompletedCount() { return completedCount; }
+  public int getEventCount() { return eventCount; }
+  public long getAmountTotal() { return amountTotal; }
+  public OffsetDateTime getArchivedAt() { return archivedAt; }
+}
@@ -4,8 +4,12 @@ import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.BatchSize;
+
+import jakarta.persistence.Basic;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -13,14 +17,24 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 
+// 関連はすべて LAZY。まとめて要る場面はユースケースごとのグラフで取る
 @Entity
 @Table(name = "tasks")
+@NamedEntityGraph(name = Task.GRAPH_COMPLETION, attributeNodes = @NamedAttributeNode("goal"))
+@NamedEntityGraph(name = Task.GRAPH_TAGS, attributeNodes = @NamedAttributeNode("tags"))
 public class Task {
 
+    /** 完了処理（報酬計算に goal が要る） */
+    public static final String GRAPH_COMPLETION = "Task.completion";
+    /** タグ編集 */
+    public static final String GRAPH_TAGS = "Task.tags";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -29,14 +43,16 @@ public class Task {
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
-    // ★ goal_id は ManyToOne で持つ
-    @ManyToOne
+    // ★ goal_id は ManyToOne で持つ（EAGER だと Task を読むたびに goal まで付いてくるので LAZY）
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "goal_id")
     private Goal goal;   // nullable OK
 
     @Column(nullable = false, length = 200)
     private String title;
 
+    // 長くなりうるので一覧・完了処理では読まない（バイトコード拡張で初回アクセス時にロード）
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "text")
     private String memo;
 
@@ -52,7 +68,9 @@ public class Task {
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt = Instant.now();
 
+    // 複数タスクの tags を触るときは、未初期化のものをまとめて IN で引く
     @ManyToMany
+    @BatchSize(size = 64)
     @JoinTable(
         name = "task_tags",
         joinColumns = @JoinColumn(name = "task_id"),
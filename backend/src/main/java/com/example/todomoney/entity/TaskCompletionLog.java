@@ -26,6 +26,10 @@ public class TaskCompletionLog {
     @Column(name="completed_at", nullable=false)
     private Instant completedAt = Instant.now();
 
+    // SettlementJob が CurrencyEvent を書いた時刻（null = 未精算）
+    @Column(name="settled_at")
+    private Instant settledAt;
+
     // --- getters/setters ---
     public Long getId() { return id; }
     public Long getUserId() { return userId; }
@@ -35,4 +39,5 @@ public class TaskCompletionLog {
     public LocalDate getOccurrenceDate() { return occurrenceDate; }
     public void setOccurrenceDate(LocalDate occurrenceDate) { this.occurrenceDate = occurrenceDate; }
     public Instant getCompletedAt() { return completedAt; }
+    public Instant getSettledAt() { return settledAt; }
 }
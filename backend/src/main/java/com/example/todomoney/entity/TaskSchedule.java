@@ -12,12 +12,21 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.Table;
 
 @Entity
 @Table(name="task_schedules")
+// カレンダー展開：task とその tags まで（goal・memo は読まない）
+@NamedEntityGraph(name = TaskSchedule.GRAPH_CALENDAR,
+        attributeNodes = @NamedAttributeNode(value = "task", subgraph = "task"),
+        subgraphs = @NamedSubgraph(name = "task", attributeNodes = @NamedAttributeNode("tags")))
 public class TaskSchedule {
-    public enum Type { DATE, RANGE, WEEKLY }
+    public static final String GRAPH_CALENDAR = "TaskSchedule.calendar";
+
+    public enum Type { DATE, RANGE, WEEKLY, RRULE }
 
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -47,6 +56,14 @@ public class TaskSchedule {
     @Column(name="dow_mask")
     private Integer daysOfWeekMask; // null可
 
+    // RFC 5545 RRULE のサブセット（DTSTART は startDate、DATE は date）。旧来の型も保存時に埋める
+    @Column(length=255)
+    private String rrule;
+
+    // 除外日 "yyyy-MM-dd,yyyy-MM-dd"
+    @Column(columnDefinition="text")
+    private String exdates;
+
     // --- getters/setters ---
     public Long getId() { return id; }
     public Long getUserId() { return userId; }
@@ -63,4 +80,8 @@ public class TaskSchedule {
     public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
     public Integer getDaysOfWeekMask() { return daysOfWeekMask; }
     public void setDaysOfWeekMask(Integer daysOfWeekMask) { this.daysOfWeekMask = daysOfWeekMask; }
+    public String getRrule() { return rrule; }
+    public void setRrule(String rrule) { this.rrule = rrule; }
+    public String getExdates() { return exdates; }
+    public void setExdates(String exdates) { this.exdates = exdates; }
 }
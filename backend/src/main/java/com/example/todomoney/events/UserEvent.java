@@ -0,0 +1,16 @@
+package com.example.todomoney.events;
+
+/**
+ * ユーザー宛てのイベント（SSE の1件）。id はノード内で単調増加（Last-Event-ID での再開に使う）。
+ *
+ * @param type SSE の event 名（例: "task.completed"）
+ * @param data JSON にして送る本文
+ */
+public record UserEvent(long id, long userId, String type, Object data) {
+
+  public static final String TASK_COMPLETED = "task.completed";
+  public static final String OCCURRENCE_COMPLETED = "occurrence.completed";
+  public static final String GOAL_ACHIEVED = "goal.achieved";
+  /** 再開位置がリプレイ範囲外だったとき（クライアントは全件取り直す） */
+  public static final String RESYNC = "resync";
+}
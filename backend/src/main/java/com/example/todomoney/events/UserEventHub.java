@@ -0,0 +1,325 @@
+package com.example.todomoney.events;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.todomoney.observability.AppMetrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ユーザー単位のイベント配信（プロセス内 pub/sub → SSE）。
+ *
+ * - publish はコミット後に、購読者ごとの有界キューへ積むだけ（満杯なら古い方から捨てる）。送信は別スレッド
+ * - 接続は SseEmitter（非同期サーブレット）なので、待機中の接続はスレッドを持たない。送信だけ仮想スレッドで行う
+ * - ユーザーごとに直近 replay-capacity 件を残し、Last-Event-ID 以降を再送する。範囲外なら resync を送る
+ *   （再開の瞬間に配られたイベントは2回届くことがある。クライアントは id で重複を捨てる）
+ * - 他ノードでの変更は届かない（そのノードに繋いだ購読者だけ）。複数台では LB をユーザー単位で寄せる
+ */
+@Component
+public class UserEventHub implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(UserEventHub.class);
+
+  private final int queueCapacity;
+  private final int replayCapacity;
+  private final int maxPerUser;
+  private final long heartbeatMs;
+  private final long timeoutMs;
+  private final long replayTtlMs;
+  private final AppMetrics metrics;
+
+  // 再起動をまたいでも id が戻らないように時刻から始める
+  private final AtomicLong ids = new AtomicLong(System.currentTimeMillis() * 1000);
+  private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+  private final Map<Long, Replay> replay = new ConcurrentHashMap<>();
+
+  private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+  private ScheduledExecutorService heartbeat;
+  private volatile boolean running;
+
+  public UserEventHub(
+      AppMetrics metrics,
+      MeterRegistry registry,
+      @Value("${app.events.queue-capacity:64}") int queueCapacity,
+      @Value("${app.events.replay-capacity:128}") int replayCapacity,
+      @Value("${app.events.max-per-user:8}") int maxPerUser,
+      @Value("${app.events.heartbeat-interval-ms:15000}") long heartbeatMs,
+      @Value("${app.events.timeout-ms:1800000}") long timeoutMs,
+      @Value("${app.events.replay-ttl-ms:600000}") long replayTtlMs
+  ) {
+    this.metrics = metrics;
+    this.queueCapacity = queueCapacity;
+    this.replayCapacity = replayCapacity;
+    this.maxPerUser = maxPerUser;
+    this.heartbeatMs = heartbeatMs;
+    this.timeoutMs = timeoutMs;
+    this.replayTtlMs = replayTtlMs;
+    Gauge.builder("todomoney.events.subscribers", subscribers,
+            m -> m.values().stream().mapToInt(List::size).sum())
+        .description("Open /api/events connections")
+        .register(registry);
+  }
+
+  // ===== publish =====
+
+  /** トランザクション中ならコミット後に、そうでなければすぐ配る（ロールバックされた変更は流さない）。 */
+  public void publish(long userId, String type, Object data) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          dispatch(userId, type, data);
+        }
+      });
+    } else {
+      dispatch(userId, type, data);
+    }
+  }
+
+  void dispatch(long userId, String type, Object data) {
+    Replay r = replay.computeIfAbsent(userId, k -> new Replay(ids.get()));
+    UserEvent e;
+    synchronized (r) {
+      e = new UserEvent(ids.incrementAndGet(), userId, type, data);
+      if (r.events.size() == replayCapacity) r.floor = r.events.pollFirst().id();
+      r.events.addLast(e);
+      r.lastMillis = System.currentTimeMillis();
+    }
+    for (Subscriber s : subscribers.getOrDefault(userId, List.of())) s.offer(e);
+  }
+
+  // ===== subscribe =====
+
+  /**
+   * 購読を開始する。lastEventId があればそれより後のイベントを先に送る。
+   * 同じユーザーの接続が max-per-user を超えたら古い接続から閉じる。
+   */
+  public SseEmitter subscribe(long userId, Long lastEventId) {
+    SseEmitter emitter = newEmitter(timeoutMs);
+    Subscriber s = new Subscriber(userId, emitter);
+
+    // 追加と上限超えの取り外しは compute の中で行う（remove が空リストを外すのと競って、
+    // 外れたリストに足してしまうと誰にも配られない購読者が残る）
+    List<Subscriber> evicted = new ArrayList<>();
+    subscribers.compute(userId, (k, list) -> {
+      if (list == null) list = new CopyOnWriteArrayList<>();
+      list.add(s);
+      while (list.size() > maxPerUser) evicted.add(list.remove(0));
+      return list;
+    });
+    // 閉じると onCompletion → remove が同じキーに入るので compute の外で
+    for (Subscriber oldest : evicted) oldest.close();
+
+    emitter.onCompletion(() -> remove(s));
+    emitter.onTimeout(() -> remove(s));
+    emitter.onError(t -> remove(s));
+
+    if (lastEventId != null) replayAfter(s, lastEventId);
+    return emitter;
+  }
+
+  // テストで送信内容を横取りするための差し替え口
+  SseEmitter newEmitter(long timeoutMs) {
+    return new SseEmitter(timeoutMs);
+  }
+
+  private void replayAfter(Subscriber s, long lastEventId) {
+    Replay r = replay.get(s.userId);
+    List<UserEvent> missed = new ArrayList<>();
+    boolean gap;
+    if (r == null) {
+      gap = true;
+    } else {
+      synchronized (r) {
+        // floor 以前の id は残っていない（リプレイを作る前・溢れて捨てた分）
+        gap = lastEventId < r.floor;
+        for (UserEvent e : r.events) {
+          if (e.id() > lastEventId) missed.add(e);
+        }
+      }
+    }
+    // 取りこぼしがあり得る（別ノード・再起動・リプレイ超過）ときは、クライアントに全件取り直してもらう
+    if (gap) s.offer(new UserEvent(ids.incrementAndGet(), s.userId, UserEvent.RESYNC, Map.of()));
+    for (UserEvent e : missed) s.offer(e);
+  }
+
+  private void remove(Subscriber s) {
+    subscribers.computeIfPresent(s.userId, (k, list) -> {
+      list.remove(s);
+      return list.isEmpty() ? null : list;
+    });
+  }
+
+  public int subscriberCount(long userId) {
+    return subscribers.getOrDefault(userId, List.of()).size();
+  }
+
+  // ===== 購読者ごとの送信 =====
+
+  private final class Subscriber {
+    final long userId;
+    final SseEmitter emitter;
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    Subscriber(long userId, SseEmitter emitter) {
+      this.userId = userId;
+      this.emitter = emitter;
+    }
+
+    /** 積むだけ（送信は drain）。満杯なら一番古いものを捨てる。 */
+    void offer(Object item) {
+      if (closed) return;
+      synchronized (queue) {
+        if (queue.size() >= queueCapacity) {
+          queue.pollFirst();
+          metrics.eventDropped();
+        }
+        queue.addLast(item);
+      }
+      scheduleDrain();
+    }
+
+    void heartbeat() {
+      synchronized (queue) {
+        if (!queue.isEmpty()) return; // 何か送るならそれが生存確認になる
+        queue.addLast(HEARTBEAT);
+      }
+      scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+      if (draining.compareAndSet(false, true)) senders.execute(this::drain);
+    }
+
+    // 購読者ごとに同時に1本だけ（送信順を保つ）。遅いクライアントはその購読者のキューが溢れるだけ
+    private void drain() {
+      try {
+        while (!closed) {
+          Object item;
+          synchronized (queue) {
+            item = queue.pollFirst();
+          }
+          if (item == null) break;
+          send(item);
+        }
+      } finally {
+        draining.set(false);
+      }
+      // 抜けた直後に積まれた分を取りこぼさない
+      boolean more;
+      synchronized (queue) {
+        more = !queue.isEmpty();
+      }
+      if (more && !closed) scheduleDrain();
+    }
+
+    private void send(Object item) {
+      try {
+        if (item == HEARTBEAT) {
+          emitter.send(SseEmitter.event().comment("hb"));
+        } else {
+          UserEvent e = (UserEvent) item;
+          emitter.send(SseEmitter.event()
+              .id(Long.toString(e.id()))
+              .name(e.type())
+              .data(e.data(), MediaType.APPLICATION_JSON));
+        }
+      } catch (IOException | IllegalStateException ex) {
+        // 切断済み（onError / onCompletion で外れる）
+        closed = true;
+        emitter.completeWithError(ex);
+      }
+    }
+
+    void close() {
+      closed = true;
+      emitter.complete();
+    }
+  }
+
+  private static final Object HEARTBEAT = new Object();
+
+  private static final class Replay {
+    final ArrayDeque<UserEvent> events = new ArrayDeque<>();
+    long floor; // これ以下の id は持っていない
+    long lastMillis = System.currentTimeMillis();
+
+    Replay(long floor) {
+      this.floor = floor;
+    }
+  }
+
+  // ===== lifecycle =====
+
+  @Override
+  public void start() {
+    running = true;
+    heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "events-heartbeat");
+      t.setDaemon(true);
+      return t;
+    });
+    heartbeat.scheduleWithFixedDelay(this::heartbeatAll, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+  }
+
+  // プロキシ・LB のアイドル切断より短い間隔でコメント行を流す
+  private void heartbeatAll() {
+    try {
+      for (List<Subscriber> list : subscribers.values()) {
+        for (Subscriber s : list) s.heartbeat();
+      }
+      // 再開されないまま replay-ttl を過ぎたユーザーのリプレイは捨てる（ユーザー数に比例して溜めない）
+      long cutoff = System.currentTimeMillis() - replayTtlMs;
+      replay.entrySet().removeIf(en -> {
+        Replay r = en.getValue();
+        synchronized (r) {
+          return r.lastMillis < cutoff && !subscribers.containsKey(en.getKey());
+        }
+      });
+    } catch (RuntimeException e) {
+      log.warn("event heartbeat failed: {}", e.toString());
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (!running) return;
+    running = false;
+    heartbeat.shutdownNow();
+    for (List<Subscriber> list : subscribers.values()) {
+      for (Subscriber s : list) s.close();
+    }
+    subscribers.clear();
+    senders.shutdown();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
@@ -0,0 +1,130 @@
+package com.example.todomoney.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * エクスポートの1行を書く。値は null / Long / Integer / BigDecimal / Boolean / String（日時は ISO 8601 の文字列）。
+ * 行を溜めずにそのまま Writer に流す（バッファリングは呼び出し側の BufferedWriter）。
+ */
+abstract class RowWriter {
+
+  protected final Writer out;
+  protected String[] columns;
+  private long rows;
+
+  RowWriter(Writer out) {
+    this.out = out;
+  }
+
+  static RowWriter of(UserDataExporter.Format format, Writer out, ObjectMapper mapper) throws IOException {
+    return switch (format) {
+      case CSV -> new Csv(out);
+      case NDJSON -> new Ndjson(out, mapper);
+    };
+  }
+
+  void start(String[] columns) throws IOException {
+    this.columns = columns;
+  }
+
+  final void row(Object[] values) throws IOException {
+    write(values);
+    rows++;
+  }
+
+  long rows() {
+    return rows;
+  }
+
+  protected abstract void write(Object[] values) throws IOException;
+
+  /** 出力の末尾まで書いて Writer を flush する（close はしない）。 */
+  abstract void finish() throws IOException;
+
+  /** RFC 4180。1行目がヘッダ、null は空欄。 */
+  static final class Csv extends RowWriter {
+
+    Csv(Writer out) {
+      super(out);
+    }
+
+    @Override
+    void start(String[] columns) throws IOException {
+      super.start(columns);
+      write(columns);
+    }
+
+    @Override
+    protected void write(Object[] values) throws IOException {
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) out.write(',');
+        Object v = values[i];
+        if (v == null) continue;
+        if (v instanceof BigDecimal d) out.write(d.toPlainString());
+        else if (v instanceof String s) quote(s);
+        else out.write(v.toString());
+      }
+      out.write("\r\n");
+    }
+
+    private void quote(String s) throws IOException {
+      boolean needs = false;
+      for (int i = 0; i < s.length() && !needs; i++) {
+        char c = s.charAt(i);
+        needs = c == ',' || c == '"' || c == '\r' || c == '\n';
+      }
+      if (!needs) {
+        out.write(s);
+        return;
+      }
+      out.write('"');
+      out.write(s.replace("\"", "\"\""));
+      out.write('"');
+    }
+
+    @Override
+    void finish() throws IOException {
+      out.flush();
+    }
+  }
+
+  /** 1行1オブジェクト（キーは列名）。 */
+  static final class Ndjson extends RowWriter {
+
+    private final JsonGenerator gen;
+
+    Ndjson(Writer out, ObjectMapper mapper) throws IOException {
+      super(out);
+      this.gen = mapper.getFactory().createGenerator(out);
+      gen.setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    @Override
+    protected void write(Object[] values) throws IOException {
+      gen.writeStartObject();
+      for (int i = 0; i < values.length; i++) {
+        gen.writeFieldName(columns[i]);
+        Object v = values[i];
+        if (v == null) gen.writeNull();
+        else if (v instanceof Long n) gen.writeNumber(n);
+        else if (v instanceof Integer n) gen.writeNumber(n);
+        else if (v instanceof BigDecimal d) gen.writeNumber(d);
+        else if (v instanceof Boolean b) gen.writeBoolean(b);
+        else gen.writeString(v.toString());
+      }
+      gen.writeEndObject();
+    }
+
+    @Override
+    void finish() throws IOException {
+      if (rows() > 0) gen.writeRaw('\n');
+      gen.flush();
+    }
+  }
+}
@@ -0,0 +1,357 @@
+package com.example.todomoney.export;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.todomoney.observability.jfr.BulkOperationEvent;
+import com.example.todomoney.sharding.ShardContext;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * 本人のデータを種類ごとに全件書き出す（/api/export）。
+ *
+ * - readOnly トランザクションでサーバー側カーソルを開き（fetch-size 行ずつ取る）、ResultSet から1行ずつ直接書く。
+ *   List に溜めないので、件数に関わらずメモリは fetch-size 行＋出力バッファ分で一定
+ * - 接続を取るのは StreamingResponseBody の中（ヘッダを返した後）で、最後の行を書いたら返す。
+ *   クライアントが読まずに止まったら idle_in_transaction_session_timeout（stall-timeout）で DB 側が切る。
+ *   書き込みで止まったままのスレッドと枠は、spring.mvc.async.request-timeout でコンテナが接続を閉じたときに返る
+ * - 同時に流すのは max-concurrent 本まで（長く掴む接続で Hikari の枠を埋めない）
+ * - アーカイブ済みゴールの分も含める（goal_archived 列が true）。完了ログは archived_completion_logs から、
+ *   それ以外は goal_archives の payload を1ゴールずつ展開して流す
+ * - 並びは保証しない（order by を付けると全件のソートが終わるまで最初の1行が出ない）
+ * - 日時は UTC・マイクロ秒6桁の ISO 8601 に揃える（ResultSet の行と payload の JSON の行で表記を変えない）
+ *
+ * 本体は MVC の非同期スレッドで動くので、シャードはリクエスト時点の ShardContext を引き継ぐ。
+ * readOnly なので、routing が有効ならレプリカから読む。
+ */
+@Component
+public class UserDataExporter {
+
+  public enum Kind {
+    TASKS("tasks", "tasks", new String[] {
+        "id", "goal_id", "title", "memo", "completed", "archived", "created_at", "updated_at", "goal_archived"}, """
+        select id, goal_id, title, memo, completed, archived, created_at, updated_at, false as goal_archived
+        from tasks where user_id = ?
+        """),
+    SCHEDULES("schedules", "task_schedules", new String[] {
+        "id", "task_id", "type", "date", "start_date", "end_date", "dow_mask", "rrule", "exdates", "goal_archived"}, """
+        select id, task_id, type, date, start_date, end_date, dow_mask, rrule, exdates, false as goal_archived
+        from task_schedules where user_id = ?
+        """),
+    COMPLETIONS("completions", null, new String[] {
+        "id", "task_id", "occurrence_date", "completed_at", "settled_at", "goal_archived"}, """
+        select id, task_id, occurrence_date, completed_at, settled_at, false as goal_archived
+        from task_completion_logs where user_id = ?
+        union all
+        select id, task_id, occurrence_date, completed_at, settled_at, true
+        from archived_completion_logs where user_id = ?
+        """),
+    // outbox に残っている分は pending（currency_events に移ると id が振り直される）
+    CURRENCY_EVENTS("currency-events", "currency_events", new String[] {
+        "id", "goal_id", "task_id", "currency", "amount", "created_at", "completion_log_id", "pending",
+        "goal_archived"}, """
+        select id, goal_id, task_id, currency, amount, created_at, completion_log_id, false as pending,
+               false as goal_archived
+        from currency_events where user_id = ?
+        union all
+        select id, goal_id, task_id, currency, amount, created_at, null, true, false
+        from currency_event_outbox where user_id = ?
+        """);
+
+    final String path;
+    /** goal_archives.payload のキー（null なら payload は読まない）。 */
+    final String archiveKey;
+    /** sql の列と同じ順。payload 側もこの名前で引く。 */
+    final String[] columns;
+    final String sql;
+
+    Kind(String path, String archiveKey, String[] columns, String sql) {
+      this.path = path;
+      this.archiveKey = archiveKey;
+      this.columns = columns;
+      this.sql = sql;
+    }
+
+    public String path() { return path; }
+
+    /** @return 該当なしなら null */
+    public static Kind of(String path) {
+      for (Kind k : values()) {
+        if (k.path.equals(path)) return k;
+      }
+      return null;
+    }
+  }
+
+  public enum Format {
+    CSV("csv", "text/csv;charset=UTF-8"),
+    NDJSON("ndjson", "application/x-ndjson");
+
+    final String extension;
+    final String mediaType;
+
+    Format(String extension, String mediaType) {
+      this.extension = extension;
+      this.mediaType = mediaType;
+    }
+
+    public String extension() { return extension; }
+    public String mediaType() { return mediaType; }
+
+    /** @return 該当なしなら null */
+    public static Format of(String s) {
+      for (Format f : values()) {
+        if (f.extension.equalsIgnoreCase(s)) return f;
+      }
+      return null;
+    }
+  }
+
+  // payload にしか無い行の、SQL 側で定数にしている列
+  private static final Map<String, Object> ARCHIVED_CONSTANTS = Map.of("goal_archived", true, "pending", false);
+  // payload では Postgres の JSON 表記（セッションのタイムゾーン）の文字列になっている列
+  private static final Set<String> TIMESTAMP_COLUMNS = Set.of("created_at", "updated_at", "completed_at", "settled_at");
+  private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSX");
+
+  private static final int BUFFER = 64 * 1024;
+
+  private final JdbcTemplate jdbc;
+  // payload は1行が大きいので1行ずつ取る
+  private final JdbcTemplate payloads;
+  private final TransactionTemplate readOnlyTx;
+  private final ObjectReader reader;
+  private final ObjectMapper mapper;
+  private final Semaphore slots;
+  private final Duration stallTimeout;
+
+  public UserDataExporter(
+      DataSource dataSource,
+      PlatformTransactionManager txManager,
+      ObjectMapper mapper,
+      @Value("${app.export.fetch-size:1000}") int fetchSize,
+      @Value("${app.export.max-concurrent:2}") int maxConcurrent,
+      @Value("${app.export.stall-timeout:PT30S}") Duration stallTimeout
+  ) {
+    this.jdbc = new JdbcTemplate(dataSource);
+    jdbc.setFetchSize(fetchSize);
+    this.payloads = new JdbcTemplate(dataSource);
+    payloads.setFetchSize(1);
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    readOnlyTx.setReadOnly(true);
+    this.mapper = mapper;
+    // amount（numeric(12,2)）の桁を double で落とさない・末尾の 0 も消さない
+    this.reader = mapper.reader()
+        .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+        .with(JsonNodeFactory.withExactBigDecimals(true));
+    this.slots = new Semaphore(Math.max(1, maxConcurrent));
+    this.stallTimeout = stallTimeout;
+  }
+
+  /**
+   * 枠を取って本体を返す。枠は本体の終わりで返す。本体が動かないまま終わったときは呼び出し側が abandon() する。
+   * @return 同時実行数の上限に達していれば null
+   */
+  public Export open(long userId, Kind kind, Format format, boolean gzip) {
+    if (!slots.tryAcquire()) return null;
+    return new Export(userId, kind, format, gzip, ShardContext.current());
+  }
+
+  /** 枠を1つ持った本体。枠を返すのは writeTo の終わりか abandon() のどちらか先に来た方だけ。 */
+  public final class Export implements StreamingResponseBody {
+
+    private final long userId;
+    private final Kind kind;
+    private final Format format;
+    private final boolean gzip;
+    private final String shard;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    private Export(long userId, Kind kind, Format format, boolean gzip, String shard) {
+      this.userId = userId;
+      this.kind = kind;
+      this.format = format;
+      this.gzip = gzip;
+      this.shard = shard;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      if (!claimed.compareAndSet(false, true)) throw new IllegalStateException("export already closed");
+      try {
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER) : out;
+        Writer w = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER);
+        RowWriter rows = RowWriter.of(format, w, mapper);
+
+        if (shard == null) export(userId, kind, rows);
+        else ShardContext.callOn(shard, () -> export(userId, kind, rows));
+
+        rows.finish();
+        if (target instanceof GZIPOutputStream gz) gz.finish();
+      } catch (UncheckedIOException e) {
+        // 多くはクライアントの切断。トランザクションは巻き戻って接続は返っている
+        throw e.getCause();
+      } finally {
+        slots.release();
+      }
+    }
+
+    /**
+     * 本体が動かずに終わったとき（非同期の実行を断られた・dispatch 前に切断された・タイムアウト）の枠の返却。
+     * 既に writeTo が始まっていれば何もしない（そちらの finally で返る）。何度呼んでもよい。
+     */
+    public void abandon() {
+      if (claimed.compareAndSet(false, true)) slots.release();
+    }
+  }
+
+  private Long export(long userId, Kind kind, RowWriter out) {
+    BulkOperationEvent ev = new BulkOperationEvent();
+    ev.begin();
+
+    readOnlyTx.executeWithoutResult(status -> {
+      jdbc.execute("set local idle_in_transaction_session_timeout = " + stallTimeout.toMillis());
+      try {
+        out.start(kind.columns);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      Object[] params = new Object[(int) kind.sql.chars().filter(c -> c == '?').count()];
+      Arrays.fill(params, userId);
+      jdbc.query(kind.sql, new CursorRows(out), params);
+
+      if (kind.archiveKey != null) {
+        payloads.query("select payload from goal_archives where user_id = ?",
+            rs -> writeArchived(rs.getBytes(1), kind, out), userId);
+      }
+    });
+
+    if (ev.shouldCommit()) {
+      ev.operation = "export." + kind.path;
+      ev.userId = userId;
+      ev.rows = (int) Math.min(Integer.MAX_VALUE, out.rows());
+      ev.commit();
+    }
+    return out.rows();
+  }
+
+  // payload（{"tasks": [...], "task_schedules": [...], ...} の gzip）を1行ずつ読む。木にするのは1行分だけ
+  private void writeArchived(byte[] payload, Kind kind, RowWriter out) {
+    String[] columns = kind.columns;
+    Object[] values = new Object[columns.length];
+    try (JsonParser p = reader.createParser(new GZIPInputStream(new ByteArrayInputStream(payload)))) {
+      if (p.nextToken() != JsonToken.START_OBJECT) return;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String key = p.currentName();
+        p.nextToken();
+        if (!key.equals(kind.archiveKey)) {
+          p.skipChildren();
+          continue;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+          JsonNode row = reader.readTree(p);
+          for (int i = 0; i < columns.length; i++) {
+            values[i] = archivedValue(columns[i], row.get(columns[i]));
+          }
+          out.row(values);
+        }
+        return;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Object archivedValue(String column, JsonNode v) {
+    if (ARCHIVED_CONSTANTS.containsKey(column)) return ARCHIVED_CONSTANTS.get(column);
+    if (TIMESTAMP_COLUMNS.contains(column) && v != null && v.isTextual()) {
+      return timestamp(OffsetDateTime.parse(v.textValue()));
+    }
+    return jsonValue(v);
+  }
+
+  static String timestamp(OffsetDateTime t) {
+    return t == null ? null : TIMESTAMP.format(t.withOffsetSameInstant(ZoneOffset.UTC));
+  }
+
+  private static Object jsonValue(JsonNode v) {
+    if (v == null || v.isNull()) return null;
+    if (v.isBoolean()) return v.booleanValue();
+    if (v.isIntegralNumber()) return v.longValue();
+    if (v.isNumber()) return v.decimalValue();
+    return v.asText();
+  }
+
+  /** 列の型は最初の行で1回だけ見る。値の配列も使い回す。 */
+  private static final class CursorRows implements RowCallbackHandler {
+
+    private final RowWriter out;
+    private int[] types;
+    private Object[] values;
+
+    CursorRows(RowWriter out) {
+      this.out = out;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+      if (types == null) {
+        ResultSetMetaData md = rs.getMetaData();
+        types = new int[md.getColumnCount()];
+        for (int i = 0; i < types.length; i++) types[i] = md.getColumnType(i + 1);
+        values = new Object[types.length];
+      }
+      for (int i = 0; i < types.length; i++) {
+        values[i] = switch (types[i]) {
+          case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> timestamp(rs.getObject(i + 1, OffsetDateTime.class));
+          case Types.DATE -> Objects.toString(rs.getObject(i + 1, LocalDate.class), null);
+          default -> rs.getObject(i + 1);
+        };
+      }
+      try {
+        out.row(values);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
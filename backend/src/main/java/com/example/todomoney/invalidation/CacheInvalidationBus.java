@@ -0,0 +1,311 @@
+package com.example.todomoney.invalidation;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.todomoney.service.UserRegisteredEvent;
+
+/**
+ * 複数ノード間のキャッシュ無効化（Postgres の LISTEN / NOTIFY）。
+ * 書き込み側は publish するだけ。コミット後に溜めて、flush-interval ごとに重複を潰して1回の NOTIFY にまとめる。
+ * 受信側は専用接続で LISTEN し、自ノード発の通知は捨てて InvalidationHandler に流す。
+ * 接続が切れている間の通知は届かないので、張り直したら全キャッシュを捨てる。
+ */
+@Component
+public class CacheInvalidationBus implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+  /** NOTIFY の payload 上限（8000 バイト）より余裕を持たせる。 */
+  static final int MAX_PAYLOAD_BYTES = 7000;
+  private static final long KEEPALIVE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final boolean enabled;
+  private final String channel;
+  private final long flushIntervalMs;
+  private final int pollMs;
+  private final long reconnectBackoffMs;
+  private final String url;
+  private final String username;
+  private final String password;
+  private final JdbcTemplate jdbc;
+
+  private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+  private final Set<String> pending = ConcurrentHashMap.newKeySet();
+  private final List<InvalidationHandler> handlers = new CopyOnWriteArrayList<>();
+
+  private volatile boolean running;
+  private ScheduledExecutorService flusher;
+  private Thread listener;
+
+  public CacheInvalidationBus(
+      DataSource dataSource,
+      List<InvalidationHandler> handlers,
+      @Value("${app.invalidation.enabled:false}") boolean enabled,
+      @Value("${app.invalidation.channel:todomoney_invalidate}") String channel,
+      @Value("${app.invalidation.flush-interval-ms:50}") long flushIntervalMs,
+      @Value("${app.invalidation.poll-ms:500}") int pollMs,
+      @Value("${app.invalidation.reconnect-backoff-ms:1000}") long reconnectBackoffMs,
+      @Value("${spring.datasource.url}") String url,
+      @Value("${spring.datasource.username}") String username,
+      @Value("${spring.datasource.password}") String password
+  ) {
+    if (!channel.matches("[a-z_][a-z0-9_]*")) {
+      throw new IllegalArgumentException("app.invalidation.channel must be a plain identifier: " + channel);
+    }
+    this.jdbc = new JdbcTemplate(dataSource);
+    this.handlers.addAll(handlers);
+    this.enabled = enabled;
+    this.channel = channel;
+    this.flushIntervalMs = flushIntervalMs;
+    this.pollMs = pollMs;
+    this.reconnectBackoffMs = reconnectBackoffMs;
+    this.url = url;
+    this.username = username;
+    this.password = password;
+  }
+
+  public String nodeId() {
+    return nodeId;
+  }
+
+  public void addHandler(InvalidationHandler handler) {
+    handlers.add(handler);
+  }
+
+  public void removeHandler(InvalidationHandler handler) {
+    handlers.remove(handler);
+  }
+
+  /** トランザクション中ならコミット後に、そうでなければすぐ送信待ちに積む（ロールバックされた書き込みは流さない）。 */
+  public void publish(Invalidation invalidation) {
+    if (!enabled) return;
+    String encoded = invalidation.encode();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          pending.add(encoded);
+        }
+      });
+    } else {
+      pending.add(encoded);
+    }
+  }
+
+  @EventListener
+  public void onUserRegistered(UserRegisteredEvent e) {
+    // findByEmail の「該当なし」がクエリキャッシュに残っていると他ノードでログインできない
+    publish(Invalidation.of(Invalidation.Scope.USER, e.userId()));
+  }
+
+  // ===== 送信 =====
+
+  void flush() {
+    if (pending.isEmpty()) return;
+
+    List<String> drained = new ArrayList<>();
+    for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+      drained.add(it.next());
+      it.remove();
+    }
+
+    for (String payload : pack(nodeId, drained)) {
+      try {
+        jdbc.query("select pg_notify(?, ?)", (RowCallbackHandler) rs -> {}, channel, payload);
+      } catch (RuntimeException e) {
+        // 次の flush で再送（失敗が続く間は重複が潰れるだけで増えない）
+        log.warn("invalidation notify failed: {}", e.toString());
+        pending.addAll(List.of(payload.substring(payload.indexOf('|') + 1).split(",")));
+      }
+    }
+  }
+
+  /** "nodeId|item,item,..." を payload 上限で切る。 */
+  static List<String> pack(String nodeId, List<String> items) {
+    List<String> out = new ArrayList<>();
+    StringBuilder sb = new StringBuilder(nodeId).append('|');
+    int header = sb.length();
+    for (String item : items) {
+      // 中身は ASCII だけなので文字数＝バイト数
+      if (sb.length() > header && sb.length() + 1 + item.length() > MAX_PAYLOAD_BYTES) {
+        out.add(sb.toString());
+        sb.setLength(header);
+      }
+      if (sb.length() > header) sb.append(',');
+      sb.append(item);
+    }
+    if (sb.length() > header) out.add(sb.toString());
+    return out;
+  }
+
+  // ===== 受信 =====
+
+  private void listenLoop() {
+    boolean connectedBefore = false;
+    while (running) {
+      try (Connection c = DriverManager.getConnection(url, connectionProps())) {
+        try (Statement st = c.createStatement()) {
+          st.execute("LISTEN " + channel);
+        }
+        PGConnection pg = c.unwrap(PGConnection.class);
+        if (connectedBefore) {
+          log.info("invalidation listener reconnected; flushing all local caches");
+          dispatchAll();
+        }
+        connectedBefore = true;
+
+        long lastCheck = System.nanoTime();
+        while (running) {
+          PGNotification[] ns = pg.getNotifications(pollMs);
+          if (ns != null) {
+            for (PGNotification n : ns) receive(n.getParameter());
+          }
+          // 黙って切れた接続は getNotifications では気付けないので、ときどき往復させる
+          if (System.nanoTime() - lastCheck > KEEPALIVE_NANOS) {
+            try (Statement st = c.createStatement()) {
+              st.execute("select 1");
+            }
+            lastCheck = System.nanoTime();
+          }
+        }
+      } catch (SQLException e) {
+        if (!running) break;
+        log.warn("invalidation listener disconnected: {}", e.toString());
+        try {
+          Thread.sleep(reconnectBackoffMs);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+  }
+
+  private Properties connectionProps() {
+    Properties props = new Properties();
+    props.setProperty("user", username);
+    props.setProperty("password", password);
+    // pg_stat_activity で見分けられるように
+    props.setProperty("ApplicationName", listenerApplicationName());
+    return props;
+  }
+
+  String listenerApplicationName() {
+    return "todomoney-invalidation-" + nodeId;
+  }
+
+  void receive(String payload) {
+    int bar = payload.indexOf('|');
+    if (bar < 0 || payload.substring(0, bar).equals(nodeId)) return;
+
+    for (String item : payload.substring(bar + 1).split(",")) {
+      Invalidation inv;
+      try {
+        inv = Invalidation.decode(item);
+      } catch (RuntimeException e) {
+        log.warn("ignoring malformed invalidation '{}'", item);
+        continue;
+      }
+      for (InvalidationHandler h : handlers) {
+        try {
+          h.invalidate(inv);
+        } catch (RuntimeException e) {
+          log.warn("invalidation handler {} failed: {}", h.getClass().getSimpleName(), e.toString());
+        }
+      }
+    }
+  }
+
+  private void dispatchAll() {
+    for (InvalidationHandler h : handlers) {
+      try {
+        h.invalidateAll();
+      } catch (RuntimeException e) {
+        log.warn("invalidation handler {} failed: {}", h.getClass().getSimpleName(), e.toString());
+      }
+    }
+  }
+
+  // ===== lifecycle =====
+
+  @Override
+  public void start() {
+    if (!enabled || running) return;
+    running = true;
+
+    flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "invalidation-flush");
+      t.setDaemon(true);
+      return t;
+    });
+    flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+    listener = new Thread(this::listenLoop, "invalidation-listen");
+    listener.setDaemon(true);
+    listener.start();
+    log.info("invalidation bus started (node={}, channel={})", nodeId, channel);
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("invalidation flush failed: {}", e.toString());
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (!running) return;
+    running = false;
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushQuietly(); // 止める前に溜まっている分を出し切る
+    listener.interrupt();
+    // getNotifications は割り込みでは起きないので、poll-ms ごとの running 確認（切断中なら backoff 明け）を待つ
+    try {
+      listener.join(pollMs + reconnectBackoffMs + 1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (listener.isAlive()) log.warn("invalidation listener did not stop in time");
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.todomoney.invalidation;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.todomoney.entity.Goal;
+import com.example.todomoney.entity.Tag;
+import com.example.todomoney.entity.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * 2次キャッシュ（Goal / Tag / User とその検索結果）を他ノードの書き込みに合わせて捨てる。
+ * クエリキャッシュの無効化はノード内でしか効かないので、クエリリージョンはまとめて捨てる。
+ */
+@Component
+public class HibernateCacheInvalidationHandler implements InvalidationHandler {
+
+  private final Cache cache;
+
+  public HibernateCacheInvalidationHandler(EntityManagerFactory emf) {
+    this.cache = emf.unwrap(SessionFactory.class).getCache();
+  }
+
+  @Override
+  public void invalidate(Invalidation inv) {
+    switch (inv.scope()) {
+      case USER -> {
+        cache.evictEntityData(User.class, inv.userId());
+        cache.evictQueryRegion("query.userByEmail");
+      }
+      case GOALS -> {
+        if (inv.entityId() != null) cache.evictEntityData(Goal.class, inv.entityId());
+        else cache.evictEntityData(Goal.class);
+        cache.evictQueryRegion("query.goalsByUser");
+      }
+      case TAGS -> {
+        if (inv.entityId() != null) cache.evictEntityData(Tag.class, inv.entityId());
+        else cache.evictEntityData(Tag.class);
+        cache.evictQueryRegion("query.tagsByUser");
+      }
+      default -> {
+        // tasks / schedules / completions は2次キャッシュに載せていない（FX は FxRateSync が受ける）
+      }
+    }
+  }
+
+  @Override
+  public void invalidateAll() {
+    cache.evictAllRegions();
+  }
+}
@@ -0,0 +1,30 @@
+package com.example.todomoney.invalidation;
+
+/**
+ * 1件の無効化通知。entityId が null ならそのユーザーのスコープ全体。
+ * FX はユーザーに紐づかない（userId は 0）。
+ * ワイヤ形式は "SCOPE:userId" または "SCOPE:userId:entityId"（NOTIFY の payload を小さく保つ）。
+ */
+public record Invalidation(Scope scope, long userId, Long entityId) {
+
+  public enum Scope { USER, GOALS, TAGS, TASKS, SCHEDULES, COMPLETIONS, FX }
+
+  public static Invalidation of(Scope scope, long userId) {
+    return new Invalidation(scope, userId, null);
+  }
+
+  public static Invalidation of(Scope scope, long userId, Long entityId) {
+    return new Invalidation(scope, userId, entityId);
+  }
+
+  String encode() {
+    return entityId == null ? scope + ":" + userId : scope + ":" + userId + ":" + entityId;
+  }
+
+  static Invalidation decode(String s) {
+    String[] p = s.split(":");
+    Scope scope = Scope.valueOf(p[0]);
+    long userId = Long.parseLong(p[1]);
+    return new Invalidation(scope, userId, p.length > 2 ? Long.valueOf(p[2]) : null);
+  }
+}
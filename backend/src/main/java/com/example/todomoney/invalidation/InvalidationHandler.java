@@ -0,0 +1,13 @@
+package com.example.todomoney.invalidation;
+
+/**
+ * 他ノードの書き込みを受けてローカルのキャッシュを捨てる側。Bean にすれば自動で登録される。
+ * 自ノードの書き込みは各キャッシュ自身が反映している前提なので、ここには来ない。
+ */
+public interface InvalidationHandler {
+
+  void invalidate(Invalidation invalidation);
+
+  /** 通知を取りこぼした可能性があるとき（LISTEN 接続の張り直し後など）。 */
+  void invalidateAll();
+}
@@ -0,0 +1,83 @@
+package com.example.todomoney.money;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.example.todomoney.observability.AppMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 現在の為替表。読み取りは current() で参照を1回取るだけ（ロックなし）。
+ * 更新は新しい FxRates を丸ごと作って差し替える。起動時は app.fx.rates-location を読む。
+ * 管理 API での差し替え・再読込は FxRateSync を通す（保存して全ノードに配る）。replace はこのノードだけ。
+ */
+@Component
+public class FxRateStore {
+
+  private static final Logger log = LoggerFactory.getLogger(FxRateStore.class);
+
+  private final Resource location;
+  private final ObjectMapper mapper;
+  private final AppMetrics metrics;
+  private final AtomicReference<FxRates> current = new AtomicReference<>(FxRates.usdOnly());
+  // 警告を出した通貨（表を差し替えたら出し直す）
+  private final Set<String> warned = ConcurrentHashMap.newKeySet();
+
+  public FxRateStore(
+      @Value("${app.fx.rates-location:classpath:fx-rates.json}") Resource location,
+      ObjectMapper mapper,
+      AppMetrics metrics
+  ) {
+    this.location = location;
+    this.mapper = mapper;
+    this.metrics = metrics;
+    try {
+      reload();
+    } catch (IOException | RuntimeException e) {
+      // 表が読めなくても USD だけで起動する（他通貨のゴールの集計は 503）
+      log.warn("fx rates not loaded from {}: {}", location, e.toString());
+    }
+  }
+
+  public FxRates current() {
+    return current.get();
+  }
+
+  /** メトリクス用の USD 換算（表に無い通貨は 0 にして todomoney.fx.missing を数える。警告は通貨ごとに1回）。 */
+  public double usd(long amount, String currency) {
+    FxRates rates = current.get();
+    if (!rates.supports(currency) || !rates.supports("USD")) {
+      metrics.fxRateMissing();
+      if (warned.add(currency)) log.warn("no FX rate for {} to USD; reward metrics leave it out", currency);
+      return 0;
+    }
+    return Money.toDouble(rates.convert(amount, currency, "USD"));
+  }
+
+  public FxRates replace(FxRates rates) {
+    current.set(rates);
+    warned.clear();
+    log.info("fx rates replaced (base={}, asOf={}, {} currencies)", rates.base(), rates.asOf(), rates.rates().size());
+    return rates;
+  }
+
+  public FxRates reload() throws IOException {
+    return replace(read());
+  }
+
+  /** app.fx.rates-location を読むだけ（差し替えない）。 */
+  public FxRates read() throws IOException {
+    try (InputStream in = location.getInputStream()) {
+      return mapper.readValue(in, FxRates.class);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.example.todomoney.money;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.InvalidationHandler;
+import com.example.todomoney.sharding.ConsistentHashRing;
+import com.example.todomoney.sharding.ShardContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 管理 API での為替表の差し替えを全ノードに効かせる。
+ *
+ * - 差し替えはディレクトリ DB の fx_rates（1行）に保存してから FxRateStore に入れ、CacheInvalidationBus で FX を流す
+ * - 受けたノードは fx_rates を読み直す（LISTEN を張り直したときも）。起動時も行があればファイルよりそちらを使う
+ * - ゴールが使っている通貨と USD（既定の集計通貨・メトリクスの換算先）を落とす表は 400 で断る。
+ *   CurrencyEvent の通貨はゴールの通貨（作成後は変わらない）か V10 以前の USD なので、goals だけ見ればよい
+ */
+@Component
+public class FxRateSync {
+
+  private static final Logger log = LoggerFactory.getLogger(FxRateSync.class);
+
+  private final JdbcTemplate jdbc;
+  private final ObjectMapper mapper;
+  private final FxRateStore store;
+  private final CacheInvalidationBus bus;
+  private final ObjectProvider<ConsistentHashRing> ring;
+
+  public FxRateSync(
+      DataSource dataSource,
+      ObjectMapper mapper,
+      FxRateStore store,
+      CacheInvalidationBus bus,
+      ObjectProvider<ConsistentHashRing> ring
+  ) {
+    this.jdbc = new JdbcTemplate(dataSource);
+    this.mapper = mapper;
+    this.store = store;
+    this.bus = bus;
+    this.ring = ring;
+    // InvalidationHandler の Bean にすると bus との間で循環するので、ここで足す
+    bus.addHandler(new InvalidationHandler() {
+      @Override
+      public void invalidate(Invalidation inv) {
+        if (inv.scope() == Invalidation.Scope.FX) loadQuietly();
+      }
+
+      @Override
+      public void invalidateAll() {
+        loadQuietly();
+      }
+    });
+  }
+
+  /** 確かめて、保存して、このノードに入れて、他ノードに知らせる。 */
+  public FxRates update(FxRates rates) {
+    Set<String> missing = new TreeSet<>(currenciesInUse());
+    missing.add("USD");
+    missing.removeAll(rates.rates().keySet());
+    if (!missing.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fx rates drop currencies in use: " + missing);
+    }
+
+    String body;
+    try {
+      body = mapper.writeValueAsString(rates);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    ShardContext.callOn(ShardContext.DIRECTORY, () -> jdbc.update("""
+        insert into fx_rates(id, body, updated_at) values (1, ?::jsonb, now())
+        on conflict (id) do update set body = excluded.body, updated_at = excluded.updated_at
+        """, body));
+    store.replace(rates);
+    bus.publish(Invalidation.of(Invalidation.Scope.FX, 0));
+    return rates;
+  }
+
+  /** いずれかのゴールが使っている通貨（シャーディング時は全シャード分）。 */
+  Set<String> currenciesInUse() {
+    ConsistentHashRing shards = ring.getIfAvailable();
+    List<String> targets = new ArrayList<>();
+    if (shards == null) targets.add(null); else targets.addAll(shards.shards());
+
+    Set<String> out = new TreeSet<>();
+    for (String shard : targets) {
+      out.addAll(shard == null ? goalCurrencies() : ShardContext.callOn(shard, this::goalCurrencies));
+    }
+    return out;
+  }
+
+  private List<String> goalCurrencies() {
+    return jdbc.queryForList("select distinct currency from goals", String.class);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    loadQuietly();
+  }
+
+  /** fx_rates に保存された表があれば入れる。 */
+  boolean load() throws IOException {
+    List<String> rows = ShardContext.callOn(ShardContext.DIRECTORY,
+        () -> jdbc.queryForList("select body::text from fx_rates where id = 1", String.class));
+    if (rows.isEmpty()) return false;
+    store.replace(mapper.readValue(rows.get(0), FxRates.class));
+    return true;
+  }
+
+  private void loadQuietly() {
+    try {
+      load();
+    } catch (IOException | RuntimeException e) {
+      // 今の表のまま（次の通知か再起動で読み直す）
+      log.warn("fx rates not loaded from fx_rates: {}", e.toString());
+    }
+  }
+}
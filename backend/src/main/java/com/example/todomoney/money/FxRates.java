@@ -0,0 +1,55 @@
+package com.example.todomoney.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * ある時点の為替表（不変）。rates は「base 1 単位 = 各通貨いくつ」。
+ * 差し替えは FxRateStore がこのインスタンスごと入れ替えるので、1回の換算の途中で表が変わることはない。
+ */
+public record FxRates(String base, LocalDate asOf, Map<String, BigDecimal> rates) {
+
+  public FxRates {
+    rates = Map.copyOf(rates);
+    BigDecimal one = base == null ? null : rates.get(base);
+    if (one == null || one.compareTo(BigDecimal.ONE) != 0) {
+      throw new IllegalArgumentException("rate of the base currency must be 1: " + base);
+    }
+    for (Map.Entry<String, BigDecimal> e : rates.entrySet()) {
+      if (e.getValue().signum() <= 0) throw new IllegalArgumentException("rate must be positive: " + e.getKey());
+    }
+  }
+
+  public static FxRates usdOnly() {
+    return new FxRates("USD", null, Map.of("USD", BigDecimal.ONE));
+  }
+
+  public boolean supports(String currency) {
+    return rates.containsKey(currency);
+  }
+
+  /**
+   * from 建ての amount（Money の最小単位）を to 建てに換算する。丸めは最後の1回だけ（HALF_UP）。
+   * 読み取り時に合計へ1回かけるだけなので BigDecimal で計算する。
+   */
+  public long convert(long amount, String from, String to) {
+    if (from.equals(to)) return amount;
+    BigDecimal f = rate(from);
+    BigDecimal t = rate(to);
+    return Money.of(Money.toDecimal(amount).multiply(t).divide(f, Money.SCALE, RoundingMode.HALF_UP));
+  }
+
+  private BigDecimal rate(String currency) {
+    BigDecimal r = rates.get(currency);
+    if (r == null) throw new UnsupportedCurrencyException(currency);
+    return r;
+  }
+
+  public static class UnsupportedCurrencyException extends RuntimeException {
+    public UnsupportedCurrencyException(String currency) {
+      super("no FX rate for " + currency);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.todomoney.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金額の固定小数点演算。金額は DB の numeric(12,2) と同じ桁の long（最小単位＝セント）で持つ。
+ *
+ * - 計算はすべて long の整数演算。丸めは除算の1箇所だけで、向きは HALF_UP（0 から遠い方。Postgres の numeric と同じ）
+ * - 保存する値は常にこの桁なので、Java 側の合計と DB の sum(amount) は1セントもずれない
+ * - BigDecimal / double との変換は境界（JDBC・JSON・リクエスト）だけで行い、計算の途中ではオブジェクトを作らない
+ */
+public final class Money {
+
+  /** DB の numeric(12,2) の小数部の桁数。 */
+  public static final int SCALE = 2;
+  public static final long ONE = 100;
+  /** numeric(12,2) に入る最大値（9,999,999,999.99）。 */
+  public static final long MAX = 999_999_999_999L;
+
+  private Money() {}
+
+  /**
+   * 1タスクあたりの報酬 = 年収 ÷ 年間日数 ÷ タスク数（1回だけ丸める）。
+   * 年収が numeric(12,2) に収まる限り、分母を掛けても途中であふれない。
+   */
+  public static long perTaskReward(long annualIncome, int daysPerYear, long taskCount) {
+    if (taskCount <= 0 || daysPerYear <= 0) return 0;
+    return divideHalfUp(annualIncome, Math.multiplyExact((long) daysPerYear, taskCount));
+  }
+
+  /** a ÷ b を HALF_UP で丸める（b > 0）。 */
+  public static long divideHalfUp(long a, long b) {
+    long q = a / b;
+    long r = a % b;
+    // |r| * 2 >= b なら 0 から遠い方へ（b - |r| と比べるので r * 2 のあふれを気にしなくてよい）
+    if (Math.abs(r) >= b - Math.abs(r)) q += Long.signum(a);
+    return q;
+  }
+
+  public static long times(long amount, long n) {
+    return Math.multiplyExact(amount, n);
+  }
+
+  // ===== 境界での変換 =====
+
+  /** DB・リクエストからの値。桁が多ければ HALF_UP で丸める（long に入らなければ ArithmeticException）。 */
+  public static long of(BigDecimal value) {
+    return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+  }
+
+  /** 1行に保存できる値か（numeric(12,2) の範囲。合計には使わない）。 */
+  public static boolean storable(long amount) {
+    return Math.abs(amount) <= MAX;
+  }
+
+  /** JDBC にバインドする値（スケール 2 の BigDecimal）。 */
+  public static BigDecimal toDecimal(long amount) {
+    return BigDecimal.valueOf(amount, SCALE);
+  }
+
+  /**
+   * JSON / メトリクス向け。amount < 2^53 なので、結果は amount / 100 に最も近い double になり
+   * （除算は正しく丸められる）、Jackson はそれを元の10進表記（例 13.70 → 13.7）で書き出す。
+   */
+  public static double toDouble(long amount) {
+    return amount / (double) ONE;
+  }
+}
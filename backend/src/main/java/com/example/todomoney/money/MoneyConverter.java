@@ -0,0 +1,21 @@
+package com.example.todomoney.money;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/** numeric(12,2) ⇔ long（Money の最小単位）。 */
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+  @Override
+  public BigDecimal convertToDatabaseColumn(Long amount) {
+    return amount == null ? null : Money.toDecimal(amount);
+  }
+
+  @Override
+  public Long convertToEntityAttribute(BigDecimal value) {
+    return value == null ? null : Money.of(value);
+  }
+}
@@ -0,0 +1,133 @@
+package com.example.todomoney.observability;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.example.todomoney.traffic.Bulkhead;
+import com.example.todomoney.traffic.EndpointClass;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * アプリ固有のメトリクス（HTTP / Hikari / Hibernate は Spring Boot が自動で出す）。
+ * メーターは起動時に作って使い回す（リクエスト毎に registry を引かない）。
+ */
+@Component
+public class AppMetrics {
+
+  private final Timer jwtVerify;
+  private final Counter taskCompletions;
+  private final Counter occurrenceCompletions;
+  private final Counter rewardsIssuedUsd;
+  private final Counter settledCompletions;
+  private final Counter eventsDropped;
+  private final DistributionSummary outboxBatch;
+  private final Counter fxMissing;
+
+  /** レート制限の拒否数（エンドポイント別は上限まで。それ以降は "other" にまとめる） */
+  private static final int MAX_ENDPOINT_TAGS = 200;
+  private final MeterRegistry registry;
+  private final ConcurrentHashMap<String, Counter> rateLimited = new ConcurrentHashMap<>();
+  private final Map<Bulkhead.Group, Counter> bulkheadRejected = new EnumMap<>(Bulkhead.Group.class);
+
+  public AppMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.jwtVerify = Timer.builder("todomoney.jwt.verify")
+        .description("JWT signature/claims verification time")
+        .register(registry);
+    this.taskCompletions = Counter.builder("todomoney.completions")
+        .description("Completed tasks")
+        .tag("source", "task")
+        .register(registry);
+    this.occurrenceCompletions = Counter.builder("todomoney.completions")
+        .description("Completed tasks")
+        .tag("source", "calendar")
+        .register(registry);
+    this.rewardsIssuedUsd = Counter.builder("todomoney.rewards.issued")
+        .description("Reward amount recorded as currency events")
+        .baseUnit("usd")
+        .register(registry);
+    this.settledCompletions = Counter.builder("todomoney.settlement.logs")
+        .description("Completion logs settled into currency events")
+        .register(registry);
+    this.eventsDropped = Counter.builder("todomoney.events.dropped")
+        .description("SSE events dropped because a subscriber queue was full")
+        .register(registry);
+    this.outboxBatch = DistributionSummary.builder("todomoney.outbox.batch")
+        .description("Currency events moved from the outbox per group commit")
+        .register(registry);
+    this.fxMissing = Counter.builder("todomoney.fx.missing")
+        .description("Reward amounts left out of USD metrics because the currency has no FX rate")
+        .register(registry);
+    for (Bulkhead.Group g : Bulkhead.Group.values()) {
+      bulkheadRejected.put(g, Counter.builder("todomoney.bulkhead.rejected")
+          .description("Requests rejected after waiting queue-timeout for a bulkhead permit")
+          .tag("group", g.name())
+          .register(registry));
+    }
+  }
+
+  public <T> T timeJwtVerify(Supplier<T> verification) {
+    return jwtVerify.record(verification);
+  }
+
+  // TaskService.completeTask（報酬あり）
+  public void taskCompleted(double rewardUsd) {
+    taskCompletions.increment();
+    if (rewardUsd > 0) rewardsIssuedUsd.increment(rewardUsd);
+  }
+
+  // CompletionController（カレンダーの発生日単位の完了）
+  public void occurrenceCompleted() {
+    occurrenceCompletions.increment();
+  }
+
+  // SettlementJob（1チャンク分）
+  public void completionsSettled(int logs, double rewardUsd) {
+    settledCompletions.increment(logs);
+    if (rewardUsd > 0) rewardsIssuedUsd.increment(rewardUsd);
+  }
+
+  // RateLimitFilter（429 を返したとき）
+  public void rateLimited(EndpointClass c, String endpoint) {
+    String key = c + " " + endpoint;
+    Counter counter = rateLimited.get(key);
+    if (counter == null) {
+      String tag = rateLimited.size() < MAX_ENDPOINT_TAGS ? endpoint : "other";
+      counter = rateLimited.computeIfAbsent(c + " " + tag,
+          k -> Counter.builder("todomoney.ratelimit.rejected")
+              .description("Requests rejected by the per-user rate limiter")
+              .tag("class", c.name())
+              .tag("endpoint", tag)
+              .register(registry));
+    }
+    counter.increment();
+  }
+
+  // BulkheadFilter（503 を返したとき）
+  public void bulkheadRejected(Bulkhead.Group g) {
+    bulkheadRejected.get(g).increment();
+  }
+
+  // UserEventHub（遅い購読者のキューから古いイベントを捨てたとき）
+  public void eventDropped() {
+    eventsDropped.increment();
+  }
+
+  // OutboxFlusher（1回のグループコミットで移した件数。count が回数、sum が件数）
+  public void outboxFlushed(int rows) {
+    outboxBatch.record(rows);
+  }
+
+  // FxRateStore.usd（為替表に無い通貨で、報酬メトリクスに入らなかったとき）
+  public void fxRateMissing() {
+    fxMissing.increment();
+  }
+}
@@ -0,0 +1,106 @@
+package com.example.todomoney.observability;
+
+import java.util.Locale;
+
+/**
+ * 1リクエスト分のフェーズ別所要時間（auth / db / compute / serialize）。
+ * ServerTimingFilter がリクエストスレッドに束縛し、各所から current() 経由で加算する。
+ * リクエスト外（バッチ等）では current() が null になるので呼び出し側で無視する。
+ */
+public final class RequestTiming {
+
+  private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+  private final long startNanos = System.nanoTime();
+  private long endNanos;
+
+  private long authNanos;
+  private long authStartNanos;
+  private long dbNanosAtAuthStart;
+  private long dbNanosInAuth;
+
+  private long dbNanos;
+  private int dbCount;
+
+  private long serializeStartNanos;
+
+  static RequestTiming start() {
+    RequestTiming t = new RequestTiming();
+    CURRENT.set(t);
+    return t;
+  }
+
+  static void clear() {
+    CURRENT.remove();
+  }
+
+  public static RequestTiming current() {
+    return CURRENT.get();
+  }
+
+  // ===== 記録（すべてリクエストスレッドから呼ばれる前提なので同期しない） =====
+
+  public void beginAuth() {
+    authStartNanos = System.nanoTime();
+    dbNanosAtAuthStart = dbNanos;
+  }
+
+  public void endAuth() {
+    if (authStartNanos == 0) return;
+    authNanos += System.nanoTime() - authStartNanos;
+    dbNanosInAuth += dbNanos - dbNanosAtAuthStart;
+    authStartNanos = 0;
+  }
+
+  public void addDb(long nanos) {
+    dbNanos += nanos;
+    dbCount++;
+  }
+
+  public void markSerializeStart() {
+    if (serializeStartNanos == 0) serializeStartNanos = System.nanoTime();
+  }
+
+  void finish() {
+    endNanos = System.nanoTime();
+  }
+
+  // ===== 集計 =====
+
+  public long totalNanos() {
+    return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+  }
+
+  public long authNanos() { return authNanos; }
+  public long dbNanos() { return dbNanos; }
+  public int dbCount() { return dbCount; }
+
+  public long serializeNanos() {
+    if (serializeStartNanos == 0) return 0;
+    return (endNanos == 0 ? System.nanoTime() : endNanos) - serializeStartNanos;
+  }
+
+  // auth 中の DB 時間は auth 側に含めているので二重に引かない
+  public long computeNanos() {
+    long rest = totalNanos() - authNanos - (dbNanos - dbNanosInAuth) - serializeNanos();
+    return Math.max(0, rest);
+  }
+
+  /** Server-Timing ヘッダ値（dur はミリ秒）。 */
+  public String toServerTiming() {
+    return String.format(Locale.ROOT,
+        "auth;dur=%.1f, db;dur=%.1f;desc=\"%d queries\", compute;dur=%.1f, serialize;dur=%.1f, total;dur=%.1f",
+        ms(authNanos), ms(dbNanos), dbCount, ms(computeNanos()), ms(serializeNanos()), ms(totalNanos()));
+  }
+
+  /** スローリクエストログ用の key=value 形式。 */
+  public String toLogFields() {
+    return String.format(Locale.ROOT,
+        "total_ms=%.1f auth_ms=%.1f db_ms=%.1f db_queries=%d compute_ms=%.1f serialize_ms=%.1f",
+        ms(totalNanos()), ms(authNanos), ms(dbNanos), dbCount, ms(computeNanos()), ms(serializeNanos()));
+  }
+
+  private static double ms(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
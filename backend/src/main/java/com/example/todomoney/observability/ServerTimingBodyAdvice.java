@@ -0,0 +1,30 @@
+package com.example.todomoney.observability;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * ハンドラが値を返して Jackson が書き始める直前を serialize フェーズの開始とする。
+ */
+@ControllerAdvice
+public class ServerTimingBodyAdvice implements ResponseBodyAdvice<Object> {
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                Class<? extends HttpMessageConverter<?>> converterType,
+                                ServerHttpRequest request, ServerHttpResponse response) {
+    RequestTiming timing = RequestTiming.current();
+    if (timing != null) timing.markSerializeStart();
+    return body;
+  }
+}
@@ -0,0 +1,88 @@
+package com.example.todomoney.observability;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * リクエスト全体を計測し、Server-Timing ヘッダとスローリクエストログを出す。
+ * ヘッダは app.timing.header-enabled か、app.timing.debug-header-enabled のときのデバッグヘッダ付きリクエストだけに付ける
+ * （本文を書き終えてからヘッダを足すため、その場合だけレスポンスをバッファする）。
+ * デバッグヘッダは誰でも付けられるので、既定では無視する。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+  private static final List<String> STREAMING_PREFIXES = List.of("/api/events", "/api/export/");
+
+  private final boolean headerEnabled;
+  private final String debugHeader;
+  private final long slowRequestNanos;
+
+  public ServerTimingFilter(
+      @Value("${app.timing.header-enabled:false}") boolean headerEnabled,
+      @Value("${app.timing.debug-header-enabled:false}") boolean debugHeaderEnabled,
+      @Value("${app.timing.debug-header:X-Debug-Timing}") String debugHeader,
+      @Value("${app.timing.slow-request-ms:1000}") long slowRequestMs
+  ) {
+    this.headerEnabled = headerEnabled;
+    this.debugHeader = debugHeaderEnabled ? debugHeader : null;
+    this.slowRequestNanos = slowRequestMs * 1_000_000L;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith("/api/");
+  }
+
+  private static boolean isStreaming(HttpServletRequest request) {
+    String uri = request.getRequestURI();
+    for (String p : STREAMING_PREFIXES) {
+      if (uri.startsWith(p)) return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain chain) throws ServletException, IOException {
+    RequestTiming timing = RequestTiming.start();
+    // ストリーミング応答はバッファすると最後まで届かないので、ヘッダは付けない
+    boolean requested = debugHeader != null && request.getHeader(debugHeader) != null;
+    boolean withHeader = (headerEnabled || requested) && !isStreaming(request);
+    ContentCachingResponseWrapper buffered = withHeader ? new ContentCachingResponseWrapper(response) : null;
+
+    try {
+      chain.doFilter(request, buffered != null ? buffered : response);
+    } finally {
+      timing.finish();
+      RequestTiming.clear();
+
+      if (buffered != null) {
+        buffered.setHeader("Server-Timing", timing.toServerTiming());
+        buffered.copyBodyToResponse();
+      }
+      if (timing.totalNanos() >= slowRequestNanos) {
+        log.warn("slow_request method={} path={} status={} {}",
+            request.getMethod(), request.getRequestURI(), response.getStatus(), timing.toLogFields());
+      }
+    }
+  }
+}
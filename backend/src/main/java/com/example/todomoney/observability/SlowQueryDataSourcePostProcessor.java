@@ -0,0 +1,57 @@
+package com.example.todomoney.observability;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.stereotype.Component;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * アプリが使う DataSource を datasource-proxy で包み、SlowQueryRecorder に実行時間を渡す。
+ * Bean 名ではなく型で選ぶ。DataSource が1つだけならそれを、複数ある（ルーティング構成で内側の
+ * DataSource も Bean になっている）なら @Primary のものだけを包む。内側まで包むと同じ SQL を2回記録する。
+ */
+@Component
+public class SlowQueryDataSourcePostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+  private final boolean enabled;
+  private final ObjectProvider<SlowQueryRecorder> recorder;
+  private ConfigurableListableBeanFactory beanFactory;
+
+  public SlowQueryDataSourcePostProcessor(
+      @Value("${app.slow-query.enabled:true}") boolean enabled,
+      ObjectProvider<SlowQueryRecorder> recorder
+  ) {
+    this.enabled = enabled;
+    this.recorder = recorder;
+  }
+
+  @Override
+  public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+    this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!enabled || !(bean instanceof DataSource ds) || bean instanceof ProxyDataSource || !isAppFacing(beanName)) {
+      return bean;
+    }
+    return ProxyDataSourceBuilder.create(ds)
+        .name(beanName)
+        .listener(recorder.getObject())
+        .build();
+  }
+
+  private boolean isAppFacing(String beanName) {
+    if (beanFactory.getBeanNamesForType(DataSource.class, true, false).length == 1) return true;
+    return beanFactory.containsBeanDefinition(beanName) && beanFactory.getBeanDefinition(beanName).isPrimary();
+  }
+}
@@ -0,0 +1,120 @@
+package com.example.todomoney.observability;
+
+import java.time.Instant;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+/**
+ * 閾値を超えた SQL だけを固定長リングバッファに残す。
+ * 書き込みは getAndIncrement + set のみ（ロックなし）。古いものから上書きされる。
+ * 各スロットには通し番号も一緒に入れ、読み出し側は番号が合うものだけを返す
+ * （書き込み途中で番号だけ進んだスロットや、読んでいる間に次の周回で上書きされたスロットは飛ばす）。
+ * バインド値は文字列を伏せ字にする（メールアドレス等を残さない）。
+ */
+@Component
+public class SlowQueryRecorder implements QueryExecutionListener {
+
+  public record SlowQuery(
+      Instant at, long elapsedMs, String endpoint, String sql, List<List<String>> params, boolean batch
+  ) {}
+
+  private final long thresholdMs;
+  private final int mask;
+  private record Slot(long seq, SlowQuery query) {}
+
+  private final AtomicReferenceArray<Slot> slots;
+  private final AtomicLong seq = new AtomicLong();
+
+  public SlowQueryRecorder(
+      @Value("${app.slow-query.threshold-ms:200}") long thresholdMs,
+      @Value("${app.slow-query.capacity:256}") int capacity
+  ) {
+    this.thresholdMs = thresholdMs;
+    // インデックス計算を & で済ませるため 2 のべき乗に切り上げる
+    int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+    this.mask = size - 1;
+    this.slots = new AtomicReferenceArray<>(size);
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    if (execInfo.getElapsedTime() < thresholdMs) return;
+
+    String endpoint = currentEndpoint();
+    for (QueryInfo q : queryInfoList) {
+      List<List<String>> params = new ArrayList<>(q.getParametersList().size());
+      for (List<ParameterSetOperation> set : q.getParametersList()) {
+        List<String> row = new ArrayList<>(set.size());
+        for (ParameterSetOperation op : set) {
+          Object[] args = op.getArgs();
+          row.add(redact(args.length > 1 ? args[1] : null));
+        }
+        params.add(row);
+      }
+      record(new SlowQuery(Instant.now(), execInfo.getElapsedTime(), endpoint, q.getQuery(),
+          params, execInfo.isBatch()));
+    }
+  }
+
+  void record(SlowQuery q) {
+    long n = seq.getAndIncrement();
+    slots.set((int) (n & mask), new Slot(n, q));
+  }
+
+  /** 新しい順に最大 limit 件。 */
+  public List<SlowQuery> recent(int limit) {
+    long end = seq.get();
+    long start = Math.max(0, end - slots.length());
+    List<SlowQuery> out = new ArrayList<>(Math.min(limit, slots.length()));
+    for (long i = end - 1; i >= start && out.size() < limit; i--) {
+      Slot s = slots.get((int) (i & mask));
+      if (s != null && s.seq() == i) out.add(s.query());
+    }
+    return out;
+  }
+
+  public long totalRecorded() {
+    return seq.get();
+  }
+
+  /** 中身と通し番号（totalRecorded）を 0 に戻す。 */
+  public void clear() {
+    for (int i = 0; i < slots.length(); i++) slots.set(i, null);
+    seq.set(0);
+  }
+
+  private static String redact(Object v) {
+    if (v == null) return "null";
+    if (v instanceof Number || v instanceof Boolean || v instanceof Temporal) return String.valueOf(v);
+    if (v instanceof CharSequence s) return "<string:" + s.length() + ">";
+    return "<" + v.getClass().getSimpleName() + ">";
+  }
+
+  // リクエスト外（スケジューラ等）はスレッド名で代用
+  private static String currentEndpoint() {
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+      var req = attrs.getRequest();
+      Object pattern = req.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      return req.getMethod() + " " + (pattern != null ? pattern : req.getRequestURI());
+    }
+    return "thread:" + Thread.currentThread().getName();
+  }
+}
@@ -0,0 +1,40 @@
+package com.example.todomoney.observability;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * JDBC 実行時間と件数を RequestTiming に積む。
+ * hibernate.session.events.auto で Session ごとに生成される（引数なしコンストラクタ必須）。
+ */
+public class TimingSessionEventListener extends BaseSessionEventListener {
+
+  private long executeStart;
+  private long batchStart;
+
+  @Override
+  public void jdbcExecuteStatementStart() {
+    executeStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteStatementEnd() {
+    record(executeStart);
+  }
+
+  @Override
+  public void jdbcExecuteBatchStart() {
+    batchStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteBatchEnd() {
+    record(batchStart);
+  }
+
+  private static void record(long start) {
+    RequestTiming timing = RequestTiming.current();
+    if (timing != null && start != 0) {
+      timing.addDb(System.nanoTime() - start);
+    }
+  }
+}
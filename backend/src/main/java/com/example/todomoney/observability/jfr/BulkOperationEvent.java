@@ -0,0 +1,23 @@
+package com.example.todomoney.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 複数行をまとめて処理する操作（タグ一括設定、バッチ処理など）。 */
+@Name("todomoney.BulkOperation")
+@Label("Bulk Operation")
+@Category({"TodoMoney", "Bulk"})
+@StackTrace(false)
+public class BulkOperationEvent extends Event {
+  @Label("Operation")
+  public String operation;
+
+  @Label("User Id")
+  public long userId;
+
+  @Label("Rows")
+  public int rows;
+}
@@ -0,0 +1,32 @@
+package com.example.todomoney.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * /api/calendar のスケジュール展開 1 回分。
+ * 記録していないときは begin/shouldCommit だけで終わるので、フィールドは shouldCommit() の後で埋める。
+ */
+@Name("todomoney.CalendarExpansion")
+@Label("Calendar Expansion")
+@Category({"TodoMoney", "Calendar"})
+@StackTrace(false)
+public class CalendarExpansionEvent extends Event {
+  @Label("User Id")
+  public long userId;
+
+  @Label("From (epoch day)")
+  public long fromEpochDay;
+
+  @Label("To (epoch day)")
+  public long toEpochDay;
+
+  @Label("Schedules")
+  public int scheduleCount;
+
+  @Label("Occurrences Emitted")
+  public int occurrenceCount;
+}
@@ -0,0 +1,108 @@
+package com.example.todomoney.observability.jfr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * 管理 API から起動する JFR 記録（同時に 1 本だけ）。
+ * 時間とサイズの上限を必ず付けるので、止め忘れても自動で終わる。
+ */
+@Service
+public class JfrRecordingService {
+
+  static final List<String> APP_EVENTS = List.of(
+      "todomoney.CalendarExpansion",
+      "todomoney.RewardComputation",
+      "todomoney.TokenVerification",
+      "todomoney.BulkOperation"
+  );
+
+  private final Duration maxDuration;
+  private final long maxSizeBytes;
+
+  private Recording active;
+  private Instant startedAt;
+
+  public JfrRecordingService(
+      @Value("${app.jfr.max-duration:PT10M}") Duration maxDuration,
+      @Value("${app.jfr.max-size-mb:100}") long maxSizeMb
+  ) {
+    this.maxDuration = maxDuration;
+    this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+  }
+
+  public record Status(boolean recording, String state, Instant startedAt, Duration maxDuration, long maxSizeBytes) {}
+
+  public synchronized Status start(Duration duration, String settings) {
+    if (active != null && active.getState() == RecordingState.RUNNING) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "recording already running");
+    }
+    closeQuietly();
+
+    Duration d = (duration == null || duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0)
+        ? maxDuration : duration;
+
+    Recording r;
+    try {
+      r = new Recording(Configuration.getConfiguration(settings == null ? "profile" : settings));
+    } catch (IOException | ParseException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown JFR settings: " + settings);
+    }
+    r.setName("todomoney-admin");
+    APP_EVENTS.forEach(r::enable);
+    r.setToDisk(true);
+    r.setDuration(d);
+    r.setMaxSize(maxSizeBytes);
+    r.start();
+
+    active = r;
+    startedAt = Instant.now();
+    return status();
+  }
+
+  /** 記録を止めて一時ファイルに書き出す（呼び出し側で送信後に削除する）。 */
+  public synchronized Path stopAndDump() {
+    if (active == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no recording");
+    }
+    try {
+      if (active.getState() == RecordingState.RUNNING) active.stop();
+      Path file = Files.createTempFile("todomoney-", ".jfr");
+      active.dump(file);
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      closeQuietly();
+    }
+  }
+
+  public synchronized Status status() {
+    if (active == null) return new Status(false, "NONE", null, maxDuration, maxSizeBytes);
+    return new Status(active.getState() == RecordingState.RUNNING, active.getState().name(),
+        startedAt, active.getDuration(), maxSizeBytes);
+  }
+
+  private void closeQuietly() {
+    if (active != null) {
+      active.close();
+      active = null;
+      startedAt = null;
+    }
+  }
+}
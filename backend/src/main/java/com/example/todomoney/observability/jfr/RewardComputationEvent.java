@@ -0,0 +1,32 @@
+package com.example.todomoney.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** TaskService.completeTask の報酬計算〜記録。 */
+@Name("todomoney.RewardComputation")
+@Label("Reward Computation")
+@Category({"TodoMoney", "Rewards"})
+@StackTrace(false)
+public class RewardComputationEvent extends Event {
+  @Label("User Id")
+  public long userId;
+
+  @Label("Goal Id")
+  public long goalId;
+
+  @Label("Task Id")
+  public long taskId;
+
+  @Label("Task Count")
+  public long taskCount;
+
+  @Label("Reward")
+  public double reward;
+
+  @Label("Currency")
+  public String currency;
+}
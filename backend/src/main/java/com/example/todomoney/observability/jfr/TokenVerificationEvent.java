@@ -0,0 +1,17 @@
+package com.example.todomoney.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JwtService.verify 1 回分。 */
+@Name("todomoney.TokenVerification")
+@Label("Token Verification")
+@Category({"TodoMoney", "Security"})
+@StackTrace(false)
+public class TokenVerificationEvent extends Event {
+  @Label("Success")
+  public boolean success;
+}
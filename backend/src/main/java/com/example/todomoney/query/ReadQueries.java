@@ -0,0 +1,228 @@
+package com.example.todomoney.query;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.todomoney.money.Money;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * GET 系の読み取り専用クエリ。エンティティは読まず、必要な列だけを record で返す。
+ *
+ * エンティティで読むと、永続化コンテキストへの登録・dirty checking 用のスナップショット・
+ * EAGER な関連（Task.goal など）の追加 SELECT が付いてくる。表示にしか使わない読み込みはここを通し、
+ * エンティティは書き込み側だけで使う。
+ */
+@Service
+@Transactional(readOnly = true)
+public class ReadQueries {
+
+  private final EntityManager em;
+
+  public ReadQueries(EntityManager em) {
+    this.em = em;
+  }
+
+  public record GoalRow(long id, String title, long annualIncome, String currency, int daysPerYear, boolean achieved,
+      long taskCount, long completedCount, boolean archived) {}
+
+  public record TaskRow(long id, long goalId, String title, boolean completed) {}
+
+  public record TagRow(long id, long userId, String name, String color) {}
+
+  public record HistoryRow(long id, long taskId, String taskTitle, LocalDate occurrenceDate, Instant completedAt) {}
+
+  public record CompletionKey(long taskId, LocalDate occurrenceDate) {}
+
+  // 通貨ごとの合計。金額は Money の最小単位（DB の sum をそのまま写すので丸めは入らない）
+  public record SummaryRow(String currency, long potentialTotal, long achievedTotal, long currencyCount) {}
+
+  // ===== goals =====
+
+  // アーカイブ済みゴールはタスクが goal_archives の件数に置き換わっている（どちらか片方だけが 0 以外）
+  private static final String GOAL_ROWS = "select g.id as id, g.title as title, g.annualIncome as annualIncome, "
+      + "g.currency as currency, g.daysPerYear as daysPerYear, g.achieved as achieved, "
+      + "count(t.id) + coalesce(a.taskCount, 0) as taskCount, "
+      + "coalesce(sum(case when t.completed = true then 1 else 0 end), 0) + coalesce(a.completedCount, 0) as completedCount, "
+      + "case when a.goalId is null then false else true end as archived "
+      + "from Goal g left join Task t on t.goal = g left join GoalArchive a on a.goalId = g.id "
+      + "where g.user.id = :userId ";
+  private static final String GOAL_GROUP =
+      "group by g.id, g.title, g.annualIncome, g.currency, g.daysPerYear, g.achieved, a.goalId, a.taskCount, a.completedCount ";
+
+  /** 一覧（タスク数・完了数込みで1クエリ）。 */
+  public List<GoalRow> goals(long userId) {
+    return readOnly(em.createQuery(GOAL_ROWS + GOAL_GROUP + "order by g.id desc", Tuple.class))
+        .setParameter("userId", userId)
+        .getResultStream()
+        .map(ReadQueries::goalRow)
+        .toList();
+  }
+
+  public Optional<GoalRow> goal(long userId, long goalId) {
+    return readOnly(em.createQuery(GOAL_ROWS + "and g.id = :goalId " + GOAL_GROUP, Tuple.class))
+        .setParameter("userId", userId)
+        .setParameter("goalId", goalId)
+        .getResultStream()
+        .map(ReadQueries::goalRow)
+        .findFirst();
+  }
+
+  private static GoalRow goalRow(Tuple r) {
+    return new GoalRow(
+        r.get("id", Long.class), r.get("title", String.class), r.get("annualIncome", Long.class),
+        r.get("currency", String.class), r.get("daysPerYear", Integer.class), r.get("achieved", Boolean.class),
+        ((Number) r.get("taskCount")).longValue(), ((Number) r.get("completedCount")).longValue(),
+        r.get("archived", Boolean.class));
+  }
+
+  /**
+   * goal 配下のタスク（新しい順）。goal が無い・他人のものなら empty。
+   * goal から left join するので、存在確認とタスク取得が1クエリで済む（タスク0件なら t 側が null の1行）。
+   */
+  public Optional<List<TaskRow>> goalTasks(long userId, long goalId) {
+    List<Tuple> rows = readOnly(em.createQuery(
+            "select g.id as goalId, t.id as id, t.title as title, t.completed as completed "
+                + "from Goal g left join Task t on t.goal = g "
+                + "where g.id = :goalId and g.user.id = :userId order by t.id desc", Tuple.class))
+        .setParameter("userId", userId)
+        .setParameter("goalId", goalId)
+        .getResultList();
+    if (rows.isEmpty()) return Optional.empty();
+
+    List<TaskRow> out = new ArrayList<>(rows.size());
+    for (Tuple r : rows) {
+      Long id = r.get("id", Long.class);
+      if (id == null) continue;
+      out.add(new TaskRow(id, r.get("goalId", Long.class), r.get("title", String.class), r.get("completed", Boolean.class)));
+    }
+    return Optional.of(out);
+  }
+
+  /**
+   * taskId → memo。Task.memo は LAZY なので、エンティティで展開するカレンダーは1件ずつ読まずにここでまとめて引く。
+   */
+  public Map<Long, String> memos(Collection<Long> taskIds) {
+    Map<Long, String> out = new HashMap<>();
+    if (taskIds.isEmpty()) return out;
+    readOnly(em.createQuery("select t.id as id, t.memo as memo from Task t where t.id in :ids", Tuple.class))
+        .setParameter("ids", taskIds)
+        .getResultStream()
+        .forEach(r -> out.put(r.get("id", Long.class), r.get("memo", String.class)));
+    return out;
+  }
+
+  // ===== tags =====
+
+  /** TagRepository.findByUserIdOrderByNameAsc と同じクエリキャッシュ領域（他ノードからの無効化もそのまま効く）。 */
+  public List<TagRow> tags(long userId) {
+    return readOnly(em.createQuery(
+            "select t.id as id, t.userId as userId, t.name as name, t.color as color "
+                + "from Tag t where t.userId = :userId order by t.name", Tuple.class))
+        .setHint(HibernateHints.HINT_CACHEABLE, true)
+        .setHint(HibernateHints.HINT_CACHE_REGION, "query.tagsByUser")
+        .setParameter("userId", userId)
+        .getResultStream()
+        .map(r -> new TagRow(r.get("id", Long.class), r.get("userId", Long.class),
+            r.get("name", String.class), r.get("color", String.class)))
+        .toList();
+  }
+
+  // ===== completion logs =====
+
+  /**
+   * アーカイブ済みゴールの完了ログ（archived_completion_logs）も同じ形で混ぜる。
+   * タイトルはアーカイブ時に写した task_title（それより前にアーカイブされた行は null）。
+   */
+  @SuppressWarnings("unchecked")
+  public List<HistoryRow> history(long userId, LocalDate from, LocalDate to) {
+    List<Object[]> rows = em.createNativeQuery("""
+            select l.id, l.task_id, t.title as task_title, l.occurrence_date, l.completed_at
+            from task_completion_logs l join tasks t on t.id = l.task_id
+            where l.user_id = :userId and l.occurrence_date between :from and :to
+            union all
+            select id, task_id, task_title, occurrence_date, completed_at from archived_completion_logs
+            where user_id = :userId and occurrence_date between :from and :to
+            order by completed_at desc
+            """)
+        .setParameter("userId", userId)
+        .setParameter("from", from)
+        .setParameter("to", to)
+        .setHint(HibernateHints.HINT_READ_ONLY, true)
+        .unwrap(NativeQuery.class)
+        .addScalar("id", Long.class)
+        .addScalar("task_id", Long.class)
+        .addScalar("task_title", String.class)
+        .addScalar("occurrence_date", LocalDate.class)
+        .addScalar("completed_at", Instant.class)
+        .getResultList();
+    return rows.stream()
+        .map(r -> new HistoryRow((Long) r[0], (Long) r[1], (String) r[2], (LocalDate) r[3], (Instant) r[4]))
+        .toList();
+  }
+
+  /** カレンダーのその場展開用：期間内の (taskId, 日付) だけ。 */
+  public List<CompletionKey> completions(long userId, LocalDate from, LocalDate to) {
+    return readOnly(em.createQuery(
+            "select l.task.id as taskId, l.occurrenceDate as occurrenceDate from TaskCompletionLog l "
+                + "where l.userId = :userId and l.occurrenceDate between :from and :to", Tuple.class))
+        .setParameter("userId", userId)
+        .setParameter("from", from)
+        .setParameter("to", to)
+        .getResultStream()
+        .map(r -> new CompletionKey(r.get("taskId", Long.class), r.get("occurrenceDate", LocalDate.class)))
+        .toList();
+  }
+
+  // ===== currency events =====
+
+  /**
+   * 通貨ごとに、未達成 goal 分・達成済み goal 分の合計と件数を1クエリで（通貨の数だけ行が返る）。
+   * write-behind で outbox に残っている分と、アーカイブ済みゴールの集計行（goal_archives）も足す。
+   */
+  @SuppressWarnings("unchecked")
+  public List<SummaryRow> summary(long userId) {
+    List<Object[]> rows = em.createNativeQuery("""
+            select e.currency,
+                   coalesce(sum(case when not g.achieved then e.amount else 0 end), 0),
+                   coalesce(sum(case when g.achieved then e.amount else 0 end), 0),
+                   coalesce(sum(e.n), 0)
+            from (
+              select goal_id, currency, amount, 1 as n from currency_events where user_id = :userId
+              union all
+              select goal_id, currency, amount, 1 from currency_event_outbox where user_id = :userId
+              union all
+              select goal_id, currency, amount_total, event_count from goal_archives where user_id = :userId
+            ) e
+            join goals g on g.id = e.goal_id
+            group by e.currency
+            order by e.currency
+            """)
+        .setParameter("userId", userId)
+        .setHint(HibernateHints.HINT_READ_ONLY, true)
+        .getResultList();
+    return rows.stream()
+        .map(r -> new SummaryRow((String) r[0], Money.of((BigDecimal) r[1]), Money.of((BigDecimal) r[2]),
+            ((Number) r[3]).longValue()))
+        .toList();
+  }
+
+  private static <T> TypedQuery<T> readOnly(TypedQuery<T> q) {
+    return q.setHint(HibernateHints.HINT_READ_ONLY, true);
+  }
+}
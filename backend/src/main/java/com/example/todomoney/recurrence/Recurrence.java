@@ -0,0 +1,255 @@
+package com.example.todomoney.recurrence;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.recurrence.RecurrenceRule.WeekdayNum;
+
+/**
+ * コンパイル済みの繰り返し。日付は epoch day（long）で扱う。
+ *
+ * 各 FREQ のジェネレータは「d 以降で最初の発生日」を算術で直接求めるので、
+ * 展開コストは範囲の日数ではなく発生回数に比例する（1日ずつ判定しない）。
+ * COUNT はコンパイル時に最後の発生日（＝実質の UNTIL）に変換しておく。
+ */
+public final class Recurrence {
+
+    public static final long DONE = Long.MAX_VALUE;
+
+    /** 該当日が見つからない規則（INTERVAL=12 で 2月30日など）で無限に探さないための上限。 */
+    private static final int MAX_EMPTY_PERIODS = 400;
+
+    private static final Recurrence NEVER = new Recurrence(d -> DONE, 0, Long.MIN_VALUE, new long[0]);
+
+    interface Generator {
+        /** day 以降（day を含む）で最初の発生日。無ければ DONE。 */
+        long firstOnOrAfter(long day);
+    }
+
+    private final Generator gen;
+    private final long start;
+    private final long last;
+    private final long[] exdates;
+
+    private Recurrence(Generator gen, long start, long last, long[] exdates) {
+        this.gen = gen;
+        this.start = start;
+        this.last = last;
+        this.exdates = exdates;
+    }
+
+    /**
+     * TaskSchedule から。rrule があればそれを、無ければ旧来の DATE / RANGE / WEEKLY の項目を使う。
+     * 旧来の項目が欠けている（開始日なしの RANGE など）ときは発生なし。
+     * DATE は rrule の有無に関わらず date の1日だけ（start_date / end_date が残っていても見ない）。
+     * 保存済みの DATE には V7 / upsert で FREQ=DAILY;COUNT=1 が入っているが、dtstart は date で決まる。
+     */
+    public static Recurrence of(TaskSchedule sch) {
+        if (sch.getType() == TaskSchedule.Type.DATE) {
+            if (sch.getDate() == null) return NEVER;
+            return compile(RecurrenceRule.daily(1), sch.getDate(), null, parseExdates(sch.getExdates()));
+        }
+        LocalDate dtstart = sch.getStartDate() != null ? sch.getStartDate() : sch.getDate();
+        RecurrenceRule rule;
+        if (sch.getRrule() != null) {
+            rule = RecurrenceRule.parse(sch.getRrule());
+        } else {
+            rule = legacyRule(sch);
+            if (rule == null) return NEVER;
+        }
+        if (dtstart == null) return NEVER;
+        return compile(rule, dtstart, sch.getEndDate(), parseExdates(sch.getExdates()));
+    }
+
+    /** 旧来の DATE / RANGE / WEEKLY を RRULE に直したもの（必要な項目が欠けていれば null）。 */
+    public static RecurrenceRule legacyRule(TaskSchedule sch) {
+        if (sch.getType() == null) return null;
+        return switch (sch.getType()) {
+            case DATE -> sch.getDate() != null ? RecurrenceRule.daily(1) : null;
+            case RANGE -> sch.getStartDate() != null && sch.getEndDate() != null ? RecurrenceRule.daily(null) : null;
+            case WEEKLY -> sch.getStartDate() != null && sch.getEndDate() != null
+                    && sch.getDaysOfWeekMask() != null && (sch.getDaysOfWeekMask() & 0x7F) != 0
+                    ? RecurrenceRule.weekly(sch.getDaysOfWeekMask()) : null;
+            case RRULE -> null;
+        };
+    }
+
+    public static Recurrence compile(RecurrenceRule rule, LocalDate dtstart, LocalDate endDate, long[] exdates) {
+        long start = dtstart.toEpochDay();
+        Generator gen = switch (rule.freq()) {
+            case DAILY -> daily(start, rule.interval());
+            case WEEKLY -> weekly(start, rule.interval(), weekMask(rule.byDay(), start));
+            case MONTHLY -> monthly(start, rule.interval(), rule.byMonthDay(), rule.byDay());
+            case YEARLY -> yearly(dtstart, rule.interval());
+        };
+
+        long last = Long.MAX_VALUE - 1;
+        if (endDate != null) last = Math.min(last, endDate.toEpochDay());
+        if (rule.until() != null) last = Math.min(last, rule.until().toEpochDay());
+        if (rule.count() != null) {
+            // COUNT は EXDATE で消す前の回数（RFC 5545）
+            long d = gen.firstOnOrAfter(start);
+            for (int i = 1; i < rule.count() && d != DONE; i++) d = gen.firstOnOrAfter(d + 1);
+            if (d != DONE) last = Math.min(last, d);
+        }
+
+        long[] ex = exdates.clone();
+        Arrays.sort(ex);
+        return new Recurrence(gen, start, last, ex);
+    }
+
+    /** [from, to] の発生日を昇順に渡す。 */
+    public void forEach(long from, long to, LongConsumer sink) {
+        long end = Math.min(to, last);
+        long d = gen.firstOnOrAfter(Math.max(from, start));
+        int ex = exdates.length == 0 ? 0 : lowerBound(exdates, d);
+        while (d != DONE && d <= end) {
+            while (ex < exdates.length && exdates[ex] < d) ex++;
+            if (ex >= exdates.length || exdates[ex] != d) sink.accept(d);
+            d = gen.firstOnOrAfter(d + 1);
+        }
+    }
+
+    public void forEach(LocalDate from, LocalDate to, LongConsumer sink) {
+        forEach(from.toEpochDay(), to.toEpochDay(), sink);
+    }
+
+    // ===== generators =====
+
+    /** 月曜 = 0。 */
+    static int dow(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L); // 1970-01-01 は木曜
+    }
+
+    private static Generator daily(long start, int n) {
+        return d -> {
+            if (d <= start) return start;
+            return start + Math.ceilDiv(d - start, n) * n;
+        };
+    }
+
+    // bit0 = 月曜 … bit6 = 日曜。BYDAY が無ければ DTSTART の曜日
+    private static int weekMask(List<WeekdayNum> byDay, long start) {
+        int mask = 0;
+        for (WeekdayNum w : byDay) mask |= 1 << (w.day().getValue() - 1);
+        return mask != 0 ? mask : 1 << dow(start);
+    }
+
+    private static Generator weekly(long start, int n, int mask) {
+        long baseWeek = start - dow(start);
+        int firstBit = Integer.numberOfTrailingZeros(mask);
+        return d -> {
+            d = Math.max(d, start);
+            long week = d - dow(d);
+            long r = Math.floorMod((week - baseWeek) / 7, (long) n);
+            if (r != 0) return week + (n - r) * 7 + firstBit;
+            int bits = mask & (0x7F << dow(d)) & 0x7F;
+            if (bits != 0) return week + Integer.numberOfTrailingZeros(bits);
+            return week + 7L * n + firstBit;
+        };
+    }
+
+    private static Generator monthly(long start, int n, List<Integer> byMonthDay, List<WeekdayNum> byDay) {
+        LocalDate s = LocalDate.ofEpochDay(start);
+        long baseMonth = monthIndex(s);
+        int defaultDom = s.getDayOfMonth();
+        return d -> {
+            d = Math.max(d, start);
+            LocalDate cur = LocalDate.ofEpochDay(d);
+            long month = monthIndex(cur);
+            int minDom = cur.getDayOfMonth();
+            long r = Math.floorMod(month - baseMonth, (long) n);
+            if (r != 0) {
+                month += n - r;
+                minDom = 1;
+            }
+            for (int i = 0; i < MAX_EMPTY_PERIODS; i++) {
+                int days = monthDays(month, byMonthDay, byDay, defaultDom) & (-1 << (minDom - 1));
+                if (days != 0) return firstOfMonth(month) + Integer.numberOfTrailingZeros(days);
+                month += n;
+                minDom = 1;
+            }
+            return DONE;
+        };
+    }
+
+    /** その月の発生日（bit0 = 1日）。BYMONTHDAY と BYDAY が両方あれば両方を満たす日。 */
+    static int monthDays(long month, List<Integer> byMonthDay, List<WeekdayNum> byDay, int defaultDom) {
+        long first = firstOfMonth(month);
+        int len = LocalDate.ofEpochDay(first).lengthOfMonth();
+
+        int fromMonthDay = 0;
+        for (int v : byMonthDay) {
+            int dom = v > 0 ? v : len + 1 + v;
+            if (dom >= 1 && dom <= len) fromMonthDay |= 1 << (dom - 1);
+        }
+
+        int fromDay = 0;
+        int firstDow = dow(first);
+        for (WeekdayNum w : byDay) {
+            int f = 1 + Math.floorMod(w.day().getValue() - 1 - firstDow, 7); // その曜日の最初の日
+            if (w.ordinal() == 0) {
+                for (int dom = f; dom <= len; dom += 7) fromDay |= 1 << (dom - 1);
+            } else if (w.ordinal() > 0) {
+                int dom = f + 7 * (w.ordinal() - 1);
+                if (dom <= len) fromDay |= 1 << (dom - 1);
+            } else {
+                int lastOfDay = f + 7 * ((len - f) / 7);
+                int dom = lastOfDay + 7 * (w.ordinal() + 1);
+                if (dom >= 1) fromDay |= 1 << (dom - 1);
+            }
+        }
+
+        if (!byMonthDay.isEmpty() && !byDay.isEmpty()) return fromMonthDay & fromDay;
+        if (!byMonthDay.isEmpty()) return fromMonthDay;
+        if (!byDay.isEmpty()) return fromDay;
+        return defaultDom <= len ? 1 << (defaultDom - 1) : 0;
+    }
+
+    private static Generator yearly(LocalDate s, int n) {
+        long start = s.toEpochDay();
+        int month = s.getMonthValue();
+        int dom = s.getDayOfMonth();
+        return d -> {
+            d = Math.max(d, start);
+            int year = LocalDate.ofEpochDay(d).getYear();
+            long r = Math.floorMod((long) year - s.getYear(), (long) n);
+            if (r != 0) year += (int) (n - r);
+            for (int i = 0; i < MAX_EMPTY_PERIODS; i++, year += n) {
+                // 2/29 はうるう年だけ
+                if (dom > LocalDate.of(year, month, 1).lengthOfMonth()) continue;
+                long candidate = LocalDate.of(year, month, dom).toEpochDay();
+                if (candidate >= d) return candidate;
+            }
+            return DONE;
+        };
+    }
+
+    private static long monthIndex(LocalDate d) {
+        return d.getYear() * 12L + d.getMonthValue() - 1;
+    }
+
+    private static long firstOfMonth(long monthIndex) {
+        return LocalDate.of((int) Math.floorDiv(monthIndex, 12L), (int) Math.floorMod(monthIndex, 12L) + 1, 1)
+                .toEpochDay();
+    }
+
+    // ===== exdates =====
+
+    /** "yyyy-MM-dd,yyyy-MM-dd,..."（TaskSchedule.exdates の保存形式）。 */
+    public static long[] parseExdates(String text) {
+        if (text == null || text.isBlank()) return new long[0];
+        String[] parts = text.split(",");
+        long[] out = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = LocalDate.parse(parts[i].trim()).toEpochDay();
+        return out;
+    }
+
+    private static int lowerBound(long[] a, long key) {
+        int i = Arrays.binarySearch(a, key);
+        return i >= 0 ? i : -i - 1;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.todomoney.recurrence;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * RFC 5545 RRULE のサブセット。
+ *
+ * FREQ=DAILY|WEEKLY|MONTHLY|YEARLY, INTERVAL, BYDAY（MONTHLY のみ序数付き可: 3TU, -1FR）,
+ * BYMONTHDAY（MONTHLY のみ、負数は月末から）, COUNT, UNTIL（日付部分だけ使う）, WKST=MO。
+ * DTSTART は RRULE の外（TaskSchedule.startDate）に持つ。
+ */
+public record RecurrenceRule(
+        Freq freq,
+        int interval,
+        List<WeekdayNum> byDay,
+        List<Integer> byMonthDay,
+        Integer count,
+        LocalDate until
+) {
+
+    public enum Freq { DAILY, WEEKLY, MONTHLY, YEARLY }
+
+    /** ordinal = 0 なら「その曜日すべて」。 */
+    public record WeekdayNum(int ordinal, DayOfWeek day) {}
+
+    static final int MAX_COUNT = 10_000;
+    static final int MAX_INTERVAL = 1_000;
+
+    private static final String[] DAY_CODES = { "MO", "TU", "WE", "TH", "FR", "SA", "SU" };
+
+    public static RecurrenceRule parse(String text) {
+        if (text == null || text.isBlank()) throw new IllegalArgumentException("RRULE is empty");
+        String s = text.trim();
+        if (s.regionMatches(true, 0, "RRULE:", 0, 6)) s = s.substring(6);
+
+        Freq freq = null;
+        int interval = 1;
+        List<WeekdayNum> byDay = List.of();
+        List<Integer> byMonthDay = List.of();
+        Integer count = null;
+        LocalDate until = null;
+
+        for (String part : s.split(";")) {
+            if (part.isEmpty()) continue;
+            int eq = part.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("malformed RRULE part: " + part);
+            String key = part.substring(0, eq).toUpperCase();
+            String value = part.substring(eq + 1).toUpperCase();
+            switch (key) {
+                case "FREQ" -> {
+                    try {
+                        freq = Freq.valueOf(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("unsupported FREQ: " + value);
+                    }
+                }
+                case "INTERVAL" -> interval = intIn(value, 1, MAX_INTERVAL, key);
+                case "COUNT" -> count = intIn(value, 1, MAX_COUNT, key);
+                case "UNTIL" -> until = parseUntil(value);
+                case "BYDAY" -> byDay = parseByDay(value);
+                case "BYMONTHDAY" -> byMonthDay = parseByMonthDay(value);
+                case "WKST" -> {
+                    if (!value.equals("MO")) throw new IllegalArgumentException("only WKST=MO is supported");
+                }
+                default -> throw new IllegalArgumentException("unsupported RRULE part: " + key);
+            }
+        }
+
+        if (freq == null) throw new IllegalArgumentException("FREQ is required");
+        if (count != null && until != null) throw new IllegalArgumentException("COUNT and UNTIL are exclusive");
+        if (!byMonthDay.isEmpty() && freq != Freq.MONTHLY) {
+            throw new IllegalArgumentException("BYMONTHDAY is only supported with FREQ=MONTHLY");
+        }
+        if (!byDay.isEmpty() && freq != Freq.WEEKLY && freq != Freq.MONTHLY) {
+            throw new IllegalArgumentException("BYDAY is only supported with FREQ=WEEKLY or MONTHLY");
+        }
+        if (freq == Freq.WEEKLY && byDay.stream().anyMatch(w -> w.ordinal() != 0)) {
+            throw new IllegalArgumentException("BYDAY ordinals are only supported with FREQ=MONTHLY");
+        }
+        return new RecurrenceRule(freq, interval, byDay, byMonthDay, count, until);
+    }
+
+    /** 旧 WEEKLY の dow_mask（日=1, 月=2, ... 土=64）から。 */
+    public static RecurrenceRule weekly(int sundayFirstMask) {
+        List<WeekdayNum> days = new ArrayList<>();
+        for (DayOfWeek d : DayOfWeek.values()) {
+            int bit = 1 << (d.getValue() % 7); // SUNDAY(7) → bit0
+            if ((sundayFirstMask & bit) != 0) days.add(new WeekdayNum(0, d));
+        }
+        return new RecurrenceRule(Freq.WEEKLY, 1, days, List.of(), null, null);
+    }
+
+    public static RecurrenceRule daily(Integer count) {
+        return new RecurrenceRule(Freq.DAILY, 1, List.of(), List.of(), count, null);
+    }
+
+    public String format() {
+        StringJoiner j = new StringJoiner(";");
+        j.add("FREQ=" + freq);
+        if (interval != 1) j.add("INTERVAL=" + interval);
+        if (!byDay.isEmpty()) {
+            StringJoiner d = new StringJoiner(",");
+            for (WeekdayNum w : byDay) d.add((w.ordinal() != 0 ? String.valueOf(w.ordinal()) : "") + code(w.day()));
+            j.add("BYDAY=" + d);
+        }
+        if (!byMonthDay.isEmpty()) {
+            StringJoiner d = new StringJoiner(",");
+            byMonthDay.forEach(v -> d.add(String.valueOf(v)));
+            j.add("BYMONTHDAY=" + d);
+        }
+        if (count != null) j.add("COUNT=" + count);
+        if (until != null) j.add("UNTIL=" + until.format(DateTimeFormatter.BASIC_ISO_DATE));
+        return j.toString();
+    }
+
+    private static String code(DayOfWeek d) {
+        return DAY_CODES[d.getValue() - 1];
+    }
+
+    private static DayOfWeek day(String code) {
+        for (int i = 0; i < DAY_CODES.length; i++) {
+            if (DAY_CODES[i].equals(code)) return DayOfWeek.of(i + 1);
+        }
+        throw new IllegalArgumentException("invalid weekday: " + code);
+    }
+
+    private static List<WeekdayNum> parseByDay(String value) {
+        List<WeekdayNum> out = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (item.length() < 2) throw new IllegalArgumentException("invalid BYDAY: " + item);
+            String code = item.substring(item.length() - 2);
+            String ord = item.substring(0, item.length() - 2);
+            int ordinal = ord.isEmpty() ? 0 : intIn(ord.startsWith("+") ? ord.substring(1) : ord, -5, 5, "BYDAY");
+            out.add(new WeekdayNum(ordinal, day(code)));
+        }
+        return List.copyOf(out);
+    }
+
+    private static List<Integer> parseByMonthDay(String value) {
+        List<Integer> out = new ArrayList<>();
+        for (String item : value.split(",")) {
+            int v = intIn(item, -31, 31, "BYMONTHDAY");
+            if (v == 0) throw new IllegalArgumentException("BYMONTHDAY must not be 0");
+            out.add(v);
+        }
+        return List.copyOf(out);
+    }
+
+    private static LocalDate parseUntil(String value) {
+        try {
+            return LocalDate.parse(value.length() > 8 ? value.substring(0, 8) : value, DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid UNTIL: " + value);
+        }
+    }
+
+    private static int intIn(String value, int min, int max, String key) {
+        int v;
+        try {
+            v = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + key + ": " + value);
+        }
+        if (v < min || v > max) throw new IllegalArgumentException(key + " out of range: " + value);
+        return v;
+    }
+}
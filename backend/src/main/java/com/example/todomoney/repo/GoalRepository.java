@@ -2,11 +2,19 @@ package com.example.todomoney.repo;
 
 import com.example.todomoney.entity.Goal;
 import com.example.todomoney.entity.User;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
-import java.util.List;
+import org.springframework.data.jpa.repository.QueryHints;
+
 import java.util.Optional;
 
 public interface GoalRepository extends JpaRepository<Goal, Long> {
-  List<Goal> findByUserOrderByIdDesc(User user);
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.goalsByUser")
+  })
   Optional<Goal> findByIdAndUser(Long id, User user);
 }
@@ -1,13 +1,29 @@
 package com.example.todomoney.repo;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.todomoney.entity.Tag;
 
+import jakarta.persistence.QueryHint;
+
 public interface TagRepository extends JpaRepository<Tag, Long> {
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.tagsByUser")
+  })
   List<Tag> findByUserIdOrderByNameAsc(Long userId);
+
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.tagsByUser")
+  })
   Optional<Tag> findByIdAndUserId(Long id, Long userId);
+
+  List<Tag> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
 }
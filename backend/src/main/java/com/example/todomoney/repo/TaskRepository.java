@@ -3,17 +3,28 @@ package com.example.todomoney.repo;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.todomoney.entity.Goal;
 import com.example.todomoney.entity.Task;
 
 public interface TaskRepository extends JpaRepository<Task, Long> {
     Optional<Task> findByIdAndUserId(Long id, Long userId);
+
+    // 完了処理用：goal も1クエリで（報酬計算に使う）
+    @EntityGraph(Task.GRAPH_COMPLETION)
+    @Query("select t from Task t where t.id = :id")
+    Optional<Task> findForCompletion(Long id);
+
+    // タグ編集用：今の tags も同じクエリで（差分だけ書くため）
+    @EntityGraph(Task.GRAPH_TAGS)
+    @Query("select t from Task t where t.id = :id and t.userId = :userId")
+    Optional<Task> findWithTagsByIdAndUserId(Long id, Long userId);
+
     List<Task> findByUserIdAndGoalId(Long userId, Long goalId);
     List<Task> findByUserIdAndGoalIdIsNullAndArchivedFalse(Long userId);
-	List<Task> findByGoalOrderByIdDesc(Goal goal);
 	long countByGoal(Goal goal);
 	long countByGoalAndCompletedTrue(Goal goal);
-
 }
\ No newline at end of file
@@ -1,15 +1,39 @@
 package com.example.todomoney.repo;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.todomoney.entity.TaskSchedule;
 
+import jakarta.persistence.QueryHint;
+
 public interface TaskScheduleRepository extends JpaRepository<TaskSchedule, Long> {
 
     // TaskSchedule -> task -> userId で絞り込む
     List<TaskSchedule> findByTask_UserId(Long userId);
     List<TaskSchedule> findByUserId(Long userId);
     List<TaskSchedule> findByTask_UserIdAndTask_Id(Long userId, Long taskId);
+
+    // カレンダー用：task / tags をまとめて取る（スケジュール件数に比例してクエリが増えないように）
+    // 展開して読むだけなので read-only（dirty checking 用のスナップショットを持たない）
+    @EntityGraph(TaskSchedule.GRAPH_CALENDAR)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select s from TaskSchedule s where s.userId = :userId")
+    List<TaskSchedule> findForCalendar(Long userId);
+
+    // task_occurrences の生成用（アーカイブ判定に task だけ要る）
+    @Query("select s from TaskSchedule s join fetch s.task t where t.userId = :userId")
+    List<TaskSchedule> findWithTaskByUserId(Long userId);
+
+    @Query("select s from TaskSchedule s join fetch s.task t where t.userId = :userId and t.id = :taskId")
+    List<TaskSchedule> findWithTaskByUserIdAndTaskId(Long userId, Long taskId);
+
+    @Query("select s from TaskSchedule s join fetch s.task t where t.userId = :userId and t.id in :taskIds")
+    List<TaskSchedule> findWithTaskByUserIdAndTaskIdIn(Long userId, Collection<Long> taskIds);
 }
@@ -0,0 +1,36 @@
+package com.example.todomoney.security;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 管理 API 用の簡易チェック（ロールを持っていないので app.admin.emails で判定）。
+ */
+@Component
+public class AdminGuard {
+
+  private final Set<String> adminEmails;
+
+  public AdminGuard(@Value("${app.admin.emails:}") String emails) {
+    this.adminEmails = Arrays.stream(emails.split(","))
+        .map(String::trim)
+        .filter(s -> !s.isEmpty())
+        .map(String::toLowerCase)
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  public boolean isAdmin(AppPrincipal p) {
+    return p != null && p.email() != null && adminEmails.contains(p.email().toLowerCase());
+  }
+
+  public void requireAdmin(AppPrincipal p) {
+    if (p == null) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "unauthorized");
+    if (!isAdmin(p)) throw new ResponseStatusException(HttpStatus.FORBIDDEN, "admin only");
+  }
+}
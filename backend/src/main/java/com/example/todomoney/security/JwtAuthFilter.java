@@ -1,7 +1,6 @@
 package com.example.todomoney.security;
 
 import java.io.IOException;
-import java.util.Optional;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -11,7 +10,7 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.example.todomoney.entity.UserEntity; // ←あなたのUserEntityのパッケージに合わせて
+import com.example.todomoney.observability.RequestTiming;
 import com.example.todomoney.repo.UserRepository;
 
 import jakarta.servlet.FilterChain;
@@ -36,7 +35,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         if (HttpMethod.OPTIONS.matches(request.getMethod())) return true;
         if (path.startsWith("/api/auth/")) return true;
-        if (path.startsWith("/actuator/")) return true;
+        if (path.equals("/actuator/health") || path.startsWith("/actuator/health/")) return true;
+        if (path.equals("/actuator/info")) return true;
         if (path.equals("/error")) return true;
 
         return false;
@@ -64,33 +64,36 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         String token = auth.substring(7).trim();
 
+        AppPrincipal principal;
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) timing.beginAuth();
         try {
-            // 例：tokenからemail(=subject)を取り出す想定
-            String email = jwtService.extractEmail(token); // ←メソッド名はあなたのJwtServiceに合わせて
-            if (!StringUtils.hasText(email) || !jwtService.isValid(token)) { // ←同上
+            // 署名・期限の検証（所要時間は todomoney.jwt.verify で計測）
+            JwtService.JwtPayload payload = jwtService.verify(token);
+            // existsById は count クエリになるので、2次キャッシュに乗る findById で確認する
+            if (userRepo.findById(payload.userId()).isEmpty()) {
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 return;
             }
-
-            Optional<UserEntity> opt = userRepo.findByEmail(email); // ←リポジトリに合わせて
-            if (opt.isEmpty()) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                return;
-            }
-
-            UserEntity user = opt.get();
-
-            // 権限を使ってないなら空でOK
-            var authToken = new UsernamePasswordAuthenticationToken(
-                user, null, java.util.List.of()
-            );
-            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authToken);
-
-            chain.doFilter(request, response);
-
+            principal = new AppPrincipal(payload.userId(), payload.email());
         } catch (Exception ex) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        } finally {
+            if (timing != null) timing.endAuth();
         }
+
+        // 権限を使ってないなら空でOK
+        var authToken = new UsernamePasswordAuthenticationToken(
+            principal, null, java.util.List.of()
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+
+        // AuthUtil.requireUserId(req) 側のコントローラ用
+        request.setAttribute("userId", principal.userId());
+
+        // ★ 下流の例外まで 401 に握りつぶさないよう、try の外で流す
+        chain.doFilter(request, response);
     }
 }
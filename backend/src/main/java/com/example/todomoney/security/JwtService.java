@@ -8,6 +8,9 @@ import java.util.Date;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.todomoney.observability.AppMetrics;
+import com.example.todomoney.observability.jfr.TokenVerificationEvent;
+
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
@@ -17,15 +20,18 @@ public class JwtService {
   private final byte[] keyBytes;
   private final String issuer;
   private final long expiresMinutes;
+  private final AppMetrics metrics;
 
   public JwtService(
       @Value("${app.jwt.secret}") String secret,
       @Value("${app.jwt.issuer}") String issuer,
-      @Value("${app.jwt.expiresMinutes:60}") long expiresMinutes
+      @Value("${app.jwt.expiresMinutes:60}") long expiresMinutes,
+      AppMetrics metrics
   ) {
     this.keyBytes = secret.getBytes(StandardCharsets.UTF_8);
     this.issuer = issuer;
     this.expiresMinutes = expiresMinutes;
+    this.metrics = metrics;
   }
 
   public String issueToken(long userId, String email) {
@@ -43,15 +49,29 @@ public class JwtService {
   }
 
   public JwtPayload verify(String token) {
-    var claims = Jwts.parser()
-        .verifyWith(Keys.hmacShaKeyFor(keyBytes))
-        .build()
-        .parseSignedClaims(token)
-        .getPayload();
-
-    long userId = Long.parseLong(claims.getSubject());
-    String email = claims.get("email", String.class);
-    return new JwtPayload(userId, email);
+    TokenVerificationEvent ev = new TokenVerificationEvent();
+    ev.begin();
+    boolean ok = false;
+    try {
+      JwtPayload payload = metrics.timeJwtVerify(() -> {
+        var claims = Jwts.parser()
+            .verifyWith(Keys.hmacShaKeyFor(keyBytes))
+            .build()
+            .parseSignedClaims(token)
+            .getPayload();
+
+        long userId = Long.parseLong(claims.getSubject());
+        String email = claims.get("email", String.class);
+        return new JwtPayload(userId, email);
+      });
+      ok = true;
+      return payload;
+    } finally {
+      if (ev.shouldCommit()) {
+        ev.success = ok;
+        ev.commit();
+      }
+    }
   }
 
   public record JwtPayload(long userId, String email) {}
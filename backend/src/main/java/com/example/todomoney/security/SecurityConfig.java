@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -20,6 +21,8 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import com.example.todomoney.repo.UserRepository;
 
+import jakarta.servlet.DispatcherType;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -44,6 +47,9 @@ public class SecurityConfig {
         // 全ヘッダ許可
         config.setAllowedHeaders(List.of("*"));
 
+        // ブラウザの DevTools / PerformanceServerTiming から読めるように
+        config.setExposedHeaders(List.of("Server-Timing", "Retry-After"));
+
         // 許可する HTTP メソッド
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 
@@ -57,7 +63,8 @@ public class SecurityConfig {
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http,
-                                                   JwtAuthFilter jwtAuthFilter) throws Exception {
+                                                   JwtAuthFilter jwtAuthFilter,
+                                                   AdminGuard adminGuard) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -71,12 +78,19 @@ public class SecurityConfig {
                 // ★ 認証不要（ログイン/登録）
                 .requestMatchers("/api/auth/**").permitAll()
 
-                // ★ ヘルスチェック等（必要なら全部許可）
-                .requestMatchers("/actuator/**").permitAll()
+                // ★ ヘルスチェック（JwtAuthFilter も素通り）
+                .requestMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
+
+                // Prometheus スクレイプなど残りの actuator は管理者（app.admin.emails）の JWT が必要
+                .requestMatchers("/actuator/**").access((authentication, ctx) -> new AuthorizationDecision(
+                    authentication.get().getPrincipal() instanceof AppPrincipal p && adminGuard.isAdmin(p)))
 
                 // エラーページ
                 .requestMatchers("/error").permitAll()
 
+                // SSE（/api/events）の終了時の ASYNC ディスパッチ。認可は最初のリクエストで済んでいる
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // それ以外は JWT 必須
                 .anyRequest().authenticated()
             )
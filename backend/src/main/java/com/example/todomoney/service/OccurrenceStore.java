@@ -0,0 +1,282 @@
+package com.example.todomoney.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.repo.TaskScheduleRepository;
+import com.example.todomoney.sharding.ConsistentHashRing;
+import com.example.todomoney.sharding.ShardContext;
+
+/**
+ * task_occurrences（スケジュールを日付に展開した結果）の管理と読み出し。
+ *
+ * - ユーザーごとに [today - days-back, today + days-ahead] を occurrence_horizons に持ち、その範囲は表が正
+ * - スケジュールの upsert / タスクのアーカイブ時に、そのタスクの行だけ作り直す（呼び出し元のトランザクション内）
+ * - 毎晩ホライズンを1日ずつ先へ伸ばし、過ぎた分を消す
+ *
+ * 範囲外（遠い未来・古い過去）のカレンダーは CalendarController がその場で展開する。
+ */
+@Service
+public class OccurrenceStore {
+
+  private static final Logger log = LoggerFactory.getLogger(OccurrenceStore.class);
+
+  /** advisory lock の名前空間（第2キーが user_id のハッシュ）。 */
+  static final int LOCK_CLASS = 0x0CC0;
+  private static final int USER_CHUNK = 500;
+
+  public record Horizon(LocalDate from, LocalDate to) {
+    public boolean covers(LocalDate f, LocalDate t) {
+      return !f.isBefore(from) && !t.isAfter(to);
+    }
+  }
+
+  public record OccurrenceRow(LocalDate date, long taskId, String title, String memo, boolean completed) {}
+  public record TagRow(long id, String name, String color) {}
+  public record TaskRow(long id, String title, String memo) {}
+
+  /** 発生1件ごとにオブジェクトを作らずに受け取る（/api/v2/calendar 用）。 */
+  @FunctionalInterface
+  public interface OccurrenceHandler {
+    void accept(long epochDay, long taskId, boolean completed);
+  }
+
+  private final JdbcTemplate jdbc;
+  private final NamedParameterJdbcTemplate named;
+  private final TransactionTemplate tx;
+  private final TaskScheduleRepository schedules;
+  private final ObjectProvider<ConsistentHashRing> ring;
+  private final boolean enabled;
+  private final int daysBack;
+  private final int daysAhead;
+
+  public OccurrenceStore(
+      DataSource dataSource,
+      PlatformTransactionManager txManager,
+      TaskScheduleRepository schedules,
+      ObjectProvider<ConsistentHashRing> ring,
+      @Value("${app.occurrences.enabled:true}") boolean enabled,
+      @Value("${app.occurrences.days-back:31}") int daysBack,
+      @Value("${app.occurrences.days-ahead:90}") int daysAhead
+  ) {
+    this.jdbc = new JdbcTemplate(dataSource);
+    this.named = new NamedParameterJdbcTemplate(jdbc);
+    this.tx = new TransactionTemplate(txManager);
+    this.schedules = schedules;
+    this.ring = ring;
+    this.enabled = enabled;
+    this.daysBack = daysBack;
+    this.daysAhead = daysAhead;
+  }
+
+  // ===== 読み出し =====
+
+  public boolean covers(long userId, LocalDate from, LocalDate to) {
+    if (!enabled) return false;
+    Horizon h = horizon(userId, false);
+    return h != null && h.covers(from, to);
+  }
+
+  /** (occurrence_date, task_id) 順。completed は完了ログの有無。 */
+  public List<OccurrenceRow> find(long userId, LocalDate from, LocalDate to) {
+    return jdbc.query("""
+        select o.occurrence_date, o.task_id, t.title, t.memo,
+               exists (select 1 from task_completion_logs l
+                       where l.user_id = o.user_id and l.task_id = o.task_id
+                         and l.occurrence_date = o.occurrence_date) as completed
+        from task_occurrences o
+        join tasks t on t.id = o.task_id
+        where o.user_id = ? and o.occurrence_date between ? and ?
+        order by o.occurrence_date, o.task_id
+        """,
+        (rs, i) -> new OccurrenceRow(rs.getObject(1, LocalDate.class), rs.getLong(2), rs.getString(3),
+            rs.getString(4), rs.getBoolean(5)),
+        userId, from, to);
+  }
+
+  /** find と同じ範囲・順序で、タスクの中身は付けずに流す。 */
+  public void scan(long userId, LocalDate from, LocalDate to, OccurrenceHandler handler) {
+    jdbc.query("""
+        select o.occurrence_date - date '1970-01-01', o.task_id,
+               exists (select 1 from task_completion_logs l
+                       where l.user_id = o.user_id and l.task_id = o.task_id
+                         and l.occurrence_date = o.occurrence_date)
+        from task_occurrences o
+        where o.user_id = ? and o.occurrence_date between ? and ?
+        order by o.occurrence_date, o.task_id
+        """,
+        rs -> {
+          handler.accept(rs.getLong(1), rs.getLong(2), rs.getBoolean(3));
+        },
+        userId, from, to);
+  }
+
+  public List<TaskRow> tasks(Collection<Long> ids) {
+    if (ids.isEmpty()) return List.of();
+    return named.query("select id, title, memo from tasks where id in (:ids) order by id",
+        Map.of("ids", ids),
+        (rs, i) -> new TaskRow(rs.getLong(1), rs.getString(2), rs.getString(3)));
+  }
+
+  public Map<Long, List<TagRow>> tagsFor(Collection<Long> taskIds) {
+    Map<Long, List<TagRow>> out = new HashMap<>();
+    if (taskIds.isEmpty()) return out;
+    named.query("""
+        select tt.task_id, g.id, g.name, g.color
+        from task_tags tt
+        join tag g on g.id = tt.tag_id
+        where tt.task_id in (:ids)
+        order by g.id
+        """,
+        Map.of("ids", taskIds),
+        rs -> {
+          out.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>())
+              .add(new TagRow(rs.getLong(2), rs.getString(3), rs.getString(4)));
+        });
+    return out;
+  }
+
+  // ===== 更新（呼び出し元のトランザクション内で使う） =====
+
+  /** タスク1件分を作り直す。ホライズンが無いユーザーは全体を作る。 */
+  public void rebuildTask(long userId, long taskId) {
+    if (!enabled) return;
+    // 夜間の延長と競合しないよう、ホライズン行をロックしてから
+    Horizon h = horizon(userId, true);
+    if (h == null) {
+      materializeUser(userId);
+      return;
+    }
+    jdbc.update("delete from task_occurrences where task_id = ?", taskId);
+    insert(userId, schedules.findWithTaskByUserIdAndTaskId(userId, taskId), h.from(), h.to());
+  }
+
+  /** 複数タスク分をまとめて作り直す（タスク数に比例してクエリが増えない）。 */
+  public void rebuildTasks(long userId, Collection<Long> taskIds) {
+    if (!enabled || taskIds.isEmpty()) return;
+    Horizon h = horizon(userId, true);
+    if (h == null) {
+      materializeUser(userId);
+      return;
+    }
+    named.update("delete from task_occurrences where task_id in (:ids)", Map.of("ids", taskIds));
+    insert(userId, schedules.findWithTaskByUserIdAndTaskIdIn(userId, taskIds), h.from(), h.to());
+  }
+
+  void materializeUser(long userId) {
+    LocalDate today = LocalDate.now();
+    LocalDate from = today.minusDays(daysBack);
+    LocalDate to = today.plusDays(daysAhead);
+    jdbc.update("""
+        insert into occurrence_horizons(user_id, valid_from, valid_to) values (?, ?, ?)
+        on conflict (user_id) do update set valid_from = excluded.valid_from, valid_to = excluded.valid_to
+        """, userId, from, to);
+    jdbc.update("delete from task_occurrences where user_id = ?", userId);
+    insert(userId, schedules.findWithTaskByUserId(userId), from, to);
+  }
+
+  private void insert(long userId, List<TaskSchedule> list, LocalDate from, LocalDate to) {
+    if (list.isEmpty() || from.isAfter(to)) return;
+    List<Object[]> rows = new ArrayList<>();
+    ScheduleExpander.expand(list, from, to,
+        (sch, day) -> rows.add(new Object[] { userId, day, sch.getTask().getId() }));
+    if (rows.isEmpty()) return;
+    jdbc.batchUpdate("insert into task_occurrences(user_id, occurrence_date, task_id) values (?, ?, ?) "
+        + "on conflict do nothing", rows);
+  }
+
+  private Horizon horizon(long userId, boolean forUpdate) {
+    List<Horizon> rows = jdbc.query(
+        "select valid_from, valid_to from occurrence_horizons where user_id = ?" + (forUpdate ? " for update" : ""),
+        (rs, i) -> new Horizon(rs.getObject(1, LocalDate.class), rs.getObject(2, LocalDate.class)),
+        userId);
+    return rows.isEmpty() ? null : rows.get(0);
+  }
+
+  // ===== 夜間の延長 =====
+
+  @Scheduled(cron = "${app.occurrences.extend-cron:0 30 3 * * *}")
+  public void extendHorizons() {
+    if (!enabled) return;
+    ConsistentHashRing shards = ring.getIfAvailable();
+    int users = 0;
+    if (shards == null) {
+      users = extendAll();
+    } else {
+      for (String shard : shards.shards()) users += ShardContext.callOn(shard, this::extendAll);
+    }
+    log.info("occurrence horizons extended for {} users", users);
+  }
+
+  private int extendAll() {
+    LocalDate today = LocalDate.now();
+    LocalDate from = today.minusDays(daysBack);
+    LocalDate to = today.plusDays(daysAhead);
+    int done = 0;
+
+    // スケジュールはあるのにまだ作っていないユーザー
+    List<Long> missing = jdbc.queryForList("""
+        select distinct s.user_id from task_schedules s
+        where not exists (select 1 from occurrence_horizons h where h.user_id = s.user_id)
+        """, Long.class);
+    for (Long userId : missing) {
+      if (Boolean.TRUE.equals(tx.execute(st -> lockUser(userId) && doMaterialize(userId)))) done++;
+    }
+
+    long last = 0;
+    while (true) {
+      List<Long> stale = jdbc.queryForList("""
+          select user_id from occurrence_horizons
+          where user_id > ? and (valid_to < ? or valid_from < ?)
+          order by user_id limit ?
+          """, Long.class, last, to, from, USER_CHUNK);
+      if (stale.isEmpty()) break;
+      for (Long userId : stale) {
+        if (Boolean.TRUE.equals(tx.execute(st -> lockUser(userId) && extendUser(userId, from, to)))) done++;
+      }
+      last = stale.get(stale.size() - 1);
+    }
+    return done;
+  }
+
+  private boolean doMaterialize(long userId) {
+    materializeUser(userId);
+    return true;
+  }
+
+  private boolean extendUser(long userId, LocalDate from, LocalDate to) {
+    Horizon h = horizon(userId, true);
+    if (h == null) return false;
+    if (h.to().isBefore(to)) {
+      insert(userId, schedules.findWithTaskByUserId(userId), h.to().plusDays(1), to);
+    }
+    jdbc.update("delete from task_occurrences where user_id = ? and occurrence_date < ?", userId, from);
+    jdbc.update("update occurrence_horizons set valid_from = greatest(valid_from, ?), valid_to = greatest(valid_to, ?) "
+        + "where user_id = ?", from, to, userId);
+    return true;
+  }
+
+  // 複数ノードで同時に走っても同じユーザーを二重に処理しない
+  private boolean lockUser(long userId) {
+    return Boolean.TRUE.equals(jdbc.queryForObject("select pg_try_advisory_xact_lock(?, ?)", Boolean.class,
+        LOCK_CLASS, Long.hashCode(userId)));
+  }
+}
@@ -0,0 +1,80 @@
+package com.example.todomoney.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.recurrence.Recurrence;
+
+/**
+ * TaskSchedule のルールを日付に展開する（カレンダーのオンザフライ表示と task_occurrences の生成で共通）。
+ * アーカイブ済みタスクは展開しない。
+ *
+ * 各スケジュールを Recurrence にコンパイルして発生日だけを直接求めるので、コストは範囲の日数ではなく発生回数に比例する。
+ */
+public final class ScheduleExpander {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleExpander.class);
+
+    @FunctionalInterface
+    public interface OccurrenceSink {
+        void accept(TaskSchedule schedule, LocalDate day);
+    }
+
+    /** 発生ごとにオブジェクトを作らない版（schedules の添字と epoch day）。 */
+    @FunctionalInterface
+    public interface EpochDaySink {
+        void accept(int scheduleIndex, long epochDay);
+    }
+
+    private ScheduleExpander() {}
+
+    /** [from, to] の発生を 日付順 → 入力順 で sink に渡す。 */
+    public static void expand(List<TaskSchedule> schedules, LocalDate from, LocalDate to, OccurrenceSink sink) {
+        expandEpochDays(schedules, from, to, (i, day) -> sink.accept(schedules.get(i), LocalDate.ofEpochDay(day)));
+    }
+
+    public static void expandEpochDays(List<TaskSchedule> schedules, LocalDate from, LocalDate to, EpochDaySink sink) {
+        long base = from.toEpochDay();
+        long end = to.toEpochDay();
+
+        // (日オフセット << 32 | スケジュール番号) を詰めてソートすれば、日付順・入力順になる
+        Keys keys = new Keys();
+        for (int i = 0; i < schedules.size(); i++) {
+            TaskSchedule sch = schedules.get(i);
+            if (sch.getTask().isArchived()) continue;
+
+            Recurrence rec;
+            try {
+                rec = Recurrence.of(sch);
+            } catch (RuntimeException e) {
+                // 保存時に検証しているので通常は来ない（手で直した行など）
+                log.warn("skipping schedule {} with invalid recurrence: {}", sch.getId(), e.getMessage());
+                continue;
+            }
+
+            long index = i;
+            rec.forEach(base, end, d -> keys.add(((d - base) << 32) | index));
+        }
+
+        Arrays.sort(keys.a, 0, keys.n);
+        for (int k = 0; k < keys.n; k++) {
+            long key = keys.a[k];
+            sink.accept((int) key, base + (key >>> 32));
+        }
+    }
+
+    private static final class Keys {
+        long[] a = new long[16];
+        int n;
+
+        void add(long v) {
+            if (n == a.length) a = Arrays.copyOf(a, n * 2);
+            a[n++] = v;
+        }
+    }
+}
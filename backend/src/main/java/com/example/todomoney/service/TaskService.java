@@ -10,10 +10,19 @@ import org.springframework.web.server.ResponseStatusException;
 import com.example.todomoney.entity.CurrencyEvent;
 import com.example.todomoney.entity.Goal;
 import com.example.todomoney.entity.Task;
-import com.example.todomoney.repo.CurrencyEventRepository;
+import com.example.todomoney.events.UserEvent;
+import com.example.todomoney.events.UserEventHub;
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.money.FxRateStore;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.observability.AppMetrics;
+import com.example.todomoney.observability.jfr.RewardComputationEvent;
 import com.example.todomoney.repo.GoalRepository;
 import com.example.todomoney.repo.TaskRepository;
 import com.example.todomoney.repo.UserRepository;
+import com.example.todomoney.settlement.CurrencyEventWriter;
 
 @Service
 public class TaskService {
@@ -21,24 +30,40 @@ public class TaskService {
   private final TaskRepository taskRepo;
   private final GoalRepository goalRepo;
   private final UserRepository userRepo;
-  private final CurrencyEventRepository eventRepo;
+  private final CurrencyEventWriter eventWriter;
+  private final AppMetrics metrics;
+  private final CacheInvalidationBus invalidation;
+  private final OccurrenceStore occurrences;
+  private final UserEventHub events;
+  private final FxRateStore fx;
 
   public TaskService(
       TaskRepository taskRepo,
       GoalRepository goalRepo,
       UserRepository userRepo,
-      CurrencyEventRepository eventRepo
+      CurrencyEventWriter eventWriter,
+      AppMetrics metrics,
+      CacheInvalidationBus invalidation,
+      OccurrenceStore occurrences,
+      UserEventHub events,
+      FxRateStore fx
   ) {
     this.taskRepo = taskRepo;
     this.goalRepo = goalRepo;
     this.userRepo = userRepo;
-    this.eventRepo = eventRepo;
+    this.eventWriter = eventWriter;
+    this.metrics = metrics;
+    this.invalidation = invalidation;
+    this.occurrences = occurrences;
+    this.events = events;
+    this.fx = fx;
   }
 
   // ===== DTO =====
   public record CreateTaskRequest(Long goalId, String title, String memo) {}
   public record CreateTaskResponse(Long id) {}
   public record CompleteTaskResponse(double rewardAmount, String currency) {}
+  public record TaskCompletedEvent(long taskId, long goalId, double rewardAmount, String currency) {}
 
   /**
    * ✅ タスク作成
@@ -80,6 +105,7 @@ public class TaskService {
     task.setUpdatedAt(now);
 
     var saved = taskRepo.save(task);
+    invalidation.publish(Invalidation.of(Scope.TASKS, userId, saved.getId()));
     return new CreateTaskResponse(saved.getId());
   }
 
@@ -92,7 +118,7 @@ public class TaskService {
     var user = userRepo.findById(userId)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "user not found"));
 
-    var task = taskRepo.findById(taskId)
+    var task = taskRepo.findForCompletion(taskId)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "task not found"));
 
     if (task.getUserId() == null || task.getUserId().longValue() != userId) {
@@ -103,23 +129,41 @@ public class TaskService {
     }
     if (task.isCompleted()) {
       // すでに完了済みなら新しい報酬は発生させない
-      return new CompleteTaskResponse(0, "USD");
+      return new CompleteTaskResponse(0, task.getGoal().getCurrency());
     }
 
+    RewardComputationEvent ev = new RewardComputationEvent();
+    ev.begin();
+
     Goal goal = task.getGoal();
     long taskCount = taskRepo.countByGoal(goal);
 
-    double dailyIncome = goal.getAnnualIncome() / goal.getDaysPerYear();
-    double perTaskReward = (taskCount == 0) ? 0 : dailyIncome / taskCount;
+    long perTaskReward = goal.perTaskReward(taskCount);
+    double reward = Money.toDouble(perTaskReward);
+    String currency = goal.getCurrency();
 
     task.setCompleted(true);
     task.setUpdatedAt(Instant.now());
     taskRepo.save(task);
 
-    // USD でイベントを記録（将来マルチ通貨に拡張する入口）
-    eventRepo.save(CurrencyEvent.usd(user, goal, task, perTaskReward));
+    // ゴールの通貨のまま記録する（換算は読み取り時）。write-behind なら outbox に積むだけ
+    eventWriter.write(CurrencyEvent.of(user, goal, task, currency, perTaskReward));
+    metrics.taskCompleted(fx.usd(perTaskReward, currency));
+    invalidation.publish(Invalidation.of(Scope.TASKS, userId, taskId));
+    invalidation.publish(Invalidation.of(Scope.COMPLETIONS, userId));
+    events.publish(userId, UserEvent.TASK_COMPLETED, new TaskCompletedEvent(taskId, goal.getId(), reward, currency));
+
+    if (ev.shouldCommit()) {
+      ev.userId = userId;
+      ev.goalId = goal.getId();
+      ev.taskId = taskId;
+      ev.taskCount = taskCount;
+      ev.reward = reward;
+      ev.currency = currency;
+      ev.commit();
+    }
 
-    return new CompleteTaskResponse(perTaskReward, "USD");
+    return new CompleteTaskResponse(reward, currency);
   }
 
   /**
@@ -137,5 +181,8 @@ public class TaskService {
     task.setArchived(archived);
     task.setUpdatedAt(Instant.now());
     taskRepo.save(task);
+    // アーカイブ済みはカレンダーに出さない（解除なら作り直す）
+    occurrences.rebuildTask(userId, taskId);
+    invalidation.publish(Invalidation.of(Scope.TASKS, userId, taskId));
   }
 }
@@ -0,0 +1,4 @@
+package com.example.todomoney.service;
+
+/** ユーザー登録直後に発行する（users 行の保存後、同じスレッドで同期的に処理される）。 */
+public record UserRegisteredEvent(long userId) {}
@@ -0,0 +1,69 @@
+package com.example.todomoney.settlement;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.todomoney.entity.CurrencyEvent;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.repo.CurrencyEventRepository;
+
+/**
+ * CurrencyEvent の書き込み口。
+ *
+ * - 既定はそのまま currency_events に save
+ * - app.currency-events.write-behind=true なら currency_event_outbox に1行足すだけで返す。
+ *   呼び出し元と同じトランザクションなので、完了が確定すれば outbox の行も確定している（落ちても消えない）。
+ *   currency_events への移送は OutboxFlusher がまとめて行い、コミット後にそれを起こす
+ */
+@Component
+public class CurrencyEventWriter {
+
+  private final CurrencyEventRepository repo;
+  private final JdbcTemplate jdbc;
+  private final ObjectProvider<OutboxFlusher> flusher;
+  private final boolean writeBehind;
+
+  public CurrencyEventWriter(
+      CurrencyEventRepository repo,
+      DataSource dataSource,
+      ObjectProvider<OutboxFlusher> flusher,
+      @Value("${app.currency-events.write-behind:false}") boolean writeBehind
+  ) {
+    this.repo = repo;
+    this.jdbc = new JdbcTemplate(dataSource);
+    this.flusher = flusher;
+    this.writeBehind = writeBehind;
+  }
+
+  public void write(CurrencyEvent e) {
+    if (!writeBehind) {
+      repo.save(e);
+      return;
+    }
+    jdbc.update("""
+        insert into currency_event_outbox(user_id, goal_id, task_id, currency, amount)
+        values (?, ?, ?, ?, ?)
+        """,
+        e.getUser().getId(), e.getGoal().getId(), e.getTask() == null ? null : e.getTask().getId(),
+        e.getCurrency(), Money.toDecimal(e.getAmount()));
+
+    OutboxFlusher f = flusher.getIfAvailable();
+    if (f == null) return;
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          f.wake();
+        }
+      });
+    } else {
+      f.wake();
+    }
+  }
+}
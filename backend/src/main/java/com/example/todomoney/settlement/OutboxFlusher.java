@@ -0,0 +1,180 @@
+package com.example.todomoney.settlement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.observability.AppMetrics;
+import com.example.todomoney.observability.jfr.BulkOperationEvent;
+import com.example.todomoney.sharding.ConsistentHashRing;
+import com.example.todomoney.sharding.ShardContext;
+
+/**
+ * currency_event_outbox → currency_events のグループコミット。
+ *
+ * - CurrencyEventWriter がコミット後に wake する。移送中に届いた分は次の1回にまとまる（負荷が高いほどバッチが大きくなる）
+ * - 起こされなくても flush-interval-ms ごとに見る（起動時に残っている分もここで拾う）
+ * - 1バッチ＝1トランザクション。先頭で pg_try_advisory_xact_lock(LOCK_CLASS, 0) を取り、移送するのは常に1ノードだけ
+ * - DELETE ... RETURNING と INSERT ... SELECT を1文で行うので、途中で落ちればどちらも巻き戻る（二重にも欠けにもならない）
+ * - 1バッチの中は outbox の id 順に移す。created_at も outbox のものを引き継ぐ
+ * - ただし id は INSERT 時に振られるのでコミット順ではない。並行トランザクションの遅くコミットした側の行は、
+ *   後から振られた id の行より後のバッチで移ることがある。currency_events の id 順を発生順として使わない
+ *   （集計は合計しか見ない。順序が要るなら created_at を使う）
+ *
+ * シャーディングモードでは物理シャードごとに同じことをする。
+ */
+@Component
+@ConditionalOnProperty(name = "app.currency-events.write-behind", havingValue = "true")
+public class OutboxFlusher implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(OutboxFlusher.class);
+
+  /** advisory lock の名前空間（SettlementJob とは別）。 */
+  static final int LOCK_CLASS = 0x0B7B0C;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final AppMetrics metrics;
+  private final ObjectProvider<ConsistentHashRing> ring;
+  private final long flushIntervalMs;
+  private final int batchSize;
+
+  private final Semaphore signal = new Semaphore(0);
+  private volatile boolean running;
+  private Thread worker;
+
+  public OutboxFlusher(
+      DataSource dataSource,
+      PlatformTransactionManager txManager,
+      AppMetrics metrics,
+      ObjectProvider<ConsistentHashRing> ring,
+      @Value("${app.currency-events.flush-interval-ms:200}") long flushIntervalMs,
+      @Value("${app.currency-events.batch-size:1000}") int batchSize
+  ) {
+    this.jdbc = new JdbcTemplate(dataSource);
+    this.tx = new TransactionTemplate(txManager);
+    this.metrics = metrics;
+    this.ring = ring;
+    this.flushIntervalMs = flushIntervalMs;
+    this.batchSize = batchSize;
+  }
+
+  /** 次の移送を前倒しする（何度呼んでも1回分）。 */
+  public void wake() {
+    if (signal.availablePermits() == 0) signal.release();
+  }
+
+  /** @return 移送した件数 */
+  public int flushAll() {
+    ConsistentHashRing shards = ring.getIfAvailable();
+    List<String> targets = new ArrayList<>();
+    if (shards == null) targets.add(null); else targets.addAll(shards.shards());
+
+    int moved = 0;
+    for (String shard : targets) {
+      moved += shard == null ? drain() : ShardContext.callOn(shard, this::drain);
+    }
+    return moved;
+  }
+
+  private int drain() {
+    int total = 0;
+    while (true) {
+      Integer n = tx.execute(status -> moveBatch());
+      if (n == null) return total; // 他ノードが移送中
+      total += n;
+      if (n < batchSize) return total;
+    }
+  }
+
+  private Integer moveBatch() {
+    Boolean locked = jdbc.queryForObject("select pg_try_advisory_xact_lock(?, 0)", Boolean.class, LOCK_CLASS);
+    if (!Boolean.TRUE.equals(locked)) return null;
+
+    BulkOperationEvent ev = new BulkOperationEvent();
+    ev.begin();
+
+    int n = jdbc.update("""
+        with moved as (
+          delete from currency_event_outbox
+          where id in (select id from currency_event_outbox order by id limit ?)
+          returning id, user_id, goal_id, task_id, currency, amount, created_at
+        )
+        insert into currency_events(user_id, goal_id, task_id, currency, amount, created_at)
+        select user_id, goal_id, task_id, currency, amount, created_at from moved order by id
+        """, batchSize);
+    if (n > 0) metrics.outboxFlushed(n);
+
+    if (ev.shouldCommit()) {
+      ev.operation = "outbox.flush";
+      ev.rows = n;
+      ev.commit();
+    }
+    return n;
+  }
+
+  private void loop() {
+    while (running) {
+      try {
+        signal.tryAcquire(flushIntervalMs, TimeUnit.MILLISECONDS);
+        signal.drainPermits();
+        flushAll();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        // 行は outbox に残っているので次の周期で再試行
+        log.warn("outbox flush failed: {}", e.toString());
+      }
+    }
+  }
+
+  // ===== lifecycle =====
+
+  @Override
+  public void start() {
+    if (running) return;
+    running = true;
+    worker = new Thread(this::loop, "outbox-flush");
+    worker.setDaemon(true);
+    worker.start();
+    wake(); // 前回の停止時に残った分
+    log.info("currency event write-behind enabled (batch={}, interval={}ms)", batchSize, flushIntervalMs);
+  }
+
+  @Override
+  public void stop() {
+    if (!running) return;
+    running = false;
+    worker.interrupt();
+    try {
+      worker.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      flushAll(); // 止める前に出し切る（失敗しても outbox に残るだけ）
+    } catch (RuntimeException e) {
+      log.warn("outbox flush on shutdown failed: {}", e.toString());
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
@@ -0,0 +1,275 @@
+package com.example.todomoney.settlement;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.entity.Goal;
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.money.FxRateStore;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.observability.AppMetrics;
+import com.example.todomoney.observability.jfr.BulkOperationEvent;
+import com.example.todomoney.sharding.ConsistentHashRing;
+import com.example.todomoney.sharding.ShardContext;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * カレンダーの完了ログ（task_completion_logs）を CurrencyEvent に精算する。
+ *
+ * - user_id の剰余で partitions 個に分け、パーティションごとに並列で回す
+ * - パーティションの1回分は専用の接続1本で回し、最初にその接続で pg_try_advisory_lock(LOCK_CLASS, partition) を取る。
+ *   取れなければ他ノードが処理中なので手を引く（ノード間の担当はロックで決まる）。ロックは全チャンクが終わるまで持つので、
+ *   同じパーティションのチャンクが2ノードで交互に進むことはない
+ * - 1チャンク＝1トランザクション（同じ接続の上で順にコミット）
+ * - 未精算ログを id の keyset で chunk-size 件ずつ拾い、報酬は TaskService.completeTask と同じ式で Goal から計算
+ * - currency_events は completion_log_id が一意なので、途中で落ちて再実行しても二重に入らない
+ * - settled_at の一括更新も V8 の行トリガ（record_change）を1行ずつ通る。トリガはそのユーザーの user_change_seq 行を
+ *   更新するので、チャンクに含まれるユーザーの書き込みはチャンクのコミットまでその行ロックで待たされる
+ *   （chunk-size を大きくしすぎないのはこのため）
+ *
+ * シャーディングモードでは物理シャードごとに同じことをする（ロックも各シャード DB 内で完結する）。
+ */
+@Component
+@ConditionalOnProperty(name = "app.settlement.enabled", havingValue = "true", matchIfMissing = true)
+public class SettlementJob {
+
+  private static final Logger log = LoggerFactory.getLogger(SettlementJob.class);
+
+  /** advisory lock の名前空間（第2キーがパーティション番号）。 */
+  static final int LOCK_CLASS = 0x5E771E;
+
+  private final DataSource dataSource;
+  private final AppMetrics metrics;
+  private final CacheInvalidationBus invalidation;
+  private final FxRateStore fx;
+  private final ObjectProvider<ConsistentHashRing> ring;
+  private final int partitions;
+  private final int chunkSize;
+  private final ExecutorService workers;
+
+  record Row(long logId, long userId, long taskId, Long goalId) {}
+  record Reward(long amount, String currency) {}
+  record Chunk(int rows, long lastId) {}
+  public record RunResult(int settled, int partitionsSkipped, int partitionsFailed) {}
+
+  public SettlementJob(
+      DataSource dataSource,
+      AppMetrics metrics,
+      CacheInvalidationBus invalidation,
+      FxRateStore fx,
+      ObjectProvider<ConsistentHashRing> ring,
+      @Value("${app.settlement.partitions:8}") int partitions,
+      @Value("${app.settlement.chunk-size:500}") int chunkSize,
+      @Value("${app.settlement.parallelism:4}") int parallelism
+  ) {
+    this.dataSource = dataSource;
+    this.metrics = metrics;
+    this.invalidation = invalidation;
+    this.fx = fx;
+    this.ring = ring;
+    this.partitions = partitions;
+    this.chunkSize = chunkSize;
+    AtomicInteger n = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread t = new Thread(r, "settlement-" + n.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @Scheduled(fixedDelayString = "${app.settlement.interval:PT1M}",
+      initialDelayString = "${app.settlement.initial-delay:PT30S}")
+  public void scheduled() {
+    RunResult r = runOnce();
+    if (r.settled() > 0 || r.partitionsFailed() > 0) {
+      log.info("settlement: {} logs settled ({} partitions held elsewhere, {} failed)",
+          r.settled(), r.partitionsSkipped(), r.partitionsFailed());
+    }
+  }
+
+  public RunResult runOnce() {
+    ConsistentHashRing shards = ring.getIfAvailable();
+    List<String> targets = new ArrayList<>();
+    if (shards == null) targets.add(null); else targets.addAll(shards.shards());
+
+    List<Callable<Integer>> work = new ArrayList<>();
+    for (String shard : targets) {
+      for (int p = 0; p < partitions; p++) {
+        int partition = p;
+        work.add(() -> shard == null ? settlePartition(partition)
+            : ShardContext.callOn(shard, () -> settlePartition(partition)));
+      }
+    }
+
+    List<Future<Integer>> futures;
+    try {
+      futures = workers.invokeAll(work);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new RunResult(0, 0, 0);
+    }
+
+    // invokeAll は全部終わってから返る。1つ失敗しても残りの件数は数える
+    int settled = 0;
+    int skipped = 0;
+    int failed = 0;
+    for (Future<Integer> f : futures) {
+      try {
+        int n = f.get();
+        if (n < 0) skipped++; else settled += n;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        failed++;
+        log.warn("settlement partition failed", e.getCause());
+      }
+    }
+    return new RunResult(settled, skipped, failed);
+  }
+
+  /** パーティション1回分の接続。ロックもチャンクのトランザクションもこの接続の上で行う。 */
+  private record Session(JdbcTemplate jdbc, NamedParameterJdbcTemplate named, TransactionTemplate tx) {}
+
+  /** @return 精算した件数。他ノードがロックを持っていれば -1 */
+  private int settlePartition(int partition) {
+    try (Connection c = dataSource.getConnection()) {
+      SingleConnectionDataSource single = new SingleConnectionDataSource(c, true);
+      JdbcTemplate jdbc = new JdbcTemplate(single);
+      Session session = new Session(jdbc, new NamedParameterJdbcTemplate(jdbc),
+          new TransactionTemplate(new DataSourceTransactionManager(single)));
+
+      Boolean locked = jdbc.queryForObject("select pg_try_advisory_lock(?, ?)", Boolean.class, LOCK_CLASS, partition);
+      if (!Boolean.TRUE.equals(locked)) return -1;
+      try {
+        return settleAll(session, partition);
+      } finally {
+        // 接続はプールに戻るので、セッションロックは必ず外す
+        jdbc.queryForObject("select pg_advisory_unlock(?, ?)", Boolean.class, LOCK_CLASS, partition);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("settlement partition " + partition + " failed", e);
+    }
+  }
+
+  private int settleAll(Session session, int partition) {
+    int total = 0;
+    long lastId = 0;
+    while (true) {
+      long from = lastId;
+      Chunk c = session.tx().execute(status -> settleChunk(session, partition, from));
+      total += c.rows();
+      lastId = c.lastId();
+      if (c.rows() < chunkSize) return total;
+    }
+  }
+
+  private Chunk settleChunk(Session session, int partition, long afterId) {
+    JdbcTemplate jdbc = session.jdbc();
+    BulkOperationEvent ev = new BulkOperationEvent();
+    ev.begin();
+
+    List<Row> rows = jdbc.query("""
+        select l.id, l.user_id, l.task_id, t.goal_id
+        from task_completion_logs l
+        join tasks t on t.id = l.task_id
+        where l.settled_at is null and l.id > ? and mod(l.user_id, ?) = ?
+        order by l.id
+        limit ?
+        for update of l skip locked
+        """,
+        (rs, i) -> new Row(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getObject(4, Long.class)),
+        afterId, partitions, partition, chunkSize);
+    if (rows.isEmpty()) return new Chunk(0, afterId);
+
+    Map<Long, Reward> rewardByGoal = rewardsFor(session.named(), rows);
+
+    List<Object[]> inserts = new ArrayList<>(rows.size());
+    double rewardUsd = 0;
+    Set<Long> users = new LinkedHashSet<>();
+    for (Row r : rows) {
+      users.add(r.userId());
+      // ゴールの無いタスクは入金なしで精算済みにする
+      Reward reward = r.goalId() == null ? null : rewardByGoal.get(r.goalId());
+      if (reward == null) continue;
+      inserts.add(new Object[] {
+          r.userId(), r.goalId(), r.taskId(), reward.currency(), Money.toDecimal(reward.amount()), r.logId() });
+      rewardUsd += fx.usd(reward.amount(), reward.currency());
+    }
+    if (!inserts.isEmpty()) {
+      jdbc.batchUpdate("""
+          insert into currency_events(user_id, goal_id, task_id, currency, amount, completion_log_id)
+          values (?, ?, ?, ?, ?, ?)
+          on conflict (completion_log_id) do nothing
+          """, inserts);
+    }
+    session.named().update("update task_completion_logs set settled_at = now() where id in (:ids)",
+        Map.of("ids", rows.stream().map(Row::logId).toList()));
+
+    for (Long userId : users) invalidation.publish(Invalidation.of(Scope.COMPLETIONS, userId));
+    metrics.completionsSettled(rows.size(), rewardUsd);
+
+    if (ev.shouldCommit()) {
+      ev.operation = "settlement.chunk";
+      ev.rows = rows.size();
+      ev.commit();
+    }
+    return new Chunk(rows.size(), rows.get(rows.size() - 1).logId());
+  }
+
+  // チャンク内のゴールごとに1回だけ数える（ログ件数ではなくゴール数に比例）
+  private Map<Long, Reward> rewardsFor(NamedParameterJdbcTemplate named, List<Row> rows) {
+    Set<Long> goalIds = new LinkedHashSet<>();
+    for (Row r : rows) if (r.goalId() != null) goalIds.add(r.goalId());
+    Map<Long, Reward> out = new HashMap<>();
+    if (goalIds.isEmpty()) return out;
+
+    named.query("""
+        select g.id, g.annual_income, g.days_per_year, g.currency,
+               (select count(*) from tasks t where t.goal_id = g.id) as task_count
+        from goals g
+        where g.id in (:ids)
+        """,
+        Map.of("ids", goalIds),
+        rs -> {
+          long amount = Goal.perTaskReward(Money.of(rs.getBigDecimal(2)), rs.getInt(3), rs.getLong(5));
+          out.put(rs.getLong(1), new Reward(amount, rs.getString(4)));
+        });
+    return out;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    workers.shutdownNow();
+  }
+}
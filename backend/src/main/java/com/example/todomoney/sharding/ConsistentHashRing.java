@@ -0,0 +1,49 @@
+package com.example.todomoney.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * シャード名を仮想ノード付きでリングに並べ、ユーザー id の担当シャードを決める。
+ * シャードを足しても動くユーザーは約 1/N に収まる（移動自体は ShardMigrator で行う）。
+ * ハッシュは JVM やプロセスをまたいで同じ値になる MD5 の先頭 8 バイト。
+ */
+public final class ConsistentHashRing {
+
+  private final TreeMap<Long, String> ring = new TreeMap<>();
+  private final List<String> shards;
+
+  public ConsistentHashRing(List<String> shards, int virtualNodes) {
+    if (shards.isEmpty()) throw new IllegalArgumentException("at least one shard is required");
+    this.shards = List.copyOf(shards);
+    for (String shard : shards) {
+      for (int i = 0; i < virtualNodes; i++) {
+        ring.put(hash(shard + "#" + i), shard);
+      }
+    }
+  }
+
+  public String shardFor(long userId) {
+    Map.Entry<Long, String> e = ring.ceilingEntry(hash("user:" + userId));
+    return (e != null ? e : ring.firstEntry()).getValue();
+  }
+
+  public List<String> shards() {
+    return shards;
+  }
+
+  static long hash(String key) {
+    try {
+      byte[] d = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+      long h = 0;
+      for (int i = 0; i < 8; i++) h = (h << 8) | (d[i] & 0xff);
+      return h;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.example.todomoney.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * 現在のスレッドが使うシャード。未設定ならディレクトリ DB（users / user_shards）に向く。
+ * ShardRoutingFilter がリクエスト単位で設定する。別スレッドに処理を渡すときは明示的に引き継ぐこと。
+ */
+public final class ShardContext {
+
+  public static final String DIRECTORY = "directory";
+
+  private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+  private ShardContext() {}
+
+  public static String current() {
+    return CURRENT.get();
+  }
+
+  static void set(String shard) {
+    CURRENT.set(shard);
+  }
+
+  static void clear() {
+    CURRENT.remove();
+  }
+
+  public static <T> T callOn(String shard, Supplier<T> work) {
+    String prev = CURRENT.get();
+    CURRENT.set(shard);
+    try {
+      return work.get();
+    } finally {
+      if (prev == null) CURRENT.remove(); else CURRENT.set(prev);
+    }
+  }
+}
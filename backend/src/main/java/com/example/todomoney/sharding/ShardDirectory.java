@@ -0,0 +1,98 @@
+package com.example.todomoney.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * user_id → シャードの対応表（ディレクトリ DB の user_shards）。
+ * 新規ユーザーはリングで決めて登録し、以後は表が正（再配置は表を書き換えるだけで済む）。
+ * 他ノードの移動開始を拾えるよう、ローカルキャッシュは短い TTL で読み直す。
+ */
+public class ShardDirectory {
+
+  public enum State { ACTIVE, MOVING }
+
+  public record Placement(String shard, State state, long loadedAtNanos) {}
+
+  private static final int MAX_CACHED = 100_000;
+
+  private final JdbcTemplate directory;
+  private final ConsistentHashRing ring;
+  private final long ttlNanos;
+  private final ConcurrentHashMap<Long, Placement> cache = new ConcurrentHashMap<>();
+
+  public ShardDirectory(JdbcTemplate directory, ConsistentHashRing ring, long ttlMillis) {
+    this.directory = directory;
+    this.ring = ring;
+    this.ttlNanos = ttlMillis * 1_000_000L;
+  }
+
+  public Placement placement(long userId) {
+    Placement p = cache.get(userId);
+    if (p != null && System.nanoTime() - p.loadedAtNanos() < ttlNanos) return p;
+
+    p = load(userId);
+    if (cache.size() >= MAX_CACHED) cache.clear();
+    cache.put(userId, p);
+    return p;
+  }
+
+  private Placement load(long userId) {
+    List<Placement> rows = select(userId);
+    if (rows.isEmpty()) {
+      // 未登録ならリングで決める（同時実行は on conflict で先勝ち）
+      directory.update("insert into user_shards(user_id, shard) values (?, ?) on conflict (user_id) do nothing",
+          userId, ring.shardFor(userId));
+      rows = select(userId);
+    }
+    return rows.get(0);
+  }
+
+  private List<Placement> select(long userId) {
+    return directory.query("select shard, state from user_shards where user_id = ?",
+        (rs, i) -> new Placement(rs.getString(1), State.valueOf(rs.getString(2)), System.nanoTime()),
+        userId);
+  }
+
+  void markMoving(long userId) {
+    directory.update("update user_shards set state = 'MOVING', updated_at = now() where user_id = ?", userId);
+    cache.remove(userId);
+  }
+
+  void completeMove(long userId, String target) {
+    directory.update("update user_shards set shard = ?, state = 'ACTIVE', updated_at = now() where user_id = ?",
+        target, userId);
+    cache.remove(userId);
+  }
+
+  void abortMove(long userId) {
+    directory.update("update user_shards set state = 'ACTIVE', updated_at = now() where user_id = ?", userId);
+    cache.remove(userId);
+  }
+
+  public void evict(long userId) {
+    cache.remove(userId);
+  }
+
+  public long cacheTtlMillis() {
+    return ttlNanos / 1_000_000L;
+  }
+
+  /** 現在のリング上の担当と表が食い違うユーザー（シャード追加後の再配置候補）。 */
+  public List<Long> misplaced(int limit) {
+    List<Long> out = new ArrayList<>();
+    directory.query("select user_id, shard from user_shards where state = 'ACTIVE' order by user_id", rs -> {
+      if (out.size() >= limit) return;
+      long userId = rs.getLong(1);
+      if (!ring.shardFor(userId).equals(rs.getString(2))) out.add(userId);
+    });
+    return out;
+  }
+
+  public ConsistentHashRing ring() {
+    return ring;
+  }
+}
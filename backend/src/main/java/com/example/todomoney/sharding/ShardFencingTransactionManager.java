@@ -0,0 +1,91 @@
+package com.example.todomoney.sharding;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.hibernate.Session;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.security.AppPrincipal;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * シャーディングモードのトランザクションマネージャ。ユーザーのリクエストで始まる書き込みトランザクションは、
+ * 担当シャードで pg_try_advisory_xact_lock_shared(FENCE_CLASS, userId) を取ってから始める。
+ *
+ * ShardMigrator は移動元で同じキーの排他ロックを取るので、
+ * - 取る前に始まっていた書き込みはコミット／ロールバックまで待たれる（処理中の書き込みはそこで尽きる）
+ * - 取った後に始まる書き込みは待たずに 503 になる
+ *
+ * 読み取り専用・バッチ（principal なし）・ディレクトリ宛てはロックしない。
+ * バッチがコピー後に移動元へ書いた分は移動元ごと消え、移動先で同じ処理がやり直される。
+ */
+final class ShardFencingTransactionManager extends JpaTransactionManager {
+
+  /** advisory lock の名前空間（SettlementJob / OutboxFlusher とは別）。 */
+  static final int FENCE_CLASS = 0x5A4D0E;
+
+  ShardFencingTransactionManager(EntityManagerFactory emf) {
+    super(emf);
+  }
+
+  @Override
+  protected void doBegin(Object transaction, TransactionDefinition definition) {
+    super.doBegin(transaction, definition);
+
+    Long userId = currentUserId();
+    String shard = ShardContext.current();
+    if (definition.isReadOnly() || userId == null || shard == null || ShardContext.DIRECTORY.equals(shard)) return;
+
+    EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(
+        obtainEntityManagerFactory());
+    boolean locked;
+    try {
+      locked = tryFence(holder.getEntityManager().unwrap(Session.class), userId);
+    } catch (RuntimeException e) {
+      abort(holder, transaction);
+      throw e;
+    }
+    if (!locked) {
+      abort(holder, transaction);
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "user data is being moved");
+    }
+  }
+
+  private static boolean tryFence(Session session, long userId) {
+    return session.doReturningWork(c -> {
+      try (PreparedStatement ps = c.prepareStatement("select pg_try_advisory_xact_lock_shared(?, ?)")) {
+        ps.setInt(1, FENCE_CLASS);
+        ps.setInt(2, fenceKey(userId));
+        try (ResultSet rs = ps.executeQuery()) {
+          return rs.next() && rs.getBoolean(1);
+        }
+      }
+    });
+  }
+
+  // 呼び出し側には begin の失敗として返るので、ここで張ったトランザクションは自分で片付ける
+  private void abort(EntityManagerHolder holder, Object transaction) {
+    holder.getEntityManager().getTransaction().rollback();
+    doCleanupAfterCompletion(transaction);
+  }
+
+  // 2引数版のキーは int なので畳む（衝突しても無関係のユーザーの書き込みが移動中に 503 になるだけ）
+  static int fenceKey(long userId) {
+    return Long.hashCode(userId);
+  }
+
+  private static Long currentUserId() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth != null && auth.getPrincipal() instanceof AppPrincipal p) return p.userId();
+    return null;
+  }
+}
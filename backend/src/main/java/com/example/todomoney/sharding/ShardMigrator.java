@@ -0,0 +1,252 @@
+package com.example.todomoney.sharding;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.invalidation.InvalidationHandler;
+
+/**
+ * 1ユーザー分の行をシャード間で移す。
+ *
+ * 1. user_shards を MOVING にする（ShardRoutingFilter がこのユーザーの書き込みを 503 にする）
+ * 2. 移動元でこのユーザーの fence（ShardFencingTransactionManager と同じ advisory lock）を排他で取る。
+ *    処理中の書き込みトランザクションが終わるまでここで待ち、以後の書き込みは始まる前に 503 になる
+ * 3. 移動元の1スナップショット（REPEATABLE READ）から移動先へ FK 順にコピー（1トランザクション、id はそのまま）
+ * 4. user_shards を移動先に切り替えて ACTIVE に戻す
+ * 5. ディレクトリキャッシュの TTL 分待つ（他ノードが移動元を読みに来なくなるまで）
+ * 6. 2次キャッシュ（User / Goal / Tag）を自ノードで捨て、他ノードにも無効化を流す
+ * 7. 移動元から逆順に削除して fence を外す
+ *
+ * 読み込みは移動中も移動元で返し続けるので、止まるのは数秒の書き込みだけ。
+ * バッチ（精算・outbox・アーカイブ）は fence を取らない。コピー後に移動元へ書いた分は 7 で消え、
+ * 移動先ではコピーした時点の状態から同じ処理がやり直される。
+ * id はシャードごとに剰余をずらした採番なので、移動先で衝突しない。
+ */
+public class ShardMigrator {
+
+  private static final Logger log = LoggerFactory.getLogger(ShardMigrator.class);
+
+  /** ユーザー単位で持つテーブル（FK の親から順に）。ユーザー別テーブルを足したらここにも足す。 */
+  static final List<TableCopy> USER_TABLES = List.of(
+      new TableCopy("users", "id = ?"),
+      // 差分同期の連番は実データより先に写す（コピー時のトリガが移動元の続きから採番するように）
+      new TableCopy("user_change_seq", "user_id = ?"),
+      new TableCopy("change_log", "user_id = ?"),
+      new TableCopy("goals", "user_id = ?"),
+      new TableCopy("goal_archives", "user_id = ?"),
+      new TableCopy("archived_completion_logs", "user_id = ?"),
+      new TableCopy("tasks", "user_id = ?"),
+      new TableCopy("tag", "user_id = ?"),
+      new TableCopy("task_tags", "task_id in (select id from tasks where user_id = ?)"),
+      new TableCopy("task_schedules", "user_id = ?"),
+      new TableCopy("task_occurrences", "user_id = ?"),
+      new TableCopy("occurrence_horizons", "user_id = ?"),
+      new TableCopy("task_completion_logs", "user_id = ?"),
+      new TableCopy("currency_events", "user_id = ?"),
+      new TableCopy("currency_event_outbox", "user_id = ?")
+  );
+
+  record TableCopy(String table, String userPredicate) {}
+
+  private static final int BATCH = 500;
+  /** 処理中の書き込みを待つ上限（超えたら移動をやめる）。 */
+  private static final String FENCE_TIMEOUT = "30s";
+  private static final List<Scope> CACHED_SCOPES = List.of(Scope.USER, Scope.GOALS, Scope.TAGS);
+
+  private final ShardDirectory directory;
+  private final DataSource directoryDataSource;
+  private final Map<String, DataSource> shards;
+  private final List<InvalidationHandler> caches;
+  private final CacheInvalidationBus invalidation;
+
+  public ShardMigrator(ShardDirectory directory, DataSource directoryDataSource, Map<String, DataSource> shards,
+                       List<InvalidationHandler> caches, CacheInvalidationBus invalidation) {
+    this.directory = directory;
+    this.directoryDataSource = directoryDataSource;
+    this.shards = shards;
+    this.caches = caches;
+    this.invalidation = invalidation;
+  }
+
+  public record MoveResult(long userId, String from, String to, long rowsCopied) {}
+
+  public MoveResult moveUser(long userId, String target) {
+    DataSource to = shards.get(target);
+    if (to == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown shard: " + target);
+
+    ShardDirectory.Placement current = directory.placement(userId);
+    if (current.state() == ShardDirectory.State.MOVING) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "user is already moving");
+    }
+    if (current.shard().equals(target)) return new MoveResult(userId, target, target, 0);
+    DataSource from = shards.get(current.shard());
+
+    directory.markMoving(userId);
+    boolean switched = false;
+    try (Connection fence = from.getConnection()) {
+      lockFence(fence, userId);
+      try {
+        long copied = copyUser(from, to, userId);
+        directory.completeMove(userId, target);
+        switched = true;
+
+        Thread.sleep(directory.cacheTtlMillis() + 1000);
+        evictCaches(userId);
+        deleteUser(from, userId);
+
+        log.info("moved user {} from {} to {} ({} rows)", userId, current.shard(), target, copied);
+        return new MoveResult(userId, current.shard(), target, copied);
+      } finally {
+        unlockFence(fence, userId);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      if (!switched) directory.abortMove(userId);
+      throw new IllegalStateException("interrupted while moving user " + userId, e);
+    } catch (SQLException | RuntimeException e) {
+      if (switched) {
+        // 移動先が正になった後の失敗。移動元に残った行は参照されないので、再実行か手で消す
+        throw new IllegalStateException("moved user " + userId + " but failed to clean up " + current.shard(), e);
+      }
+      // 切り替え前に失敗した場合は移動元が正のまま（移動先へのコピーはロールバック済み）
+      directory.abortMove(userId);
+      throw new IllegalStateException("failed to move user " + userId, e);
+    }
+  }
+
+  // セッション単位の排他ロック。共有ロックを持つ書き込みトランザクションが全部終わるまで待つ
+  private static void lockFence(Connection fence, long userId) throws SQLException {
+    try (Statement st = fence.createStatement()) {
+      st.execute("set lock_timeout = '" + FENCE_TIMEOUT + "'");
+    }
+    try (PreparedStatement ps = fence.prepareStatement("select pg_advisory_lock(?, ?)")) {
+      ps.setInt(1, ShardFencingTransactionManager.FENCE_CLASS);
+      ps.setInt(2, ShardFencingTransactionManager.fenceKey(userId));
+      ps.execute();
+    } catch (SQLException e) {
+      // lock_timeout で諦めた。ロックは取れていないので設定だけ戻す
+      try (Statement st = fence.createStatement()) {
+        st.execute("reset lock_timeout");
+      }
+      throw e;
+    }
+  }
+
+  // 接続はプールに戻るので、ロックと設定を必ず外してから返す
+  private static void unlockFence(Connection fence, long userId) throws SQLException {
+    try (PreparedStatement ps = fence.prepareStatement("select pg_advisory_unlock(?, ?)")) {
+      ps.setInt(1, ShardFencingTransactionManager.FENCE_CLASS);
+      ps.setInt(2, ShardFencingTransactionManager.fenceKey(userId));
+      ps.execute();
+    }
+    try (Statement st = fence.createStatement()) {
+      st.execute("reset lock_timeout");
+    }
+  }
+
+  private void evictCaches(long userId) {
+    for (Scope scope : CACHED_SCOPES) {
+      Invalidation inv = Invalidation.of(scope, userId);
+      caches.forEach(c -> c.invalidate(inv));
+      invalidation.publish(inv);
+    }
+  }
+
+  /** 新規登録ユーザーの users 行を担当シャードへ写す（FK の参照先として必要）。 */
+  public void provisionUser(long userId) {
+    String shard = directory.placement(userId).shard();
+    try (Connection src = directoryDataSource.getConnection();
+         Connection dst = shards.get(shard).getConnection()) {
+      copyTable(src, dst, USER_TABLES.get(0), userId);
+    } catch (SQLException e) {
+      throw new IllegalStateException("failed to provision user " + userId + " on " + shard, e);
+    }
+  }
+
+  private long copyUser(DataSource from, DataSource to, long userId) throws SQLException {
+    try (Connection src = from.getConnection(); Connection dst = to.getConnection()) {
+      // 全テーブルを同じ時点で読む（表ごとに読む時点がずれると、間に走った精算が半分だけ写る）
+      src.setReadOnly(true);
+      src.setAutoCommit(false);
+      src.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      dst.setAutoCommit(false);
+      try {
+        long total = 0;
+        for (TableCopy t : USER_TABLES) total += copyTable(src, dst, t, userId);
+        dst.commit();
+        return total;
+      } catch (SQLException | RuntimeException e) {
+        dst.rollback();
+        throw e;
+      } finally {
+        src.rollback();
+      }
+    }
+  }
+
+  private static long copyTable(Connection src, Connection dst, TableCopy t, long userId) throws SQLException {
+    long rows = 0;
+    try (PreparedStatement select = src.prepareStatement(
+        "select * from " + t.table() + " where " + t.userPredicate())) {
+      select.setLong(1, userId);
+      select.setFetchSize(BATCH);
+      try (ResultSet rs = select.executeQuery()) {
+        ResultSetMetaData md = rs.getMetaData();
+        int n = md.getColumnCount();
+        StringJoiner cols = new StringJoiner(", ");
+        StringJoiner marks = new StringJoiner(", ");
+        for (int i = 1; i <= n; i++) {
+          cols.add(md.getColumnName(i));
+          marks.add("?");
+        }
+        String insert = "insert into " + t.table() + " (" + cols + ") values (" + marks + ") on conflict do nothing";
+        try (PreparedStatement ins = dst.prepareStatement(insert)) {
+          while (rs.next()) {
+            for (int i = 1; i <= n; i++) ins.setObject(i, rs.getObject(i));
+            ins.addBatch();
+            if (++rows % BATCH == 0) ins.executeBatch();
+          }
+          if (rows % BATCH != 0) ins.executeBatch();
+        }
+      }
+    }
+    return rows;
+  }
+
+  private static void deleteUser(DataSource from, long userId) throws SQLException {
+    try (Connection c = from.getConnection()) {
+      c.setAutoCommit(false);
+      try {
+        for (int i = USER_TABLES.size() - 1; i >= 0; i--) {
+          TableCopy t = USER_TABLES.get(i);
+          try (PreparedStatement del = c.prepareStatement(
+              "delete from " + t.table() + " where " + t.userPredicate())) {
+            del.setLong(1, userId);
+            del.executeUpdate();
+          }
+        }
+        c.commit();
+      } catch (SQLException | RuntimeException e) {
+        c.rollback();
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.todomoney.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/** ShardContext のシャードへ接続を振り分ける（未設定はディレクトリ）。 */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    String shard = ShardContext.current();
+    return shard != null ? shard : ShardContext.DIRECTORY;
+  }
+}
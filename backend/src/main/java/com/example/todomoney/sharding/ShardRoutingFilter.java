@@ -0,0 +1,58 @@
+package com.example.todomoney.sharding;
+
+import java.io.IOException;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.todomoney.security.AppPrincipal;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 認証済みリクエストの永続化先を、そのユーザーの担当シャードに切り替える。
+ * Spring Security のフィルタより後ろに登録する（principal が決まってから動く）。
+ */
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+  private final ShardDirectory directory;
+
+  public ShardRoutingFilter(ShardDirectory directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain chain) throws ServletException, IOException {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null || !(auth.getPrincipal() instanceof AppPrincipal p)) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    ShardDirectory.Placement placement = directory.placement(p.userId());
+    if (placement.state() == ShardDirectory.State.MOVING && !isRead(request)) {
+      // シャード移動中は書き込みだけ少し待ってもらう
+      response.setHeader("Retry-After", "5");
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "user data is being moved");
+      return;
+    }
+
+    ShardContext.set(placement.shard());
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      ShardContext.clear();
+    }
+  }
+
+  private static boolean isRead(HttpServletRequest request) {
+    String m = request.getMethod();
+    return "GET".equals(m) || "HEAD".equals(m) || "OPTIONS".equals(m);
+  }
+}
@@ -0,0 +1,77 @@
+package com.example.todomoney.sharding;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+
+/**
+ * 各シャードに Flyway を流し、採番をシャードごとにずらす。
+ * シーケンスを INCREMENT BY stride にし、値の剰余をシャード番号に揃えるので、
+ * どのシャードで採番した id もグローバルに一意になる（stride = 想定する最大シャード数）。
+ */
+final class ShardSchemaInitializer {
+
+  // users はディレクトリで採番してシャードには同じ id で写すので対象外
+  static final List<String> SEQUENCED_TABLES = List.of(
+      "goals", "tasks", "tag", "task_schedules", "task_completion_logs", "currency_events",
+      "currency_event_outbox"
+  );
+
+  private ShardSchemaInitializer() {}
+
+  static void migrate(DataSource shard) {
+    Flyway.configure()
+        .dataSource(shard)
+        .locations("classpath:db/migration")
+        .baselineOnMigrate(true)
+        .load()
+        .migrate();
+  }
+
+  static void alignSequences(DataSource shard, int shardIndex, int stride) throws SQLException {
+    if (shardIndex < 0 || shardIndex >= stride) {
+      throw new IllegalArgumentException("shard index " + shardIndex + " does not fit id stride " + stride);
+    }
+    try (Connection c = shard.getConnection()) {
+      for (String table : SEQUENCED_TABLES) {
+        String seq = sequenceOf(c, table);
+        if (seq == null) continue;
+
+        long current;
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(
+                 "select greatest(coalesce((select max(id) from " + table + "), 0), last_value) from " + seq)) {
+          rs.next();
+          current = rs.getLong(1);
+        }
+        // current より大きく、剰余が shardIndex + 1 になる最小値から採番を再開
+        long next = (current / stride + 1) * stride + shardIndex + 1;
+
+        try (Statement st = c.createStatement()) {
+          st.execute("alter sequence " + seq + " increment by " + stride);
+        }
+        try (PreparedStatement ps = c.prepareStatement("select setval(?::regclass, ?, false)")) {
+          ps.setString(1, seq);
+          ps.setLong(2, next);
+          ps.execute();
+        }
+      }
+    }
+  }
+
+  private static String sequenceOf(Connection c, String table) throws SQLException {
+    try (PreparedStatement ps = c.prepareStatement("select pg_get_serial_sequence(?, 'id')")) {
+      ps.setString(1, table);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getString(1) : null;
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.example.todomoney.sharding;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.InvalidationHandler;
+import com.example.todomoney.service.UserRegisteredEvent;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * app.sharding.enabled=true のときのユーザー単位シャーディング。
+ *
+ * - spring.datasource はディレクトリ DB（users / user_shards）
+ * - app.sharding.shards に "s0=jdbc:...,s1=jdbc:..." でシャードを並べる（認証情報はディレクトリと同じ）。
+ *   並び順がシャード番号＝採番の剰余になるので、既存シャードの順番は変えないこと
+ * - リクエストの永続化先は ShardRoutingFilter が担当シャードに切り替える
+ *
+ * app.datasource.routing（レプリカ振り分け）とは同時に有効にできない。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+  private final HikariDataSource directoryDataSource;
+  private final Map<String, DataSource> shards = new LinkedHashMap<>();
+
+  public ShardingConfig(
+      DataSourceProperties props,
+      @Value("${app.sharding.shards}") String shardSpec,
+      @Value("${app.sharding.id-stride:1024}") int idStride
+  ) throws SQLException {
+    this.directoryDataSource = props.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    this.directoryDataSource.setPoolName("directory");
+
+    List<String> entries = Arrays.stream(shardSpec.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    for (int i = 0; i < entries.size(); i++) {
+      String[] kv = entries.get(i).split("=", 2);
+      if (kv.length != 2) throw new IllegalArgumentException("app.sharding.shards entry must be name=jdbcUrl: " + entries.get(i));
+
+      HikariDataSource ds = new HikariDataSource();
+      ds.setPoolName("shard-" + kv[0].trim());
+      ds.setJdbcUrl(kv[1].trim());
+      ds.setUsername(props.determineUsername());
+      ds.setPassword(props.determinePassword());
+      ds.setDriverClassName(props.determineDriverClassName());
+
+      ShardSchemaInitializer.migrate(ds);
+      ShardSchemaInitializer.alignSequences(ds, i, idStride);
+      shards.put(kv[0].trim(), ds);
+    }
+    if (shards.isEmpty()) throw new IllegalStateException("app.sharding.shards is empty");
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource() {
+    ShardRoutingDataSource routing = new ShardRoutingDataSource();
+    Map<Object, Object> targets = new HashMap<>(shards);
+    targets.put(ShardContext.DIRECTORY, directoryDataSource);
+    routing.setTargetDataSources(targets);
+    routing.setDefaultTargetDataSource(directoryDataSource);
+    routing.afterPropertiesSet();
+    return routing;
+  }
+
+  @Bean
+  public ConsistentHashRing consistentHashRing(@Value("${app.sharding.virtual-nodes:128}") int virtualNodes) {
+    return new ConsistentHashRing(List.copyOf(shards.keySet()), virtualNodes);
+  }
+
+  @Bean
+  public ShardDirectory shardDirectory(ConsistentHashRing ring,
+                                       @Value("${app.sharding.directory-cache-ttl-ms:5000}") long ttlMillis) {
+    return new ShardDirectory(new JdbcTemplate(directoryDataSource), ring, ttlMillis);
+  }
+
+  @Bean
+  public ShardMigrator shardMigrator(ShardDirectory directory, List<InvalidationHandler> caches,
+                                     CacheInvalidationBus invalidation) {
+    return new ShardMigrator(directory, directoryDataSource, shards, caches, invalidation);
+  }
+
+  // ユーザーのリクエストの書き込みトランザクションに、移動中を弾く fence を付ける（ShardMigrator と対）
+  @Bean
+  public PlatformTransactionManager transactionManager(EntityManagerFactory emf,
+                                                       ObjectProvider<TransactionManagerCustomizers> customizers) {
+    ShardFencingTransactionManager tm = new ShardFencingTransactionManager(emf);
+    customizers.ifAvailable(c -> c.customize(tm));
+    return tm;
+  }
+
+  // Spring Security（DEFAULT_FILTER_ORDER）・レート制限・バルクヘッドの後ろに入れる
+  @Bean
+  public FilterRegistrationBean<ShardRoutingFilter> shardRoutingFilter(ShardDirectory directory) {
+    var reg = new FilterRegistrationBean<>(new ShardRoutingFilter(directory));
+    reg.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 3);
+    return reg;
+  }
+
+  // 登録直後に users 行を担当シャードへ写す（goals 等の FK が参照するため）
+  @Bean
+  public ApplicationListener<PayloadApplicationEvent<UserRegisteredEvent>> shardUserProvisioner(ShardMigrator migrator) {
+    return ApplicationListener.forPayload(e -> migrator.provisionUser(e.userId()));
+  }
+
+  @PreDestroy
+  public void close() {
+    shards.values().forEach(ds -> ((HikariDataSource) ds).close());
+    directoryDataSource.close();
+  }
+}
@@ -0,0 +1,156 @@
+package com.example.todomoney.sync;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 差分同期。change_log（DB トリガが書く）から since より後の変更を拾い、今の行をまとめて返す。
+ * change_log と実データを同じスナップショットで読むため REPEATABLE READ。
+ */
+@Service
+public class SyncService {
+
+  public static final int DEFAULT_LIMIT = 1000;
+  public static final int MAX_LIMIT = 5000;
+
+  public record TaskDto(long id, Long goalId, String title, String memo, boolean completed, boolean archived,
+      Instant updatedAt) {}
+  public record ScheduleDto(long id, long taskId, String type, LocalDate date, LocalDate startDate, LocalDate endDate,
+      Integer daysOfWeekMask, String rrule, String exdates) {}
+  public record TagDto(long id, String name, String color) {}
+  public record TaskTagsDto(long taskId, List<Long> tagIds) {}
+  public record CompletionDto(long id, long taskId, LocalDate occurrenceDate, Instant completedAt, boolean settled) {}
+  public record Deleted(String entity, long id) {}
+
+  /** seq はこのレスポンスまでを反映した位置（次回の since）。hasMore なら続けて取りに来る。 */
+  public record Delta(
+      long seq, boolean hasMore,
+      List<TaskDto> tasks, List<ScheduleDto> schedules, List<TagDto> tags,
+      List<TaskTagsDto> taskTags, List<CompletionDto> completions, List<Deleted> deleted
+  ) {
+    public boolean isEmpty() {
+      return tasks.isEmpty() && schedules.isEmpty() && tags.isEmpty() && taskTags.isEmpty()
+          && completions.isEmpty() && deleted.isEmpty();
+    }
+  }
+
+  private record Change(String entity, long entityId, long seq, boolean deleted) {}
+
+  private final JdbcTemplate jdbc;
+  private final NamedParameterJdbcTemplate named;
+
+  public SyncService(DataSource dataSource) {
+    this.jdbc = new JdbcTemplate(dataSource);
+    this.named = new NamedParameterJdbcTemplate(jdbc);
+  }
+
+  @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+  public Delta since(long userId, long since, int limit) {
+    List<Change> changes = jdbc.query("""
+        select entity, entity_id, seq, deleted from change_log
+        where user_id = ? and seq > ?
+        order by seq
+        limit ?
+        """,
+        (rs, i) -> new Change(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getBoolean(4)),
+        userId, since, limit + 1);
+
+    boolean hasMore = changes.size() > limit;
+    if (hasMore) changes = changes.subList(0, limit);
+    long seq = changes.isEmpty() ? since : changes.get(changes.size() - 1).seq();
+
+    Map<String, List<Long>> live = new LinkedHashMap<>();
+    List<Deleted> deleted = new ArrayList<>();
+    for (Change c : changes) {
+      if (c.deleted()) deleted.add(new Deleted(c.entity(), c.entityId()));
+      else live.computeIfAbsent(c.entity(), k -> new ArrayList<>()).add(c.entityId());
+    }
+
+    // 1エンティティ種別につき1クエリ（変更件数に比例して往復が増えない）。user_id でも絞って他人の行は返さない
+    return new Delta(seq, hasMore,
+        tasks(userId, live.getOrDefault("task", List.of())),
+        schedules(userId, live.getOrDefault("schedule", List.of())),
+        tags(userId, live.getOrDefault("tag", List.of())),
+        taskTags(userId, live.getOrDefault("task_tags", List.of())),
+        completions(userId, live.getOrDefault("completion", List.of())),
+        deleted);
+  }
+
+  private List<TaskDto> tasks(long userId, List<Long> ids) {
+    if (ids.isEmpty()) return List.of();
+    return named.query("""
+        select id, goal_id, title, memo, completed, archived, updated_at
+        from tasks where user_id = :userId and id in (:ids) order by id
+        """,
+        Map.of("userId", userId, "ids", ids),
+        (rs, i) -> new TaskDto(rs.getLong(1), rs.getObject(2, Long.class), rs.getString(3), rs.getString(4),
+            rs.getBoolean(5), rs.getBoolean(6), instant(rs.getTimestamp(7))));
+  }
+
+  private List<ScheduleDto> schedules(long userId, List<Long> ids) {
+    if (ids.isEmpty()) return List.of();
+    return named.query("""
+        select id, task_id, type, date, start_date, end_date, dow_mask, rrule, exdates
+        from task_schedules where user_id = :userId and id in (:ids) order by id
+        """,
+        Map.of("userId", userId, "ids", ids),
+        (rs, i) -> new ScheduleDto(rs.getLong(1), rs.getLong(2), rs.getString(3),
+            rs.getObject(4, LocalDate.class), rs.getObject(5, LocalDate.class), rs.getObject(6, LocalDate.class),
+            rs.getObject(7, Integer.class), rs.getString(8), rs.getString(9)));
+  }
+
+  private List<TagDto> tags(long userId, List<Long> ids) {
+    if (ids.isEmpty()) return List.of();
+    return named.query("select id, name, color from tag where user_id = :userId and id in (:ids) order by id",
+        Map.of("userId", userId, "ids", ids),
+        (rs, i) -> new TagDto(rs.getLong(1), rs.getString(2), rs.getString(3)));
+  }
+
+  // タグが全部外れたタスクも空リストで返す（クライアントはタスク単位で置き換える）
+  private List<TaskTagsDto> taskTags(long userId, List<Long> taskIds) {
+    if (taskIds.isEmpty()) return List.of();
+    Map<Long, List<Long>> byTask = new LinkedHashMap<>();
+    for (Long id : taskIds) byTask.put(id, new ArrayList<>());
+    named.query("""
+        select tt.task_id, tt.tag_id from task_tags tt
+        join tasks t on t.id = tt.task_id
+        where t.user_id = :userId and tt.task_id in (:ids)
+        order by tt.task_id, tt.tag_id
+        """,
+        Map.of("userId", userId, "ids", taskIds),
+        rs -> {
+          byTask.get(rs.getLong(1)).add(rs.getLong(2));
+        });
+    List<TaskTagsDto> out = new ArrayList<>(byTask.size());
+    byTask.forEach((taskId, tagIds) -> out.add(new TaskTagsDto(taskId, tagIds)));
+    return out;
+  }
+
+  private List<CompletionDto> completions(long userId, List<Long> ids) {
+    if (ids.isEmpty()) return List.of();
+    return named.query("""
+        select id, task_id, occurrence_date, completed_at, settled_at is not null
+        from task_completion_logs where user_id = :userId and id in (:ids) order by id
+        """,
+        Map.of("userId", userId, "ids", ids),
+        (rs, i) -> new CompletionDto(rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDate.class),
+            instant(rs.getTimestamp(4)), rs.getBoolean(5)));
+  }
+
+  private static Instant instant(Timestamp ts) {
+    return ts == null ? null : ts.toInstant();
+  }
+}
@@ -0,0 +1,81 @@
+package com.example.todomoney.traffic;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * DB 接続を掴むエンドポイント群ごとの同時実行数の上限（セマフォ）。
+ *
+ * 仮想スレッドではリクエストスレッドが実質無制限になり、そのまま Hikari の接続待ちに積み上がって
+ * connectionTimeout（30秒）まで待たされる。手前で群ごとに枠を決め、queue-timeout 以内に入れなければ即 503 にする。
+ * 枠は Hikari のプール数 × 群ごとの割合。合計が 1 を超えてもよい（全群が同時に詰まることは少ない）ので、
+ * 1つの群が詰まっても他の群の分の接続は残る、という程度の仕切り。
+ */
+public final class Bulkhead {
+
+  public enum Group { CALENDAR, WRITE, AUTH }
+
+  private final Map<Group, Semaphore> semaphores = new EnumMap<>(Group.class);
+  private final Map<Group, Integer> permits = new EnumMap<>(Group.class);
+  private final long queueTimeoutNanos;
+
+  public Bulkhead(Map<Group, Integer> permits, long queueTimeoutMs) {
+    for (Group g : Group.values()) {
+      int n = permits.getOrDefault(g, 0);
+      if (n < 1) throw new IllegalArgumentException("bulkhead " + g + " needs at least 1 permit");
+      // 公平モード：待ち行列を FIFO にして裾（p99）を詰める
+      this.semaphores.put(g, new Semaphore(n, true));
+      this.permits.put(g, n);
+    }
+    this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+  }
+
+  /** 群ごとの枠を poolSize × share（最低 1）で決める。 */
+  public static Bulkhead sizedFor(int poolSize, double calendarShare, double writeShare, double authShare,
+      long queueTimeoutMs) {
+    Map<Group, Integer> m = new EnumMap<>(Group.class);
+    m.put(Group.CALENDAR, share(poolSize, calendarShare));
+    m.put(Group.WRITE, share(poolSize, writeShare));
+    m.put(Group.AUTH, share(poolSize, authShare));
+    return new Bulkhead(m, queueTimeoutMs);
+  }
+
+  private static int share(int poolSize, double share) {
+    return Math.max(1, (int) Math.round(poolSize * share));
+  }
+
+  /** 仕切りの対象外（DB を軽くしか使わない読み込み）は null。 */
+  public static Group groupOf(HttpServletRequest request) {
+    String uri = request.getRequestURI();
+    if (uri.startsWith("/api/auth/")) return Group.AUTH;
+    String m = request.getMethod();
+    if (!"GET".equals(m) && !"HEAD".equals(m)) return Group.WRITE;
+    if (uri.startsWith("/api/calendar") || uri.startsWith("/api/v2/calendar")) return Group.CALENDAR;
+    return null;
+  }
+
+  /** queue-timeout まで待って枠を取る。取れたら必ず exit する。 */
+  public boolean tryEnter(Group g) throws InterruptedException {
+    return semaphores.get(g).tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void exit(Group g) {
+    semaphores.get(g).release();
+  }
+
+  public int permits(Group g) {
+    return permits.get(g);
+  }
+
+  public int available(Group g) {
+    return semaphores.get(g).availablePermits();
+  }
+
+  public int queued(Group g) {
+    return semaphores.get(g).getQueueLength();
+  }
+}
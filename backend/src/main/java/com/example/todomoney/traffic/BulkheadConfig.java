@@ -0,0 +1,54 @@
+package com.example.todomoney.traffic;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.todomoney.observability.AppMetrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 既定では仮想スレッドのときだけ有効（app.bulkhead.enabled の既定値が spring.threads.virtual.enabled）。
+ * プラットフォームスレッドでは Tomcat のスレッド数がすでに上限になっているので、枠を足すと 503 が増えるだけ。
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.bulkhead.enabled", havingValue = "true")
+public class BulkheadConfig {
+
+  // シャーディング時はシャードごとに同じ大きさのプールを持つので、1プール分で見積もる
+  @Bean
+  public Bulkhead bulkhead(
+      MeterRegistry registry,
+      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+      @Value("${app.bulkhead.calendar-share:0.5}") double calendarShare,
+      @Value("${app.bulkhead.write-share:0.6}") double writeShare,
+      @Value("${app.bulkhead.auth-share:0.3}") double authShare,
+      @Value("${app.bulkhead.queue-timeout-ms:200}") long queueTimeoutMs
+  ) {
+    Bulkhead bulkhead = Bulkhead.sizedFor(poolSize, calendarShare, writeShare, authShare, queueTimeoutMs);
+    for (Bulkhead.Group g : Bulkhead.Group.values()) {
+      Gauge.builder("todomoney.bulkhead.available", bulkhead, b -> b.available(g))
+          .description("Free bulkhead permits")
+          .tag("group", g.name())
+          .register(registry);
+      Gauge.builder("todomoney.bulkhead.queued", bulkhead, b -> b.queued(g))
+          .description("Requests waiting for a bulkhead permit")
+          .tag("group", g.name())
+          .register(registry);
+    }
+    return bulkhead;
+  }
+
+  // レート制限（DEFAULT_FILTER_ORDER + 1）とシャード振り分けの間
+  @Bean
+  public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(Bulkhead bulkhead, AppMetrics metrics) {
+    var reg = new FilterRegistrationBean<>(new BulkheadFilter(bulkhead, metrics));
+    reg.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 2);
+    return reg;
+  }
+}
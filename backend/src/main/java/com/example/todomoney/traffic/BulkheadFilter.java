@@ -0,0 +1,63 @@
+package com.example.todomoney.traffic;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.todomoney.observability.AppMetrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Bulkhead の枠に入れたリクエストだけを通す。入れなければ 503 + Retry-After。
+ * レート制限の後ろに登録する（制限で弾く分は枠を使わない）。
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+  private final Bulkhead bulkhead;
+  private final AppMetrics metrics;
+
+  public BulkheadFilter(Bulkhead bulkhead, AppMetrics metrics) {
+    this.bulkhead = bulkhead;
+    this.metrics = metrics;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith("/api/") || "OPTIONS".equals(request.getMethod());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain chain) throws ServletException, IOException {
+    Bulkhead.Group g = Bulkhead.groupOf(request);
+    if (g == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    boolean entered;
+    try {
+      entered = bulkhead.tryEnter(g);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      entered = false;
+    }
+    if (!entered) {
+      metrics.bulkheadRejected(g);
+      response.setHeader("Retry-After", "1");
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "server busy");
+      return;
+    }
+
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      bulkhead.exit(g);
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package com.example.todomoney.traffic;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/** レート制限の予算の単位。 */
+public enum EndpointClass {
+  READ, WRITE, AUTH;
+
+  public static EndpointClass of(HttpServletRequest request) {
+    if (request.getRequestURI().startsWith("/api/auth/")) return AUTH;
+    String m = request.getMethod();
+    return "GET".equals(m) || "HEAD".equals(m) ? READ : WRITE;
+  }
+}
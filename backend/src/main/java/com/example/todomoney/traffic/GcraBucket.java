@@ -0,0 +1,36 @@
+package com.example.todomoney.traffic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GCRA（Generic Cell Rate Algorithm）のトークンバケット。状態は TAT（次に理論上空く時刻, nanoTime）1つだけなので、
+ * ロックなしで CAS 1回で判定できる。
+ *
+ * - interval: 1リクエスト分の補充間隔（1 / rate）
+ * - tolerance: (burst - 1) * interval。TAT が now + tolerance を超えていたら拒否
+ *
+ * TAT <= now のバケットは満タンで、新品と区別がつかない（捨てても挙動が変わらない）。
+ */
+final class GcraBucket {
+
+  private final AtomicLong tat;
+
+  GcraBucket(long now) {
+    this.tat = new AtomicLong(now);
+  }
+
+  /** @return 0 なら通す。正なら次に通るまでの nanos */
+  long tryAcquire(long now, long interval, long tolerance) {
+    while (true) {
+      long t = tat.get();
+      long base = Math.max(t, now);
+      long wait = base - tolerance - now;
+      if (wait > 0) return wait;
+      if (tat.compareAndSet(t, base + interval)) return 0;
+    }
+  }
+
+  boolean isIdle(long now) {
+    return tat.get() - now <= 0;
+  }
+}
@@ -0,0 +1,65 @@
+package com.example.todomoney.traffic;
+
+import java.io.IOException;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.todomoney.observability.AppMetrics;
+import com.example.todomoney.security.AppPrincipal;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * /api/ のリクエストをユーザー単位でレート制限する（超えたら 429 + Retry-After）。
+ * Spring Security のフィルタより後ろに登録する（principal の userId をキーにする）。
+ * 未ログインの /api/auth/ はクライアント IP をキーにする。プロキシ越しの IP は
+ * server.forward-headers-strategy=native（RemoteIpValve）が getRemoteAddr() に入れておく。
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+  private final RateLimiter limiter;
+  private final AppMetrics metrics;
+
+  public RateLimitFilter(RateLimiter limiter, AppMetrics metrics) {
+    this.limiter = limiter;
+    this.metrics = metrics;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith("/api/") || "OPTIONS".equals(request.getMethod());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain chain) throws ServletException, IOException {
+    EndpointClass c = EndpointClass.of(request);
+    long waitNanos = limiter.tryAcquire(c, key(request), System.nanoTime());
+    if (waitNanos == 0) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    metrics.rateLimited(c, endpoint(request));
+    // 秒単位なので切り上げ（0 秒だと即リトライされる）
+    response.setHeader("Retry-After", Long.toString(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+    response.sendError(429, "rate limit exceeded");
+  }
+
+  private static Object key(HttpServletRequest request) {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth != null && auth.getPrincipal() instanceof AppPrincipal p) return p.userId();
+    return request.getRemoteAddr();
+  }
+
+  // メトリクスのタグ用。id を潰してエンドポイント単位にする（拒否時だけ通るので正規表現でよい）
+  static String endpoint(HttpServletRequest request) {
+    return request.getMethod() + " " + request.getRequestURI().replaceAll("/\\d+(?=/|$)", "/{id}");
+  }
+}
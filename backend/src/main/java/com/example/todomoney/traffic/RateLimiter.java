@@ -0,0 +1,101 @@
+package com.example.todomoney.traffic;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EndpointClass ごとに、キー（userId、未ログインの auth は IP）単位の GCRA バケットを持つ。
+ *
+ * - 判定は ConcurrentHashMap の get と CAS だけ（ロックなし）
+ * - キー数は maxKeys で頭打ち。満杯の間の新しいキーは、キーのハッシュで選ぶ予備のバケット（OVERFLOW_STRIPES 個）を
+ *   共有する。素通しにはしない（キーを使い捨てる攻撃で制限が外れない）。同じ予備に当たったキー同士は枠を分け合う
+ *   ので、満杯の間は厳しい側に外れる。overflowed() で監視する
+ * - 満タン（＝無状態）のバケットを捨てるのは evictIdle（TrafficConfig が sweep-interval-ms ごとに別スレッドで呼ぶ）だけ。
+ *   判定の中では走査しない。掃除と判定が競合すると、そのキーは一度だけ新品扱いになる（緩む方向にしか外れない）
+ */
+public final class RateLimiter {
+
+  public record Limit(double ratePerSecond, int burst) {
+    public Limit {
+      if (ratePerSecond <= 0 || burst < 1) throw new IllegalArgumentException("invalid rate limit: " + ratePerSecond + "/" + burst);
+    }
+  }
+
+  private final long[] interval = new long[EndpointClass.values().length];
+  private final long[] tolerance = new long[EndpointClass.values().length];
+  @SuppressWarnings("unchecked")
+  private final ConcurrentHashMap<Object, GcraBucket>[] buckets = new ConcurrentHashMap[EndpointClass.values().length];
+  private final GcraBucket[][] overflow = new GcraBucket[EndpointClass.values().length][OVERFLOW_STRIPES];
+  private final int maxKeys;
+  private final AtomicLong overflowed = new AtomicLong();
+
+  static final int OVERFLOW_STRIPES = 64;
+
+  public RateLimiter(Map<EndpointClass, Limit> limits, int maxKeys) {
+    for (EndpointClass c : EndpointClass.values()) {
+      Limit l = limits.get(c);
+      if (l == null) throw new IllegalArgumentException("no rate limit for " + c);
+      interval[c.ordinal()] = (long) (1_000_000_000L / l.ratePerSecond());
+      tolerance[c.ordinal()] = interval[c.ordinal()] * (l.burst() - 1);
+      buckets[c.ordinal()] = new ConcurrentHashMap<>();
+      // nanoTime は負にもなるので、十分過去の TAT で満タンにしておく
+      for (int s = 0; s < OVERFLOW_STRIPES; s++) overflow[c.ordinal()][s] = new GcraBucket(Long.MIN_VALUE / 2);
+    }
+    this.maxKeys = maxKeys;
+  }
+
+  public static RateLimiter of(Limit read, Limit write, Limit auth, int maxKeys) {
+    Map<EndpointClass, Limit> m = new EnumMap<>(EndpointClass.class);
+    m.put(EndpointClass.READ, read);
+    m.put(EndpointClass.WRITE, write);
+    m.put(EndpointClass.AUTH, auth);
+    return new RateLimiter(m, maxKeys);
+  }
+
+  /** @return 0 なら通す。正なら Retry-After までの nanos */
+  public long tryAcquire(EndpointClass c, Object key, long now) {
+    int i = c.ordinal();
+    ConcurrentHashMap<Object, GcraBucket> m = buckets[i];
+    GcraBucket b = m.get(key);
+    if (b == null) {
+      if (m.size() >= maxKeys) {
+        overflowed.incrementAndGet();
+        b = overflow[i][stripe(key)];
+      } else {
+        b = m.computeIfAbsent(key, k -> new GcraBucket(now));
+      }
+    }
+    return b.tryAcquire(now, interval[i], tolerance[i]);
+  }
+
+  private static int stripe(Object key) {
+    int h = key.hashCode();
+    h ^= h >>> 16; // Long の上位ビットも混ぜる（ConcurrentHashMap.spread と同じ）
+    return h & (OVERFLOW_STRIPES - 1);
+  }
+
+  public int evictIdle(long now) {
+    int removed = 0;
+    for (ConcurrentHashMap<Object, GcraBucket> m : buckets) removed += evictIdle(m, now);
+    return removed;
+  }
+
+  private static int evictIdle(ConcurrentHashMap<Object, GcraBucket> m, long now) {
+    int before = m.size();
+    m.values().removeIf(b -> b.isIdle(now));
+    return Math.max(0, before - m.size());
+  }
+
+  public int size() {
+    int n = 0;
+    for (ConcurrentHashMap<Object, GcraBucket> m : buckets) n += m.size();
+    return n;
+  }
+
+  /** キー数の上限に当たって予備のバケットで判定した回数。 */
+  public long overflowed() {
+    return overflowed.get();
+  }
+}
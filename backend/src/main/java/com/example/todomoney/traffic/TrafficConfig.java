@@ -0,0 +1,68 @@
+package com.example.todomoney.traffic;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.todomoney.observability.AppMetrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class TrafficConfig {
+
+  @Bean
+  public RateLimiter rateLimiter(
+      @Value("${app.rate-limit.read.rate-per-second:20}") double readRate,
+      @Value("${app.rate-limit.read.burst:40}") int readBurst,
+      @Value("${app.rate-limit.write.rate-per-second:5}") double writeRate,
+      @Value("${app.rate-limit.write.burst:20}") int writeBurst,
+      @Value("${app.rate-limit.auth.rate-per-second:0.2}") double authRate,
+      @Value("${app.rate-limit.auth.burst:10}") int authBurst,
+      @Value("${app.rate-limit.max-keys:100000}") int maxKeys,
+      MeterRegistry registry
+  ) {
+    RateLimiter limiter = RateLimiter.of(
+        new RateLimiter.Limit(readRate, readBurst),
+        new RateLimiter.Limit(writeRate, writeBurst),
+        new RateLimiter.Limit(authRate, authBurst),
+        maxKeys);
+    FunctionCounter.builder("todomoney.ratelimit.overflowed", limiter, RateLimiter::overflowed)
+        .description("Requests judged by a shared fallback bucket because max-keys was reached")
+        .register(registry);
+    return limiter;
+  }
+
+  // 満タンになったバケットを定期的に捨てる（キー数の上限に当たる前に。判定の中では掃除しない）
+  @Bean(destroyMethod = "shutdownNow")
+  public ScheduledExecutorService rateLimitSweeper(
+      RateLimiter limiter,
+      @Value("${app.rate-limit.sweep-interval-ms:30000}") long sweepIntervalMs
+  ) {
+    ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "rate-limit-sweep");
+      t.setDaemon(true);
+      return t;
+    });
+    ses.scheduleWithFixedDelay(() -> limiter.evictIdle(System.nanoTime()),
+        sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    return ses;
+  }
+
+  // Spring Security（DEFAULT_FILTER_ORDER）の直後、シャード振り分けより前に入れる（弾くリクエストはディレクトリを引かない）
+  @Bean
+  public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimiter limiter, AppMetrics metrics) {
+    var reg = new FilterRegistrationBean<>(new RateLimitFilter(limiter, metrics));
+    reg.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+    return reg;
+  }
+}
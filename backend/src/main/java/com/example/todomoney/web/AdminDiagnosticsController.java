@@ -0,0 +1,122 @@
+package com.example.todomoney.web;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.todomoney.observability.SlowQueryRecorder;
+import com.example.todomoney.observability.jfr.JfrRecordingService;
+import com.example.todomoney.security.AdminGuard;
+import com.example.todomoney.security.AppPrincipal;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminDiagnosticsController {
+
+  private final AdminGuard admin;
+  private final SlowQueryRecorder slowQueries;
+  private final JfrRecordingService jfr;
+  private final SessionFactory sessionFactory;
+
+  public AdminDiagnosticsController(AdminGuard admin, SlowQueryRecorder slowQueries, JfrRecordingService jfr,
+                                    EntityManagerFactory emf) {
+    this.admin = admin;
+    this.slowQueries = slowQueries;
+    this.jfr = jfr;
+    this.sessionFactory = emf.unwrap(SessionFactory.class);
+  }
+
+  public record SlowQueryList(long totalRecorded, List<SlowQueryRecorder.SlowQuery> items) {}
+
+  // GET /api/admin/slow-queries?limit=50（新しい順）
+  @GetMapping("/slow-queries")
+  public SlowQueryList slowQueries(@AuthenticationPrincipal AppPrincipal p,
+                                   @RequestParam(defaultValue = "50") int limit) {
+    admin.requireAdmin(p);
+    return new SlowQueryList(slowQueries.totalRecorded(), slowQueries.recent(Math.max(1, limit)));
+  }
+
+  @DeleteMapping("/slow-queries")
+  public void clearSlowQueries(@AuthenticationPrincipal AppPrincipal p) {
+    admin.requireAdmin(p);
+    slowQueries.clear();
+  }
+
+  // ===== 2次キャッシュ =====
+
+  public record CacheRegionStats(String region, long hits, long misses, long puts, double hitRatio,
+                                 long elementsInMemory) {}
+
+  // GET /api/admin/cache-stats（Prometheus の hibernate_second_level_cache_requests と同じ値を一覧で）
+  @GetMapping("/cache-stats")
+  public List<CacheRegionStats> cacheStats(@AuthenticationPrincipal AppPrincipal p) {
+    admin.requireAdmin(p);
+    var stats = sessionFactory.getStatistics();
+    return Arrays.stream(stats.getSecondLevelCacheRegionNames())
+        .sorted()
+        .map(region -> {
+          CacheRegionStatistics r = stats.getCacheRegionStatistics(region);
+          if (r == null) return new CacheRegionStats(region, 0, 0, 0, 0, 0);
+          long total = r.getHitCount() + r.getMissCount();
+          return new CacheRegionStats(region, r.getHitCount(), r.getMissCount(), r.getPutCount(),
+              total == 0 ? 0 : (double) r.getHitCount() / total, r.getElementCountInMemory());
+        })
+        .toList();
+  }
+
+  // ===== JFR =====
+
+  @GetMapping("/jfr")
+  public JfrRecordingService.Status jfrStatus(@AuthenticationPrincipal AppPrincipal p) {
+    admin.requireAdmin(p);
+    return jfr.status();
+  }
+
+  // POST /api/admin/jfr/start?durationSeconds=120&settings=profile（上限は app.jfr.max-duration）
+  @PostMapping("/jfr/start")
+  public JfrRecordingService.Status startJfr(@AuthenticationPrincipal AppPrincipal p,
+                                             @RequestParam(required = false) Long durationSeconds,
+                                             @RequestParam(required = false) String settings) {
+    admin.requireAdmin(p);
+    return jfr.start(durationSeconds == null ? null : Duration.ofSeconds(durationSeconds), settings);
+  }
+
+  // 記録を止めて .jfr をそのままダウンロードさせる（送信後に一時ファイルは消す）
+  @PostMapping("/jfr/stop")
+  public ResponseEntity<StreamingResponseBody> stopJfr(@AuthenticationPrincipal AppPrincipal p) {
+    admin.requireAdmin(p);
+    Path file = jfr.stopAndDump();
+
+    StreamingResponseBody body = out -> {
+      try (InputStream in = Files.newInputStream(file)) {
+        in.transferTo(out);
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    };
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+        .body(body);
+  }
+}
@@ -0,0 +1,60 @@
+package com.example.todomoney.web;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.money.FxRateStore;
+import com.example.todomoney.money.FxRateSync;
+import com.example.todomoney.money.FxRates;
+import com.example.todomoney.security.AdminGuard;
+import com.example.todomoney.security.AppPrincipal;
+
+@RestController
+@RequestMapping("/api/admin/fx-rates")
+public class AdminFxController {
+
+  private final AdminGuard admin;
+  private final FxRateStore fx;
+  private final FxRateSync sync;
+
+  public AdminFxController(AdminGuard admin, FxRateStore fx, FxRateSync sync) {
+    this.admin = admin;
+    this.fx = fx;
+    this.sync = sync;
+  }
+
+  @GetMapping
+  public FxRates current(@AuthenticationPrincipal AppPrincipal p) {
+    admin.requireAdmin(p);
+    return fx.current();
+  }
+
+  // PUT /api/admin/fx-rates（表ごと差し替え。保存して全ノードに配る。使用中の通貨が無い表は 400）
+  @PutMapping
+  public FxRates replace(@AuthenticationPrincipal AppPrincipal p, @RequestBody FxRates rates) {
+    admin.requireAdmin(p);
+    return sync.update(rates);
+  }
+
+  // POST /api/admin/fx-rates/reload（このノードの app.fx.rates-location を読み直して、PUT と同じく配る）
+  @PostMapping("/reload")
+  public FxRates reload(@AuthenticationPrincipal AppPrincipal p) {
+    admin.requireAdmin(p);
+    FxRates rates;
+    try {
+      rates = fx.read();
+    } catch (IOException | RuntimeException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fx rates not loaded: " + e.getMessage());
+    }
+    return sync.update(rates);
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.todomoney.web;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.todomoney.security.AdminGuard;
+import com.example.todomoney.security.AppPrincipal;
+import com.example.todomoney.sharding.ShardDirectory;
+import com.example.todomoney.sharding.ShardMigrator;
+
+@RestController
+@RequestMapping("/api/admin/shards")
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class AdminShardController {
+
+  private final AdminGuard admin;
+  private final ShardDirectory directory;
+  private final ShardMigrator migrator;
+
+  public AdminShardController(AdminGuard admin, ShardDirectory directory, ShardMigrator migrator) {
+    this.admin = admin;
+    this.directory = directory;
+    this.migrator = migrator;
+  }
+
+  public record UserPlacement(long userId, String shard, String state, String ringShard) {}
+
+  @GetMapping("/users/{userId}")
+  public UserPlacement placement(@AuthenticationPrincipal AppPrincipal p, @PathVariable long userId) {
+    admin.requireAdmin(p);
+    var pl = directory.placement(userId);
+    return new UserPlacement(userId, pl.shard(), pl.state().name(), directory.ring().shardFor(userId));
+  }
+
+  // シャード追加後、リング上の担当と違う場所にいるユーザー（move の候補）
+  @GetMapping("/misplaced")
+  public List<Long> misplaced(@AuthenticationPrincipal AppPrincipal p,
+                              @RequestParam(defaultValue = "100") int limit) {
+    admin.requireAdmin(p);
+    return directory.misplaced(limit);
+  }
+
+  // POST /api/admin/shards/users/{userId}/move?target=s1（target 省略時はリング上の担当へ）
+  @PostMapping("/users/{userId}/move")
+  public ShardMigrator.MoveResult move(@AuthenticationPrincipal AppPrincipal p, @PathVariable long userId,
+                                       @RequestParam(required = false) String target) {
+    admin.requireAdmin(p);
+    return migrator.moveUser(userId, target != null ? target : directory.ring().shardFor(userId));
+  }
+}
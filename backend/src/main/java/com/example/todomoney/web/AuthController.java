@@ -1,5 +1,6 @@
 package com.example.todomoney.web;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,6 +12,7 @@ import org.springframework.web.server.ResponseStatusException;
 import com.example.todomoney.entity.User;
 import com.example.todomoney.repo.UserRepository;
 import com.example.todomoney.security.JwtService;
+import com.example.todomoney.service.UserRegisteredEvent;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -22,17 +24,21 @@ public class AuthController {
   private final UserRepository userRepo;
   private final PasswordEncoder encoder;
   private final JwtService jwt;
+  private final ApplicationEventPublisher events;
 
-  public AuthController(UserRepository userRepo, PasswordEncoder encoder, JwtService jwt) {
+  public AuthController(UserRepository userRepo, PasswordEncoder encoder, JwtService jwt,
+                        ApplicationEventPublisher events) {
     this.userRepo = userRepo;
     this.encoder = encoder;
     this.jwt = jwt;
+    this.events = events;
   }
 
   public record RegisterRequest(@Email @NotBlank String email, @NotBlank String password) {}
   public record LoginRequest(@Email @NotBlank String email, @NotBlank String password) {}
   public record AuthResponse(String token) {}
 
+  @QueryBudget(2)
   @PostMapping("/register")
   public AuthResponse register(@RequestBody RegisterRequest req) {
     if (userRepo.findByEmail(req.email()).isPresent()) {
@@ -42,9 +48,11 @@ public class AuthController {
     u.setEmail(req.email().toLowerCase());
     u.setPasswordHash(encoder.encode(req.password()));
     u = userRepo.save(u);
+    events.publishEvent(new UserRegisteredEvent(u.getId()));
     return new AuthResponse(jwt.issueToken(u.getId(), u.getEmail()));
   }
 
+  @QueryBudget(1)
   @PostMapping("/login")
   public AuthResponse login(@RequestBody LoginRequest req) {
     var u = userRepo.findByEmail(req.email().toLowerCase())
@@ -1,23 +1,27 @@
 package com.example.todomoney.web;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.springframework.http.MediaType;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.todomoney.entity.Task;
-import com.example.todomoney.entity.TaskCompletionLog;
 import com.example.todomoney.entity.TaskSchedule;
-import com.example.todomoney.repo.TaskCompletionLogRepository;
+import com.example.todomoney.observability.jfr.CalendarExpansionEvent;
+import com.example.todomoney.query.ReadQueries;
 import com.example.todomoney.repo.TaskScheduleRepository;
+import com.example.todomoney.service.OccurrenceStore;
+import com.example.todomoney.service.ScheduleExpander;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -26,11 +30,14 @@ import jakarta.servlet.http.HttpServletRequest;
 public class CalendarController {
 
     private final TaskScheduleRepository schedules;
-    private final TaskCompletionLogRepository logs;
+    private final ReadQueries queries;
+    private final OccurrenceStore occurrences;
 
-    public CalendarController(TaskScheduleRepository schedules, TaskCompletionLogRepository logs) {
+    public CalendarController(TaskScheduleRepository schedules, ReadQueries queries,
+            OccurrenceStore occurrences) {
         this.schedules = schedules;
-        this.logs = logs;
+        this.queries = queries;
+        this.occurrences = occurrences;
     }
 
     public static class CalendarItem {
@@ -51,19 +58,9 @@ public class CalendarController {
         }
     }
 
-    private static int dowBit(DayOfWeek dow) {
-        return switch (dow) {
-            case SUNDAY -> 1;
-            case MONDAY -> 2;
-            case TUESDAY -> 4;
-            case WEDNESDAY -> 8;
-            case THURSDAY -> 16;
-            case FRIDAY -> 32;
-            case SATURDAY -> 64;
-        };
-    }
-
-    @GetMapping
+    @QueryBudget(4)
+    @Transactional(readOnly = true)
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
     public List<CalendarItem> get(
             @RequestParam String from,
             @RequestParam String to,
@@ -74,40 +71,55 @@ public class CalendarController {
         LocalDate f = LocalDate.parse(from);
         LocalDate t = LocalDate.parse(to);
 
-        // ★ Entity の List を取る（Repositoryじゃない）
-        List<TaskSchedule> all = schedules.findByTask_UserId(userId);
+        // ホライズン内は展開済みの task_occurrences を読むだけ
+        if (occurrences.covers(userId, f, t)) {
+            return fromOccurrences(userId, f, t);
+        }
+
+        // ★ Entity の List を取る（task / tags も同時に fetch して N+1 を避ける）
+        List<TaskSchedule> all = schedules.findForCalendar(userId);
+        // memo は LAZY なので別にまとめて引く
+        Set<Long> taskIds = new HashSet<>();
+        for (TaskSchedule sch : all) taskIds.add(sch.getTask().getId());
+        Map<Long, String> memos = queries.memos(taskIds);
 
         // 完了ログ（taskId@date）
         Set<String> done = new HashSet<>();
-        for (TaskCompletionLog log : logs.findByUserIdAndOccurrenceDateBetweenOrderByCompletedAtDesc(userId, f, t)) {
-            done.add(log.getTask().getId() + "@" + log.getOccurrenceDate());
+        for (ReadQueries.CompletionKey c : queries.completions(userId, f, t)) {
+            done.add(c.taskId() + "@" + c.occurrenceDate());
         }
 
-        List<CalendarItem> out = new ArrayList<>();
-        LocalDate cur = f;
-
-        while (!cur.isAfter(t)) {
-            int bit = dowBit(cur.getDayOfWeek());
-
-            for (TaskSchedule sch : all) {
-                if (!matches(sch, cur, bit)) continue;
-
-                Task task = sch.getTask();
-
-                CalendarItem item = new CalendarItem();
-                item.taskId = task.getId();
-                item.title = task.getTitle();
-                item.memo = task.getMemo();
-                item.date = cur;
-                item.completed = done.contains(task.getId() + "@" + cur);
-
-                task.getTags().forEach(tag ->
-                        item.tags.add(new TagDto(tag.getId(), tag.getName(), tag.getColor()))
-                );
+        CalendarExpansionEvent ev = new CalendarExpansionEvent();
+        ev.begin();
 
-                out.add(item);
-            }
-            cur = cur.plusDays(1);
+        List<CalendarItem> out = new ArrayList<>();
+        // 同じタスクのスケジュールが同じ日に重なっても1件（task_occurrences の主キーと同じ扱い）
+        Set<String> seen = new HashSet<>();
+        ScheduleExpander.expand(all, f, t, (sch, day) -> {
+            Task task = sch.getTask();
+            if (!seen.add(task.getId() + "@" + day)) return;
+
+            CalendarItem item = new CalendarItem();
+            item.taskId = task.getId();
+            item.title = task.getTitle();
+            item.memo = memos.get(task.getId());
+            item.date = day;
+            item.completed = done.contains(task.getId() + "@" + day);
+
+            task.getTags().forEach(tag ->
+                    item.tags.add(new TagDto(tag.getId(), tag.getName(), tag.getColor()))
+            );
+
+            out.add(item);
+        });
+
+        if (ev.shouldCommit()) {
+            ev.userId = userId;
+            ev.fromEpochDay = f.toEpochDay();
+            ev.toEpochDay = t.toEpochDay();
+            ev.scheduleCount = all.size();
+            ev.occurrenceCount = out.size();
+            ev.commit();
         }
 
         out.sort(Comparator
@@ -117,22 +129,27 @@ public class CalendarController {
         return out;
     }
 
-    private boolean matches(TaskSchedule sch, LocalDate day, int dowBit) {
-        if (sch.getType() == TaskSchedule.Type.DATE) {
-            return sch.getDate() != null && sch.getDate().equals(day);
-        }
-
-        if (sch.getType() == TaskSchedule.Type.RANGE) {
-            if (sch.getStartDate() == null || sch.getEndDate() == null) return false;
-            return (!day.isBefore(sch.getStartDate()) && !day.isAfter(sch.getEndDate()));
-        }
-
-        if (sch.getType() == TaskSchedule.Type.WEEKLY) {
-            if (sch.getStartDate() == null || sch.getEndDate() == null || sch.getDaysOfWeekMask() == null) return false;
-            if (day.isBefore(sch.getStartDate()) || day.isAfter(sch.getEndDate())) return false;
-            return (sch.getDaysOfWeekMask() & dowBit) != 0;
+    private List<CalendarItem> fromOccurrences(Long userId, LocalDate f, LocalDate t) {
+        List<OccurrenceStore.OccurrenceRow> rows = occurrences.find(userId, f, t);
+
+        Set<Long> taskIds = new HashSet<>();
+        for (OccurrenceStore.OccurrenceRow r : rows) taskIds.add(r.taskId());
+        Map<Long, List<OccurrenceStore.TagRow>> tagsByTask = occurrences.tagsFor(taskIds);
+
+        // 並びは SQL 側で (date, taskId) 済み
+        List<CalendarItem> out = new ArrayList<>(rows.size());
+        for (OccurrenceStore.OccurrenceRow r : rows) {
+            CalendarItem item = new CalendarItem();
+            item.taskId = r.taskId();
+            item.title = r.title();
+            item.memo = r.memo();
+            item.date = r.date();
+            item.completed = r.completed();
+            for (OccurrenceStore.TagRow tag : tagsByTask.getOrDefault(r.taskId(), List.of())) {
+                item.tags.add(new TagDto(tag.id(), tag.name(), tag.color()));
+            }
+            out.add(item);
         }
-
-        return false;
+        return out;
     }
 }
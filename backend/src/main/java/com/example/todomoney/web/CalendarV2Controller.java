@@ -0,0 +1,142 @@
+package com.example.todomoney.web;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.entity.Tag;
+import com.example.todomoney.entity.Task;
+import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.query.ReadQueries;
+import com.example.todomoney.repo.TaskScheduleRepository;
+import com.example.todomoney.service.OccurrenceStore;
+import com.example.todomoney.service.ScheduleExpander;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * カレンダーの列指向版。v1 は発生ごとに title / memo / tags を繰り返すので、
+ * タスクとタグは辞書に1回だけ載せ、発生は平行配列で返す。
+ *
+ * - tasks: taskId → { title, memo, tagIds }
+ * - tags: tagId → { name, color }
+ * - taskId[i], epochDay[i]: i 番目の発生（epochDay 昇順 → taskId 昇順）
+ * - completed: i 番目の発生が完了なら bit i が立つ（byte[]、各バイトは下位ビットから。JSON では base64）。
+ *   長さは常に ceil(発生数 / 8) バイトで、末尾の未完了分も 0 のバイトとして載る
+ */
+@RestController
+@RequestMapping("/api/v2/calendar")
+public class CalendarV2Controller {
+
+    private final TaskScheduleRepository schedules;
+    private final ReadQueries queries;
+    private final OccurrenceStore occurrences;
+
+    public CalendarV2Controller(TaskScheduleRepository schedules, ReadQueries queries,
+            OccurrenceStore occurrences) {
+        this.schedules = schedules;
+        this.queries = queries;
+        this.occurrences = occurrences;
+    }
+
+    public record TaskEntry(String title, String memo, long[] tagIds) {}
+    public record TagEntry(String name, String color) {}
+
+    public record CalendarV2(
+            LocalDate from, LocalDate to,
+            Map<Long, TaskEntry> tasks, Map<Long, TagEntry> tags,
+            long[] taskId, int[] epochDay, byte[] completed
+    ) {}
+
+    @QueryBudget(4)
+    @Transactional(readOnly = true)
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public CalendarV2 get(
+            @RequestParam String from,
+            @RequestParam String to,
+            HttpServletRequest req
+    ) {
+        Long userId = AuthUtil.requireUserId(req);
+
+        LocalDate f = LocalDate.parse(from);
+        LocalDate t = LocalDate.parse(to);
+        if (t.isBefore(f)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must not be before from");
+
+        ColumnarCalendarBuilder builder = new ColumnarCalendarBuilder(f.toEpochDay());
+        Map<Long, TaskEntry> tasks = new LinkedHashMap<>();
+        Map<Long, TagEntry> tags = new LinkedHashMap<>();
+
+        if (occurrences.covers(userId, f, t)) {
+            occurrences.scan(userId, f, t, builder::add);
+            long[] ids = builder.distinctTaskIds();
+            dictionaryFromStore(ids, tasks, tags);
+            return response(f, t, builder.finish(ids), tasks, tags);
+        }
+
+        // ホライズン外：v1 と同じくその場で展開
+        List<TaskSchedule> all = schedules.findForCalendar(userId);
+        // 完了はタスクごとに「from からの日数」のビット
+        long base = f.toEpochDay();
+        Map<Long, BitSet> done = new HashMap<>();
+        for (ReadQueries.CompletionKey c : queries.completions(userId, f, t)) {
+            done.computeIfAbsent(c.taskId(), k -> new BitSet())
+                    .set((int) (c.occurrenceDate().toEpochDay() - base));
+        }
+
+        ScheduleExpander.expandEpochDays(all, f, t, (i, day) -> {
+            long taskId = all.get(i).getTask().getId();
+            BitSet d = done.get(taskId);
+            builder.add(taskId, day, d != null && d.get((int) (day - base)));
+        });
+
+        long[] ids = builder.distinctTaskIds();
+        // memo は LAZY なので、発生のあるタスク分だけまとめて引く
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) idList.add(id);
+        Map<Long, String> memos = queries.memos(idList);
+        for (TaskSchedule sch : all) {
+            Task task = sch.getTask();
+            if (tasks.containsKey(task.getId()) || Arrays.binarySearch(ids, task.getId()) < 0) continue;
+            long[] tagIds = task.getTags().stream().mapToLong(Tag::getId).sorted().toArray();
+            tasks.put(task.getId(), new TaskEntry(task.getTitle(), memos.get(task.getId()), tagIds));
+            for (Tag tag : task.getTags()) tags.putIfAbsent(tag.getId(), new TagEntry(tag.getName(), tag.getColor()));
+        }
+        return response(f, t, builder.finish(ids), tasks, tags);
+    }
+
+    private void dictionaryFromStore(long[] ids, Map<Long, TaskEntry> tasks, Map<Long, TagEntry> tags) {
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) idList.add(id);
+
+        Map<Long, List<OccurrenceStore.TagRow>> tagsByTask = occurrences.tagsFor(idList);
+        for (OccurrenceStore.TaskRow row : occurrences.tasks(idList)) {
+            List<OccurrenceStore.TagRow> rowTags = tagsByTask.getOrDefault(row.id(), List.of());
+            long[] tagIds = new long[rowTags.size()];
+            for (int i = 0; i < tagIds.length; i++) {
+                OccurrenceStore.TagRow tag = rowTags.get(i);
+                tagIds[i] = tag.id();
+                tags.putIfAbsent(tag.id(), new TagEntry(tag.name(), tag.color()));
+            }
+            tasks.put(row.id(), new TaskEntry(row.title(), row.memo(), tagIds));
+        }
+    }
+
+    private static CalendarV2 response(LocalDate f, LocalDate t, ColumnarCalendarBuilder.Columns c,
+            Map<Long, TaskEntry> tasks, Map<Long, TagEntry> tags) {
+        return new CalendarV2(f, t, tasks, tags, c.taskId(), c.epochDay(), c.completed());
+    }
+}
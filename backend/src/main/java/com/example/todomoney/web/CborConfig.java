@@ -0,0 +1,70 @@
+package com.example.todomoney.web;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Accept: application/cbor で返すための設定（JSON 側の ObjectMapper は変えない）。
+ * CBOR では LocalDate を epoch day の整数、Instant を epoch ミリ秒にする。
+ * 対応エンドポイントは produces に APPLICATION_CBOR_VALUE を並べたもの（既定は JSON のまま）。
+ */
+@Configuration
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper());
+    }
+
+    public static ObjectMapper cborMapper() {
+        SimpleModule epochDays = new SimpleModule("epoch-days");
+        epochDays.addSerializer(LocalDate.class, new EpochDaySerializer());
+        epochDays.addDeserializer(LocalDate.class, new EpochDayDeserializer());
+        // 後に登録したモジュールが優先される（JavaTimeModule の LocalDate を上書き）
+        return Jackson2ObjectMapperBuilder.cbor()
+                .modules(new JavaTimeModule(), epochDays)
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .featuresToDisable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
+                .build();
+    }
+
+    static final class EpochDaySerializer extends StdSerializer<LocalDate> {
+        EpochDaySerializer() {
+            super(LocalDate.class);
+        }
+
+        @Override
+        public void serialize(LocalDate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(value.toEpochDay());
+        }
+    }
+
+    static final class EpochDayDeserializer extends StdDeserializer<LocalDate> {
+        EpochDayDeserializer() {
+            super(LocalDate.class);
+        }
+
+        @Override
+        public LocalDate deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NUMBER_INT) return LocalDate.ofEpochDay(p.getLongValue());
+            return LocalDate.parse(p.getValueAsString());
+        }
+    }
+}
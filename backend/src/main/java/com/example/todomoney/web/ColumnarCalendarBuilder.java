@@ -0,0 +1,74 @@
+package com.example.todomoney.web;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * /api/v2/calendar の発生列を、発生ごとのオブジェクトを作らずに組み立てる。
+ * add で (taskId, epochDay, completed) を溜め、finish で (日付, taskId) 順に並べて重複を畳む。
+ *
+ * 並べ替えは (日オフセット << 32 | タスク番号 << 1 | completed) を詰めた long[] の1回のソートで済ませる。
+ * タスク番号は taskId の昇順で振るので、taskId 順と同じになる。
+ */
+final class ColumnarCalendarBuilder {
+
+    private final long baseDay;
+    private long[] taskIds = new long[64];
+    private int[] days = new int[64];
+    private BitSet completed = new BitSet();
+    private int n;
+
+    ColumnarCalendarBuilder(long baseDay) {
+        this.baseDay = baseDay;
+    }
+
+    void add(long taskId, long epochDay, boolean done) {
+        if (n == taskIds.length) {
+            taskIds = Arrays.copyOf(taskIds, n * 2);
+            days = Arrays.copyOf(days, n * 2);
+        }
+        taskIds[n] = taskId;
+        days[n] = (int) (epochDay - baseDay);
+        if (done) completed.set(n);
+        n++;
+    }
+
+    /** 出てきたタスク id（昇順・重複なし）。辞書を引くのに使う。 */
+    long[] distinctTaskIds() {
+        return Arrays.stream(taskIds, 0, n).sorted().distinct().toArray();
+    }
+
+    Columns finish(long[] sortedTaskIds) {
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int taskIndex = Arrays.binarySearch(sortedTaskIds, taskIds[i]);
+            keys[i] = ((long) days[i] << 32) | ((long) taskIndex << 1) | (completed.get(i) ? 1 : 0);
+        }
+        Arrays.sort(keys);
+
+        long[] outTask = new long[n];
+        int[] outDay = new int[n];
+        BitSet outDone = new BitSet(n);
+        int m = 0;
+        long prev = -1;
+        for (long key : keys) {
+            long slot = key >>> 1;
+            if (slot == prev) {
+                // 同じ日に同じタスク（複数スケジュールの重なり）は1件に。完了はどれかが完了なら完了
+                if ((key & 1) != 0) outDone.set(m - 1);
+                continue;
+            }
+            prev = slot;
+            outTask[m] = sortedTaskIds[(int) ((key >>> 1) & 0x7FFF_FFFFL)];
+            outDay[m] = (int) (baseDay + (key >>> 32));
+            if ((key & 1) != 0) outDone.set(m);
+            m++;
+        }
+        // BitSet.toByteArray は末尾の 0 のバイトを落とすので、件数分（ceil(m / 8)）まで埋め直す
+        byte[] done = Arrays.copyOf(outDone.toByteArray(), (m + 7) / 8);
+        return new Columns(Arrays.copyOf(outTask, m), Arrays.copyOf(outDay, m), done);
+    }
+
+    /** completed は常に ceil(taskId.length / 8) バイト。 */
+    record Columns(long[] taskId, int[] epochDay, byte[] completed) {}
+}
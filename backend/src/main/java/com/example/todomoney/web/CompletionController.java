@@ -11,6 +11,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 import com.example.todomoney.entity.Task;
 import com.example.todomoney.entity.TaskCompletionLog;
+import com.example.todomoney.events.UserEvent;
+import com.example.todomoney.events.UserEventHub;
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.observability.AppMetrics;
 import com.example.todomoney.repo.TaskCompletionLogRepository;
 import com.example.todomoney.repo.TaskRepository;
 
@@ -22,17 +28,27 @@ public class CompletionController {
 
     private final TaskRepository tasks;
     private final TaskCompletionLogRepository logs;
+    private final AppMetrics metrics;
+    private final CacheInvalidationBus invalidation;
+    private final UserEventHub events;
 
-    public CompletionController(TaskRepository tasks, TaskCompletionLogRepository logs) {
+    public CompletionController(TaskRepository tasks, TaskCompletionLogRepository logs, AppMetrics metrics,
+            CacheInvalidationBus invalidation, UserEventHub events) {
         this.tasks = tasks;
         this.logs = logs;
+        this.metrics = metrics;
+        this.invalidation = invalidation;
+        this.events = events;
     }
 
+    public record OccurrenceCompletedEvent(long taskId, LocalDate date) {}
+
     public static class CompleteReq {
         public Long taskId;
         public String date; // yyyy-MM-dd
     }
 
+    @QueryBudget(4)
     @PostMapping
     public void complete(@RequestBody CompleteReq body, HttpServletRequest req) {
         Long userId = AuthUtil.requireUserId(req);
@@ -50,5 +66,8 @@ public class CompletionController {
         log.setTask(task);
         log.setOccurrenceDate(d);
         logs.save(log);
+        metrics.occurrenceCompleted();
+        invalidation.publish(Invalidation.of(Scope.COMPLETIONS, userId, task.getId()));
+        events.publish(userId, UserEvent.OCCURRENCE_COMPLETED, new OccurrenceCompletedEvent(task.getId(), d));
     }
 }
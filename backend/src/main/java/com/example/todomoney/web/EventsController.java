@@ -0,0 +1,52 @@
+package com.example.todomoney.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.todomoney.events.UserEventHub;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 本人宛てのイベント（完了・報酬・達成）を SSE で流す。ポーリングの代わりに、受け取ったら該当データだけ取り直す。
+ * EventSource は Authorization ヘッダを付けられないので、クライアントは fetch ベースの SSE 実装で Bearer を付ける。
+ */
+@RestController
+@RequestMapping("/api/events")
+public class EventsController {
+
+    private final UserEventHub hub;
+
+    public EventsController(UserEventHub hub) {
+        this.hub = hub;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            HttpServletRequest req,
+            HttpServletResponse res
+    ) {
+        Long userId = AuthUtil.requireUserId(req);
+        // nginx などのプロキシにバッファさせない
+        res.setHeader("X-Accel-Buffering", "no");
+        res.setHeader("Cache-Control", "no-cache");
+        return hub.subscribe(userId, parseLastEventId(lastEventId));
+    }
+
+    private static Long parseLastEventId(String s) {
+        if (s == null || s.isBlank()) return null;
+        try {
+            return Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Last-Event-ID");
+        }
+    }
+}
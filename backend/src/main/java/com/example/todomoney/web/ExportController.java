@@ -0,0 +1,76 @@
+package com.example.todomoney.web;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.todomoney.export.UserDataExporter;
+import com.example.todomoney.export.UserDataExporter.Export;
+import com.example.todomoney.export.UserDataExporter.Format;
+import com.example.todomoney.export.UserDataExporter.Kind;
+import com.example.todomoney.security.AppPrincipal;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 本人のデータのダウンロード。件数に関わらずメモリを使わずに流す（UserDataExporter）。
+ * gzip=true なら .gz のファイルとして返す（text/csv などは server.compression の対象外）。
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+  private final UserDataExporter exporter;
+
+  public ExportController(UserDataExporter exporter) {
+    this.exporter = exporter;
+  }
+
+  // GET /api/export/{tasks|schedules|completions|currency-events}?format=csv|ndjson&gzip=true
+  @GetMapping("/{kind}")
+  public ResponseEntity<StreamingResponseBody> export(@AuthenticationPrincipal AppPrincipal p,
+      @PathVariable String kind,
+      @RequestParam(defaultValue = "csv") String format,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletRequest request) {
+    Kind k = Kind.of(kind);
+    if (k == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "unknown export: " + kind);
+    Format f = Format.of(format);
+    if (f == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unsupported format: " + format);
+
+    Export body = exporter.open(p.userId(), k, f, gzip);
+    if (body == null) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+    }
+    // 非同期の処理が終わったら（本体が一度も動かなかった場合も）枠を返す。動いた場合は本体が返している
+    WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(body, new CallableProcessingInterceptor() {
+      @Override
+      public <T> void afterCompletion(NativeWebRequest req, Callable<T> task) {
+        body.abandon();
+      }
+    });
+
+    String filename = k.path() + "." + f.extension() + (gzip ? ".gz" : "");
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : f.mediaType()))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+        .header(HttpHeaders.CACHE_CONTROL, "no-store")
+        // nginx などのプロキシにバッファさせない（溜めるとメモリ・ディスクを件数分使う）
+        .header("X-Accel-Buffering", "no")
+        .body(body);
+  }
+}
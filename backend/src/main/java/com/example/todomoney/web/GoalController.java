@@ -1,9 +1,12 @@
 package com.example.todomoney.web;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,18 +15,28 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.example.todomoney.archive.GoalArchiver;
 import com.example.todomoney.entity.Goal;
 import com.example.todomoney.entity.Task;
 import com.example.todomoney.entity.User;
+import com.example.todomoney.events.UserEvent;
+import com.example.todomoney.events.UserEventHub;
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.money.FxRateStore;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.query.ReadQueries;
 import com.example.todomoney.repo.GoalRepository;
 import com.example.todomoney.repo.TaskRepository;
 import com.example.todomoney.repo.UserRepository;
 import com.example.todomoney.security.AppPrincipal;
 
 import jakarta.validation.Valid;
-import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 
 @RestController
 @RequestMapping("/api/goals")
@@ -32,38 +45,52 @@ public class GoalController {
   private final GoalRepository goalRepo;
   private final TaskRepository taskRepo;
   private final UserRepository userRepo;
-
-  public GoalController(GoalRepository goalRepo, TaskRepository taskRepo, UserRepository userRepo) {
+  private final CacheInvalidationBus invalidation;
+  private final ReadQueries queries;
+  private final UserEventHub events;
+  private final FxRateStore fx;
+  private final GoalArchiver archiver;
+
+  public GoalController(GoalRepository goalRepo, TaskRepository taskRepo, UserRepository userRepo,
+      CacheInvalidationBus invalidation, ReadQueries queries, UserEventHub events, FxRateStore fx,
+      GoalArchiver archiver) {
     this.goalRepo = goalRepo;
     this.taskRepo = taskRepo;
     this.userRepo = userRepo;
+    this.invalidation = invalidation;
+    this.queries = queries;
+    this.events = events;
+    this.fx = fx;
+    this.archiver = archiver;
   }
 
-  public record CreateGoalRequest(@NotBlank String title, @NotNull @Min(1) Double annualIncome) {}
+  // annualIncome は10進のまま受けて Money で丸める（double を経由しない）。currency は省略時 USD
+  public record CreateGoalRequest(@NotBlank String title, @NotNull @DecimalMin("1") BigDecimal annualIncome,
+      @Pattern(regexp = "[A-Z]{3}") String currency) {}
   public record AddTaskRequest(@NotBlank String title) {}
 
   public record GoalListItem(
-      long id, String title, double annualIncome, int daysPerYear, boolean achieved,
-      long taskCount, long completedTaskCount, double perTaskReward, double earnedAmount
+      long id, String title, double annualIncome, String currency, int daysPerYear, boolean achieved,
+      long taskCount, long completedTaskCount, double perTaskReward, double earnedAmount, boolean archived
   ) {}
 
   // ★ Entityを返さない：Task用DTO
   public record TaskItem(long id, long goalId, String title, boolean completed) {}
 
   // GET /api/goals/{id}/tasks
-  @GetMapping("/{id}/tasks")
+  @QueryBudget(1)
+  @GetMapping(value = "/{id}/tasks", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
   public List<TaskItem> tasks(@AuthenticationPrincipal AppPrincipal p, @PathVariable long id) {
-    User user = userRepo.findById(p.userId()).orElseThrow();
-    Goal g = goalRepo.findByIdAndUser(id, user)
-        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "goal not found"));
-
-    return taskRepo.findByGoalOrderByIdDesc(g).stream()
-    	    .map(t -> new TaskItem(t.getId(), g.getId(), t.getTitle(), t.isCompleted()))
-    	    .toList();
+    return queries.goalTasks(p.userId(), id)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "goal not found"))
+        .stream()
+        .map(t -> new TaskItem(t.id(), t.goalId(), t.title(), t.completed()))
+        .toList();
   }
 
 
   // POST /api/goals/{id}/tasks
+  @QueryBudget(3)
   @PostMapping("/{id}/tasks")
   public TaskItem addTask(@AuthenticationPrincipal AppPrincipal p, @PathVariable long id, @Valid @RequestBody AddTaskRequest req) {
     User user = userRepo.findById(p.userId()).orElseThrow();
@@ -71,39 +98,54 @@ public class GoalController {
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "goal not found"));
 
     Task t = new Task();
+    t.setUserId(user.getId()); // ★ 無いと tasks.user_id が NULL になり本人からも見えない
     t.setGoal(g);
     t.setTitle(req.title());
     t = taskRepo.save(t);
+    invalidation.publish(Invalidation.of(Scope.TASKS, user.getId(), t.getId()));
 
     return new TaskItem(t.getId(), g.getId(), t.getTitle(), t.isCompleted());
   }
 
+  @QueryBudget(4)
   @PostMapping
   public GoalListItem create(@AuthenticationPrincipal AppPrincipal p, @Valid @RequestBody CreateGoalRequest req) {
     User user = userRepo.findById(p.userId()).orElseThrow();
     Goal g = new Goal();
     g.setUser(user);
     g.setTitle(req.title());
-    g.setAnnualIncome(req.annualIncome());
+    long annualIncome = Money.of(req.annualIncome());
+    if (!Money.storable(annualIncome)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "annualIncome is too large");
+    }
+    g.setAnnualIncome(annualIncome);
+    String currency = req.currency() == null ? "USD" : req.currency();
+    if (!fx.current().supports(currency)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unsupported currency: " + currency);
+    }
+    g.setCurrency(currency);
     g.setDaysPerYear(365);
     g = goalRepo.save(g);
+    invalidation.publish(Invalidation.of(Scope.GOALS, user.getId(), g.getId()));
     return toItem(g);
   }
 
+  // ★ goal ごとに count を2本ずつ投げない（N+1）：件数込みで1クエリ
+  @QueryBudget(1)
   @GetMapping
   public List<GoalListItem> list(@AuthenticationPrincipal AppPrincipal p) {
-    User user = userRepo.findById(p.userId()).orElseThrow();
-    return goalRepo.findByUserOrderByIdDesc(user).stream().map(this::toItem).toList();
+    return queries.goals(p.userId()).stream().map(GoalController::toItem).toList();
   }
 
+  @QueryBudget(1)
   @GetMapping("/{id}")
   public GoalListItem get(@AuthenticationPrincipal AppPrincipal p, @PathVariable long id) {
-    User user = userRepo.findById(p.userId()).orElseThrow();
-    Goal g = goalRepo.findByIdAndUser(id, user)
+    return queries.goal(p.userId(), id)
+        .map(GoalController::toItem)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "goal not found"));
-    return toItem(g);
   }
 
+  @QueryBudget(6)
   @PostMapping("/{id}/achieve")
   public GoalListItem achieve(@AuthenticationPrincipal AppPrincipal p, @PathVariable long id) {
     User user = userRepo.findById(p.userId()).orElseThrow();
@@ -111,20 +153,46 @@ public class GoalController {
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "goal not found"));
     g.setAchieved(true);
     g = goalRepo.save(g);
+    invalidation.publish(Invalidation.of(Scope.GOALS, user.getId(), g.getId()));
+    GoalListItem item = toItem(g);
+    events.publish(user.getId(), UserEvent.GOAL_ACHIEVED, item);
+    return item;
+  }
+
+  // POST /api/goals/{id}/reopen（アーカイブ済みなら明細を戻してから、同じトランザクションで未達成に戻す）
+  @QueryBudget(16)
+  @Transactional
+  @PostMapping("/{id}/reopen")
+  public GoalListItem reopen(@AuthenticationPrincipal AppPrincipal p, @PathVariable long id) {
+    User user = userRepo.findById(p.userId()).orElseThrow();
+    Goal g = goalRepo.findByIdAndUser(id, user)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "goal not found"));
+    archiver.restore(user.getId(), g.getId());
+    g.setAchieved(false);
+    g = goalRepo.save(g);
+    invalidation.publish(Invalidation.of(Scope.GOALS, user.getId(), g.getId()));
     return toItem(g);
   }
 
-  private GoalListItem toItem(Goal g) {
-    long taskCount = taskRepo.countByGoal(g);
-    long doneCount = taskRepo.countByGoalAndCompletedTrue(g);
+  private static GoalListItem toItem(ReadQueries.GoalRow g) {
+    return item(g.id(), g.title(), g.annualIncome(), g.currency(), g.daysPerYear(), g.achieved(),
+        g.taskCount(), g.completedCount(), g.archived());
+  }
 
-    double dailyIncome = g.getAnnualIncome() / g.getDaysPerYear();
-    double perTaskReward = (taskCount == 0) ? 0 : dailyIncome / taskCount;
-    double earned = perTaskReward * doneCount;
+  // エンティティから作るのは作成・達成・再開の直後だけ（アーカイブされていない）
+  private GoalListItem toItem(Goal g) {
+    return item(g.getId(), g.getTitle(), g.getAnnualIncome(), g.getCurrency(), g.getDaysPerYear(), g.isAchieved(),
+        taskRepo.countByGoal(g), taskRepo.countByGoalAndCompletedTrue(g), false);
+  }
 
+  // 計算はセント単位。JSON の数値は従来どおり（double で 13.7 のように出す）
+  private static GoalListItem item(long id, String title, long annualIncome, String currency, int daysPerYear,
+      boolean achieved, long taskCount, long doneCount, boolean archived) {
+    long perTaskReward = Goal.perTaskReward(annualIncome, daysPerYear, taskCount);
     return new GoalListItem(
-        g.getId(), g.getTitle(), g.getAnnualIncome(), g.getDaysPerYear(), g.isAchieved(),
-        taskCount, doneCount, perTaskReward, earned
+        id, title, Money.toDouble(annualIncome), currency, daysPerYear, achieved,
+        taskCount, doneCount, Money.toDouble(perTaskReward), Money.toDouble(Money.times(perTaskReward, doneCount)),
+        archived
     );
   }
 }
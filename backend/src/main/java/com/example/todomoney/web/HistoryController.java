@@ -1,15 +1,16 @@
 package com.example.todomoney.web;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.todomoney.entity.TaskCompletionLog;
-import com.example.todomoney.repo.TaskCompletionLogRepository;
+import com.example.todomoney.query.ReadQueries;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -17,21 +18,25 @@ import jakarta.servlet.http.HttpServletRequest;
 @RequestMapping("/api/history")
 public class HistoryController {
 
-    private final TaskCompletionLogRepository logs;
+    private final ReadQueries queries;
 
-    public HistoryController(TaskCompletionLogRepository logs) {
-        this.logs = logs;
+    public HistoryController(ReadQueries queries) {
+        this.queries = queries;
     }
 
-    @GetMapping
-    public List<TaskCompletionLog> list(
+    // ★ Entity を返すと lazy な task を Jackson が辿ってしまうので DTO で返す
+    public record HistoryItem(Long id, Long taskId, String taskTitle, LocalDate occurrenceDate, Instant completedAt) {}
+
+    @QueryBudget(1)
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public List<HistoryItem> list(
             @RequestParam String from,
             @RequestParam String to,
             HttpServletRequest req
     ) {
         Long userId = AuthUtil.requireUserId(req);
-        return logs.findByUserIdAndOccurrenceDateBetweenOrderByCompletedAtDesc(
-                userId, LocalDate.parse(from), LocalDate.parse(to)
-        );
+        return queries.history(userId, LocalDate.parse(from), LocalDate.parse(to)).stream()
+                .map(l -> new HistoryItem(l.id(), l.taskId(), l.taskTitle(), l.occurrenceDate(), l.completedAt()))
+                .toList();
     }
 }
@@ -1,32 +1,66 @@
 package com.example.todomoney.web;
 
-import com.example.todomoney.repo.CurrencyEventRepository;
-import com.example.todomoney.repo.UserRepository;
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.todomoney.money.FxRateStore;
+import com.example.todomoney.money.FxRates;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.query.ReadQueries;
 import com.example.todomoney.security.AppPrincipal;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/me")
 public class MeController {
 
-  private final CurrencyEventRepository eventRepo;
-  private final UserRepository userRepo;
+  private final ReadQueries queries;
+  private final FxRateStore fx;
 
-  public MeController(CurrencyEventRepository eventRepo, UserRepository userRepo) {
-    this.eventRepo = eventRepo;
-    this.userRepo = userRepo;
+  public MeController(ReadQueries queries, FxRateStore fx) {
+    this.queries = queries;
+    this.fx = fx;
   }
 
-  public record SummaryResponse(double potentialTotal, double achievedTotal, long currencyCount) {}
+  public record CurrencyTotal(String currency, double potentialTotal, double achievedTotal, long currencyCount) {}
+
+  // potentialTotal / achievedTotal は currency に換算した合計（byCurrency が記録された通貨のままの内訳）
+  public record SummaryResponse(double potentialTotal, double achievedTotal, long currencyCount,
+      String currency, LocalDate fxAsOf, List<CurrencyTotal> byCurrency) {}
 
+  // GET /api/me/summary?currency=JPY（既定は USD）
+  @QueryBudget(1)
   @GetMapping("/summary")
-  public SummaryResponse summary(@AuthenticationPrincipal AppPrincipal p) {
-    var user = userRepo.findById(p.userId()).orElseThrow();
-    return new SummaryResponse(
-        eventRepo.sumPotential(user),
-        eventRepo.sumAchieved(user),
-        eventRepo.countAll(user)
-    );
+  public SummaryResponse summary(@AuthenticationPrincipal AppPrincipal p,
+      @RequestParam(defaultValue = "USD") String currency) {
+    // 換算の途中で表が差し替わっても混ざらないよう、参照は1回だけ取る
+    FxRates rates = fx.current();
+    if (!rates.supports(currency)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unsupported currency: " + currency);
+    }
+
+    long potential = 0;
+    long achieved = 0;
+    long count = 0;
+    List<ReadQueries.SummaryRow> rows = queries.summary(p.userId());
+    for (ReadQueries.SummaryRow r : rows) {
+      if (!rates.supports(r.currency())) {
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "no FX rate for " + r.currency());
+      }
+      // 通貨ごとの合計を1回だけ換算して丸める
+      potential = Math.addExact(potential, rates.convert(r.potentialTotal(), r.currency(), currency));
+      achieved = Math.addExact(achieved, rates.convert(r.achievedTotal(), r.currency(), currency));
+      count += r.currencyCount();
+    }
+
+    List<CurrencyTotal> byCurrency = rows.stream()
+        .map(r -> new CurrencyTotal(r.currency(), Money.toDouble(r.potentialTotal()), Money.toDouble(r.achievedTotal()),
+            r.currencyCount()))
+        .toList();
+    return new SummaryResponse(Money.toDouble(potential), Money.toDouble(achieved), count,
+        currency, rates.asOf(), byCurrency);
   }
 }
@@ -0,0 +1,19 @@
+package com.example.todomoney.web;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 1リクエストあたりに発行してよい SQL 文の上限。
+ * 本番では何もしない（テスト側のインターセプタが件数を数えて超過を検出する）。
+ * データ件数に比例して増えない値を宣言すること（N+1 検出用）。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+    int value();
+}
@@ -1,8 +1,13 @@
 package com.example.todomoney.web;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -11,8 +16,14 @@ import org.springframework.web.server.ResponseStatusException;
 
 import com.example.todomoney.entity.Task;
 import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.recurrence.Recurrence;
+import com.example.todomoney.recurrence.RecurrenceRule;
 import com.example.todomoney.repo.TaskRepository;
 import com.example.todomoney.repo.TaskScheduleRepository;
+import com.example.todomoney.service.OccurrenceStore;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -22,23 +33,36 @@ public class ScheduleController {
 
     private final TaskRepository tasks;
     private final TaskScheduleRepository schedules;
+    private final OccurrenceStore occurrences;
+    private final CacheInvalidationBus invalidation;
 
-    public ScheduleController(TaskRepository tasks, TaskScheduleRepository schedules) {
+    public ScheduleController(TaskRepository tasks, TaskScheduleRepository schedules, OccurrenceStore occurrences,
+            CacheInvalidationBus invalidation) {
         this.tasks = tasks;
         this.schedules = schedules;
+        this.occurrences = occurrences;
+        this.invalidation = invalidation;
     }
 
     public static class UpsertScheduleReq {
         public Long taskId;
-        public String type; // DATE / RANGE / WEEKLY
+        public String type; // DATE / RANGE / WEEKLY / RRULE
         public String date; // yyyy-MM-dd
-        public String startDate;
+        public String startDate; // RRULE のときは DTSTART
         public String endDate;
         public Integer daysOfWeekMask; // WEEKLY
+        public String rrule; // RRULE: 例 "FREQ=MONTHLY;BYDAY=-1FR", "FREQ=DAILY;INTERVAL=3;COUNT=10"
+        public List<String> exdates; // yyyy-MM-dd
     }
 
+    // ★ Entity を返すと lazy な task を Jackson が辿ってしまうので DTO で返す
+    public record ScheduleItem(Long id, Long taskId, TaskSchedule.Type type, LocalDate date, LocalDate startDate,
+            LocalDate endDate, Integer daysOfWeekMask, String rrule, List<LocalDate> exdates) {}
+
+    @QueryBudget(7)
+    @Transactional
     @PostMapping("/upsert")
-    public TaskSchedule upsert(@RequestBody UpsertScheduleReq body, HttpServletRequest req) {
+    public ScheduleItem upsert(@RequestBody UpsertScheduleReq body, HttpServletRequest req) {
         Long userId = AuthUtil.requireUserId(req);
 
         Task task = tasks.findByIdAndUserId(body.taskId, userId)
@@ -50,13 +74,63 @@ public class ScheduleController {
 
         sch.setUserId(userId);
         sch.setTask(task);
-        sch.setType(TaskSchedule.Type.valueOf(body.type));
+        sch.setType(parseType(body.type));
 
-        sch.setDate(body.date != null ? LocalDate.parse(body.date) : null);
-        sch.setStartDate(body.startDate != null ? LocalDate.parse(body.startDate) : null);
-        sch.setEndDate(body.endDate != null ? LocalDate.parse(body.endDate) : null);
+        sch.setDate(parseDate(body.date));
+        sch.setStartDate(parseDate(body.startDate));
+        sch.setEndDate(parseDate(body.endDate));
         sch.setDaysOfWeekMask(body.daysOfWeekMask);
+        sch.setExdates(joinExdates(body.exdates));
+
+        // 展開は常に rrule から（旧来の型も同じ規則に直して持つ）
+        if (sch.getType() == TaskSchedule.Type.RRULE) {
+            if (body.rrule == null || sch.getStartDate() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "rrule and startDate are required");
+            }
+            try {
+                sch.setRrule(RecurrenceRule.parse(body.rrule).format());
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        } else {
+            RecurrenceRule legacy = Recurrence.legacyRule(sch);
+            sch.setRrule(legacy != null ? legacy.format() : null);
+        }
+
+        TaskSchedule saved = schedules.save(sch);
+        // 展開済みの task_occurrences もこのタスク分だけ作り直す（同じトランザクション）
+        occurrences.rebuildTask(userId, task.getId());
+        invalidation.publish(Invalidation.of(Scope.SCHEDULES, userId, task.getId()));
+        return new ScheduleItem(saved.getId(), task.getId(), saved.getType(), saved.getDate(), saved.getStartDate(),
+                saved.getEndDate(), saved.getDaysOfWeekMask(), saved.getRrule(),
+                saved.getExdates() == null ? List.of()
+                        : Arrays.stream(saved.getExdates().split(",")).map(LocalDate::parse).toList());
+    }
+
+    private static TaskSchedule.Type parseType(String type) {
+        try {
+            return TaskSchedule.Type.valueOf(type);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid type");
+        }
+    }
+
+    private static LocalDate parseDate(String s) {
+        if (s == null) return null;
+        try {
+            return LocalDate.parse(s);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date: " + s);
+        }
+    }
 
-        return schedules.save(sch);
+    // 重複を除いて昇順で保存（展開時は二分探索で飛ばす）
+    private static String joinExdates(List<String> exdates) {
+        if (exdates == null || exdates.isEmpty()) return null;
+        TreeSet<LocalDate> sorted = new TreeSet<>();
+        for (String s : exdates) {
+            if (s != null) sorted.add(parseDate(s));
+        }
+        return sorted.isEmpty() ? null : String.join(",", sorted.stream().map(LocalDate::toString).toList());
     }
 }
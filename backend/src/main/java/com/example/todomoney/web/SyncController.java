@@ -0,0 +1,48 @@
+package com.example.todomoney.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.sync.SyncService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 差分同期。クライアントは前回の seq を since に渡し、返ってきた seq を次回に使う。
+ * since より後の変更が無ければ 204（本文なし）。hasMore のあいだは続けて取りに来る。
+ * 変更はあったが返す行が残っていない（他人の行・既に消えた行だけ）ときは 200 で空のまま seq だけ進める
+ * （204 にすると since が進まず、同じ範囲を取り直し続ける）。
+ * 初回は since=0 で全件。
+ */
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private final SyncService sync;
+
+    public SyncController(SyncService sync) {
+        this.sync = sync;
+    }
+
+    @QueryBudget(6) // change_log + エンティティ種別ごとに1本
+    @GetMapping
+    public ResponseEntity<SyncService.Delta> get(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "" + SyncService.DEFAULT_LIMIT) int limit,
+            HttpServletRequest req
+    ) {
+        Long userId = AuthUtil.requireUserId(req);
+        if (since < 0 || limit < 1 || limit > SyncService.MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid since/limit");
+        }
+
+        SyncService.Delta delta = sync.since(userId, since, limit);
+        if (delta.seq() == since && !delta.hasMore()) return ResponseEntity.noContent().build();
+        return ResponseEntity.ok(delta);
+    }
+}
@@ -9,6 +9,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.todomoney.entity.Tag;
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.query.ReadQueries;
 import com.example.todomoney.repo.TagRepository;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,15 +22,20 @@ import jakarta.servlet.http.HttpServletRequest;
 public class TagController {
 
     private final TagRepository tags;
+    private final CacheInvalidationBus invalidation;
+    private final ReadQueries queries;
 
-    public TagController(TagRepository tags) {
+    public TagController(TagRepository tags, CacheInvalidationBus invalidation, ReadQueries queries) {
         this.tags = tags;
+        this.invalidation = invalidation;
+        this.queries = queries;
     }
 
+    @QueryBudget(1)
     @GetMapping
-    public List<Tag> list(HttpServletRequest req) {
+    public List<ReadQueries.TagRow> list(HttpServletRequest req) {
         Long userId = AuthUtil.requireUserId(req);
-        return tags.findByUserIdOrderByNameAsc(userId);
+        return queries.tags(userId);
     }
 
     public static class CreateTagReq {
@@ -34,6 +43,7 @@ public class TagController {
         public String color;
     }
 
+    @QueryBudget(1)
     @PostMapping
     public Tag create(@RequestBody CreateTagReq body, HttpServletRequest req) {
         Long userId = AuthUtil.requireUserId(req);
@@ -42,6 +52,8 @@ public class TagController {
         t.setUserId(userId);
         t.setName(body.name);
         t.setColor(body.color);
-        return tags.save(t);
+        Tag saved = tags.save(t);
+        invalidation.publish(Invalidation.of(Scope.TAGS, userId, saved.getId()));
+        return saved;
     }
 }
@@ -23,6 +23,7 @@ public class TaskController {
     this.taskService = taskService;
   }
 
+  @QueryBudget(3)
   @PostMapping
   public TaskService.CreateTaskResponse create(
       @AuthenticationPrincipal AppPrincipal p,
@@ -32,6 +33,7 @@ public class TaskController {
     return taskService.createTask(p.userId(), req);
   }
 
+  @QueryBudget(6)
   @PostMapping("/{taskId}/complete")
   public TaskService.CompleteTaskResponse complete(
       @AuthenticationPrincipal AppPrincipal p,
@@ -41,6 +43,7 @@ public class TaskController {
     return taskService.completeTask(p.userId(), taskId);
   }
 
+  @QueryBudget(5)
   @PostMapping("/{taskId}/archive")
   public void archive(
       @AuthenticationPrincipal AppPrincipal p,
@@ -1,6 +1,7 @@
 package com.example.todomoney.web;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.springframework.http.HttpStatus;
@@ -13,6 +14,10 @@ import org.springframework.web.server.ResponseStatusException;
 
 import com.example.todomoney.entity.Tag;
 import com.example.todomoney.entity.Task;
+import com.example.todomoney.invalidation.CacheInvalidationBus;
+import com.example.todomoney.invalidation.Invalidation;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.observability.jfr.BulkOperationEvent;
 import com.example.todomoney.repo.TagRepository;
 import com.example.todomoney.repo.TaskRepository;
 
@@ -24,33 +29,62 @@ public class TaskTagController {
 
     private final TaskRepository tasks;
     private final TagRepository tags;
+    private final CacheInvalidationBus invalidation;
 
-    public TaskTagController(TaskRepository tasks, TagRepository tags) {
+    public TaskTagController(TaskRepository tasks, TagRepository tags, CacheInvalidationBus invalidation) {
         this.tasks = tasks;
         this.tags = tags;
+        this.invalidation = invalidation;
     }
 
     public static class SetTagsReq {
         public List<Long> tagIds;
     }
 
+    // ★ Entity を返すと lazy な goal.user などを Jackson が辿ってしまうので DTO で返す
+    public record TagItem(Long id, String name, String color) {}
+    public record TaskTagsResponse(Long taskId, List<TagItem> tags) {}
+
+    @QueryBudget(8)
     @PostMapping("/{taskId}/tags")
-    public Task setTags(@PathVariable Long taskId, @RequestBody SetTagsReq body, HttpServletRequest req) {
+    public TaskTagsResponse setTags(@PathVariable Long taskId, @RequestBody SetTagsReq body, HttpServletRequest req) {
         Long userId = AuthUtil.requireUserId(req);
 
-        Task task = tasks.findByIdAndUserId(taskId, userId)
+        Task task = tasks.findWithTagsByIdAndUserId(taskId, userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
+        BulkOperationEvent ev = new BulkOperationEvent();
+        ev.begin();
+
         HashSet<Tag> newTags = new HashSet<>();
-        if (body.tagIds != null) {
-            for (Long tagId : body.tagIds) {
-                Tag tag = tags.findByIdAndUserId(tagId, userId)
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid tagId"));
-                newTags.add(tag);
+        if (body.tagIds != null && !body.tagIds.isEmpty()) {
+            // tag ごとに1件ずつ引かない：まとめて取って件数で所有チェック
+            LinkedHashSet<Long> ids = new LinkedHashSet<>(body.tagIds);
+            if (ids.contains(null)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid tagId");
+            }
+            List<Tag> found = tags.findByUserIdAndIdIn(userId, ids);
+            if (found.size() != ids.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid tagId");
             }
+            newTags.addAll(found);
         }
 
-        task.setTags(newTags);
-        return tasks.save(task);
+        // 集合を差し替えると task_tags を全削除→全挿入になる（change_log のトリガも全行分走る）ので、差分だけ変える。
+        // 同じ永続化コンテキストの Tag は同一インスタンスなので identity の比較で足りる
+        task.getTags().retainAll(newTags);
+        task.getTags().addAll(newTags);
+        Task saved = tasks.save(task);
+        invalidation.publish(Invalidation.of(Scope.TASKS, userId, saved.getId()));
+
+        if (ev.shouldCommit()) {
+            ev.operation = "task.setTags";
+            ev.userId = userId;
+            ev.rows = newTags.size();
+            ev.commit();
+        }
+        return new TaskTagsResponse(saved.getId(), saved.getTags().stream()
+                .map(t -> new TagItem(t.getId(), t.getName(), t.getColor()))
+                .toList());
     }
 }
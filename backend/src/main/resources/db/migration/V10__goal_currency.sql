@@ -0,0 +1,2 @@
+-- ゴールごとの報酬通貨（ISO 4217）。既存のゴールは USD のまま
+ALTER TABLE goals ADD COLUMN IF NOT EXISTS currency varchar(3) NOT NULL DEFAULT 'USD';
@@ -0,0 +1,32 @@
+-- 達成済みゴールのコールドストレージ（archive.GoalArchiver）
+ALTER TABLE goals ADD COLUMN IF NOT EXISTS achieved_at timestamptz;
+UPDATE goals SET achieved_at = now() WHERE achieved AND achieved_at IS NULL;
+
+-- 1ゴール1行。一覧・集計はここの列だけで足りる。
+-- 明細（tasks / task_tags / task_schedules / task_occurrences / currency_events）は payload に
+-- 各表の行をそのまま json_agg したもの（gzip）で持ち、ゴールを再開したら json_populate_recordset で戻す
+CREATE TABLE IF NOT EXISTS goal_archives (
+  goal_id bigint PRIMARY KEY REFERENCES goals(id) ON DELETE CASCADE,
+  user_id bigint NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  currency varchar(16) NOT NULL,
+  task_count int NOT NULL,
+  completed_count int NOT NULL,
+  event_count int NOT NULL,
+  amount_total numeric(14,2) NOT NULL,
+  payload bytea NOT NULL,
+  archived_at timestamptz NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_goal_archives_user ON goal_archives(user_id);
+
+-- 完了ログだけは /api/history が1件ずつ読むので列のまま移す（FK も settled 用の索引も持たない）
+CREATE TABLE IF NOT EXISTS archived_completion_logs (
+  id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  goal_id bigint NOT NULL REFERENCES goal_archives(goal_id) ON DELETE CASCADE,
+  task_id bigint NOT NULL,
+  occurrence_date date NOT NULL,
+  completed_at timestamptz NOT NULL,
+  settled_at timestamptz
+);
+CREATE INDEX IF NOT EXISTS idx_archived_logs_user_date ON archived_completion_logs(user_id, occurrence_date);
+CREATE INDEX IF NOT EXISTS idx_archived_logs_goal ON archived_completion_logs(goal_id);
@@ -0,0 +1,3 @@
+-- /api/history はアーカイブ済みの完了ログにもタスク名を付けて返す（tasks は payload の中なので引けない）。
+-- 既にアーカイブ済みの行は null のまま（ゴールを再開すれば tasks から引ける）
+ALTER TABLE archived_completion_logs ADD COLUMN IF NOT EXISTS task_title varchar(200);
@@ -0,0 +1,6 @@
+-- V5 導入前からある完了ログは精算対象にしない（今の perTaskReward で過去分を遡って入金しない）。
+-- V5 以降に付いた未精算ログは SettlementJob の仕事なので触らない
+UPDATE task_completion_logs
+   SET settled_at = completed_at
+ WHERE settled_at IS NULL
+   AND completed_at < (SELECT installed_on FROM flyway_schema_history WHERE version = '5');
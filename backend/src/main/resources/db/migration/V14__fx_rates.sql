@@ -0,0 +1,6 @@
+-- 管理 API で差し替えた為替表（money.FxRateSync）。ディレクトリ DB に1行だけ置き、起動時と他ノードからの通知で読み直す
+CREATE TABLE IF NOT EXISTS fx_rates (
+  id smallint PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+  body jsonb NOT NULL,
+  updated_at timestamptz NOT NULL DEFAULT now()
+);
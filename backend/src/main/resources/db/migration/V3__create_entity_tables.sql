@@ -0,0 +1,43 @@
+-- これまで ddl-auto=update 任せだったテーブル/カラムを Flyway 管理に寄せる
+-- （既存環境では作成済みなので if not exists で何もしない）
+
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS user_id bigint;
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS memo text;
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS updated_at timestamptz NOT NULL DEFAULT now();
+ALTER TABLE tasks ALTER COLUMN goal_id DROP NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_tasks_user ON tasks(user_id);
+
+CREATE TABLE IF NOT EXISTS tag (
+  id bigserial primary key,
+  user_id bigint,
+  name varchar(255),
+  color varchar(255)
+);
+CREATE INDEX IF NOT EXISTS idx_tag_user ON tag(user_id);
+
+CREATE TABLE IF NOT EXISTS task_tags (
+  task_id bigint not null references tasks(id) on delete cascade,
+  tag_id bigint not null references tag(id) on delete cascade,
+  primary key (task_id, tag_id)
+);
+
+CREATE TABLE IF NOT EXISTS task_schedules (
+  id bigserial primary key,
+  user_id bigint not null,
+  task_id bigint not null references tasks(id) on delete cascade,
+  type varchar(10) not null,
+  date date,
+  start_date date,
+  end_date date,
+  dow_mask int
+);
+CREATE INDEX IF NOT EXISTS idx_schedules_user ON task_schedules(user_id);
+
+CREATE TABLE IF NOT EXISTS task_completion_logs (
+  id bigserial primary key,
+  user_id bigint not null,
+  task_id bigint not null references tasks(id) on delete cascade,
+  occurrence_date date not null,
+  completed_at timestamptz not null default now()
+);
+CREATE INDEX IF NOT EXISTS idx_log_user_date ON task_completion_logs(user_id, occurrence_date);
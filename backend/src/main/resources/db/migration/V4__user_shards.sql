@@ -0,0 +1,8 @@
+-- シャーディングモード用：ユーザーの所属シャード（ディレクトリ DB にだけ意味がある）
+CREATE TABLE IF NOT EXISTS user_shards (
+  user_id bigint primary key,
+  shard varchar(64) not null,
+  state varchar(16) not null default 'ACTIVE',
+  updated_at timestamptz not null default now()
+);
+CREATE INDEX IF NOT EXISTS idx_user_shards_shard ON user_shards(shard);
@@ -0,0 +1,9 @@
+-- カレンダー完了ログの精算（SettlementJob）
+ALTER TABLE task_completion_logs ADD COLUMN IF NOT EXISTS settled_at timestamptz;
+-- 未精算だけを id 順に拾う（精算済みが増えても索引は小さいまま）
+CREATE INDEX IF NOT EXISTS idx_logs_unsettled ON task_completion_logs(id) WHERE settled_at IS NULL;
+
+-- 1ログ1イベント：再実行・並行実行しても二重に入金しない
+ALTER TABLE currency_events ADD COLUMN IF NOT EXISTS completion_log_id bigint
+  REFERENCES task_completion_logs(id) ON DELETE SET NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_events_completion_log ON currency_events(completion_log_id);
@@ -0,0 +1,15 @@
+-- カレンダー用にスケジュールを日付へ展開した結果（ローリングホライズン分だけ持つ）
+CREATE TABLE IF NOT EXISTS task_occurrences (
+  user_id bigint not null,
+  occurrence_date date not null,
+  task_id bigint not null references tasks(id) on delete cascade,
+  primary key (user_id, occurrence_date, task_id)
+);
+CREATE INDEX IF NOT EXISTS idx_occurrences_task ON task_occurrences(task_id);
+
+-- ユーザーごとに task_occurrences が完全な範囲 [valid_from, valid_to]
+CREATE TABLE IF NOT EXISTS occurrence_horizons (
+  user_id bigint primary key,
+  valid_from date not null,
+  valid_to date not null
+);
@@ -0,0 +1,24 @@
+-- 繰り返しを RRULE（RFC 5545 のサブセット）で持つ。旧来の DATE / RANGE / WEEKLY も同じ規則に直しておく
+ALTER TABLE task_schedules ADD COLUMN IF NOT EXISTS rrule varchar(255);
+ALTER TABLE task_schedules ADD COLUMN IF NOT EXISTS exdates text;
+
+-- DATE: その日だけ（DTSTART は date）
+UPDATE task_schedules SET rrule = 'FREQ=DAILY;COUNT=1'
+ WHERE rrule IS NULL AND type = 'DATE' AND date IS NOT NULL;
+
+-- RANGE: 開始〜終了の毎日
+UPDATE task_schedules SET rrule = 'FREQ=DAILY'
+ WHERE rrule IS NULL AND type = 'RANGE' AND start_date IS NOT NULL AND end_date IS NOT NULL;
+
+-- WEEKLY: dow_mask（日=1, 月=2, ... 土=64）→ BYDAY
+UPDATE task_schedules SET rrule = 'FREQ=WEEKLY;BYDAY=' || array_to_string(array_remove(ARRAY[
+    CASE WHEN dow_mask & 2  <> 0 THEN 'MO' END,
+    CASE WHEN dow_mask & 4  <> 0 THEN 'TU' END,
+    CASE WHEN dow_mask & 8  <> 0 THEN 'WE' END,
+    CASE WHEN dow_mask & 16 <> 0 THEN 'TH' END,
+    CASE WHEN dow_mask & 32 <> 0 THEN 'FR' END,
+    CASE WHEN dow_mask & 64 <> 0 THEN 'SA' END,
+    CASE WHEN dow_mask & 1  <> 0 THEN 'SU' END
+  ], NULL), ',')
+ WHERE rrule IS NULL AND type = 'WEEKLY' AND start_date IS NOT NULL AND end_date IS NOT NULL
+   AND dow_mask IS NOT NULL AND dow_mask & 127 <> 0;
@@ -0,0 +1,87 @@
+-- 差分同期（/api/sync）用：ユーザーごとの変更連番と、エンティティごとの最新変更
+CREATE TABLE IF NOT EXISTS user_change_seq (
+  user_id bigint primary key,
+  seq bigint not null
+);
+
+-- 1エンティティ1行（最新の seq だけ持つ）。deleted = true は削除の墓標
+CREATE TABLE IF NOT EXISTS change_log (
+  user_id bigint not null,
+  entity varchar(32) not null,
+  entity_id bigint not null,
+  seq bigint not null,
+  deleted boolean not null default false,
+  primary key (user_id, entity, entity_id)
+);
+CREATE INDEX IF NOT EXISTS idx_change_log_user_seq ON change_log(user_id, seq);
+
+-- 行トリガから呼ぶ。TG_ARGV[0] がエンティティ名。
+-- user_change_seq の行ロックで同じユーザーの書き込みは直列になるので、seq の順＝コミット順になる
+-- （since=N の後にそれより小さい seq が遅れて見える、ということが起きない）。
+CREATE OR REPLACE FUNCTION record_change() RETURNS trigger AS $$
+DECLARE
+  r record;
+  uid bigint;
+  eid bigint;
+  s bigint;
+BEGIN
+  IF TG_OP = 'DELETE' THEN r := OLD; ELSE r := NEW; END IF;
+
+  IF TG_TABLE_NAME = 'task_tags' THEN
+    -- タスク単位の「タグ集合」が変わったことにする（タスクごと消えた場合はタスク側の墓標で足りる）
+    SELECT t.user_id INTO uid FROM tasks t WHERE t.id = r.task_id;
+    eid := r.task_id;
+  ELSE
+    uid := r.user_id;
+    eid := r.id;
+  END IF;
+  IF uid IS NULL THEN RETURN NULL; END IF;
+
+  INSERT INTO user_change_seq AS u (user_id, seq) VALUES (uid, 1)
+    ON CONFLICT (user_id) DO UPDATE SET seq = u.seq + 1
+    RETURNING u.seq INTO s;
+
+  INSERT INTO change_log (user_id, entity, entity_id, seq, deleted)
+    VALUES (uid, TG_ARGV[0], eid, s, TG_OP = 'DELETE' AND TG_TABLE_NAME <> 'task_tags')
+    ON CONFLICT (user_id, entity, entity_id) DO UPDATE SET seq = excluded.seq, deleted = excluded.deleted;
+
+  RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_tasks_change ON tasks;
+CREATE TRIGGER trg_tasks_change AFTER INSERT OR UPDATE OR DELETE ON tasks
+  FOR EACH ROW EXECUTE FUNCTION record_change('task');
+
+DROP TRIGGER IF EXISTS trg_task_schedules_change ON task_schedules;
+CREATE TRIGGER trg_task_schedules_change AFTER INSERT OR UPDATE OR DELETE ON task_schedules
+  FOR EACH ROW EXECUTE FUNCTION record_change('schedule');
+
+DROP TRIGGER IF EXISTS trg_tag_change ON tag;
+CREATE TRIGGER trg_tag_change AFTER INSERT OR UPDATE OR DELETE ON tag
+  FOR EACH ROW EXECUTE FUNCTION record_change('tag');
+
+DROP TRIGGER IF EXISTS trg_task_tags_change ON task_tags;
+CREATE TRIGGER trg_task_tags_change AFTER INSERT OR UPDATE OR DELETE ON task_tags
+  FOR EACH ROW EXECUTE FUNCTION record_change('task_tags');
+
+DROP TRIGGER IF EXISTS trg_task_completion_logs_change ON task_completion_logs;
+CREATE TRIGGER trg_task_completion_logs_change AFTER INSERT OR UPDATE OR DELETE ON task_completion_logs
+  FOR EACH ROW EXECUTE FUNCTION record_change('completion');
+
+-- 既存の行を seq に載せる（初回の since=0 で全件返るように）
+INSERT INTO change_log (user_id, entity, entity_id, seq)
+SELECT user_id, entity, entity_id, row_number() OVER (PARTITION BY user_id ORDER BY entity, entity_id)
+FROM (
+  SELECT user_id, 'task' AS entity, id AS entity_id FROM tasks WHERE user_id IS NOT NULL
+  UNION ALL SELECT user_id, 'schedule', id FROM task_schedules
+  UNION ALL SELECT user_id, 'tag', id FROM tag WHERE user_id IS NOT NULL
+  UNION ALL SELECT DISTINCT t.user_id, 'task_tags', tt.task_id FROM task_tags tt JOIN tasks t ON t.id = tt.task_id
+            WHERE t.user_id IS NOT NULL
+  UNION ALL SELECT user_id, 'completion', id FROM task_completion_logs
+) existing
+ON CONFLICT DO NOTHING;
+
+INSERT INTO user_change_seq (user_id, seq)
+SELECT user_id, max(seq) FROM change_log GROUP BY user_id
+ON CONFLICT (user_id) DO UPDATE SET seq = greatest(user_change_seq.seq, excluded.seq);
@@ -0,0 +1,11 @@
+-- CurrencyEvent の write-behind（app.currency-events.write-behind=true のとき）
+-- 完了処理は同じトランザクションでここに1行足すだけ。OutboxFlusher が id 順にまとめて currency_events へ移す
+CREATE TABLE IF NOT EXISTS currency_event_outbox (
+  id bigserial PRIMARY KEY,
+  user_id bigint NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  goal_id bigint NOT NULL REFERENCES goals(id) ON DELETE CASCADE,
+  task_id bigint NULL REFERENCES tasks(id) ON DELETE SET NULL,
+  currency varchar(16) NOT NULL,
+  amount numeric(12,2) NOT NULL,
+  created_at timestamptz NOT NULL DEFAULT now()
+);
@@ -0,0 +1,237 @@
+package com.example.todomoney.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.query.ReadQueries;
+import com.example.todomoney.service.OccurrenceStore;
+
+/**
+ * 達成済みゴールをアーカイブして戻すと、明細の行が id も含めてそのまま戻り、発生日は展開し直されること。
+ * アーカイブ中も戻した後も /api/me/summary と /api/history の元になる集計・一覧は変わらないこと。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.occurrences.enabled=true",
+    "app.occurrences.days-back=31",
+    "app.occurrences.days-ahead=90",
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+class GoalArchiverTests {
+
+  private static final LocalDate TODAY = LocalDate.now();
+  private static final Duration MIN_AGE = Duration.ofDays(30);
+
+  @Autowired GoalArchiver archiver;
+  @Autowired OccurrenceStore occurrences;
+  @Autowired ReadQueries queries;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+
+  private long userId;
+  private long goalId;
+  private long taskId;
+
+  @BeforeEach
+  void seed() {
+    userId = id("insert into users(email, password_hash) values (?, 'x') returning id",
+        "archive-" + UUID.randomUUID() + "@example.com");
+    goalId = id("""
+        insert into goals(user_id, title, annual_income, achieved, achieved_at)
+        values (?, 'goal', 1000000, true, now() - interval '40 days') returning id
+        """, userId);
+    long tagId = id("insert into tag(user_id, name, color) values (?, 'tag', '#000000') returning id", userId);
+
+    taskId = id("insert into tasks(user_id, goal_id, title, memo) values (?, ?, 'daily', 'memo') returning id",
+        userId, goalId);
+    long doneId = id("""
+        insert into tasks(user_id, goal_id, title, completed, completed_at)
+        values (?, ?, 'done', true, now() - interval '41 days') returning id
+        """, userId, goalId);
+    jdbc.update("insert into task_tags(task_id, tag_id) values (?, ?), (?, ?)", taskId, tagId, doneId, tagId);
+    jdbc.update("""
+        insert into task_schedules(user_id, task_id, type, start_date, end_date) values (?, ?, 'RANGE', ?, ?)
+        """, userId, taskId, TODAY.minusDays(5), TODAY.plusDays(5));
+
+    // 精算済みの完了ログ2件と、そのイベント。タスク完了のイベントはログなし
+    long logId = id("""
+        insert into task_completion_logs(user_id, task_id, occurrence_date, completed_at, settled_at)
+        values (?, ?, ?, now() - interval '2 days', now() - interval '1 day') returning id
+        """, userId, taskId, TODAY.minusDays(2));
+    long logId2 = id("""
+        insert into task_completion_logs(user_id, task_id, occurrence_date, completed_at, settled_at)
+        values (?, ?, ?, now() - interval '1 day', now()) returning id
+        """, userId, taskId, TODAY.minusDays(1));
+    jdbc.update("""
+        insert into currency_events(user_id, goal_id, task_id, currency, amount, completion_log_id)
+        values (?, ?, ?, 'USD', 12.34, ?), (?, ?, ?, 'USD', 12.34, ?), (?, ?, ?, 'USD', 5.00, null)
+        """, userId, goalId, taskId, logId, userId, goalId, taskId, logId2, userId, goalId, doneId);
+
+    inTx(() -> occurrences.rebuildTask(userId, taskId));
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbc.update("delete from goal_archives where user_id = ?", userId);
+    jdbc.update("delete from currency_event_outbox where user_id = ?", userId);
+    jdbc.update("delete from currency_events where user_id = ?", userId);
+    jdbc.update("delete from task_occurrences where user_id = ?", userId);
+    jdbc.update("delete from occurrence_horizons where user_id = ?", userId);
+    jdbc.update("delete from tasks where user_id = ?", userId);
+    jdbc.update("delete from tag where user_id = ?", userId);
+    jdbc.update("delete from goals where user_id = ?", userId);
+    jdbc.update("delete from change_log where user_id = ?", userId);
+    jdbc.update("delete from user_change_seq where user_id = ?", userId);
+    jdbc.update("delete from users where id = ?", userId);
+  }
+
+  @Test
+  void archiveThenRestoreGivesBackTheSameRows() {
+    Map<String, List<String>> before = rows();
+    List<ReadQueries.SummaryRow> summary = queries.summary(userId);
+    List<ReadQueries.HistoryRow> history = history();
+    assertThat(before.get("task_occurrences")).hasSize(11);
+
+    GoalArchiver.Archived archived = archiver.archive(goalId, MIN_AGE);
+    assertThat(archived).isNotNull();
+    assertThat(archived.tasks()).isEqualTo(2);
+    assertThat(rows().values()).allMatch(List::isEmpty);
+    assertThat(jdbc.queryForMap(
+            "select task_count, completed_count, event_count, amount_total from goal_archives where goal_id = ?", goalId))
+        .containsEntry("task_count", 2)
+        .containsEntry("completed_count", 1)
+        .containsEntry("event_count", 3)
+        .hasEntrySatisfying("amount_total", v -> assertThat(v.toString()).isEqualTo("29.68"));
+    // アーカイブ中も集計・履歴は同じ
+    assertThat(queries.summary(userId)).isEqualTo(summary);
+    assertThat(history()).isEqualTo(history);
+
+    assertThat(archiver.restore(userId, goalId)).isTrue();
+
+    assertThat(rows()).isEqualTo(before);
+    assertThat(jdbc.queryForObject("select count(*) from goal_archives where goal_id = ?", Integer.class, goalId))
+        .isZero();
+    assertThat(jdbc.queryForObject("select count(*) from archived_completion_logs where goal_id = ?", Integer.class,
+        goalId)).isZero();
+    assertThat(queries.summary(userId)).isEqualTo(summary);
+    assertThat(history()).isEqualTo(history);
+    assertThat(archiver.restore(userId, goalId)).isFalse();
+  }
+
+  @Test
+  void skipsGoalsWithUnsettledLogsOrOutboxRows() {
+    Map<String, List<String>> before = rows();
+
+    long unsettled = id("""
+        insert into task_completion_logs(user_id, task_id, occurrence_date) values (?, ?, ?) returning id
+        """, userId, taskId, TODAY);
+    assertThat(archiver.archive(goalId, MIN_AGE)).isNull();
+    jdbc.update("delete from task_completion_logs where id = ?", unsettled);
+
+    jdbc.update("""
+        insert into currency_event_outbox(user_id, goal_id, task_id, currency, amount) values (?, ?, ?, 'USD', 1.00)
+        """, userId, goalId, taskId);
+    assertThat(archiver.archive(goalId, MIN_AGE)).isNull();
+    jdbc.update("delete from currency_event_outbox where user_id = ?", userId);
+
+    // 達成から min-age 経っていないゴールも移さない
+    assertThat(archiver.archive(goalId, Duration.ofDays(60))).isNull();
+
+    // 何も消えていない
+    assertThat(jdbc.queryForObject("select count(*) from goal_archives where goal_id = ?", Integer.class, goalId))
+        .isZero();
+    assertThat(rows()).isEqualTo(before);
+
+    // 条件が揃えば移せる
+    assertThat(archiver.archive(goalId, MIN_AGE)).isNotNull();
+  }
+
+  @Test
+  void candidatesLeaveOutGoalsThatArchiveWouldSkip() {
+    // 後ろに並ぶ、すぐ移せるゴール
+    long later = id("""
+        insert into goals(user_id, title, annual_income, achieved, achieved_at)
+        values (?, 'later', 1000000, true, now() - interval '35 days') returning id
+        """, userId);
+    assertThat(archiver.candidates(MIN_AGE, Integer.MAX_VALUE)).contains(goalId, later);
+
+    long unsettled = id("""
+        insert into task_completion_logs(user_id, task_id, occurrence_date) values (?, ?, ?) returning id
+        """, userId, taskId, TODAY);
+    assertThat(archiver.candidates(MIN_AGE, Integer.MAX_VALUE)).doesNotContain(goalId).contains(later);
+    jdbc.update("delete from task_completion_logs where id = ?", unsettled);
+
+    jdbc.update("""
+        insert into currency_event_outbox(user_id, goal_id, task_id, currency, amount) values (?, ?, ?, 'USD', 1.00)
+        """, userId, goalId, taskId);
+    assertThat(archiver.candidates(MIN_AGE, Integer.MAX_VALUE)).doesNotContain(goalId).contains(later);
+    jdbc.update("delete from currency_event_outbox where user_id = ?", userId);
+
+    long yen = id("""
+        insert into currency_events(user_id, goal_id, task_id, currency, amount) values (?, ?, ?, 'JPY', 100) returning id
+        """, userId, goalId, taskId);
+    assertThat(archiver.candidates(MIN_AGE, Integer.MAX_VALUE)).doesNotContain(goalId).contains(later);
+    jdbc.update("delete from currency_events where id = ?", yen);
+
+    assertThat(archiver.candidates(MIN_AGE, Integer.MAX_VALUE)).contains(goalId, later);
+  }
+
+  // ゴールの明細（アーカイブで消えて、戻すと戻る行）を表ごとに JSON で
+  private Map<String, List<String>> rows() {
+    Map<String, List<String>> out = new LinkedHashMap<>();
+    out.put("tasks", json("select row_to_json(x)::text from tasks x where x.goal_id = ? order by x.id"));
+    out.put("task_tags", json("""
+        select row_to_json(x)::text from task_tags x join tasks t on t.id = x.task_id
+        where t.goal_id = ? order by x.task_id, x.tag_id
+        """));
+    out.put("task_schedules", json("""
+        select row_to_json(x)::text from task_schedules x join tasks t on t.id = x.task_id
+        where t.goal_id = ? order by x.id
+        """));
+    out.put("task_completion_logs", json("""
+        select row_to_json(x)::text from task_completion_logs x join tasks t on t.id = x.task_id
+        where t.goal_id = ? order by x.id
+        """));
+    out.put("currency_events", json("select row_to_json(x)::text from currency_events x where x.goal_id = ? order by x.id"));
+    out.put("task_occurrences", json("""
+        select row_to_json(x)::text from task_occurrences x join tasks t on t.id = x.task_id
+        where t.goal_id = ? order by x.occurrence_date, x.task_id
+        """));
+    return out;
+  }
+
+  private List<String> json(String sql) {
+    return jdbc.queryForList(sql, String.class, goalId);
+  }
+
+  private List<ReadQueries.HistoryRow> history() {
+    return queries.history(userId, TODAY.minusDays(30), TODAY).stream()
+        .sorted(Comparator.comparing(ReadQueries.HistoryRow::id))
+        .toList();
+  }
+
+  private long id(String sql, Object... args) {
+    return jdbc.queryForObject(sql, Long.class, args);
+  }
+
+  private void inTx(Runnable work) {
+    new TransactionTemplate(txManager).executeWithoutResult(s -> work.run());
+  }
+}
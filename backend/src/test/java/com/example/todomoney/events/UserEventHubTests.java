@@ -0,0 +1,230 @@
+package com.example.todomoney.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.todomoney.observability.AppMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 購読者ごとのキュー・リプレイ・複数接続の扱い。SseEmitter は送った内容を記録するものに差し替える
+class UserEventHubTests {
+
+  private static final long USER = 42;
+  private static final int QUEUE = 4;
+  private static final int REPLAY = 3;
+  private static final int MAX_PER_USER = 2;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+  private final UserEventHub hub = new UserEventHub(new AppMetrics(registry), registry,
+      QUEUE, REPLAY, MAX_PER_USER, 60_000, 60_000, 60_000) {
+    @Override
+    SseEmitter newEmitter(long timeoutMs) {
+      RecordingEmitter e = new RecordingEmitter();
+      emitters.add(e);
+      return e;
+    }
+  };
+
+  @AfterEach
+  void stop() {
+    for (RecordingEmitter e : emitters) e.release();
+  }
+
+  @Test
+  void replaysEventsAfterLastEventId() {
+    RecordingEmitter first = subscribe(null);
+    for (int i = 0; i < 3; i++) hub.dispatch(USER, "task.completed", Map.of("n", i));
+    await(() -> first.sent.size() == 3);
+    List<Long> ids = first.ids();
+
+    // 1件目まで受け取ったところで切れた想定
+    RecordingEmitter resumed = subscribe(ids.get(0));
+    await(() -> resumed.sent.size() == 2);
+    assertThat(resumed.ids()).containsExactly(ids.get(1), ids.get(2));
+    assertThat(resumed.types()).doesNotContain(UserEvent.RESYNC);
+  }
+
+  @Test
+  void sendsResyncWhenLastEventIdFellOutOfReplay() {
+    RecordingEmitter first = subscribe(null);
+    for (int i = 0; i < REPLAY + 2; i++) hub.dispatch(USER, "task.completed", Map.of("n", i));
+    await(() -> first.sent.size() == REPLAY + 2);
+    List<Long> ids = first.ids();
+
+    RecordingEmitter resumed = subscribe(ids.get(0));
+    await(() -> resumed.sent.size() == 1 + REPLAY);
+    assertThat(resumed.types().get(0)).isEqualTo(UserEvent.RESYNC);
+    assertThat(resumed.ids().subList(1, 1 + REPLAY)).isEqualTo(ids.subList(2, 2 + REPLAY));
+  }
+
+  @Test
+  void overflowDropsOldestAndCounts() throws InterruptedException {
+    RecordingEmitter slow = subscribe(null);
+    slow.block();
+
+    // 1件目の送信で止まっている間に QUEUE + 2 件積む → 古い2件が捨てられる
+    hub.dispatch(USER, "task.completed", Map.of("n", 0));
+    assertThat(slow.entered.await(5, TimeUnit.SECONDS)).isTrue();
+    for (int i = 1; i <= QUEUE + 2; i++) hub.dispatch(USER, "task.completed", Map.of("n", i));
+
+    assertThat(registry.get("todomoney.events.dropped").counter().count()).isEqualTo(2.0);
+
+    slow.release();
+    await(() -> slow.sent.size() == 1 + QUEUE);
+    assertThat(slow.data()).containsExactly("{n=0}", "{n=3}", "{n=4}", "{n=5}", "{n=6}");
+  }
+
+  @Test
+  void everySubscriberOfTheUserGetsTheEventAndOldestIsClosedBeyondLimit() {
+    RecordingEmitter a = subscribe(null);
+    RecordingEmitter b = subscribe(null);
+    hub.dispatch(USER, "task.completed", Map.of("n", 1));
+    hub.dispatch(USER + 1, "task.completed", Map.of("n", 99)); // 他人宛ては届かない
+    await(() -> a.sent.size() == 1 && b.sent.size() == 1);
+    assertThat(a.ids()).isEqualTo(b.ids());
+    assertThat(hub.subscriberCount(USER)).isEqualTo(2);
+
+    RecordingEmitter c = subscribe(null);
+    assertThat(hub.subscriberCount(USER)).isEqualTo(MAX_PER_USER);
+    hub.dispatch(USER, "task.completed", Map.of("n", 2));
+    await(() -> b.sent.size() == 2 && c.sent.size() == 1);
+    assertThat(a.sent).hasSize(1);
+  }
+
+  @Test
+  void subscribeRacingTheLastDisconnectIsNotLost() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      for (int round = 0; round < 2_000; round++) {
+        long user = 1_000 + round;
+        hub.subscribe(user, null);
+        RecordingEmitter leaving = emitters.get(emitters.size() - 1);
+
+        // 唯一の購読者が抜けてリストが外れるのと、新しい購読が同時に来る
+        CyclicBarrier start = new CyclicBarrier(2);
+        Future<?> disconnect = pool.submit(() -> {
+          start.await();
+          leaving.disconnect();
+          return null;
+        });
+        Future<?> join = pool.submit(() -> {
+          start.await();
+          hub.subscribe(user, null);
+          return null;
+        });
+        disconnect.get(5, TimeUnit.SECONDS);
+        join.get(5, TimeUnit.SECONDS);
+
+        assertThat(hub.subscriberCount(user)).as("round %d", round).isEqualTo(1);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // 残った購読者には配られる
+    RecordingEmitter last = emitters.get(emitters.size() - 1);
+    hub.dispatch(1_000 + 1_999, "task.completed", Map.of("n", 1));
+    await(() -> last.sent.size() == 1);
+  }
+
+  private RecordingEmitter subscribe(Long lastEventId) {
+    hub.subscribe(USER, lastEventId);
+    return emitters.get(emitters.size() - 1);
+  }
+
+  private static void await(BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) throw new AssertionError("timed out");
+      Thread.onSpinWait();
+    }
+  }
+
+  // 送った id / event 名 / data を記録する。block() の間は送信で止まる（遅いクライアント）
+  private static final class RecordingEmitter extends SseEmitter {
+    private static final Pattern ID = Pattern.compile("id:(\\d+)\\nevent:(\\S+)\\n");
+
+    final List<String[]> sent = new CopyOnWriteArrayList<>();
+    final CountDownLatch entered = new CountDownLatch(1);
+    private volatile CountDownLatch gate;
+    private volatile Runnable onCompletion = () -> { };
+
+    // ハンドラに繋いでいないので、切断は登録された onCompletion を直接呼んで再現する
+    @Override
+    public void onCompletion(Runnable callback) {
+      onCompletion = callback;
+      super.onCompletion(callback);
+    }
+
+    void disconnect() {
+      onCompletion.run();
+    }
+
+    void block() {
+      gate = new CountDownLatch(1);
+    }
+
+    void release() {
+      CountDownLatch g = gate;
+      if (g != null) g.countDown();
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      StringBuilder text = new StringBuilder();
+      Object data = null;
+      for (ResponseBodyEmitter.DataWithMediaType d : builder.build()) {
+        // id: / event: / data: の行は text/plain、本文はそのままのオブジェクトで来る
+        if (MediaType.TEXT_PLAIN.equals(d.getMediaType()) && d.getData() instanceof String s) text.append(s);
+        else data = d.getData();
+      }
+      Matcher m = ID.matcher(text);
+      if (!m.find()) return; // ハートビート
+      entered.countDown();
+      CountDownLatch g = gate;
+      if (g != null) {
+        try {
+          g.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      sent.add(new String[] { m.group(1), m.group(2), String.valueOf(data) });
+    }
+
+    List<Long> ids() {
+      List<Long> out = new ArrayList<>();
+      for (String[] s : sent) out.add(Long.parseLong(s[0]));
+      return out;
+    }
+
+    List<String> types() {
+      return sent.stream().map(s -> s[1]).toList();
+    }
+
+    List<String> data() {
+      return sent.stream().map(s -> s[2]).toList();
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.example.todomoney.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.archive.GoalArchiver;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.export.UserDataExporter.Format;
+import com.example.todomoney.export.UserDataExporter.Kind;
+import com.example.todomoney.repo.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * エクスポート中の保持ヒープが件数に比例しないことを見る。途中（出力の半分）で GC して、開始前との差を測る。
+ * 既定は 20 万行。-Dexport.rows=5000000 で 500 万行のユーザーでも同じことを確かめられる（500 万行ではまだ流していない）。
+ * 同時実行の枠が、本体が動かずに終わった場合も含めて必ず1回だけ返ることも見る。
+ * アーカイブ済みの行（payload の JSON）とライブの行で日時の表記が同じになることも見る。
+ */
+@SpringBootTest(classes = BackendApplication.class)
+class UserDataExporterMeasurementTests {
+
+  private static final int ROWS = Integer.getInteger("export.rows", 200_000);
+  private static final long MAX_RETAINED = 16L * 1024 * 1024;
+
+  @Autowired UserDataExporter exporter;
+  @Autowired UserRepository users;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired GoalArchiver archiver;
+  @Autowired ObjectMapper json;
+
+  private long userId;
+
+  @BeforeEach
+  void seed() {
+    User u = new User();
+    u.setEmail("export-" + UUID.randomUUID() + "@example.com");
+    u.setPasswordHash("x");
+    userId = users.save(u).getId();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbc.update("delete from tasks where user_id = ?", userId);
+    jdbc.update("delete from goal_archives where user_id = ?", userId);
+    jdbc.update("delete from goals where user_id = ?", userId);
+    jdbc.update("delete from change_log where user_id = ?", userId);
+    jdbc.update("delete from user_change_seq where user_id = ?", userId);
+    users.deleteById(userId);
+  }
+
+  @Test
+  void retainedHeapStaysFlat() throws Exception {
+    jdbc.update("""
+        insert into tasks(user_id, title, memo, completed, archived, created_at, updated_at)
+        select ?, 'task ' || i, repeat('memo ', 10), i % 3 = 0, false, now(), now()
+        from generate_series(1, ?) i
+        """, userId, ROWS);
+
+    // CSV で1行 150 バイト前後。少なめに見積もって、必ず出力の途中で測る
+    long expectedBytes = ROWS * 90L;
+    HalfwayProbe out = new HalfwayProbe(expectedBytes / 2);
+
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.gc();
+    long before = memory.getHeapMemoryUsage().getUsed();
+
+    UserDataExporter.Export body = exporter.open(userId, Kind.TASKS, Format.CSV, false);
+    assertThat(body).isNotNull();
+    body.writeTo(out);
+
+    assertThat(out.probed).isTrue();
+    assertThat(out.heapAtProbe - before).isLessThan(MAX_RETAINED);
+  }
+
+  @Test
+  void slotIsReturnedOnceWhetherTheBodyRunsOrNot() throws Exception {
+    // app.export.max-concurrent は既定の 2
+    UserDataExporter.Export a = exporter.open(userId, Kind.TASKS, Format.CSV, false);
+    UserDataExporter.Export b = exporter.open(userId, Kind.TASKS, Format.CSV, false);
+    assertThat(a).isNotNull();
+    assertThat(b).isNotNull();
+    assertThat(exporter.open(userId, Kind.TASKS, Format.CSV, false)).isNull();
+
+    // 本体が動かなかった（非同期の実行を断られた・dispatch 前に切断された）
+    a.abandon();
+    a.abandon();
+    UserDataExporter.Export c = exporter.open(userId, Kind.TASKS, Format.CSV, false);
+    assertThat(c).isNotNull();
+    assertThat(exporter.open(userId, Kind.TASKS, Format.CSV, false)).isNull();
+    assertThatThrownBy(() -> a.writeTo(OutputStream.nullOutputStream())).isInstanceOf(IllegalStateException.class);
+
+    // 流し終えた後の abandon（非同期の完了通知）では二重に返さない
+    b.writeTo(OutputStream.nullOutputStream());
+    b.abandon();
+    UserDataExporter.Export d = exporter.open(userId, Kind.TASKS, Format.CSV, false);
+    assertThat(d).isNotNull();
+    assertThat(exporter.open(userId, Kind.TASKS, Format.CSV, false)).isNull();
+
+    c.abandon();
+    d.abandon();
+  }
+
+  @Test
+  void archivedAndLiveRowsFormatTimestampsTheSame() throws Exception {
+    long archivedGoal = jdbc.queryForObject("""
+        insert into goals(user_id, title, annual_income, achieved, achieved_at)
+        values (?, 'archived', 1000000, true, now() - interval '1 day') returning id
+        """, Long.class, userId);
+    long liveGoal = jdbc.queryForObject(
+        "insert into goals(user_id, title, annual_income) values (?, 'live', 1000000) returning id", Long.class, userId);
+    // +09:00 で、秒ちょうど（OffsetDateTime.toString だと秒が落ちる）と端数ありの時刻
+    for (long goalId : List.of(archivedGoal, liveGoal)) {
+      jdbc.update("""
+          insert into tasks(user_id, goal_id, title, created_at, updated_at)
+          values (?, ?, 'task', '2026-01-02 03:04:00+09', '2026-01-02 03:04:05.5+09')
+          """, userId, goalId);
+    }
+    assertThat(archiver.archive(archivedGoal, Duration.ZERO)).isNotNull();
+
+    UserDataExporter.Export body = exporter.open(userId, Kind.TASKS, Format.NDJSON, false);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    body.writeTo(out);
+
+    List<JsonNode> rows = new ArrayList<>();
+    for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) rows.add(json.readTree(line));
+    assertThat(rows).extracting(r -> r.get("goal_archived").asBoolean()).containsExactlyInAnyOrder(true, false);
+    assertThat(rows).allSatisfy(r -> {
+      assertThat(r.get("created_at").asText()).isEqualTo("2026-01-01T18:04:00.000000Z");
+      assertThat(r.get("updated_at").asText()).isEqualTo("2026-01-01T18:04:05.500000Z");
+    });
+  }
+
+  // 書かれたバイト数を数えるだけ（中身は捨てる）。threshold を越えたところで1回だけ GC してヒープを測る
+  private static final class HalfwayProbe extends OutputStream {
+    private final long threshold;
+    long bytes;
+    boolean probed;
+    long heapAtProbe;
+
+    HalfwayProbe(long threshold) {
+      this.threshold = threshold;
+    }
+
+    @Override
+    public void write(int b) {
+      count(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count(len);
+    }
+
+    private void count(int n) {
+      bytes += n;
+      if (!probed && bytes >= threshold) {
+        probed = true;
+        System.gc();
+        heapAtProbe = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+      }
+    }
+  }
+}
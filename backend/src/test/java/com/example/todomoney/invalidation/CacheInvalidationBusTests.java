@@ -0,0 +1,171 @@
+package com.example.todomoney.invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.Tag;
+import com.example.todomoney.invalidation.Invalidation.Scope;
+import com.example.todomoney.repo.TagRepository;
+
+/**
+ * 同じローカル DB に2つのアプリコンテキスト（＝2ノード）を立てて、NOTIFY 経由の無効化を確認する。
+ */
+class CacheInvalidationBusTests {
+
+    static ConfigurableApplicationContext nodeA;
+    static ConfigurableApplicationContext nodeB;
+
+    static final long TAG_USER = 44L;
+
+    static final Recorder recorderA = new Recorder();
+    static final Recorder recorderB = new Recorder();
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+        nodeA.getBean(CacheInvalidationBus.class).addHandler(recorderA);
+        nodeB.getBean(CacheInvalidationBus.class).addHandler(recorderB);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeA != null) nodeA.close();
+        if (nodeB != null) nodeB.close();
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.invalidation.enabled=true",
+                        "app.invalidation.reconnect-backoff-ms=100")
+                .run();
+    }
+
+    @BeforeEach
+    void reset() {
+        recorderA.clear();
+        recorderB.clear();
+    }
+
+    // アサーションで落ちても行が残らないように
+    @AfterEach
+    void cleanUp() {
+        JdbcTemplate jdbc = nodeA.getBean(JdbcTemplate.class);
+        jdbc.update("delete from tag where user_id = ?", TAG_USER);
+        jdbc.update("delete from change_log where user_id = ?", TAG_USER);
+        jdbc.update("delete from user_change_seq where user_id = ?", TAG_USER);
+    }
+
+    @Test
+    void otherNodeReceivesAndOwnNodeSkips() {
+        nodeA.getBean(CacheInvalidationBus.class).publish(Invalidation.of(Scope.TAGS, 42L, 7L));
+
+        await(() -> recorderB.received.contains(Invalidation.of(Scope.TAGS, 42L, 7L)));
+        assertThat(recorderA.received).isEmpty();
+    }
+
+    @Test
+    void duplicatesAreCoalesced() {
+        CacheInvalidationBus bus = nodeA.getBean(CacheInvalidationBus.class);
+        for (int i = 0; i < 500; i++) {
+            bus.publish(Invalidation.of(Scope.TASKS, 43L, 1L));
+        }
+        bus.publish(Invalidation.of(Scope.SCHEDULES, 43L));
+
+        await(() -> recorderB.received.contains(Invalidation.of(Scope.SCHEDULES, 43L, null)));
+        long copies = recorderB.received.stream()
+                .filter(i -> i.equals(Invalidation.of(Scope.TASKS, 43L, 1L)))
+                .count();
+        // flush 間隔ごとに高々1件（ループ中に flush を跨いでもせいぜい数件）
+        assertThat(copies).isBetween(1L, 5L);
+    }
+
+    @Test
+    void secondLevelCacheIsEvictedOnOtherNode() {
+        TagRepository tagsA = nodeA.getBean(TagRepository.class);
+        TagRepository tagsB = nodeB.getBean(TagRepository.class);
+
+        Tag t = new Tag();
+        t.setUserId(TAG_USER);
+        t.setName("before");
+        t.setColor("#000000");
+        t = tagsA.save(t);
+        long id = t.getId();
+
+        // B の2次キャッシュに載せる
+        assertThat(tagsB.findById(id)).get().extracting(Tag::getName).isEqualTo("before");
+
+        t.setName("after");
+        tagsA.save(t);
+        nodeA.getBean(CacheInvalidationBus.class).publish(Invalidation.of(Scope.TAGS, TAG_USER, id));
+
+        await(() -> "after".equals(tagsB.findById(id).map(Tag::getName).orElse(null)));
+    }
+
+    @Test
+    void reconnectFlushesEverything() {
+        CacheInvalidationBus busB = nodeB.getBean(CacheInvalidationBus.class);
+        JdbcTemplate jdbc = nodeA.getBean(JdbcTemplate.class);
+
+        await(() -> !jdbc.queryForList("select pid from pg_stat_activity where application_name = ?",
+                Integer.class, busB.listenerApplicationName()).isEmpty());
+        jdbc.queryForList("select pg_terminate_backend(pid) from pg_stat_activity where application_name = ?",
+                Boolean.class, busB.listenerApplicationName());
+
+        await(() -> recorderB.flushAll.get() > 0);
+
+        // 張り直した後も通常の通知が届く
+        nodeA.getBean(CacheInvalidationBus.class).publish(Invalidation.of(Scope.COMPLETIONS, 45L));
+        await(() -> recorderB.received.contains(Invalidation.of(Scope.COMPLETIONS, 45L, null)));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("condition not met within 10s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    static class Recorder implements InvalidationHandler {
+        final List<Invalidation> received = new CopyOnWriteArrayList<>();
+        final AtomicInteger flushAll = new AtomicInteger();
+
+        @Override
+        public void invalidate(Invalidation invalidation) {
+            received.add(invalidation);
+        }
+
+        @Override
+        public void invalidateAll() {
+            flushAll.incrementAndGet();
+        }
+
+        void clear() {
+            received.clear();
+            flushAll.set(0);
+        }
+    }
+}
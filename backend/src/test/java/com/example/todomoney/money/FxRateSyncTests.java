@@ -0,0 +1,98 @@
+package com.example.todomoney.money;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.Goal;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.repo.GoalRepository;
+import com.example.todomoney.repo.UserRepository;
+
+/**
+ * 使用中の通貨を落とす表は断り、受け付けた表は fx_rates に残って別ノード（＝読み直し）でも同じになること。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+class FxRateSyncTests {
+
+  @Autowired FxRateSync sync;
+  @Autowired FxRateStore store;
+  @Autowired UserRepository users;
+  @Autowired GoalRepository goals;
+  @Autowired JdbcTemplate jdbc;
+
+  private User user;
+  private FxRates original;
+
+  @BeforeEach
+  void seed() {
+    original = store.current();
+
+    User u = new User();
+    u.setEmail("fx-sync-" + UUID.randomUUID() + "@example.com");
+    u.setPasswordHash("x");
+    user = users.save(u);
+
+    Goal g = new Goal();
+    g.setUser(user);
+    g.setTitle("yen goal");
+    g.setAnnualIncome(1_000_000 * Money.ONE);
+    g.setCurrency("JPY");
+    goals.save(g);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbc.update("delete from fx_rates");
+    store.replace(original);
+    jdbc.update("delete from goals where user_id = ?", user.getId());
+    users.deleteById(user.getId());
+  }
+
+  @Test
+  void rejectsATableThatDropsACurrencyInUse() {
+    Map<String, BigDecimal> rates = new HashMap<>(original.rates());
+    rates.remove("JPY");
+    FxRates withoutYen = new FxRates(original.base(), original.asOf(), rates);
+
+    assertThatThrownBy(() -> sync.update(withoutYen))
+        .isInstanceOfSatisfying(ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    assertThat(store.current()).isEqualTo(original);
+    assertThat(jdbc.queryForObject("select count(*) from fx_rates", Integer.class)).isZero();
+  }
+
+  @Test
+  void acceptedTableIsStoredAndReloadedElsewhere() throws Exception {
+    Map<String, BigDecimal> rates = new HashMap<>(original.rates());
+    rates.put("JPY", new BigDecimal("151.25"));
+    FxRates updated = new FxRates(original.base(), LocalDate.of(2026, 10, 19), rates);
+
+    sync.update(updated);
+    assertThat(store.current()).isEqualTo(updated);
+
+    // 通知を受けた（または再起動した）ノードは fx_rates から読み直す
+    store.replace(FxRates.usdOnly());
+    assertThat(sync.load()).isTrue();
+    assertThat(store.current().asOf()).isEqualTo(updated.asOf());
+    assertThat(store.current().convert(100 * Money.ONE, "USD", "JPY")).isEqualTo(15_125 * Money.ONE);
+  }
+}
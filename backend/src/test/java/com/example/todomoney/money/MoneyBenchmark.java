@@ -0,0 +1,64 @@
+package com.example.todomoney.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Money（long のセント）と BigDecimal の比較。
+ *
+ * perTaskReward*: 年収 ÷ 年間日数 ÷ タスク数 を丸める（完了1回ごと・精算のたびの計算）。
+ * 金額の合計は DB の sum(amount) に任せているので、Java 側の足し込みは比べない。
+ *
+ * -prof gc を付けると Money 側の gc.alloc.rate.norm が 0 B/op になることも見られる。
+ * 結果: まだ測っていない（JMH の数値は未記録）。割り当てがないことだけは MoneyTests.hotPathDoesNotAllocate で見ている。
+ * 実行: mvn test-compile で生成したうえで IDE から main を実行するか、
+ * java -cp target/test-classes:$(テストクラスパス) com.example.todomoney.money.MoneyBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+  private long annualIncome;
+  private BigDecimal annualIncomeDecimal;
+  private long taskCount;
+
+  @Setup
+  public void setup() {
+    annualIncome = 6_000_000 * Money.ONE;
+    annualIncomeDecimal = Money.toDecimal(annualIncome);
+    taskCount = 7;
+  }
+
+  @Benchmark
+  public long perTaskRewardMoney() {
+    return Money.perTaskReward(annualIncome, 365, taskCount);
+  }
+
+  @Benchmark
+  public BigDecimal perTaskRewardBigDecimal() {
+    return annualIncomeDecimal.divide(BigDecimal.valueOf(365L * taskCount), Money.SCALE, RoundingMode.HALF_UP);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MoneyBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,175 @@
+package com.example.todomoney.money;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.observability.AppMetrics;
+import com.example.todomoney.query.ReadQueries;
+import com.example.todomoney.security.AppPrincipal;
+import com.example.todomoney.web.MeController;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// BigDecimal（＝Postgres の numeric と同じ10進の厳密計算）と1セントも違わないこと
+class MoneyTests {
+
+  @Test
+  void perTaskRewardMatchesDecimalHalfUp() {
+    SplittableRandom random = new SplittableRandom(7);
+    for (int i = 0; i < 100_000; i++) {
+      long income = random.nextLong(0, Money.MAX + 1);
+      int days = random.nextInt(1, 367);
+      long tasks = random.nextLong(1, 10_000);
+      BigDecimal expected = Money.toDecimal(income)
+          .divide(BigDecimal.valueOf(days * tasks), Money.SCALE, RoundingMode.HALF_UP);
+      assertThat(Money.toDecimal(Money.perTaskReward(income, days, tasks))).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void halfwayRoundsAwayFromZero() {
+    assertThat(Money.divideHalfUp(5, 2)).isEqualTo(3);
+    assertThat(Money.divideHalfUp(-5, 2)).isEqualTo(-3);
+    assertThat(Money.divideHalfUp(4, 3)).isEqualTo(1);
+    assertThat(Money.perTaskReward(100, 365, 0)).isZero();
+  }
+
+  @Test
+  void parsesWithExplicitRounding() {
+    assertThat(Money.of(new BigDecimal("13.695"))).isEqualTo(1370);
+    assertThat(Money.of(new BigDecimal("-13.695"))).isEqualTo(-1370);
+    assertThat(Money.of(new BigDecimal("6000000"))).isEqualTo(600_000_000);
+    assertThat(Money.toDouble(1370)).isEqualTo(13.7);
+    assertThat(Money.storable(Money.MAX)).isTrue();
+    assertThat(Money.storable(Money.MAX + 1)).isFalse();
+  }
+
+  @Test
+  void hotPathDoesNotAllocate() {
+    long income = 6_000_000 * Money.ONE;
+
+    long sink = 0;
+    for (int i = 0; i < 20_000; i++) sink += Money.times(Money.perTaskReward(income, 365, 1 + i % 7), i % 31);
+
+    com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    int calls = 100_000;
+    long bytes0 = mx.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < calls; i++) sink += Money.times(Money.perTaskReward(income, 365, 1 + i % 7), i % 31);
+    long bytes = mx.getCurrentThreadAllocatedBytes() - bytes0;
+
+    assertThat(sink).isNotZero();
+    // JIT のコンパイル中に出る数十バイトは許す。1回あたり 1 バイト未満（BigDecimal なら1回で数十バイト）
+    assertThat(bytes).isLessThan(calls);
+  }
+
+  // ===== 為替 =====
+
+  // 1 USD = 150 JPY = 0.90 EUR（ちょうど半分になる金額を作れる表）
+  private static final FxRates RATES = new FxRates("USD", LocalDate.of(2026, 10, 1), Map.of(
+      "USD", BigDecimal.ONE, "JPY", new BigDecimal("150"), "EUR", new BigDecimal("0.90")));
+  private static final AppPrincipal USER = new AppPrincipal(1L, "fx@example.com");
+
+  @Test
+  void crossRateRoundsOnceHalfUp() {
+    // 7.50 JPY → 7.50 × 0.90 ÷ 150 = 0.045 EUR → 0.05（HALF_EVEN なら 0.04）
+    assertThat(RATES.convert(750, "JPY", "EUR")).isEqualTo(5);
+    assertThat(RATES.convert(-750, "JPY", "EUR")).isEqualTo(-5);
+    // 0.75 JPY → 0.0045 EUR → 0.00。USD を経由して2回丸めると 0.01 USD → 0.009 → 0.01 になる
+    assertThat(RATES.convert(75, "JPY", "EUR")).isZero();
+    assertThat(RATES.convert(1000 * Money.ONE, "JPY", "EUR")).isEqualTo(6 * Money.ONE);
+    assertThat(RATES.convert(10 * Money.ONE, "EUR", "JPY")).isEqualTo(1666_67);
+  }
+
+  @Test
+  void sameCurrencyIsIdentity() {
+    assertThat(RATES.convert(12_345, "JPY", "JPY")).isEqualTo(12_345);
+    assertThat(RATES.convert(Money.MAX, "EUR", "EUR")).isEqualTo(Money.MAX);
+  }
+
+  @Test
+  void unsupportedCurrencyIsRejected() {
+    assertThatThrownBy(() -> RATES.convert(100, "KRW", "USD"))
+        .isInstanceOf(FxRates.UnsupportedCurrencyException.class);
+    assertThatThrownBy(() -> RATES.convert(100, "USD", "KRW"))
+        .isInstanceOf(FxRates.UnsupportedCurrencyException.class);
+  }
+
+  @Test
+  void summaryConvertsEachCurrencyTotalOnce() {
+    MeController me = meController(List.of(
+        new ReadQueries.SummaryRow("JPY", 1500 * Money.ONE, 750, 3),
+        new ReadQueries.SummaryRow("USD", 10 * Money.ONE, 5 * Money.ONE, 2)));
+
+    MeController.SummaryResponse eur = me.summary(USER, "EUR");
+    // JPY 1500.00 → 9.00、7.50 → 0.045 → 0.05 / USD 10.00 → 9.00、5.00 → 4.50
+    assertThat(eur.potentialTotal()).isEqualTo(18.0);
+    assertThat(eur.achievedTotal()).isEqualTo(4.55);
+    assertThat(eur.currencyCount()).isEqualTo(5);
+    assertThat(eur.currency()).isEqualTo("EUR");
+    assertThat(eur.fxAsOf()).isEqualTo(RATES.asOf());
+    assertThat(eur.byCurrency()).containsExactly(
+        new MeController.CurrencyTotal("JPY", 1500.0, 7.5, 3),
+        new MeController.CurrencyTotal("USD", 10.0, 5.0, 2));
+
+    MeController.SummaryResponse usd = me.summary(USER, "USD");
+    assertThat(usd.potentialTotal()).isEqualTo(20.0);
+    assertThat(usd.achievedTotal()).isEqualTo(5.05);
+  }
+
+  @Test
+  void summaryRejectsUnknownCurrencies() {
+    MeController me = meController(List.of(new ReadQueries.SummaryRow("USD", Money.ONE, 0, 1)));
+    // 頼まれた通貨が表に無い → 400
+    assertThatThrownBy(() -> me.summary(USER, "XYZ"))
+        .isInstanceOfSatisfying(ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+
+    // 記録済みのイベントの通貨が表に無い → 503（表を直すまで出せない）
+    MeController stale = meController(List.of(new ReadQueries.SummaryRow("KRW", Money.ONE, 0, 1)));
+    assertThatThrownBy(() -> stale.summary(USER, "USD"))
+        .isInstanceOfSatisfying(ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+  }
+
+  @Test
+  void usdMetricCountsMissingRates() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    FxRateStore store = store(new AppMetrics(registry));
+
+    assertThat(store.usd(150 * Money.ONE, "JPY")).isEqualTo(1.0);
+    assertThat(store.usd(Money.ONE, "KRW")).isZero();
+    assertThat(store.usd(Money.ONE, "KRW")).isZero();
+    assertThat(registry.get("todomoney.fx.missing").counter().count()).isEqualTo(2.0);
+  }
+
+  private static MeController meController(List<ReadQueries.SummaryRow> rows) {
+    ReadQueries queries = new ReadQueries(null) {
+      @Override
+      public List<SummaryRow> summary(long userId) {
+        return rows;
+      }
+    };
+    return new MeController(queries, store(new AppMetrics(new SimpleMeterRegistry())));
+  }
+
+  private static FxRateStore store(AppMetrics metrics) {
+    FxRateStore store = new FxRateStore(new ClassPathResource("fx-rates.json"),
+        JsonMapper.builder().findAndAddModules().build(), metrics);
+    store.replace(RATES);
+    return store;
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.todomoney.observability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// リングバッファの周回・新しい順・clear で通し番号も戻ること
+class SlowQueryRecorderTests {
+
+  private final SlowQueryRecorder recorder = new SlowQueryRecorder(0, 4);
+
+  @Test
+  void keepsTheNewestCapacityEntriesNewestFirst() {
+    for (int i = 0; i < 10; i++) recorder.record(query(i));
+
+    assertThat(recorder.totalRecorded()).isEqualTo(10);
+    assertThat(elapsed(recorder.recent(100))).containsExactly(9L, 8L, 7L, 6L);
+    assertThat(elapsed(recorder.recent(2))).containsExactly(9L, 8L);
+  }
+
+  @Test
+  void clearResetsTheCounterAndTheSlots() {
+    for (int i = 0; i < 6; i++) recorder.record(query(i));
+    recorder.clear();
+
+    assertThat(recorder.totalRecorded()).isZero();
+    assertThat(recorder.recent(100)).isEmpty();
+
+    recorder.record(query(42));
+    assertThat(recorder.totalRecorded()).isEqualTo(1);
+    assertThat(elapsed(recorder.recent(100))).containsExactly(42L);
+  }
+
+  private static SlowQueryRecorder.SlowQuery query(long elapsedMs) {
+    return new SlowQueryRecorder.SlowQuery(Instant.EPOCH, elapsedMs, "test", "select 1", List.of(), false);
+  }
+
+  private static List<Long> elapsed(List<SlowQueryRecorder.SlowQuery> qs) {
+    return qs.stream().map(SlowQueryRecorder.SlowQuery::elapsedMs).toList();
+  }
+}
@@ -0,0 +1,273 @@
+package com.example.todomoney.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.CurrencyEvent;
+import com.example.todomoney.entity.Goal;
+import com.example.todomoney.entity.Tag;
+import com.example.todomoney.entity.Task;
+import com.example.todomoney.entity.TaskCompletionLog;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.repo.GoalRepository;
+import com.example.todomoney.repo.TagRepository;
+import com.example.todomoney.repo.TaskCompletionLogRepository;
+import com.example.todomoney.repo.TaskRepository;
+import com.example.todomoney.repo.UserRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * 同じ結果をエンティティで読む場合と ReadQueries の射影で読む場合を比べる。
+ * - 中身が同じこと（射影に置き換えても返す値は変わらない）
+ * - 1回あたりの割り当てバイト数が射影の方が少ないこと（時間は JVM・マシン次第なので見ない）
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+class ReadQueriesMeasurementTests {
+
+  private static final int ROWS = 1000;
+  private static final int TAGS = 100;
+  private static final int WARMUP = 20;
+  private static final int ROUNDS = 50;
+
+  @Autowired ReadQueries queries;
+  @Autowired EntityManager em;
+  @Autowired PlatformTransactionManager txManager;
+  @Autowired JdbcTemplate jdbc;
+
+  @Autowired UserRepository users;
+  @Autowired GoalRepository goals;
+  @Autowired TaskRepository tasks;
+  @Autowired TagRepository tags;
+  @Autowired TaskCompletionLogRepository logs;
+
+  private TransactionTemplate readOnlyTx;
+  private long userId;
+  private long goalId;
+
+  private static final LocalDate FROM = LocalDate.of(2026, 1, 1);
+  private static final LocalDate TO = FROM.plusDays(ROWS);
+
+  @BeforeEach
+  void seed() {
+    readOnlyTx = new TransactionTemplate(txManager);
+    readOnlyTx.setReadOnly(true);
+
+    User u = new User();
+    u.setEmail("read-" + UUID.randomUUID() + "@example.com");
+    u.setPasswordHash("x");
+    u = users.save(u);
+    userId = u.getId();
+
+    Goal g = new Goal();
+    g.setUser(u);
+    g.setTitle("goal");
+    g.setAnnualIncome(1_000_000 * Money.ONE);
+    g = goals.save(g);
+    goalId = g.getId();
+
+    List<Task> ts = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      Task t = new Task();
+      t.setUserId(userId);
+      t.setGoal(g);
+      t.setTitle("task " + i);
+      t.setMemo("memo ".repeat(20));
+      t.setCompleted(i % 3 == 0);
+      ts.add(t);
+    }
+    ts = tasks.saveAll(ts);
+
+    List<TaskCompletionLog> ls = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      TaskCompletionLog l = new TaskCompletionLog();
+      l.setUserId(userId);
+      l.setTask(ts.get(i));
+      l.setOccurrenceDate(FROM.plusDays(i));
+      ls.add(l);
+    }
+    logs.saveAll(ls);
+
+    List<Tag> tgs = new ArrayList<>();
+    for (int i = 0; i < TAGS; i++) {
+      Tag t = new Tag();
+      t.setUserId(userId);
+      t.setName("tag " + i);
+      t.setColor("#000000");
+      tgs.add(t);
+    }
+    tags.saveAll(tgs);
+
+    // 2通貨。USD は端数あり
+    List<Object[]> events = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      events.add(new Object[] { userId, goalId, ts.get(i).getId(), i % 5 == 0 ? "JPY" : "USD",
+          i % 5 == 0 ? new BigDecimal("37") : new BigDecimal("1.37") });
+    }
+    jdbc.batchUpdate("insert into currency_events(user_id, goal_id, task_id, currency, amount) values (?, ?, ?, ?, ?)",
+        events);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbc.update("delete from currency_events where user_id = ?", userId);
+    jdbc.update("delete from task_completion_logs where user_id = ?", userId);
+    jdbc.update("delete from tasks where user_id = ?", userId);
+    jdbc.update("delete from tag where user_id = ?", userId);
+    jdbc.update("delete from goals where user_id = ?", userId);
+    jdbc.update("delete from users where id = ?", userId);
+  }
+
+  @Test
+  void goalTasksProjectionMatchesEntitiesAndAllocatesLess() {
+    Result<List<String>> entity = measure(() -> em.createQuery(
+            "select t from Task t where t.goal.id = :goalId order by t.id desc", Task.class)
+        .setParameter("goalId", goalId)
+        .getResultList()
+        .stream().map(t -> t.getId() + ":" + t.getTitle() + ":" + t.isCompleted()).toList());
+    Result<List<String>> projection = measure(() -> queries.goalTasks(userId, goalId).orElseThrow()
+        .stream().map(t -> t.id() + ":" + t.title() + ":" + t.completed()).toList());
+
+    assertThat(projection.value()).hasSize(ROWS).isEqualTo(entity.value());
+    assertThat(projection.bytesPerCall()).isLessThan(entity.bytesPerCall());
+  }
+
+  @Test
+  void historyProjectionMatchesEntitiesAndAllocatesLess() {
+    Result<List<String>> entity = measure(() -> em.createQuery(
+            "select l from TaskCompletionLog l join fetch l.task where l.userId = :userId "
+                + "and l.occurrenceDate between :from and :to order by l.completedAt desc, l.id", TaskCompletionLog.class)
+        .setParameter("userId", userId)
+        .setParameter("from", FROM)
+        .setParameter("to", TO)
+        .getResultList()
+        .stream().map(l -> l.getId() + ":" + l.getTask().getId() + ":" + l.getTask().getTitle() + ":"
+            + l.getOccurrenceDate() + ":" + l.getCompletedAt()).sorted().toList());
+    Result<List<String>> projection = measure(() -> queries.history(userId, FROM, TO)
+        .stream().map(h -> h.id() + ":" + h.taskId() + ":" + h.taskTitle() + ":"
+            + h.occurrenceDate() + ":" + h.completedAt()).sorted().toList());
+
+    assertThat(projection.value()).hasSize(ROWS).isEqualTo(entity.value());
+    assertThat(projection.bytesPerCall()).isLessThan(entity.bytesPerCall());
+  }
+
+  @Test
+  void goalsListSingleQueryMatchesEntityCounts() {
+    // エンティティ：ゴールを読んでからゴールごとに件数を数える
+    Result<List<String>> entity = measure(() -> {
+      List<Goal> gs = em.createQuery("select g from Goal g where g.user.id = :userId order by g.id desc", Goal.class)
+          .setParameter("userId", userId)
+          .getResultList();
+      return gs.stream().map(g -> g.getId() + ":"
+          + em.createQuery("select count(t) from Task t where t.goal = :g", Long.class)
+              .setParameter("g", g).getSingleResult() + ":"
+          + em.createQuery("select count(t) from Task t where t.goal = :g and t.completed = true", Long.class)
+              .setParameter("g", g).getSingleResult()).toList();
+    });
+    Result<List<String>> projection = measure(() -> queries.goals(userId).stream()
+        .map(g -> g.id() + ":" + g.taskCount() + ":" + g.completedCount()).toList());
+
+    assertThat(projection.value()).isEqualTo(entity.value())
+        .containsExactly(goalId + ":" + ROWS + ":" + (ROWS + 2) / 3);
+    assertThat(projection.bytesPerCall()).isLessThan(entity.bytesPerCall());
+  }
+
+  @Test
+  void tagsProjectionMatchesEntities() {
+    Result<List<String>> entity = measure(() -> em.createQuery(
+            "select t from Tag t where t.userId = :userId order by t.name", Tag.class)
+        .setParameter("userId", userId)
+        .getResultList()
+        .stream().map(t -> t.getId() + ":" + t.getName() + ":" + t.getColor()).toList());
+    Result<List<String>> projection = measure(() -> queries.tags(userId)
+        .stream().map(t -> t.id() + ":" + t.name() + ":" + t.color()).toList());
+
+    assertThat(projection.value()).hasSize(TAGS).isEqualTo(entity.value());
+    assertThat(projection.bytesPerCall()).isLessThan(entity.bytesPerCall());
+  }
+
+  @Test
+  void summaryAggregateMatchesEntitySums() {
+    // エンティティ：イベントを全部読んで通貨ごとに足す
+    Result<Map<String, String>> entity = measure(() -> {
+      Map<String, long[]> sums = new TreeMap<>();
+      for (CurrencyEvent e : em.createQuery(
+              "select e from CurrencyEvent e join fetch e.goal where e.user.id = :userId", CurrencyEvent.class)
+          .setParameter("userId", userId)
+          .getResultList()) {
+        long[] s = sums.computeIfAbsent(e.getCurrency(), k -> new long[3]);
+        s[e.getGoal().isAchieved() ? 1 : 0] += e.getAmount();
+        s[2]++;
+      }
+      Map<String, String> out = new TreeMap<>();
+      sums.forEach((c, s) -> out.put(c, s[0] + ":" + s[1] + ":" + s[2]));
+      return out;
+    });
+    Result<Map<String, String>> projection = measure(() -> {
+      Map<String, String> out = new TreeMap<>();
+      for (ReadQueries.SummaryRow r : queries.summary(userId)) {
+        out.put(r.currency(), r.potentialTotal() + ":" + r.achievedTotal() + ":" + r.currencyCount());
+      }
+      return out;
+    });
+
+    assertThat(projection.value()).isEqualTo(entity.value())
+        .containsEntry("JPY", 200 * 37 * Money.ONE + ":0:200")
+        .containsEntry("USD", 800 * 137 * Money.ONE / 100 + ":0:800");
+    assertThat(projection.bytesPerCall()).isLessThan(entity.bytesPerCall());
+  }
+
+  @Test
+  void calendarCompletionKeysMatchEntities() {
+    Result<List<String>> entity = measure(() -> em.createQuery(
+            "select l from TaskCompletionLog l where l.userId = :userId "
+                + "and l.occurrenceDate between :from and :to", TaskCompletionLog.class)
+        .setParameter("userId", userId)
+        .setParameter("from", FROM)
+        .setParameter("to", TO)
+        .getResultList()
+        .stream().map(l -> l.getTask().getId() + "@" + l.getOccurrenceDate()).sorted().toList());
+    Result<List<String>> projection = measure(() -> queries.completions(userId, FROM, TO)
+        .stream().map(c -> c.taskId() + "@" + c.occurrenceDate()).sorted().toList());
+
+    assertThat(projection.value()).hasSize(ROWS).isEqualTo(entity.value());
+    assertThat(projection.bytesPerCall()).isLessThan(entity.bytesPerCall());
+  }
+
+  private record Result<T>(T value, long bytesPerCall) {}
+
+  // 1回ずつ読み取り専用トランザクションを張る（コントローラから呼ぶのと同じ条件）
+  private <T> Result<T> measure(Supplier<T> call) {
+    for (int i = 0; i < WARMUP; i++) readOnlyTx.execute(s -> call.get());
+
+    com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long bytes0 = mx.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < ROUNDS; i++) readOnlyTx.execute(s -> call.get());
+    long bytes = mx.getCurrentThreadAllocatedBytes() - bytes0;
+
+    return new Result<>(readOnlyTx.execute(s -> call.get()), bytes / ROUNDS);
+  }
+}
@@ -0,0 +1,148 @@
+package com.example.todomoney.recurrence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.todomoney.entity.TaskSchedule;
+
+// 各 FREQ の算術ジェネレータが RFC 5545 の数え方と、旧来の1日ずつの判定と同じ日を返すこと
+class RecurrenceTests {
+
+  private static final LocalDate FROM = LocalDate.of(2026, 1, 1);
+
+  @Test
+  void dailyInterval() {
+    assertThat(rrule("FREQ=DAILY;INTERVAL=3", FROM, null, FROM, FROM.plusDays(10)))
+        .containsExactly(d("2026-01-01"), d("2026-01-04"), d("2026-01-07"), d("2026-01-10"));
+  }
+
+  @Test
+  void weeklyIntervalSkipsOffWeeks() {
+    // 2026-01-05 は月曜
+    assertThat(rrule("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE", d("2026-01-05"), null, FROM, d("2026-02-04")))
+        .containsExactly(d("2026-01-05"), d("2026-01-07"), d("2026-01-19"), d("2026-01-21"),
+            d("2026-02-02"), d("2026-02-04"));
+  }
+
+  @Test
+  void countIsTakenBeforeExdates() {
+    // COUNT=5 は除外前の5回（1/2 を除いても 1/6 には伸びない）
+    assertThat(rrule("FREQ=DAILY;COUNT=5", FROM, "2026-01-02", FROM, FROM.plusDays(30)))
+        .containsExactly(d("2026-01-01"), d("2026-01-03"), d("2026-01-04"), d("2026-01-05"));
+  }
+
+  @Test
+  void untilIsInclusiveAndIgnoresTime() {
+    assertThat(rrule("FREQ=DAILY;UNTIL=20260103", FROM, null, FROM, FROM.plusDays(30)))
+        .containsExactly(d("2026-01-01"), d("2026-01-02"), d("2026-01-03"));
+    assertThat(rrule("FREQ=DAILY;UNTIL=20260103T235959Z", FROM, null, FROM, FROM.plusDays(30)))
+        .containsExactly(d("2026-01-01"), d("2026-01-02"), d("2026-01-03"));
+  }
+
+  @Test
+  void negativeMonthDayCountsFromMonthEnd() {
+    assertThat(rrule("FREQ=MONTHLY;BYMONTHDAY=-1", FROM, null, FROM, d("2026-04-30")))
+        .containsExactly(d("2026-01-31"), d("2026-02-28"), d("2026-03-31"), d("2026-04-30"));
+    assertThat(rrule("FREQ=MONTHLY;BYMONTHDAY=-1", d("2028-02-01"), null, d("2028-02-01"), d("2028-02-29")))
+        .containsExactly(d("2028-02-29"));
+  }
+
+  @Test
+  void byDayOrdinals() {
+    assertThat(rrule("FREQ=MONTHLY;BYDAY=-1FR", FROM, null, FROM, d("2026-03-31")))
+        .containsExactly(d("2026-01-30"), d("2026-02-27"), d("2026-03-27"));
+    assertThat(rrule("FREQ=MONTHLY;BYDAY=2MO", FROM, null, FROM, d("2026-03-31")))
+        .containsExactly(d("2026-01-12"), d("2026-02-09"), d("2026-03-09"));
+  }
+
+  @Test
+  void yearlyFeb29OnlyInLeapYears() {
+    assertThat(rrule("FREQ=YEARLY", d("2024-02-29"), null, d("2024-01-01"), d("2033-12-31")))
+        .containsExactly(d("2024-02-29"), d("2028-02-29"), d("2032-02-29"));
+  }
+
+  @Test
+  void legacyDateIgnoresLeftoverRange() {
+    TaskSchedule sch = legacy(TaskSchedule.Type.DATE);
+    sch.setDate(d("2026-01-20"));
+    sch.setStartDate(d("2026-01-01"));
+    sch.setEndDate(d("2026-01-10"));
+    assertThat(expand(sch, FROM, FROM.plusDays(60))).containsExactly(d("2026-01-20"));
+
+    // 保存済みの行と同じく rrule が入っていても同じ
+    sch.setRrule(Recurrence.legacyRule(sch).format());
+    assertThat(expand(sch, FROM, FROM.plusDays(60))).containsExactly(d("2026-01-20"));
+  }
+
+  @Test
+  void legacySchedulesMatchDayByDayMatcher() {
+    SplittableRandom random = new SplittableRandom(37);
+    LocalDate to = FROM.plusDays(400);
+    for (int i = 0; i < 2_000; i++) {
+      TaskSchedule sch = legacy(TaskSchedule.Type.values()[random.nextInt(3)]);
+      LocalDate a = FROM.plusDays(random.nextInt(-30, 400));
+      LocalDate b = a.plusDays(random.nextInt(-5, 120));
+      // 欠けた項目・余分な項目の組み合わせも混ぜる
+      if (random.nextInt(10) != 0) sch.setDate(a);
+      if (random.nextInt(10) != 0) sch.setStartDate(a);
+      if (random.nextInt(10) != 0) sch.setEndDate(b);
+      if (random.nextInt(10) != 0) sch.setDaysOfWeekMask(random.nextInt(0, 128));
+      // 半分は ScheduleController.upsert と同じく旧来の項目から作った rrule を持たせる
+      RecurrenceRule stored = Recurrence.legacyRule(sch);
+      if (stored != null && random.nextBoolean()) sch.setRrule(stored.format());
+
+      List<LocalDate> expected = new ArrayList<>();
+      for (LocalDate day = FROM; !day.isAfter(to); day = day.plusDays(1)) {
+        if (baselineMatches(sch, day)) expected.add(day);
+      }
+      assertThat(expand(sch, FROM, to))
+          .as("%s date=%s start=%s end=%s mask=%s rrule=%s", sch.getType(), sch.getDate(), sch.getStartDate(),
+              sch.getEndDate(), sch.getDaysOfWeekMask(), sch.getRrule())
+          .isEqualTo(expected);
+    }
+  }
+
+  // Recurrence 導入前の ScheduleExpander.matches と同じ判定
+  private static boolean baselineMatches(TaskSchedule sch, LocalDate day) {
+    return switch (sch.getType()) {
+      case DATE -> sch.getDate() != null && sch.getDate().equals(day);
+      case RANGE -> sch.getStartDate() != null && sch.getEndDate() != null
+          && !day.isBefore(sch.getStartDate()) && !day.isAfter(sch.getEndDate());
+      case WEEKLY -> sch.getStartDate() != null && sch.getEndDate() != null && sch.getDaysOfWeekMask() != null
+          && !day.isBefore(sch.getStartDate()) && !day.isAfter(sch.getEndDate())
+          && (sch.getDaysOfWeekMask() & (1 << (day.getDayOfWeek().getValue() % 7))) != 0;
+      case RRULE -> false;
+    };
+  }
+
+  private static TaskSchedule legacy(TaskSchedule.Type type) {
+    TaskSchedule sch = new TaskSchedule();
+    sch.setType(type);
+    return sch;
+  }
+
+  private static List<LocalDate> rrule(String rule, LocalDate dtstart, String exdates, LocalDate from, LocalDate to) {
+    TaskSchedule sch = new TaskSchedule();
+    sch.setType(TaskSchedule.Type.RRULE);
+    sch.setRrule(rule);
+    sch.setStartDate(dtstart);
+    sch.setExdates(exdates);
+    return expand(sch, from, to);
+  }
+
+  private static List<LocalDate> expand(TaskSchedule sch, LocalDate from, LocalDate to) {
+    List<LocalDate> out = new ArrayList<>();
+    Recurrence.of(sch).forEach(from, to, day -> out.add(LocalDate.ofEpochDay(day)));
+    return out;
+  }
+
+  private static LocalDate d(String iso) {
+    return LocalDate.parse(iso);
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.todomoney.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.Goal;
+import com.example.todomoney.entity.Tag;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.support.QueryBudgetTestConfig;
+import com.example.todomoney.support.SqlStatementCounter;
+
+/**
+ * 毎リクエスト引く User / Goal / Tag の参照が、2回目から SQL を出さずに2次キャッシュで返ることを数える。
+ * リポジトリはトランザクション外で呼ぶので、呼び出しごとに永続化コンテキストは空（1次キャッシュには頼れない）。
+ */
+@SpringBootTest(classes = BackendApplication.class)
+@Import(QueryBudgetTestConfig.class)
+class SecondLevelCacheTests {
+
+  @Autowired UserRepository users;
+  @Autowired GoalRepository goals;
+  @Autowired TagRepository tags;
+
+  private User user;
+  private Goal goal;
+  private Tag tag;
+
+  @BeforeEach
+  void seed() {
+    User u = new User();
+    u.setEmail("cache-" + UUID.randomUUID() + "@example.com");
+    u.setPasswordHash("x");
+    user = users.save(u);
+
+    Goal g = new Goal();
+    g.setUser(user);
+    g.setTitle("goal");
+    g.setAnnualIncome(1_000_000 * Money.ONE);
+    goal = goals.save(g);
+
+    Tag t = new Tag();
+    t.setUserId(user.getId());
+    t.setName("tag");
+    t.setColor("#000000");
+    tag = tags.save(t);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    tags.deleteById(tag.getId());
+    goals.deleteById(goal.getId());
+    users.deleteById(user.getId());
+  }
+
+  @Test
+  void jwtUserCheckHitsEntityCache() {
+    assertSecondCallIsFree(() -> users.findById(user.getId()).orElseThrow());
+  }
+
+  @Test
+  void userByEmailHitsQueryCache() {
+    assertSecondCallIsFree(() -> users.findByEmail(user.getEmail()).orElseThrow());
+  }
+
+  @Test
+  void goalByIdAndUserHitsQueryCache() {
+    assertSecondCallIsFree(() -> goals.findByIdAndUser(goal.getId(), user).orElseThrow());
+  }
+
+  @Test
+  void tagsByUserHitsQueryCache() {
+    assertSecondCallIsFree(() -> tags.findByUserIdOrderByNameAsc(user.getId()));
+    assertSecondCallIsFree(() -> tags.findByIdAndUserId(tag.getId(), user.getId()).orElseThrow());
+  }
+
+  @Test
+  void writeInvalidatesQueryCache() {
+    tags.findByUserIdOrderByNameAsc(user.getId());
+
+    Tag other = new Tag();
+    other.setUserId(user.getId());
+    other.setName("other");
+    other.setColor("#ffffff");
+    other = tags.save(other);
+    try {
+      SqlStatementCounter.reset();
+      assertThat(tags.findByUserIdOrderByNameAsc(user.getId())).hasSize(2);
+      assertThat(SqlStatementCounter.current()).as("tag の更新後はクエリキャッシュを使わない").isPositive();
+    } finally {
+      tags.deleteById(other.getId());
+    }
+  }
+
+  // 1回目で読み込み（キャッシュが温まっていれば 0 件もありうる）、2回目は SQL 0 件
+  private static void assertSecondCallIsFree(Supplier<?> lookup) {
+    lookup.get();
+    SqlStatementCounter.reset();
+    lookup.get();
+    assertThat(SqlStatementCounter.current()).as("2回目の参照で発行した SQL").isZero();
+  }
+}
@@ -0,0 +1,142 @@
+package com.example.todomoney.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.Task;
+import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.repo.TaskRepository;
+import com.example.todomoney.repo.TaskScheduleRepository;
+import com.example.todomoney.repo.UserRepository;
+
+/**
+ * task_occurrences の作り直しと夜間の延長を見る（カレンダー API 側は web.CalendarOccurrenceTests）。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.occurrences.enabled=true",
+    "app.occurrences.days-back=31",
+    "app.occurrences.days-ahead=90",
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+class OccurrenceStoreTests {
+
+  private static final LocalDate TODAY = LocalDate.now();
+
+  @Autowired OccurrenceStore occurrences;
+  @Autowired UserRepository users;
+  @Autowired TaskRepository tasks;
+  @Autowired TaskScheduleRepository schedules;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+
+  private User user;
+  private Task task;
+
+  @BeforeEach
+  void seed() {
+    User u = new User();
+    u.setEmail("occ-" + UUID.randomUUID() + "@example.com");
+    u.setPasswordHash("x");
+    user = users.save(u);
+
+    Task t = new Task();
+    t.setUserId(user.getId());
+    t.setTitle("daily");
+    task = tasks.save(t);
+
+    // ホライズン（-31〜+90日）をまたいで毎日
+    TaskSchedule daily = new TaskSchedule();
+    daily.setUserId(user.getId());
+    daily.setTask(task);
+    daily.setType(TaskSchedule.Type.RANGE);
+    daily.setStartDate(TODAY.minusDays(60));
+    daily.setEndDate(TODAY.plusDays(200));
+    schedules.save(daily);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbc.update("delete from task_occurrences where user_id = ?", user.getId());
+    jdbc.update("delete from occurrence_horizons where user_id = ?", user.getId());
+    jdbc.update("delete from task_schedules where user_id = ?", user.getId());
+    jdbc.update("delete from tasks where user_id = ?", user.getId());
+    users.deleteById(user.getId());
+  }
+
+  @Test
+  void rebuildTaskMaterializesHorizonThenReplacesOnlyThatTask() {
+    inTx(() -> occurrences.rebuildTask(user.getId(), task.getId()));
+
+    assertThat(horizon()).containsExactly(TODAY.minusDays(31), TODAY.plusDays(90));
+    assertThat(dates(task.getId())).isEqualTo(days(TODAY.minusDays(31), TODAY.plusDays(90)));
+
+    // 期間を縮めて作り直すと、範囲外の行が消える（他タスクの行には触らない）
+    Task other = new Task();
+    other.setUserId(user.getId());
+    other.setTitle("other");
+    other = tasks.save(other);
+    jdbc.update("insert into task_occurrences(user_id, occurrence_date, task_id) values (?, ?, ?)",
+        user.getId(), TODAY, other.getId());
+
+    jdbc.update("update task_schedules set end_date = ? where task_id = ? and type = 'RANGE'",
+        TODAY.plusDays(10), task.getId());
+    inTx(() -> occurrences.rebuildTask(user.getId(), task.getId()));
+
+    assertThat(dates(task.getId())).isEqualTo(days(TODAY.minusDays(31), TODAY.plusDays(10)));
+    assertThat(dates(other.getId())).containsExactly(TODAY);
+  }
+
+  @Test
+  void extendHorizonsFillsNewDaysAndDropsPastOnes() {
+    inTx(() -> occurrences.rebuildTask(user.getId(), task.getId()));
+
+    // 何日か延長が止まっていた状態にする
+    jdbc.update("update occurrence_horizons set valid_from = ?, valid_to = ? where user_id = ?",
+        TODAY.minusDays(45), TODAY.plusDays(10), user.getId());
+    jdbc.update("delete from task_occurrences where user_id = ? and occurrence_date > ?", user.getId(),
+        TODAY.plusDays(10));
+    jdbc.update("insert into task_occurrences(user_id, occurrence_date, task_id) values (?, ?, ?)",
+        user.getId(), TODAY.minusDays(40), task.getId());
+
+    occurrences.extendHorizons();
+
+    assertThat(horizon()).containsExactly(TODAY.minusDays(31), TODAY.plusDays(90));
+    assertThat(dates(task.getId())).isEqualTo(days(TODAY.minusDays(31), TODAY.plusDays(90)));
+  }
+
+  private void inTx(Runnable work) {
+    new TransactionTemplate(txManager).executeWithoutResult(s -> work.run());
+  }
+
+  private List<LocalDate> horizon() {
+    return jdbc.queryForObject("select valid_from, valid_to from occurrence_horizons where user_id = ?",
+        (rs, i) -> List.of(rs.getObject(1, LocalDate.class), rs.getObject(2, LocalDate.class)), user.getId());
+  }
+
+  private List<LocalDate> dates(long taskId) {
+    return jdbc.queryForList("select occurrence_date from task_occurrences where task_id = ? order by 1",
+        LocalDate.class, taskId);
+  }
+
+  private static List<LocalDate> days(LocalDate from, LocalDate to) {
+    List<LocalDate> out = new ArrayList<>();
+    for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) out.add(d);
+    return out;
+  }
+}
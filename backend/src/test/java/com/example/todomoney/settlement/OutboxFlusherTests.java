@@ -0,0 +1,144 @@
+package com.example.todomoney.settlement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.CurrencyEvent;
+import com.example.todomoney.entity.Goal;
+import com.example.todomoney.entity.Task;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.repo.GoalRepository;
+import com.example.todomoney.repo.TaskRepository;
+import com.example.todomoney.repo.UserRepository;
+
+/**
+ * write-behind で積んだ CurrencyEvent が、flushAll を重ねて呼んでも（常駐の移送スレッドと並んでも）
+ * currency_events にちょうど1回ずつ移ることを見る。batch-size を小さくして複数バッチにする。
+ * 書き込みは1本ずつ順にコミットしているので、この場合に限り outbox の順も保たれる
+ * （並行トランザクションではコミット順と id 順がずれるので順序は約束しない）。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.currency-events.write-behind=true",
+    "app.currency-events.batch-size=7",
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+class OutboxFlusherTests {
+
+  private static final int EVENTS = 50;
+  private static final int PER_TX = 10;
+
+  @Autowired CurrencyEventWriter writer;
+  @Autowired OutboxFlusher flusher;
+  @Autowired UserRepository users;
+  @Autowired GoalRepository goals;
+  @Autowired TaskRepository tasks;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+
+  private User user;
+  private Goal goal;
+  private Task task;
+
+  @BeforeEach
+  void seed() {
+    User u = new User();
+    u.setEmail("outbox-" + UUID.randomUUID() + "@example.com");
+    u.setPasswordHash("x");
+    user = users.save(u);
+
+    Goal g = new Goal();
+    g.setUser(user);
+    g.setTitle("goal");
+    g.setAnnualIncome(1_000_000 * Money.ONE);
+    goal = goals.save(g);
+
+    Task t = new Task();
+    t.setUserId(user.getId());
+    t.setGoal(goal);
+    t.setTitle("task");
+    task = tasks.save(t);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbc.update("delete from currency_event_outbox where user_id = ?", user.getId());
+    jdbc.update("delete from currency_events where user_id = ?", user.getId());
+    jdbc.update("delete from tasks where user_id = ?", user.getId());
+    jdbc.update("delete from goals where user_id = ?", user.getId());
+    users.deleteById(user.getId());
+  }
+
+  @Test
+  void overlappingFlushesMoveEveryEventExactlyOnce() throws Exception {
+    // 金額を 0.01, 0.02, ... にして、欠け・重複を見る（順にコミットしているので並びも一致する）
+    TransactionTemplate tx = new TransactionTemplate(txManager);
+    for (int i = 0; i < EVENTS; i += PER_TX) {
+      int first = i;
+      tx.executeWithoutResult(s -> {
+        for (int k = first; k < first + PER_TX; k++) {
+          writer.write(CurrencyEvent.of(user, goal, task, "USD", k + 1));
+        }
+      });
+    }
+
+    flusher.flushAll();
+    flusher.flushAll();
+    CompletableFuture<Integer> a = CompletableFuture.supplyAsync(flusher::flushAll);
+    CompletableFuture<Integer> b = CompletableFuture.supplyAsync(flusher::flushAll);
+    a.get(30, TimeUnit.SECONDS);
+    b.get(30, TimeUnit.SECONDS);
+
+    // 移送中の相手（常駐スレッド含む）がいると flushAll は何もせず返るので、出し切るまで繰り返す
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (outboxCount() > 0 && System.nanoTime() < deadline) {
+      flusher.flushAll();
+      Thread.sleep(20);
+    }
+
+    assertThat(outboxCount()).isZero();
+    assertThat(jdbc.queryForList(
+            "select (amount * 100)::bigint from currency_events where user_id = ? order by id",
+            Long.class, user.getId()))
+        .isEqualTo(cents(EVENTS));
+  }
+
+  @Test
+  void rolledBackWriteLeavesNothingToFlush() {
+    TransactionTemplate tx = new TransactionTemplate(txManager);
+    tx.executeWithoutResult(s -> {
+      writer.write(CurrencyEvent.of(user, goal, task, "USD", 1));
+      s.setRollbackOnly();
+    });
+
+    flusher.flushAll();
+    assertThat(outboxCount()).isZero();
+    assertThat(jdbc.queryForObject("select count(*) from currency_events where user_id = ?", Integer.class,
+        user.getId())).isZero();
+  }
+
+  private int outboxCount() {
+    return jdbc.queryForObject("select count(*) from currency_event_outbox where user_id = ?", Integer.class,
+        user.getId());
+  }
+
+  private static List<Long> cents(int n) {
+    return LongStream.rangeClosed(1, n).boxed().toList();
+  }
+}
@@ -0,0 +1,226 @@
+package com.example.todomoney.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.security.AppPrincipal;
+
+/**
+ * 同じ Postgres に2つのシャード DB を作って、1ユーザーを移す。
+ * - 全テーブルの行が id ごと移動先に写り、移動元から消える
+ * - 移動前に始まっていた書き込みトランザクションは待たれて、その行も移動先に届く
+ * - fence を取った後の書き込みは 503 で弾かれる
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.sharding.enabled=true",
+    "app.sharding.directory-cache-ttl-ms=100",
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false",
+    "app.occurrences.enabled=false"
+})
+class ShardMigratorTests {
+
+  private static final String SERVER = "jdbc:postgresql://localhost:5432/";
+  private static final List<String> SHARD_DBS = List.of("todo_money_shard_test_a", "todo_money_shard_test_b");
+
+  @DynamicPropertySource
+  static void shards(DynamicPropertyRegistry registry) throws SQLException {
+    try (Connection c = DriverManager.getConnection(SERVER + "postgres", "postgres", "postgres");
+         Statement st = c.createStatement()) {
+      for (String db : SHARD_DBS) {
+        try {
+          st.execute("create database " + db);
+        } catch (SQLException e) {
+          // 前回の実行で作成済み
+        }
+      }
+    }
+    registry.add("app.sharding.shards",
+        () -> "a=" + SERVER + SHARD_DBS.get(0) + ",b=" + SERVER + SHARD_DBS.get(1));
+  }
+
+  @Autowired ShardMigrator migrator;
+  @Autowired ShardDirectory directory;
+  @Autowired DataSource dataSource;
+  @Autowired PlatformTransactionManager txManager;
+
+  private JdbcTemplate jdbc;
+  private long userId;
+  private String source;
+  private String target;
+
+  @BeforeEach
+  void seed() {
+    jdbc = new JdbcTemplate(dataSource);
+    userId = jdbc.queryForObject("insert into users(email, password_hash) values (?, 'x') returning id",
+        Long.class, "shard-" + UUID.randomUUID() + "@example.com");
+    migrator.provisionUser(userId);
+    source = directory.placement(userId).shard();
+    target = source.equals("a") ? "b" : "a";
+
+    ShardContext.callOn(source, () -> {
+      long goalId = jdbc.queryForObject(
+          "insert into goals(user_id, title, annual_income) values (?, 'goal', 1000000) returning id", Long.class, userId);
+      long tagId = jdbc.queryForObject(
+          "insert into tag(user_id, name, color) values (?, 'tag', '#000000') returning id", Long.class, userId);
+      for (int i = 0; i < 3; i++) {
+        long taskId = jdbc.queryForObject(
+            "insert into tasks(user_id, goal_id, title) values (?, ?, ?) returning id", Long.class, userId, goalId, "task " + i);
+        jdbc.update("insert into task_tags(task_id, tag_id) values (?, ?)", taskId, tagId);
+        jdbc.update("insert into task_completion_logs(user_id, task_id, occurrence_date, completed_at, settled_at) "
+            + "values (?, ?, ?, now(), now())", userId, taskId, LocalDate.of(2026, 1, 1).plusDays(i));
+        jdbc.update("insert into currency_events(user_id, goal_id, task_id, currency, amount) values (?, ?, ?, 'USD', 1.37)",
+            userId, goalId, taskId);
+      }
+      return null;
+    });
+  }
+
+  @AfterEach
+  void cleanUp() {
+    SecurityContextHolder.clearContext();
+    List<ShardMigrator.TableCopy> tables = ShardMigrator.USER_TABLES;
+    for (String shard : List.of(source, target)) {
+      ShardContext.callOn(shard, () -> {
+        for (int i = tables.size() - 1; i >= 0; i--) {
+          jdbc.update("delete from " + tables.get(i).table() + " where " + tables.get(i).userPredicate(), userId);
+        }
+        return null;
+      });
+    }
+    jdbc.update("delete from user_shards where user_id = ?", userId);
+    jdbc.update("delete from users where id = ?", userId);
+  }
+
+  @Test
+  void movesEveryUserTableWithIds() {
+    Map<String, List<Long>> before = snapshot(source);
+
+    ShardMigrator.MoveResult r = migrator.moveUser(userId, target);
+
+    assertThat(r.from()).isEqualTo(source);
+    assertThat(r.to()).isEqualTo(target);
+    assertThat(directory.placement(userId).shard()).isEqualTo(target);
+    assertThat(directory.placement(userId).state()).isEqualTo(ShardDirectory.State.ACTIVE);
+    assertThat(snapshot(target)).isEqualTo(before);
+    assertThat(snapshot(source).values()).allMatch(List::isEmpty);
+  }
+
+  @Test
+  void waitsForInFlightWritesAndRejectsNewOnes() throws Exception {
+    CountDownLatch inTransaction = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    // 移動前に始まった書き込み（fence の共有ロックを持ったまま止める）
+    CompletableFuture<Long> inFlight = CompletableFuture.supplyAsync(() -> asUser(() -> ShardContext.callOn(source,
+        () -> new TransactionTemplate(txManager).execute(s -> {
+          Long id = jdbc.queryForObject(
+              "insert into tasks(user_id, title) values (?, 'in flight') returning id", Long.class, userId);
+          inTransaction.countDown();
+          await(release);
+          return id;
+        }))));
+    assertThat(inTransaction.await(10, TimeUnit.SECONDS)).isTrue();
+
+    CompletableFuture<ShardMigrator.MoveResult> move = CompletableFuture.supplyAsync(() -> migrator.moveUser(userId, target));
+    Thread.sleep(500);
+    assertThat(move).as("処理中の書き込みが終わるまで移動は始まらない").isNotDone();
+
+    release.countDown();
+    long inFlightTaskId = inFlight.get(10, TimeUnit.SECONDS);
+
+    // コピー〜削除の間は fence を持っている。そこで来た書き込みは始まる前に弾かれる
+    awaitFenceHeld();
+    assertThatThrownBy(() -> asUser(() -> ShardContext.callOn(source,
+        () -> new TransactionTemplate(txManager).execute(s ->
+            jdbc.update("insert into tasks(user_id, title) values (?, 'late')", userId)))))
+        .isInstanceOf(ResponseStatusException.class)
+        .hasMessageContaining("503");
+
+    move.get(30, TimeUnit.SECONDS);
+    assertThat(snapshot(target).get("tasks")).contains(inFlightTaskId);
+    assertThat(snapshot(source).get("tasks")).isEmpty();
+  }
+
+  // テーブルごとの id の並び（id 列の無い表は代わりになる列）
+  private Map<String, List<Long>> snapshot(String shard) {
+    Map<String, List<Long>> out = new LinkedHashMap<>();
+    for (ShardMigrator.TableCopy t : ShardMigrator.USER_TABLES) {
+      String idColumn = switch (t.table()) {
+        case "user_change_seq", "occurrence_horizons" -> "user_id";
+        case "change_log" -> "entity_id";
+        case "task_tags", "task_occurrences" -> "task_id";
+        case "goal_archives" -> "goal_id";
+        default -> "id";
+      };
+      out.put(t.table(), ShardContext.callOn(shard, () -> jdbc.queryForList(
+          "select " + idColumn + " from " + t.table() + " where " + t.userPredicate() + " order by 1",
+          Long.class, userId)));
+    }
+    return out;
+  }
+
+  private void awaitFenceHeld() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (System.nanoTime() < deadline) {
+      Integer held = ShardContext.callOn(source, () -> jdbc.queryForObject("""
+          select count(*) from pg_locks
+          where locktype = 'advisory' and mode = 'ExclusiveLock' and granted and classid = ? and objid = ?
+          """, Integer.class, ShardFencingTransactionManager.FENCE_CLASS,
+          ShardFencingTransactionManager.fenceKey(userId)));
+      if (held != null && held > 0) return;
+      Thread.sleep(20);
+    }
+    throw new AssertionError("fence was not taken");
+  }
+
+  private <T> T asUser(Supplier<T> work) {
+    var principal = new AppPrincipal(userId, "shard@example.com");
+    SecurityContextHolder.getContext().setAuthentication(
+        new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    try {
+      return work.get();
+    } finally {
+      SecurityContextHolder.clearContext();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
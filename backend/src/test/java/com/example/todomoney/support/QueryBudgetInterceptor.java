@@ -0,0 +1,56 @@
+package com.example.todomoney.support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.example.todomoney.web.QueryBudget;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * ハンドラ実行〜レスポンス書き出しまでの SQL 件数を数え、@QueryBudget を超えたものを記録する。
+ * afterCompletion で投げた例外はレスポンスに反映されないため、判定はテスト側で行う。
+ */
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+
+    public record Measurement(String endpoint, int statements, int budget) {
+        public boolean exceeded() {
+            return statements > budget;
+        }
+    }
+
+    private final List<Measurement> measurements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        if (!(handler instanceof HandlerMethod hm)) return;
+        QueryBudget budget = hm.getMethodAnnotation(QueryBudget.class);
+        if (budget == null) return;
+
+        String endpoint = request.getMethod() + " " + request.getRequestURI();
+        measurements.add(new Measurement(endpoint, SqlStatementCounter.current(), budget.value()));
+    }
+
+    public List<Measurement> measurements() {
+        return List.copyOf(measurements);
+    }
+
+    public List<Measurement> violations() {
+        return measurements.stream().filter(Measurement::exceeded).toList();
+    }
+
+    public void clear() {
+        measurements.clear();
+    }
+}
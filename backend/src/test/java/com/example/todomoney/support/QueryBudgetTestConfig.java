@@ -0,0 +1,36 @@
+package com.example.todomoney.support;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * SQL 件数カウンタと @QueryBudget 判定をテストコンテキストにだけ差し込む。
+ * 使う側は {@code @Import(QueryBudgetTestConfig.class)} する。
+ */
+@TestConfiguration
+public class QueryBudgetTestConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return props -> props.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    @Bean
+    public QueryBudgetInterceptor queryBudgetInterceptor() {
+        return new QueryBudgetInterceptor();
+    }
+
+    @Bean
+    public WebMvcConfigurer queryBudgetWebMvcConfigurer(QueryBudgetInterceptor interceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor);
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.todomoney.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.security.AppPrincipal;
+
+/**
+ * V8 のトリガが change_log / user_change_seq を書くことと、/api/sync の since カーソルの進み方を見る。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+@AutoConfigureMockMvc
+class SyncTests {
+
+  @Autowired JdbcTemplate jdbc;
+  @Autowired MockMvc mvc;
+
+  private long userId;
+  private String email;
+
+  @BeforeEach
+  void seed() {
+    email = "sync-" + UUID.randomUUID() + "@example.com";
+    userId = jdbc.queryForObject("insert into users(email, password_hash) values (?, 'x') returning id",
+        Long.class, email);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jdbc.update("delete from task_tags where task_id in (select id from tasks where user_id = ?)", userId);
+    jdbc.update("delete from tasks where user_id = ?", userId);
+    jdbc.update("delete from tag where user_id = ?", userId);
+    jdbc.update("delete from change_log where user_id = ?", userId);
+    jdbc.update("delete from user_change_seq where user_id = ?", userId);
+    jdbc.update("delete from users where id = ?", userId);
+  }
+
+  @Test
+  void triggerKeepsLatestSeqPerEntityAndTombstones() {
+    long tagId = jdbc.queryForObject(
+        "insert into tag(user_id, name, color) values (?, 'a', '#000000') returning id", Long.class, userId);
+    assertThat(change("tag", tagId)).containsEntry("seq", 1L).containsEntry("deleted", false);
+
+    jdbc.update("update tag set name = 'b' where id = ?", tagId);
+    assertThat(change("tag", tagId)).containsEntry("seq", 2L);
+
+    long taskId = jdbc.queryForObject(
+        "insert into tasks(user_id, title) values (?, 't') returning id", Long.class, userId);
+    jdbc.update("insert into task_tags(task_id, tag_id) values (?, ?)", taskId, tagId);
+    // task_tags はタスク単位の1行
+    assertThat(change("task_tags", taskId)).containsEntry("seq", 4L).containsEntry("deleted", false);
+
+    jdbc.update("delete from task_tags where task_id = ?", taskId);
+    assertThat(change("task_tags", taskId)).containsEntry("seq", 5L).containsEntry("deleted", false);
+
+    jdbc.update("delete from tag where id = ?", tagId);
+    assertThat(change("tag", tagId)).containsEntry("seq", 6L).containsEntry("deleted", true);
+
+    assertThat(jdbc.queryForObject("select seq from user_change_seq where user_id = ?", Long.class, userId))
+        .isEqualTo(6L);
+    assertThat(jdbc.queryForObject("select count(*) from change_log where user_id = ?", Integer.class, userId))
+        .as("1エンティティ1行").isEqualTo(3);
+  }
+
+  @Test
+  void cursorPagesThenReturnsNoContent() throws Exception {
+    for (String name : List.of("a", "b", "c")) {
+      jdbc.update("insert into tag(user_id, name, color) values (?, ?, '#000000')", userId, name);
+    }
+
+    mvc.perform(asUser(get("/api/sync").param("since", "0").param("limit", "2")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.seq").value(2))
+        .andExpect(jsonPath("$.hasMore").value(true))
+        .andExpect(jsonPath("$.tags.length()").value(2));
+
+    mvc.perform(asUser(get("/api/sync").param("since", "2").param("limit", "2")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.seq").value(3))
+        .andExpect(jsonPath("$.hasMore").value(false))
+        .andExpect(jsonPath("$.tags[0].name").value("c"));
+
+    mvc.perform(asUser(get("/api/sync").param("since", "3")))
+        .andExpect(status().isNoContent());
+  }
+
+  @Test
+  void advancesSeqWhenEveryChangeIsFilteredOut() throws Exception {
+    jdbc.update("insert into tag(user_id, name, color) values (?, 'a', '#000000')", userId);
+
+    // change_log にはあるが、返す行が残っていない変更（存在しない id を指す行）
+    jdbc.update("update user_change_seq set seq = seq + 1 where user_id = ?", userId);
+    jdbc.update("insert into change_log(user_id, entity, entity_id, seq) values (?, 'task', -1, 2)", userId);
+
+    mvc.perform(asUser(get("/api/sync").param("since", "1")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.seq").value(2))
+        .andExpect(jsonPath("$.hasMore").value(false))
+        .andExpect(jsonPath("$.tasks.length()").value(0))
+        .andExpect(jsonPath("$.deleted.length()").value(0));
+
+    mvc.perform(asUser(get("/api/sync").param("since", "2")))
+        .andExpect(status().isNoContent());
+  }
+
+  private Map<String, Object> change(String entity, long entityId) {
+    return jdbc.queryForMap("select seq, deleted from change_log where user_id = ? and entity = ? and entity_id = ?",
+        userId, entity, entityId);
+  }
+
+  private MockHttpServletRequestBuilder asUser(MockHttpServletRequestBuilder req) {
+    var principal = new AppPrincipal(userId, email);
+    return req
+        .with(authentication(new UsernamePasswordAuthenticationToken(principal, null, List.of())))
+        .requestAttr("userId", userId);
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.todomoney.traffic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.example.todomoney.observability.AppMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// 枠が埋まっていれば queue-timeout 後に 503、下流が例外で抜けても枠は返る
+class BulkheadFilterTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final Bulkhead bulkhead = new Bulkhead(permits(1, 1, 2), 20);
+  private final BulkheadFilter filter = new BulkheadFilter(bulkhead, new AppMetrics(registry));
+
+  @Test
+  void rejectsWith503WhenThePermitsAreTaken() throws Exception {
+    assertThat(bulkhead.tryEnter(Bulkhead.Group.CALENDAR)).isTrue();
+    try {
+      MockHttpServletResponse res = new MockHttpServletResponse();
+      MockFilterChain chain = new MockFilterChain();
+      filter.doFilter(request("GET", "/api/calendar"), res, chain);
+
+      assertThat(res.getStatus()).isEqualTo(503);
+      assertThat(res.getHeader("Retry-After")).isEqualTo("1");
+      assertThat(chain.getRequest()).as("downstream not called").isNull();
+      assertThat(registry.get("todomoney.bulkhead.rejected").tag("group", "CALENDAR").counter().count())
+          .isEqualTo(1.0);
+    } finally {
+      bulkhead.exit(Bulkhead.Group.CALENDAR);
+    }
+
+    // 空けば通る
+    MockHttpServletResponse res = new MockHttpServletResponse();
+    filter.doFilter(request("GET", "/api/calendar"), res, new MockFilterChain());
+    assertThat(res.getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  void authPermitIsReturnedWhenTheHandlerThrows() {
+    HttpServlet failing = new HttpServlet() {
+      @Override
+      protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException {
+        throw new ServletException("bcrypt blew up");
+      }
+    };
+
+    // 枠（2）より多く失敗させても、毎回返っていれば詰まらない
+    for (int i = 0; i < 3; i++) {
+      assertThatThrownBy(() -> filter.doFilter(request("POST", "/api/auth/login"), new MockHttpServletResponse(),
+          new MockFilterChain(failing)))
+          .isInstanceOf(ServletException.class);
+    }
+    assertThat(bulkhead.available(Bulkhead.Group.AUTH)).isEqualTo(bulkhead.permits(Bulkhead.Group.AUTH));
+  }
+
+  private static MockHttpServletRequest request(String method, String uri) {
+    MockHttpServletRequest req = new MockHttpServletRequest(method, uri);
+    req.setRequestURI(uri);
+    return req;
+  }
+
+  private static Map<Bulkhead.Group, Integer> permits(int calendar, int write, int auth) {
+    Map<Bulkhead.Group, Integer> m = new EnumMap<>(Bulkhead.Group.class);
+    m.put(Bulkhead.Group.CALENDAR, calendar);
+    m.put(Bulkhead.Group.WRITE, write);
+    m.put(Bulkhead.Group.AUTH, auth);
+    return m;
+  }
+}
@@ -0,0 +1,55 @@
+package com.example.todomoney.traffic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import com.example.todomoney.BackendApplication;
+
+/**
+ * 実際の Tomcat 越しに、nginx の付けた X-Forwarded-For ごとに /api/auth の予算が分かれることを見る。
+ * テストのクライアントは 127.0.0.1（内部プロキシ扱い）から来るので、ヘッダの IP がキーになる。
+ */
+@SpringBootTest(classes = BackendApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "app.rate-limit.auth.rate-per-second=0.001",
+        "app.rate-limit.auth.burst=1",
+        "app.settlement.enabled=false",
+        "app.archive.enabled=false"
+    })
+class RateLimitFilterTests {
+
+  @Autowired TestRestTemplate http;
+
+  @Test
+  void forwardedClientsGetSeparateAuthBuckets() {
+    assertThat(login("203.0.113.10")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    assertThat(login("203.0.113.10")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+    // 別のクライアントは同じプロキシ越しでも別のバケット
+    assertThat(login("203.0.113.20")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+  }
+
+  @Test
+  void spoofedHopBeforeTheProxyDoesNotChangeTheKey() {
+    // nginx は $proxy_add_x_forwarded_for で末尾に実際の接続元を足す。キーは右端の信頼できない IP
+    assertThat(login("198.51.100.1, 203.0.113.30")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    assertThat(login("198.51.100.2, 203.0.113.30")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+  }
+
+  private HttpStatus login(String forwardedFor) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Forwarded-For", forwardedFor);
+    return HttpStatus.valueOf(http.postForEntity("/api/auth/login",
+        new HttpEntity<>("{\"email\":\"nobody@example.com\",\"password\":\"x\"}", headers), String.class)
+        .getStatusCode().value());
+  }
+}
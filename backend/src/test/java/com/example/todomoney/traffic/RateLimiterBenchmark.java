@@ -0,0 +1,83 @@
+package com.example.todomoney.traffic;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * RateLimiter.tryAcquire 1回あたりのコスト（目標はサブマイクロ秒）。
+ *
+ * - hotKey: 1ユーザーに全スレッドが集中（同じ AtomicLong の CAS 競合が最悪のケース）
+ * - spreadKeys: 10万ユーザーに散らばる（本番に近い。ConcurrentHashMap の get が支配的）
+ *
+ * 実行: mvn test-compile で生成したうえで IDE から main を実行するか、
+ * java -cp target/test-classes:$(テストクラスパス) com.example.todomoney.traffic.RateLimiterBenchmark
+ *
+ * 結果: まだ測っていない（JMH の数値は未記録）。サブマイクロ秒は目標であって実測ではない。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+  private static final int USERS = 100_000;
+
+  private RateLimiter limiter;
+  private Long[] keys;
+
+  @Setup
+  public void setup() {
+    // 拒否側の分岐も通るように、予算は小さめ
+    limiter = RateLimiter.of(
+        new RateLimiter.Limit(1_000, 100),
+        new RateLimiter.Limit(100, 20),
+        new RateLimiter.Limit(1, 10),
+        USERS * 2);
+    keys = new Long[USERS];
+    long now = System.nanoTime();
+    for (int i = 0; i < USERS; i++) {
+      keys[i] = (long) i;
+      limiter.tryAcquire(EndpointClass.READ, keys[i], now);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long hotKeySingleThread() {
+    return limiter.tryAcquire(EndpointClass.READ, keys[0], System.nanoTime());
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long hotKeyContended() {
+    return limiter.tryAcquire(EndpointClass.READ, keys[0], System.nanoTime());
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long spreadKeys() {
+    Long key = keys[ThreadLocalRandom.current().nextInt(USERS)];
+    return limiter.tryAcquire(EndpointClass.READ, key, System.nanoTime());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(RateLimiterBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.todomoney.traffic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTests {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final RateLimiter limiter = RateLimiter.of(
+      new RateLimiter.Limit(10, 5),
+      new RateLimiter.Limit(1, 2),
+      new RateLimiter.Limit(1, 1),
+      3);
+
+  @Test
+  void allowsBurstThenRefillsAtRate() {
+    long now = 1_000 * SECOND;
+    for (int i = 0; i < 5; i++) {
+      assertThat(limiter.tryAcquire(EndpointClass.READ, 1L, now)).isZero();
+    }
+    long wait = limiter.tryAcquire(EndpointClass.READ, 1L, now);
+    assertThat(wait).isEqualTo(SECOND / 10);
+
+    // 1個分補充されたら1回だけ通る
+    assertThat(limiter.tryAcquire(EndpointClass.READ, 1L, now + wait)).isZero();
+    assertThat(limiter.tryAcquire(EndpointClass.READ, 1L, now + wait)).isPositive();
+  }
+
+  @Test
+  void budgetsAreSeparatePerClassAndKey() {
+    long now = 1_000 * SECOND;
+    assertThat(limiter.tryAcquire(EndpointClass.WRITE, 1L, now)).isZero();
+    assertThat(limiter.tryAcquire(EndpointClass.WRITE, 1L, now)).isZero();
+    assertThat(limiter.tryAcquire(EndpointClass.WRITE, 1L, now)).isPositive();
+
+    assertThat(limiter.tryAcquire(EndpointClass.WRITE, 2L, now)).isZero();
+    assertThat(limiter.tryAcquire(EndpointClass.READ, 1L, now)).isZero();
+  }
+
+  @Test
+  void fullMapFallsBackToSharedBucketInsteadOfFailingOpen() {
+    long now = 1_000 * SECOND;
+    for (long k = 1; k <= 3; k++) {
+      limiter.tryAcquire(EndpointClass.AUTH, k, now);
+    }
+    // 満杯の間の新しいキーは予備のバケットで判定される（素通しにならない）
+    assertThat(limiter.tryAcquire(EndpointClass.AUTH, 4L, now)).isZero();
+    assertThat(limiter.tryAcquire(EndpointClass.AUTH, 4L, now)).isPositive();
+    assertThat(limiter.overflowed()).isEqualTo(2);
+
+    // 補充し終わったバケットは掃除で捨てられ、次からは自分のバケットを持てる
+    assertThat(limiter.evictIdle(now + SECOND)).isEqualTo(3);
+    assertThat(limiter.size()).isZero();
+    assertThat(limiter.tryAcquire(EndpointClass.AUTH, 4L, now + SECOND)).isZero();
+    assertThat(limiter.size()).isEqualTo(1);
+  }
+
+  @Test
+  void fullMapIsNotSweptInline() {
+    long now = 1_000 * SECOND;
+    for (long k = 1; k <= 3; k++) {
+      limiter.tryAcquire(EndpointClass.AUTH, k, now);
+    }
+    // 3つとも満タンに戻っていても、判定の中では捨てない（掃除は evictIdle だけ）
+    limiter.tryAcquire(EndpointClass.AUTH, 4L, now + 10 * SECOND);
+    assertThat(limiter.size()).isEqualTo(3);
+    assertThat(limiter.overflowed()).isEqualTo(1);
+  }
+}
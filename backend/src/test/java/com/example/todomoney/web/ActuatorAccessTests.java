@@ -0,0 +1,49 @@
+package com.example.todomoney.web;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.security.AppPrincipal;
+
+/**
+ * ヘルスチェックは誰でも、/actuator/prometheus は app.admin.emails のユーザーだけが読めること。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.admin.emails=ops@example.com",
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+@AutoConfigureMockMvc
+class ActuatorAccessTests {
+
+    @Autowired MockMvc mvc;
+
+    @Test
+    void healthIsOpen() throws Exception {
+        mvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusNeedsAnAdmin() throws Exception {
+        mvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+        mvc.perform(as("someone@example.com", get("/actuator/prometheus"))).andExpect(status().isForbidden());
+        mvc.perform(as("OPS@example.com", get("/actuator/prometheus"))).andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder as(String email, MockHttpServletRequestBuilder req) {
+        AppPrincipal principal = new AppPrincipal(1L, email);
+        return req.with(authentication(new UsernamePasswordAuthenticationToken(principal, null, List.of())));
+    }
+}
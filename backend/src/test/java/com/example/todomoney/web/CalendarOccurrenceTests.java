@@ -0,0 +1,171 @@
+package com.example.todomoney.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.Task;
+import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.repo.TaskRepository;
+import com.example.todomoney.repo.TaskScheduleRepository;
+import com.example.todomoney.repo.UserRepository;
+import com.example.todomoney.security.AppPrincipal;
+import com.example.todomoney.service.OccurrenceStore;
+
+/**
+ * ホライズン外でその場展開する /api/calendar が、task_occurrences から読むときと同じ発生を返すことを見る。
+ * 1タスクに「毎日」と「特定日」の2スケジュールを付け、特定日は2つが重なるようにしてある。
+ * upsert で保存した DATE（rrule 入り）が start / end の残りに引きずられないことも見る。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.occurrences.enabled=true",
+    "app.occurrences.days-back=31",
+    "app.occurrences.days-ahead=90",
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+@AutoConfigureMockMvc
+class CalendarOccurrenceTests {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired MockMvc mvc;
+    @Autowired OccurrenceStore occurrences;
+    @Autowired UserRepository users;
+    @Autowired TaskRepository tasks;
+    @Autowired TaskScheduleRepository schedules;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired PlatformTransactionManager txManager;
+
+    private User user;
+    private Task task;
+    private LocalDate overlap;
+
+    @BeforeEach
+    void seed() {
+        User u = new User();
+        u.setEmail("cal-occ-" + UUID.randomUUID() + "@example.com");
+        u.setPasswordHash("x");
+        user = users.save(u);
+
+        Task t = new Task();
+        t.setUserId(user.getId());
+        t.setTitle("daily");
+        task = tasks.save(t);
+
+        // ホライズン（-31〜+90日）をまたいで毎日
+        TaskSchedule daily = new TaskSchedule();
+        daily.setUserId(user.getId());
+        daily.setTask(task);
+        daily.setType(TaskSchedule.Type.RANGE);
+        daily.setStartDate(TODAY.minusDays(60));
+        daily.setEndDate(TODAY.plusDays(200));
+
+        // ホライズン外の日に、毎日の分と重なる1回
+        overlap = TODAY.plusDays(150);
+        TaskSchedule once = new TaskSchedule();
+        once.setUserId(user.getId());
+        once.setTask(task);
+        once.setType(TaskSchedule.Type.DATE);
+        once.setDate(overlap);
+        schedules.saveAll(List.of(daily, once));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("delete from task_occurrences where user_id = ?", user.getId());
+        jdbc.update("delete from occurrence_horizons where user_id = ?", user.getId());
+        jdbc.update("delete from task_schedules where user_id = ?", user.getId());
+        jdbc.update("delete from tasks where user_id = ?", user.getId());
+        users.deleteById(user.getId());
+    }
+
+    @Test
+    void onTheFlyCalendarDedupesOverlappingSchedulesLikeTheTable() throws Exception {
+        inTx(() -> occurrences.rebuildTask(user.getId(), task.getId()));
+        assertThat(occurrences.covers(user.getId(), overlap, overlap)).isFalse();
+
+        // ホライズン外：毎日の分と DATE の分が同じ日に重なるが1件
+        mvc.perform(asUser(get("/api/calendar").param("from", overlap.toString()).param("to", overlap.toString())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].taskId").value(task.getId()))
+                .andExpect(jsonPath("$[0].date").value(overlap.toString()));
+
+        // ホライズン内（表から読む）も同じ形
+        LocalDate inside = TODAY.plusDays(5);
+        mvc.perform(asUser(get("/api/calendar").param("from", inside.toString()).param("to", inside.toString())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].taskId").value(task.getId()));
+    }
+
+    @Test
+    void storedDateScheduleFiresOnlyOnItsDateEvenWithLeftoverRange() throws Exception {
+        Task t = new Task();
+        t.setUserId(user.getId());
+        t.setTitle("once");
+        long onceId = tasks.save(t).getId();
+        String path = "$[?(@.taskId == " + onceId + ")].date";
+
+        // RANGE から DATE に切り替えたクライアントが start / end を送り続けている想定。ホライズン内（表から読む）
+        LocalDate date = TODAY.plusDays(20);
+        upsertDate(onceId, date, TODAY.plusDays(1), TODAY.plusDays(10));
+        mvc.perform(asUser(get("/api/calendar").param("from", TODAY.toString())
+                        .param("to", TODAY.plusDays(30).toString())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(path, contains(date.toString())));
+
+        // ホライズン外（その場展開）でも同じ
+        LocalDate later = TODAY.plusDays(120);
+        upsertDate(onceId, later, later.minusDays(10), later.minusDays(5));
+        mvc.perform(asUser(get("/api/calendar").param("from", later.minusDays(15).toString())
+                        .param("to", later.plusDays(5).toString())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(path, contains(later.toString())));
+    }
+
+    private void upsertDate(long taskId, LocalDate date, LocalDate start, LocalDate end) throws Exception {
+        String body = "{\"taskId\":%d,\"type\":\"DATE\",\"date\":\"%s\",\"startDate\":\"%s\",\"endDate\":\"%s\"}"
+                .formatted(taskId, date, start, end);
+        mvc.perform(asUser(post("/api/schedules/upsert").contentType(MediaType.APPLICATION_JSON).content(body)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rrule").value("FREQ=DAILY;COUNT=1"))
+                .andExpect(jsonPath("$.startDate").value(start.toString()));
+    }
+
+    private MockHttpServletRequestBuilder asUser(MockHttpServletRequestBuilder req) {
+        var principal = new AppPrincipal(user.getId(), user.getEmail());
+        return req
+                .with(authentication(new UsernamePasswordAuthenticationToken(principal, null, List.of())))
+                .requestAttr("userId", user.getId());
+    }
+
+    private void inTx(Runnable work) {
+        new TransactionTemplate(txManager).executeWithoutResult(s -> work.run());
+    }
+}
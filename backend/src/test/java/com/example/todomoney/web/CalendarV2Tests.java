@@ -0,0 +1,185 @@
+package com.example.todomoney.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.security.AppPrincipal;
+import com.example.todomoney.service.OccurrenceStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * /api/v2/calendar を発生ごとに戻すと /api/calendar と同じ並び・同じ中身になること
+ * （ホライズン内の表から読む場合と、外でその場展開する場合の両方）。
+ * 同じデータなら v2 の JSON の方が小さいことも見る（どれだけ小さいかは測っていない）。
+ */
+@SpringBootTest(classes = BackendApplication.class, properties = {
+    "app.occurrences.enabled=true",
+    "app.occurrences.days-back=31",
+    "app.occurrences.days-ahead=90",
+    "app.settlement.enabled=false",
+    "app.archive.enabled=false"
+})
+@AutoConfigureMockMvc
+class CalendarV2Tests {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired MockMvc mvc;
+    @Autowired OccurrenceStore occurrences;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired ObjectMapper json;
+
+    private long userId;
+    private String email;
+
+    @BeforeEach
+    void seed() {
+        email = "cal-v2-" + UUID.randomUUID() + "@example.com";
+        userId = id("insert into users(email, password_hash) values (?, 'x') returning id", email);
+        long tagA = id("insert into tag(user_id, name, color) values (?, 'a', '#ff0000') returning id", userId);
+        long tagB = id("insert into tag(user_id, name, color) values (?, 'b', '#00ff00') returning id", userId);
+
+        List<Long> taskIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            long taskId = id("insert into tasks(user_id, title, memo) values (?, ?, ?) returning id",
+                    userId, "task " + i, "memo for task " + i + " that repeats on every v1 occurrence");
+            taskIds.add(taskId);
+            jdbc.update("insert into task_tags(task_id, tag_id) values (?, ?)", taskId, tagA);
+            if (i == 1) jdbc.update("insert into task_tags(task_id, tag_id) values (?, ?)", taskId, tagB);
+            // ホライズン（-31〜+90日）をまたいで毎日
+            jdbc.update("insert into task_schedules(user_id, task_id, type, start_date, end_date) values (?, ?, 'RANGE', ?, ?)",
+                    userId, taskId, TODAY.minusDays(10), TODAY.plusDays(200));
+        }
+        // 毎日の分と重なる1回（ホライズン内と外に1つずつ）
+        for (LocalDate d : List.of(TODAY.plusDays(3), TODAY.plusDays(150))) {
+            jdbc.update("""
+                    insert into task_schedules(user_id, task_id, type, date, rrule)
+                    values (?, ?, 'DATE', ?, 'FREQ=DAILY;COUNT=1')
+                    """, userId, taskIds.get(0), d);
+        }
+        // 完了はまばらに（末尾の発生は未完了のままにして、ビット列の末尾が 0 になるように）
+        for (int i = 0; i < taskIds.size(); i++) {
+            for (LocalDate d : List.of(TODAY.plusDays(i), TODAY.plusDays(3), TODAY.plusDays(150 + i))) {
+                jdbc.update("insert into task_completion_logs(user_id, task_id, occurrence_date) values (?, ?, ?)",
+                        userId, taskIds.get(i), d);
+            }
+        }
+        new TransactionTemplate(txManager).executeWithoutResult(s -> {
+            for (long taskId : taskIds) occurrences.rebuildTask(userId, taskId);
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("delete from task_occurrences where user_id = ?", userId);
+        jdbc.update("delete from occurrence_horizons where user_id = ?", userId);
+        jdbc.update("delete from task_completion_logs where user_id = ?", userId);
+        jdbc.update("delete from tasks where user_id = ?", userId);
+        jdbc.update("delete from tag where user_id = ?", userId);
+        jdbc.update("delete from change_log where user_id = ?", userId);
+        jdbc.update("delete from user_change_seq where user_id = ?", userId);
+        jdbc.update("delete from users where id = ?", userId);
+    }
+
+    @Test
+    void insideHorizonDecodesToV1() throws Exception {
+        LocalDate from = TODAY;
+        LocalDate to = TODAY.plusDays(30);
+        assertThat(occurrences.covers(userId, from, to)).isTrue();
+
+        assertSameOccurrences(from, to);
+    }
+
+    @Test
+    void outsideHorizonDecodesToV1() throws Exception {
+        LocalDate from = TODAY.plusDays(140);
+        LocalDate to = TODAY.plusDays(170);
+        assertThat(occurrences.covers(userId, from, to)).isFalse();
+
+        assertSameOccurrences(from, to);
+    }
+
+    @Test
+    void v2IsSmallerThanV1ForTheSameRange() throws Exception {
+        LocalDate from = TODAY;
+        LocalDate to = TODAY.plusDays(30);
+
+        int v1 = fetch("/api/calendar", from, to).length;
+        int v2 = fetch("/api/v2/calendar", from, to).length;
+
+        assertThat(v2).as("v2 bytes vs v1 bytes").isLessThan(v1);
+    }
+
+    private void assertSameOccurrences(LocalDate from, LocalDate to) throws Exception {
+        List<String> v1 = new ArrayList<>();
+        for (JsonNode item : json.readTree(fetch("/api/calendar", from, to))) {
+            TreeSet<Long> tagIds = new TreeSet<>();
+            item.get("tags").forEach(t -> tagIds.add(t.get("id").asLong()));
+            v1.add(row(item.get("date").asText(), item.get("taskId").asLong(), item.get("completed").asBoolean(),
+                    item.get("title").asText(), item.get("memo").asText(), tagIds));
+        }
+
+        JsonNode v2 = json.readTree(fetch("/api/v2/calendar", from, to));
+        JsonNode taskId = v2.get("taskId");
+        JsonNode epochDay = v2.get("epochDay");
+        byte[] completed = v2.get("completed").binaryValue();
+        assertThat(epochDay.size()).isEqualTo(taskId.size());
+        assertThat(completed).hasSize((taskId.size() + 7) / 8);
+
+        List<String> decoded = new ArrayList<>();
+        for (int i = 0; i < taskId.size(); i++) {
+            JsonNode task = v2.get("tasks").get(taskId.get(i).asText());
+            TreeSet<Long> tagIds = new TreeSet<>();
+            task.get("tagIds").forEach(t -> tagIds.add(t.asLong()));
+            tagIds.forEach(t -> assertThat(v2.get("tags").has(t.toString())).isTrue());
+            boolean done = (completed[i / 8] & (1 << (i % 8))) != 0;
+            decoded.add(row(LocalDate.ofEpochDay(epochDay.get(i).asLong()).toString(), taskId.get(i).asLong(), done,
+                    task.get("title").asText(), task.get("memo").asText(), tagIds));
+        }
+
+        assertThat(decoded).isNotEmpty().isEqualTo(v1);
+        // 重なった DATE の日は1件、完了も乗っている
+        assertThat(decoded).anyMatch(r -> r.contains("|true|"));
+    }
+
+    private static String row(String date, long taskId, boolean completed, String title, String memo,
+            TreeSet<Long> tagIds) {
+        return date + "|" + taskId + "|" + completed + "|" + title + "|" + memo + "|" + tagIds;
+    }
+
+    private byte[] fetch(String path, LocalDate from, LocalDate to) throws Exception {
+        AppPrincipal principal = new AppPrincipal(userId, email);
+        return mvc.perform(get(path).param("from", from.toString()).param("to", to.toString())
+                        .with(authentication(new UsernamePasswordAuthenticationToken(principal, null, List.of())))
+                        .requestAttr("userId", userId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private long id(String sql, Object... args) {
+        return jdbc.queryForObject(sql, Long.class, args);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.todomoney.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+// 並び順・重なりの畳み込み・完了ビットの詰め方
+class ColumnarCalendarBuilderTests {
+
+    private static final long BASE = 20_000;
+
+    @Test
+    void sortsByDayThenTaskIdWhateverTheInsertOrder() {
+        ColumnarCalendarBuilder b = new ColumnarCalendarBuilder(BASE);
+        b.add(30, BASE + 1, false);
+        b.add(10, BASE + 1, false);
+        b.add(20, BASE, false);
+        b.add(10, BASE, false);
+
+        ColumnarCalendarBuilder.Columns c = b.finish(b.distinctTaskIds());
+
+        assertThat(c.epochDay()).containsExactly((int) BASE, (int) BASE, (int) BASE + 1, (int) BASE + 1);
+        assertThat(c.taskId()).containsExactly(10L, 20L, 10L, 30L);
+    }
+
+    @Test
+    void overlappingSchedulesCollapseAndAnyCompletedWins() {
+        ColumnarCalendarBuilder b = new ColumnarCalendarBuilder(BASE);
+        // 同じ日・同じタスクが3回（完了は1つだけ）、別の日は未完了が2回
+        b.add(10, BASE, false);
+        b.add(10, BASE, true);
+        b.add(10, BASE, false);
+        b.add(10, BASE + 1, false);
+        b.add(10, BASE + 1, false);
+
+        ColumnarCalendarBuilder.Columns c = b.finish(b.distinctTaskIds());
+
+        assertThat(c.taskId()).containsExactly(10L, 10L);
+        assertThat(c.epochDay()).containsExactly((int) BASE, (int) BASE + 1);
+        assertThat(c.completed()).containsExactly(0b01);
+    }
+
+    @Test
+    void completedIsPaddedToOneBitPerOccurrence() {
+        ColumnarCalendarBuilder b = new ColumnarCalendarBuilder(BASE);
+        // 20件で完了は先頭だけ → BitSet.toByteArray なら1バイトになるところを3バイト
+        for (int d = 0; d < 20; d++) b.add(10, BASE + d, d == 0);
+
+        ColumnarCalendarBuilder.Columns c = b.finish(b.distinctTaskIds());
+
+        assertThat(c.taskId()).hasSize(20);
+        assertThat(c.completed()).containsExactly(1, 0, 0);
+    }
+
+    @Test
+    void emptyRangeGivesEmptyColumns() {
+        ColumnarCalendarBuilder b = new ColumnarCalendarBuilder(BASE);
+
+        ColumnarCalendarBuilder.Columns c = b.finish(b.distinctTaskIds());
+
+        assertThat(c.taskId()).isEmpty();
+        assertThat(c.epochDay()).isEmpty();
+        assertThat(c.completed()).isEmpty();
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.todomoney.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.todomoney.BackendApplication;
+import com.example.todomoney.entity.Goal;
+import com.example.todomoney.entity.Tag;
+import com.example.todomoney.entity.Task;
+import com.example.todomoney.entity.TaskSchedule;
+import com.example.todomoney.entity.User;
+import com.example.todomoney.money.Money;
+import com.example.todomoney.repo.GoalRepository;
+import com.example.todomoney.repo.TagRepository;
+import com.example.todomoney.repo.TaskRepository;
+import com.example.todomoney.repo.TaskScheduleRepository;
+import com.example.todomoney.repo.UserRepository;
+import com.example.todomoney.security.AppPrincipal;
+import com.example.todomoney.support.QueryBudgetInterceptor;
+import com.example.todomoney.support.QueryBudgetTestConfig;
+
+/**
+ * データ件数を 1 → 1000 と増やしても各エンドポイントの SQL 件数が @QueryBudget に収まることを確認する。
+ * 件数に比例してクエリが増える（N+1）実装が入るとここで落ちる。
+ * 読み取り（ゴール・カレンダー・履歴・集計）と、タスクの完了・アーカイブ・タグ付けの書き込みを見る。
+ */
+@SpringBootTest(classes = BackendApplication.class)
+@AutoConfigureMockMvc
+@Import(QueryBudgetTestConfig.class)
+class QueryBudgetTests {
+
+    @Autowired MockMvc mvc;
+    @Autowired QueryBudgetInterceptor budget;
+
+    @Autowired UserRepository users;
+    @Autowired GoalRepository goals;
+    @Autowired TaskRepository tasks;
+    @Autowired TagRepository tags;
+    @Autowired TaskScheduleRepository schedules;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void clear() {
+        budget.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void goalsListStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+
+        mvc.perform(as(fx, get("/api/goals"))).andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void calendarStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+
+        mvc.perform(as(fx, get("/api/calendar").param("from", "2026-01-01").param("to", "2026-01-31")))
+                .andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void setTagsStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+        List<Long> tagIds = fx.tagIds.subList(0, Math.min(3, fx.tagIds.size()));
+
+        mvc.perform(as(fx, post("/api/tasks/" + fx.taskIds.get(0) + "/tags"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tagIds\":" + tagIds + "}"))
+                .andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void goalDetailStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+
+        mvc.perform(as(fx, get("/api/goals/" + fx.goalIds.get(0)))).andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void goalTasksStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+        // rows 件のタスクを1つのゴールに集める
+        jdbc.update("update tasks set goal_id = ? where user_id = ?", fx.goalIds.get(0), fx.userId);
+
+        mvc.perform(as(fx, get("/api/goals/" + fx.goalIds.get(0) + "/tasks"))).andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void summaryStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+        // タスクごとに1件、ゴールをまたいで2通貨
+        List<Object[]> events = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            events.add(new Object[] { fx.userId, fx.goalIds.get(i), fx.taskIds.get(i), i % 2 == 0 ? "USD" : "JPY" });
+        }
+        jdbc.batchUpdate("insert into currency_events(user_id, goal_id, task_id, currency, amount) values (?, ?, ?, ?, 1)",
+                events);
+
+        mvc.perform(as(fx, get("/api/me/summary"))).andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void completeTaskStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+
+        mvc.perform(as(fx, post("/api/tasks/" + fx.taskIds.get(0) + "/complete"))).andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void archiveTaskStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+
+        mvc.perform(as(fx, post("/api/tasks/" + fx.taskIds.get(0) + "/archive").param("archived", "true")))
+                .andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void calendarV2StaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+
+        mvc.perform(as(fx, get("/api/v2/calendar").param("from", "2026-01-01").param("to", "2026-01-31")))
+                .andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void completeOccurrenceStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+
+        // 2026-01-05 は月曜（seed のスケジュールは月・水・金）
+        mvc.perform(as(fx, post("/api/complete"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"taskId\":" + fx.taskIds.get(0) + ",\"date\":\"2026-01-05\"}"))
+                .andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void historyStaysWithinBudget(int rows) throws Exception {
+        Fixture fx = seed(rows);
+        seedCompletions(fx);
+
+        mvc.perform(as(fx, get("/api/history").param("from", "2026-01-01").param("to", "2026-01-31")))
+                .andExpect(status().isOk());
+
+        assertWithinBudget(rows);
+    }
+
+    private void assertWithinBudget(int rows) {
+        assertThat(budget.measurements()).as("endpoint was not measured").isNotEmpty();
+        assertThat(budget.violations()).as("query budget exceeded with %d rows", rows).isEmpty();
+    }
+
+    private MockHttpServletRequestBuilder as(Fixture fx, MockHttpServletRequestBuilder req) {
+        var principal = new AppPrincipal(fx.userId, fx.email);
+        return req
+                .with(authentication(new UsernamePasswordAuthenticationToken(principal, null, List.of())))
+                .requestAttr("userId", fx.userId);
+    }
+
+    private record Fixture(long userId, String email, List<Long> goalIds, List<Long> taskIds, List<Long> tagIds) {}
+
+    // タスクごとに1件ずつ、1月中の完了ログ
+    private void seedCompletions(Fixture fx) {
+        List<Object[]> logs = new ArrayList<>();
+        for (int i = 0; i < fx.taskIds.size(); i++) {
+            logs.add(new Object[] { fx.userId, fx.taskIds.get(i), LocalDate.of(2026, 1, 1 + i % 31) });
+        }
+        jdbc.batchUpdate("insert into task_completion_logs(user_id, task_id, occurrence_date) values (?, ?, ?)", logs);
+    }
+
+    // rows 件ずつ goal / task / tag / schedule を作る（task ごとに別 goal・別 tag）
+    private Fixture seed(int rows) {
+        User u = new User();
+        u.setEmail("budget-" + UUID.randomUUID() + "@example.com");
+        u.setPasswordHash("x");
+        u = users.save(u);
+
+        List<Goal> gs = new ArrayList<>();
+        List<Tag> ts = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Goal g = new Goal();
+            g.setUser(u);
+            g.setTitle("goal " + i);
+            g.setAnnualIncome(1_000_000 * Money.ONE);
+            gs.add(g);
+
+            Tag tag = new Tag();
+            tag.setUserId(u.getId());
+            tag.setName("tag " + i);
+            tag.setColor("#000000");
+            ts.add(tag);
+        }
+        gs = goals.saveAll(gs);
+        ts = tags.saveAll(ts);
+
+        List<Task> ks = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Task t = new Task();
+            t.setUserId(u.getId());
+            t.setGoal(gs.get(i));
+            t.setTitle("task " + i);
+            t.setMemo("memo " + i);
+            t.setTags(Set.of(ts.get(i)));
+            ks.add(t);
+        }
+        ks = tasks.saveAll(ks);
+
+        List<TaskSchedule> ss = new ArrayList<>();
+        for (Task t : ks) {
+            TaskSchedule s = new TaskSchedule();
+            s.setUserId(u.getId());
+            s.setTask(t);
+            s.setType(TaskSchedule.Type.WEEKLY);
+            s.setStartDate(LocalDate.of(2026, 1, 1));
+            s.setEndDate(LocalDate.of(2026, 12, 31));
+            s.setDaysOfWeekMask(2 | 8 | 32);
+            ss.add(s);
+        }
+        schedules.saveAll(ss);
+
+        return new Fixture(u.getId(), u.getEmail(),
+                gs.stream().map(Goal::getId).toList(),
+                ks.stream().map(Task::getId).toList(),
+                ts.stream().map(Tag::getId).toList());
+    }
+}
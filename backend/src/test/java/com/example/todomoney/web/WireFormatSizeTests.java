@@ -0,0 +1,102 @@
+package com.example.todomoney.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * /api/calendar・/api/history 相当のレスポンスを JSON と CBOR でエンコードして、CBOR の方が小さいことを確かめる。
+ * エンコードのコストは時間ではなく1回あたりの割り当てバイト数で比べる（JUnit の中の時間は JIT 次第で当てにならない）。
+ */
+class WireFormatSizeTests {
+
+    private static final int TASKS = 50;
+    private static final int DAYS = 365;
+
+    // Spring Boot の既定（日付は ISO 文字列）に合わせた JSON
+    private static final ObjectMapper JSON = Jackson2ObjectMapperBuilder.json()
+            .modules(new JavaTimeModule())
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    void cborIsSmallerThanJsonForCalendarPayload() throws IOException {
+        List<CalendarController.CalendarItem> payload = calendar();
+
+        byte[] j = JSON.writeValueAsBytes(payload);
+        byte[] c = CborConfig.cborMapper().writeValueAsBytes(payload);
+
+        assertThat(c.length).as("cbor bytes vs json bytes (%d occurrences)", payload.size()).isLessThan(j.length);
+    }
+
+    @Test
+    void cborEncodeAllocatesLessThanJson() throws IOException {
+        List<CalendarController.CalendarItem> payload = calendar();
+        ObjectMapper cbor = CborConfig.cborMapper();
+
+        // CBOR は日付を整数で書くので、JSON のような日付文字列を作らない
+        long j = allocatedPerEncode(JSON, payload);
+        long c = allocatedPerEncode(cbor, payload);
+
+        assertThat(c).as("cbor vs json allocated bytes per encode").isLessThan(j);
+    }
+
+    @Test
+    void cborIsSmallerThanJsonForHistoryPayload() throws IOException {
+        List<HistoryController.HistoryItem> payload = new ArrayList<>();
+        Instant base = Instant.parse("2026-01-01T09:00:00Z");
+        for (int i = 0; i < 1_000; i++) {
+            payload.add(new HistoryController.HistoryItem(10_000L + i, 1000L + i % TASKS, "daily task " + i % TASKS,
+                    LocalDate.of(2026, 1, 1).plusDays(i / TASKS), base.plusSeconds(3_600L * i)));
+        }
+
+        byte[] j = JSON.writeValueAsBytes(payload);
+        byte[] c = CborConfig.cborMapper().writeValueAsBytes(payload);
+
+        assertThat(c.length).as("cbor bytes vs json bytes").isLessThan(j.length);
+    }
+
+    // 温めてから数回測った最小値（初回はシリアライザの構築や JIT の分が乗る）
+    private static long allocatedPerEncode(ObjectMapper mapper, Object payload) throws IOException {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 5; i++) mapper.writeValueAsBytes(payload);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long before = mx.getCurrentThreadAllocatedBytes();
+            mapper.writeValueAsBytes(payload);
+            best = Math.min(best, mx.getCurrentThreadAllocatedBytes() - before);
+        }
+        return best;
+    }
+
+    private static List<CalendarController.CalendarItem> calendar() {
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        List<CalendarController.CalendarItem> out = new ArrayList<>(TASKS * DAYS);
+        for (int d = 0; d < DAYS; d++) {
+            for (int t = 0; t < TASKS; t++) {
+                CalendarController.CalendarItem item = new CalendarController.CalendarItem();
+                item.taskId = 1000L + t;
+                item.title = "daily task " + t;
+                item.memo = "memo for task " + t + " — a sentence or two that the user typed once";
+                item.date = start.plusDays(d);
+                item.completed = (d + t) % 3 == 0;
+                item.tags.add(new CalendarController.TagDto(10L + t % 5, "tag " + t % 5, "#ff8800"));
+                item.tags.add(new CalendarController.TagDto(20L, "daily", "#0088ff"));
+                out.add(item);
+            }
+        }
+        return out;
+    }
+}
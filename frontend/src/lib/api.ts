@@ -95,6 +95,14 @@ export type CalendarItem = {
   tags: TagItem[];
 };
 
+export type HistoryItem = {
+  id: number;
+  taskId: number;
+  taskTitle?: string | null; // アーカイブ前に記録されたものは null
+  occurrenceDate: string; // yyyy-MM-dd
+  completedAt: string;
+};
+
 // =====================
 // Auth
 // =====================
@@ -204,7 +212,7 @@ export async function completeOccurrence(
   });
 }
 
-export async function history(from: string, to: string): Promise<any[]> {
+export async function history(from: string, to: string): Promise<HistoryItem[]> {
   return fetchJson(
     `/api/history?from=${encodeURIComponent(from)}&to=${encodeURIComponent(to)}`
   );
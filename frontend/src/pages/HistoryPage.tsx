@@ -1,5 +1,5 @@
 import { useEffect, useState } from "react";
-import { history } from "../lib/api";
+import { history, HistoryItem } from "../lib/api";
 
 function todayYmd() {
   const d = new Date();
@@ -12,7 +12,7 @@ function todayYmd() {
 export default function HistoryPage() {
   const [from, setFrom] = useState(() => todayYmd());
   const [to, setTo] = useState(() => todayYmd());
-  const [rows, setRows] = useState<any[]>([]);
+  const [rows, setRows] = useState<HistoryItem[]>([]);
 
   async function refresh() {
     setRows(await history(from, to));
@@ -38,10 +38,10 @@ export default function HistoryPage() {
         {rows.length === 0 ? (
           <div className="small">履歴がありません</div>
         ) : (
-          rows.map((r:any) => (
+          rows.map((r) => (
             <div key={r.id} className="task">
               <div>
-                <div style={{ fontWeight: 700 }}>{r.task?.title ?? "(task)"}</div>
+                <div style={{ fontWeight: 700 }}>{r.taskTitle ?? "(task)"}</div>
                 <div className="small">occurrence: {r.occurrenceDate}</div>
                 <div className="small">completedAt: {r.completedAt}</div>
               </div>
@@ -0,0 +1,73 @@
+// 完了の突発負荷（CurrencyEvent の write-behind あり / なしの比較用）。
+//   k6 run -e BASE_URL=http://localhost:8080 -e RATE=1000 loadtest/burst-complete.js
+// setup で未完了タスクを USERS × TASKS 件作り、各イテレーションがその1件ずつを完了にする（同じタスクを2回叩かない）。
+import http from 'k6/http';
+import exec from 'k6/execution';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const RATE = Number(__ENV.RATE || 1000);         // 突発時の req/s
+const USERS = Number(__ENV.USERS || 50);
+const TASKS = Number(__ENV.TASKS || 400);        // ユーザーあたり（RATE × 突発の秒数より多く用意する）
+
+const shed = new Counter('shed_503');
+const completeLatency = new Trend('latency_complete', true);
+
+export const options = {
+  setupTimeout: '10m',
+  scenarios: {
+    burst: {
+      executor: 'ramping-arrival-rate',
+      startRate: 10,
+      timeUnit: '1s',
+      preAllocatedVUs: 200,
+      maxVUs: 2000,
+      stages: [
+        { target: 10, duration: '10s' },
+        { target: RATE, duration: '1s' },   // 突発
+        { target: RATE, duration: '15s' },
+        { target: 10, duration: '1s' },
+        { target: 10, duration: '10s' },    // outbox が捌け切るまで
+      ],
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+  thresholds: {
+    'http_req_failed{expected_response:true}': ['rate<0.01'],
+  },
+};
+
+const json = { headers: { 'Content-Type': 'application/json' } };
+
+export function setup() {
+  const perUser = [];
+  for (let i = 0; i < USERS; i++) {
+    const email = `burst-${Date.now()}-${i}@example.com`;
+    const res = http.post(`${BASE_URL}/api/auth/register`, JSON.stringify({ email, password: 'password123' }), json);
+    check(res, { registered: (r) => r.status === 200 });
+    const token = res.json('token');
+    const auth = { headers: { 'Content-Type': 'application/json', Authorization: `Bearer ${token}` } };
+
+    const goalId = http.post(`${BASE_URL}/api/goals`, JSON.stringify({ title: 'burst', annualIncome: 5000000 }), auth).json('id');
+    const tasks = [];
+    for (let j = 0; j < TASKS; j++) {
+      const t = http.post(`${BASE_URL}/api/goals/${goalId}/tasks`, JSON.stringify({ title: `t${j}` }), auth);
+      tasks.push({ token, taskId: t.json('id') });
+    }
+    perUser.push(tasks);
+  }
+  // ユーザーを交互に並べる（同じユーザーの行に偏らないように）
+  const work = [];
+  for (let j = 0; j < TASKS; j++) for (const tasks of perUser) work.push(tasks[j]);
+  return { work };
+}
+
+export default function (data) {
+  const w = data.work[exec.scenario.iterationInTest % data.work.length];
+  const res = http.post(`${BASE_URL}/api/tasks/${w.taskId}/complete`, null,
+    { headers: { Authorization: `Bearer ${w.token}` } });
+  completeLatency.add(res.timings.duration);
+  if (res.status === 503) shed.add(1);
+  check(res, { 'ok or shed': (r) => r.status === 200 || r.status === 503 });
+}
@@ -0,0 +1,74 @@
+// 遅い DB（docker-compose.slowdb.yml）に対するプラットフォームスレッド / 仮想スレッドの比較用。
+//   k6 run -e BASE_URL=http://localhost:8080 -e RATE=400 loadtest/slow-db.js
+// 到着率一定（open model）で流すので、詰まったときにクライアント側が遅くなって負荷が下がることはない。
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const RATE = Number(__ENV.RATE || 400);          // req/s
+const DURATION = __ENV.DURATION || '2m';
+const USERS = Number(__ENV.USERS || 50);
+
+const shed = new Counter('shed_503');
+const calendarLatency = new Trend('latency_calendar', true);
+const writeLatency = new Trend('latency_write', true);
+const goalsLatency = new Trend('latency_goals', true);
+
+export const options = {
+  scenarios: {
+    mixed: {
+      executor: 'constant-arrival-rate',
+      rate: RATE,
+      timeUnit: '1s',
+      duration: DURATION,
+      preAllocatedVUs: 200,
+      maxVUs: 2000,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+  // 503 は bulkhead が意図して返すもの（失敗率とは分けて shed_503 で見る）
+  thresholds: {
+    'http_req_failed{expected_response:true}': ['rate<0.01'],
+  },
+};
+
+const json = { headers: { 'Content-Type': 'application/json' } };
+
+export function setup() {
+  const users = [];
+  for (let i = 0; i < USERS; i++) {
+    const email = `load-${Date.now()}-${i}@example.com`;
+    const body = JSON.stringify({ email, password: 'password123' });
+    const res = http.post(`${BASE_URL}/api/auth/register`, body, json);
+    check(res, { registered: (r) => r.status === 200 });
+    const token = res.json('token');
+    const auth = { headers: { 'Content-Type': 'application/json', Authorization: `Bearer ${token}` } };
+
+    const goal = http.post(`${BASE_URL}/api/goals`, JSON.stringify({ title: 'load', annualIncome: 5000000 }), auth);
+    users.push({ token, goalId: goal.json('id') });
+  }
+  return { users };
+}
+
+export default function (data) {
+  const u = data.users[Math.floor(Math.random() * data.users.length)];
+  const auth = { headers: { 'Content-Type': 'application/json', Authorization: `Bearer ${u.token}` } };
+  const p = Math.random();
+
+  let res;
+  if (p < 0.6) {
+    res = http.get(`${BASE_URL}/api/calendar?from=2026-01-01&to=2026-03-31`, { ...auth, tags: { group: 'calendar' } });
+    calendarLatency.add(res.timings.duration);
+  } else if (p < 0.8) {
+    res = http.post(`${BASE_URL}/api/goals/${u.goalId}/tasks`, JSON.stringify({ title: 'load task' }),
+      { ...auth, tags: { group: 'write' } });
+    writeLatency.add(res.timings.duration);
+  } else {
+    res = http.get(`${BASE_URL}/api/goals`, { ...auth, tags: { group: 'goals' } });
+    goalsLatency.add(res.timings.duration);
+  }
+
+  if (res.status === 503) shed.add(1);
+  check(res, { 'ok or shed': (r) => r.status < 400 || r.status === 503 });
+}